@@ -0,0 +1,49 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import org.fcrepo.client.testing.FakeFedoraServer;
+
+/**
+ * Repository content shared by the benchmarks.
+ *
+ * @author escowles
+**/
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Create a container with a number of children; the first {@code binaries} children are datastreams of 1 KB.
+     *
+     * @param server The fake repository.
+     * @param path Path of the container.
+     * @param children Number of children.
+     * @param binaries Number of children which are datastreams.
+    **/
+    static void addContainer(final FakeFedoraServer server, final String path, final int children,
+                             final int binaries) {
+        server.createContainer(path);
+        for (int i = 0; i < children; i++) {
+            if (i < binaries) {
+                server.createBinary(path + "/child" + i, new byte[1024], "application/octet-stream");
+            } else {
+                server.createContainer(path + "/child" + i);
+            }
+        }
+    }
+}
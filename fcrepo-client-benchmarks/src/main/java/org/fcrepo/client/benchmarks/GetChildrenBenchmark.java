@@ -0,0 +1,105 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Collection;
+
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.FedoraObject;
+import org.fcrepo.client.FedoraResource;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of listing the children of an object against the fake repository; half of the children are datastreams.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetChildrenBenchmark {
+
+    private static final String PATH = "/object";
+
+    @Param({ "10", "100" })
+    public int children;
+
+    private FakeFedoraServer server;
+    private FedoraRepositoryImpl repository;
+    private FedoraObject object;
+
+    /**
+     * Start the fake repository and load the parent object.
+     *
+     * @throws Exception if the repository cannot be started
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        server = new FakeFedoraServer();
+        Fixtures.addContainer(server, PATH, children, children / 2);
+        repository = new FedoraRepositoryImpl(server.getRepositoryUrl());
+        object = repository.getObject(PATH);
+    }
+
+    /**
+     * Stop the fake repository.
+    **/
+    @TearDown
+    public void tearDown() {
+        repository.close();
+        server.close();
+    }
+
+    /**
+     * List all children without loading them.
+     *
+     * @return the children
+     * @throws FedoraException if a request fails
+    **/
+    @Benchmark
+    public Collection<FedoraResource> getChildren() throws FedoraException {
+        return object.getChildren(null);
+    }
+
+    /**
+     * List all children and load their properties, eight at a time.
+     *
+     * @return the children
+     * @throws FedoraException if a request fails
+    **/
+    @Benchmark
+    public Collection<FedoraResource> getChildrenLoaded() throws FedoraException {
+        return object.getChildren(null, 8);
+    }
+}
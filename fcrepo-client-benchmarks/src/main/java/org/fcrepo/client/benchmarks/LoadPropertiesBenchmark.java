@@ -0,0 +1,124 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.impl.FedoraObjectImpl;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.impl.FedoraResourceImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.fcrepo.client.utils.HttpHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of loading resource properties: parsing a canned RDF/XML response into a filtered graph, and the same
+ * through {@link HttpHelper#loadProperties} against the fake repository.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadPropertiesBenchmark {
+
+    private static final String PATH = "/object";
+
+    @Param({ "0", "100", "1000" })
+    public int children;
+
+    private FakeFedoraServer server;
+    private FedoraRepositoryImpl repository;
+    private HttpHelper httpHelper;
+    private byte[] rdf;
+
+    /**
+     * Start the fake repository and capture its response as the canned response.
+     *
+     * @throws Exception if the repository cannot be started
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        server = new FakeFedoraServer();
+        Fixtures.addContainer(server, PATH, children, 0);
+        repository = new FedoraRepositoryImpl(server.getRepositoryUrl());
+        httpHelper = new HttpHelper(server.getRepositoryUrl(), null, null, false);
+        final HttpGet get = httpHelper.createPropertiesGetMethod(new FedoraObjectImpl(repository, httpHelper, PATH));
+        try {
+            rdf = EntityUtils.toByteArray(httpHelper.execute(get).getEntity());
+        } finally {
+            get.releaseConnection();
+        }
+    }
+
+    /**
+     * Stop the fake repository.
+    **/
+    @TearDown
+    public void tearDown() {
+        httpHelper.close();
+        repository.close();
+        server.close();
+    }
+
+    /**
+     * Parse a canned response, without any network I/O.
+     *
+     * @return the loaded resource
+     * @throws FedoraException if the response cannot be parsed
+    **/
+    @Benchmark
+    public FedoraResourceImpl parse() throws FedoraException {
+        final FedoraObjectImpl object = new FedoraObjectImpl(repository, httpHelper, PATH);
+        final HttpGet get = httpHelper.createPropertiesGetMethod(object);
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(rdf, ContentType.create("application/rdf+xml")));
+        return httpHelper.readProperties(object, get, response);
+    }
+
+    /**
+     * Load properties over HTTP from the fake repository.
+     *
+     * @return the loaded resource
+     * @throws FedoraException if the request fails
+    **/
+    @Benchmark
+    public FedoraResourceImpl load() throws FedoraException {
+        return httpHelper.loadProperties(new FedoraObjectImpl(repository, httpHelper, PATH));
+    }
+}
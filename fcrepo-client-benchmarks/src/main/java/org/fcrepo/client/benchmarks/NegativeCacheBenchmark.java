@@ -0,0 +1,113 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.concurrent.TimeUnit;
+
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.fcrepo.client.utils.HttpClientConfig;
+import org.fcrepo.client.utils.NegativeCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of ingest-style existence checks against the fake repository, where half the checks repeat one of 1000
+ * recently checked absent paths and half are for paths never seen: without a negative cache, with one, and with
+ * one fronted by a Bloom filter.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class NegativeCacheBenchmark {
+
+    private static final int REPEATED = 1000;
+
+    @Param({ "none", "map", "bloom" })
+    public String cache;
+
+    private FakeFedoraServer server;
+    private FedoraRepositoryImpl repository;
+
+    /**
+     * Start the fake repository and connect with the cache under test.
+     *
+     * @throws Exception if the repository cannot be started
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        server = new FakeFedoraServer();
+        final HttpClientConfig config = new HttpClientConfig();
+        if (!cache.equals("none")) {
+            config.setNegativeCache(new NegativeCache(100000, 1, TimeUnit.HOURS, cache.equals("bloom")));
+        }
+        repository = new FedoraRepositoryImpl(server.getRepositoryUrl(), null, null, config);
+    }
+
+    /**
+     * Stop the fake repository.
+    **/
+    @TearDown
+    public void tearDown() {
+        repository.close();
+        server.close();
+    }
+
+    /**
+     * Per-thread sequence of paths.
+    **/
+    @State(Scope.Thread)
+    public static class Paths {
+        private long next = 0;
+
+        String next() {
+            final long n = next++;
+            return n % 2 == 0 ? "/absent/" + (n / 2 % REPEATED) : "/new/" + Thread.currentThread().getId() + "/" + n;
+        }
+    }
+
+    /**
+     * Check whether a path exists.
+     *
+     * @param paths the thread's paths
+     * @return whether the path exists
+     * @throws FedoraException if the request fails
+    **/
+    @Benchmark
+    public boolean exists(final Paths paths) throws FedoraException {
+        return repository.exists(paths.next());
+    }
+}
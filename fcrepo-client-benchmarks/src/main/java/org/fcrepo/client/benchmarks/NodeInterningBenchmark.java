@@ -0,0 +1,158 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.impl.FedoraObjectImpl;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.impl.FedoraResourceImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.fcrepo.client.utils.HttpHelper;
+import org.fcrepo.client.utils.NodeInterner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heap retained by 100k loaded resources, with and without node interning.  Each operation parses the fake
+ * repository's response for a container once per resource, changing only the resource URI, and keeps every
+ * resource.  The heap retained by the resources, measured after a full collection, and the interner hit rate are
+ * printed after each iteration.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class NodeInterningBenchmark {
+
+    private static final String PATH = "/object";
+    private static final int RESOURCES = 100000;
+
+    @Param({ "true", "false" })
+    public boolean interned;
+
+    private FakeFedoraServer server;
+    private FedoraRepositoryImpl repository;
+    private HttpHelper httpHelper;
+    private String rdf;
+    private FedoraResourceImpl[] resources;
+    private long baseline;
+
+    /**
+     * Start the fake repository and capture its response for a container.
+     *
+     * @throws Exception if the repository cannot be started
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        server = new FakeFedoraServer();
+        Fixtures.addContainer(server, PATH, 0, 0);
+        repository = new FedoraRepositoryImpl(server.getRepositoryUrl());
+        httpHelper = new HttpHelper(server.getRepositoryUrl(), null, null, false);
+        final HttpGet get = httpHelper.createPropertiesGetMethod(new FedoraObjectImpl(repository, httpHelper, PATH));
+        try {
+            rdf = EntityUtils.toString(httpHelper.execute(get).getEntity(), UTF_8);
+        } finally {
+            get.releaseConnection();
+        }
+    }
+
+    /**
+     * Give the iteration a fresh interner and measure the baseline heap.
+    **/
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        httpHelper.setNodeInterner(interned ? new NodeInterner(65536) : null);
+        baseline = usedHeap();
+    }
+
+    /**
+     * Report the heap retained by the loaded resources.
+    **/
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() {
+        final long retained = usedHeap() - baseline;
+        final NodeInterner interner = httpHelper.getNodeInterner();
+        System.out.printf("%nretained %d MB (%d bytes per resource), interner hit rate %.3f%n", retained >> 20,
+                retained / RESOURCES, interner == null ? 0 : interner.getHitRate());
+        resources = null;
+    }
+
+    /**
+     * Stop the fake repository.
+    **/
+    @TearDown
+    public void tearDown() {
+        httpHelper.close();
+        repository.close();
+        server.close();
+    }
+
+    /**
+     * Load 100k resources from canned responses and keep them all.
+     *
+     * @return the loaded resources
+     * @throws FedoraException if a response cannot be parsed
+    **/
+    @Benchmark
+    public FedoraResourceImpl[] load() throws FedoraException {
+        final String uri = server.getRepositoryUrl() + PATH + "\"";
+        resources = new FedoraResourceImpl[RESOURCES];
+        for (int i = 0; i < RESOURCES; i++) {
+            final String path = PATH + "/" + i;
+            final FedoraObjectImpl object = new FedoraObjectImpl(repository, httpHelper, path);
+            final HttpGet get = httpHelper.createPropertiesGetMethod(object);
+            final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+            final byte[] body = rdf.replace(uri, server.getRepositoryUrl() + path + "\"").getBytes(UTF_8);
+            response.setEntity(new ByteArrayEntity(body, ContentType.create("application/rdf+xml")));
+            resources[i] = httpHelper.readProperties(object, get, response);
+        }
+        return resources;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
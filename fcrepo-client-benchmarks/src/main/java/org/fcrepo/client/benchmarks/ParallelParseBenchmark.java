@@ -0,0 +1,126 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.apache.jena.riot.Lang;
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.impl.FedoraObjectImpl;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.impl.FedoraResourceImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.fcrepo.client.utils.ContentNegotiation;
+import org.fcrepo.client.utils.HttpHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of parsing a large container's N-Triples response with the parse pool at different parallelisms; a
+ * parallelism of one parses sequentially.  The speedup is bounded by the number of cores.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ParallelParseBenchmark {
+
+    private static final String PATH = "/object";
+
+    @Param({ "10000", "100000" })
+    public int children;
+
+    @Param({ "1", "4" })
+    public int parallelism;
+
+    private FedoraRepositoryImpl repository;
+    private HttpHelper httpHelper;
+    private ForkJoinPool pool;
+    private byte[] rdf;
+
+    /**
+     * Capture the fake repository's N-Triples response, then stop the repository.
+     *
+     * @throws Exception if the repository cannot be started
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        try (final FakeFedoraServer server = new FakeFedoraServer()) {
+            Fixtures.addContainer(server, PATH, children, 0);
+            repository = new FedoraRepositoryImpl(server.getRepositoryUrl());
+            httpHelper = new HttpHelper(server.getRepositoryUrl(), null, null, false);
+            httpHelper.setContentNegotiation(new ContentNegotiation(Lang.NTRIPLES));
+            final HttpGet get = httpHelper.createPropertiesGetMethod(
+                    new FedoraObjectImpl(repository, httpHelper, PATH));
+            try {
+                rdf = EntityUtils.toByteArray(httpHelper.execute(get).getEntity());
+            } finally {
+                get.releaseConnection();
+            }
+        }
+        pool = new ForkJoinPool(parallelism);
+        httpHelper.setParsePool(pool);
+        httpHelper.setParallelParseThreshold(1);
+    }
+
+    /**
+     * Close the client and the pool.
+    **/
+    @TearDown
+    public void tearDown() {
+        httpHelper.close();
+        repository.close();
+        pool.shutdown();
+    }
+
+    /**
+     * Parse the captured response.
+     *
+     * @return the loaded resource
+     * @throws FedoraException if the response cannot be parsed
+    **/
+    @Benchmark
+    public FedoraResourceImpl parse() throws FedoraException {
+        final FedoraObjectImpl object = new FedoraObjectImpl(repository, httpHelper, PATH);
+        final HttpGet get = httpHelper.createPropertiesGetMethod(object);
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(rdf, ContentType.create("application/n-triples")));
+        return httpHelper.readProperties(object, get, response);
+    }
+}
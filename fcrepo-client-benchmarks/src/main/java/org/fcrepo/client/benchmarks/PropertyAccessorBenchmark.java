@@ -0,0 +1,114 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.impl.FedoraObjectImpl;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the property accessors of a loaded resource, which scan its graph on every call.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyAccessorBenchmark {
+
+    private static final String PATH = "/object";
+
+    @Param({ "0", "1000" })
+    public int children;
+
+    private FedoraRepositoryImpl repository;
+    private FedoraObjectImpl object;
+
+    /**
+     * Load an object from the fake repository, which is not needed afterwards.
+     *
+     * @throws Exception if the object cannot be loaded
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        try (final FakeFedoraServer server = new FakeFedoraServer()) {
+            Fixtures.addContainer(server, PATH, children, 0);
+            repository = new FedoraRepositoryImpl(server.getRepositoryUrl());
+            object = (FedoraObjectImpl) repository.getObject(PATH);
+        }
+    }
+
+    /**
+     * Close the repository.
+    **/
+    @TearDown
+    public void tearDown() {
+        repository.close();
+    }
+
+    /**
+     * Get the mixin types.
+     *
+     * @return mixins
+     * @throws FedoraException if the resource cannot be loaded
+    **/
+    @Benchmark
+    public Collection<String> getMixins() throws FedoraException {
+        return object.getMixins();
+    }
+
+    /**
+     * Get the creation date.
+     *
+     * @return creation date
+     * @throws FedoraException if the resource cannot be loaded
+    **/
+    @Benchmark
+    public Date getCreatedDate() throws FedoraException {
+        return object.getCreatedDate();
+    }
+
+    /**
+     * Check whether the resource is writable.
+     *
+     * @return whether the resource is writable
+    **/
+    @Benchmark
+    public boolean isWritable() {
+        return object.isWritable();
+    }
+}
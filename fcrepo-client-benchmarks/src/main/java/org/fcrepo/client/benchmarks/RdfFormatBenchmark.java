@@ -0,0 +1,145 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.impl.FedoraObjectImpl;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.impl.FedoraResourceImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.fcrepo.client.utils.ContentNegotiation;
+import org.fcrepo.client.utils.HttpHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+/**
+ * Cost of loading a container's properties in each RDF serialization.  The fake repository's response for a
+ * container with embedded children is captured once, re-serialized with Jena's streaming writers (the pretty
+ * Turtle and RDF/XML writers take minutes for large containers), and its size printed at setup.  Each operation
+ * parses the response into a resource without any network I/O.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RdfFormatBenchmark {
+
+    private static final String PATH = "/object";
+    private static final Map<String, RDFFormat> FORMATS = new HashMap<>();
+
+    static {
+        FORMATS.put(Lang.NTRIPLES.getLabel(), RDFFormat.NTRIPLES);
+        FORMATS.put(Lang.TURTLE.getLabel(), RDFFormat.TURTLE_BLOCKS);
+        FORMATS.put(Lang.RDFXML.getLabel(), RDFFormat.RDFXML_PLAIN);
+        FORMATS.put(Lang.RDFTHRIFT.getLabel(), RDFFormat.RDF_THRIFT);
+    }
+
+    @Param({ "N-Triples", "Turtle", "RDF/XML", "RDF_THRIFT" })
+    public String format;
+
+    @Param({ "10", "1000", "100000" })
+    public int children;
+
+    private FedoraRepositoryImpl repository;
+    private HttpHelper httpHelper;
+    private byte[] rdf;
+    private ContentType contentType;
+
+    /**
+     * Capture the fake repository's response and convert it to the format, then stop the repository.
+     *
+     * @throws Exception if the repository cannot be started
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        final Model model = ModelFactory.createDefaultModel();
+        try (final FakeFedoraServer server = new FakeFedoraServer()) {
+            Fixtures.addContainer(server, PATH, children, 0);
+            repository = new FedoraRepositoryImpl(server.getRepositoryUrl());
+            httpHelper = new HttpHelper(server.getRepositoryUrl(), null, null, false);
+            httpHelper.setContentNegotiation(new ContentNegotiation(Lang.NTRIPLES));
+            final HttpGet get = httpHelper.createPropertiesGetMethod(
+                    new FedoraObjectImpl(repository, httpHelper, PATH));
+            try {
+                RDFDataMgr.read(model, httpHelper.execute(get).getEntity().getContent(), Lang.NTRIPLES);
+            } finally {
+                get.releaseConnection();
+            }
+        }
+        final RDFFormat rdfFormat = FORMATS.get(format);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, model, rdfFormat);
+        rdf = out.toByteArray();
+        contentType = ContentType.create(rdfFormat.getLang().getContentType().getContentType());
+        System.out.printf("%n%s response for %d children: %d bytes%n", format, children, rdf.length);
+    }
+
+    /**
+     * Close the client.
+    **/
+    @TearDown
+    public void tearDown() {
+        httpHelper.close();
+        repository.close();
+    }
+
+    /**
+     * Parse the captured response.
+     *
+     * @return the loaded resource
+     * @throws FedoraException if the response cannot be parsed
+    **/
+    @Benchmark
+    public FedoraResourceImpl parse() throws FedoraException {
+        final FedoraObjectImpl object = new FedoraObjectImpl(repository, httpHelper, PATH);
+        final HttpGet get = httpHelper.createPropertiesGetMethod(object);
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(rdf, contentType));
+        return httpHelper.readProperties(object, get, response);
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.fcrepo.client.FedoraContent;
+import org.fcrepo.client.utils.HttpHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of building requests: a content PUT with checksum, filename and content type, and a GET with a
+ * query string.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+    private static final String REPOSITORY_URL = "http://localhost:8080/rest";
+
+    private final byte[] content = new byte[1024];
+    private final Map<String, List<String>> params = new HashMap<>();
+    private HttpHelper httpHelper;
+    private URI checksum;
+
+    /**
+     * Create the helper and request parameters.
+     *
+     * @throws Exception if the checksum URI is invalid
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        httpHelper = new HttpHelper(REPOSITORY_URL, null, null, false);
+        checksum = new URI("urn:sha1:5ba93c9db0cff93f52b521d7420e43f6eda2784f");
+        params.put("mixin", Arrays.asList("fedora:Container", "pcdm:Object"));
+        params.put("label", Arrays.asList("a label with spaces & symbols"));
+    }
+
+    /**
+     * Close the helper.
+    **/
+    @TearDown
+    public void tearDown() {
+        httpHelper.close();
+    }
+
+    /**
+     * Build a content PUT.
+     *
+     * @return the request
+    **/
+    @Benchmark
+    public HttpPut createContentPutMethod() {
+        final FedoraContent fedoraContent = new FedoraContent()
+                .setContent(new ByteArrayInputStream(content))
+                .setContentType("image/tiff")
+                .setFilename("page 1.tiff")
+                .setChecksum(checksum);
+        return httpHelper.createContentPutMethod("/object/datastream", null, fedoraContent);
+    }
+
+    /**
+     * Build a GET with a query string.
+     *
+     * @return the request
+    **/
+    @Benchmark
+    public HttpGet createGetMethodWithQuery() {
+        return httpHelper.createGetMethod("/object", params);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.concurrent.TimeUnit;
+
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.FedoraObject;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.fcrepo.client.utils.HttpClientConfig;
+import org.fcrepo.client.utils.ResourceCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of repeatedly loading the same container from the fake repository: without a cache, with a cache
+ * revalidating every load ({@code 304 Not Modified} instead of a full response), and with a cache serving loads
+ * within its time to live without any request.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceCacheBenchmark {
+
+    private static final String PATH = "/object";
+
+    @Param({ "none", "revalidate", "ttl" })
+    public String cache;
+
+    @Param({ "10", "1000" })
+    public int children;
+
+    private FakeFedoraServer server;
+    private FedoraRepositoryImpl repository;
+
+    /**
+     * Start the fake repository and connect with the cache under test.
+     *
+     * @throws Exception if the repository cannot be started
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        server = new FakeFedoraServer();
+        Fixtures.addContainer(server, PATH, children, 0);
+        final HttpClientConfig config = new HttpClientConfig();
+        if (cache.equals("revalidate")) {
+            config.setResourceCache(new ResourceCache());
+        } else if (cache.equals("ttl")) {
+            config.setResourceCache(new ResourceCache(1000000, 1, TimeUnit.HOURS));
+        }
+        repository = new FedoraRepositoryImpl(server.getRepositoryUrl(), null, null, config);
+    }
+
+    /**
+     * Stop the fake repository.
+    **/
+    @TearDown
+    public void tearDown() {
+        repository.close();
+        server.close();
+    }
+
+    /**
+     * Load the container.
+     *
+     * @return the loaded container
+     * @throws FedoraException if the request fails
+    **/
+    @Benchmark
+    public FedoraObject getObject() throws FedoraException {
+        return repository.getObject(PATH);
+    }
+}
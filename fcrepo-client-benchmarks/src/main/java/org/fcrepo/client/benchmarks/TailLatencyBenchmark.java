@@ -0,0 +1,105 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.FedoraObject;
+import org.fcrepo.client.impl.FedoraRepositoryImpl;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.fcrepo.client.testing.FaultProfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency distribution of concurrent object loads against the fake repository, with injected server latency and
+ * transient errors.  Run in sample-time mode so the report includes the p99 and p99.9 latencies.
+ *
+ * @author escowles
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class TailLatencyBenchmark {
+
+    private static final int OBJECTS = 100;
+
+    @Param({ "0", "5" })
+    public long latency;
+
+    @Param({ "0", "0.01" })
+    public double errorRate;
+
+    private FakeFedoraServer server;
+    private FedoraRepositoryImpl repository;
+
+    /**
+     * Start the fake repository with the fault profile and create the objects.
+     *
+     * @throws Exception if the repository cannot be started
+    **/
+    @Setup
+    public void setUp() throws Exception {
+        server = new FakeFedoraServer();
+        for (int i = 0; i < OBJECTS; i++) {
+            server.createContainer("/object" + i);
+        }
+        server.setFaultProfile(new FaultProfile().setLatency(latency).setJitter(latency / 2)
+                .setErrorRate(errorRate));
+        repository = new FedoraRepositoryImpl(server.getRepositoryUrl());
+    }
+
+    /**
+     * Stop the fake repository.
+    **/
+    @TearDown
+    public void tearDown() {
+        repository.close();
+        server.close();
+    }
+
+    /**
+     * Load a random object; failures left after retrying are counted as samples too.
+     *
+     * @return the object, or null if it could not be loaded
+    **/
+    @Benchmark
+    public FedoraObject getObject() {
+        try {
+            return repository.getObject("/object" + ThreadLocalRandom.current().nextInt(OBJECTS));
+        } catch (final FedoraException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.impl;
+
+import static org.apache.http.HttpStatus.SC_CONFLICT;
+import static org.apache.http.HttpStatus.SC_CREATED;
+import static org.apache.http.HttpStatus.SC_FORBIDDEN;
+import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
+import static org.apache.http.HttpStatus.SC_NO_CONTENT;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_PRECONDITION_FAILED;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.client.DefaultRedirectStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.fcrepo.client.AlreadyExistsException;
+import org.fcrepo.client.AsyncFedoraRepository;
+import org.fcrepo.client.FedoraContent;
+import org.fcrepo.client.FedoraDatastream;
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.FedoraObject;
+import org.fcrepo.client.ForbiddenException;
+import org.fcrepo.client.NotFoundException;
+import org.fcrepo.client.utils.CircuitBreaker;
+import org.fcrepo.client.utils.HttpClientConfig;
+import org.fcrepo.client.utils.HttpHelper;
+import org.slf4j.Logger;
+
+/**
+ * AsyncFedoraRepositoryImpl runs repository requests on a non-blocking HTTP client, so a small number of I/O
+ * threads can drive many concurrent requests.  Response bodies are buffered by the I/O reactor and parsed on
+ * the supplied executor.  Resources returned by this repository are regular (blocking) FedoraResourceImpl
+ * instances backed by the companion FedoraRepositoryImpl.
+ *
+ * @author escowles
+ */
+public class AsyncFedoraRepositoryImpl implements AsyncFedoraRepository {
+    private static final Logger LOGGER = getLogger(AsyncFedoraRepositoryImpl.class);
+
+    protected final FedoraRepositoryImpl repository;
+    protected final HttpHelper httpHelper;
+    protected final CloseableHttpAsyncClient httpClient;
+    protected final Executor executor;
+    private final boolean ownsClients;
+
+    /**
+     * Constructor that takes the repository url
+     *
+     * @param repositoryURL Fedora base URL.
+     */
+    public AsyncFedoraRepositoryImpl(final String repositoryURL) {
+        this(repositoryURL, null, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param repositoryURL Repository base URL
+     * @param username Repository username
+     * @param password Repository password
+     */
+    public AsyncFedoraRepositoryImpl(final String repositoryURL, final String username, final String password) {
+        this(repositoryURL, username, password, new HttpClientConfig());
+    }
+
+    /**
+     * Constructor that takes connection pool and transport settings, applied to both the non-blocking client
+     * and the blocking client used by returned resources.
+     *
+     * @param repositoryURL Repository base URL
+     * @param username Repository username
+     * @param password Repository password
+     * @param config Connection pool and transport settings
+     */
+    public AsyncFedoraRepositoryImpl(final String repositoryURL, final String username, final String password,
+                                     final HttpClientConfig config) {
+        this(new FedoraRepositoryImpl(repositoryURL, username, password, config),
+                createHttpClient(repositoryURL, username, password, config), ForkJoinPool.commonPool(), true);
+    }
+
+    /**
+     * Constructor that takes a pre-configured non-blocking client.  The client is started if it is not
+     * already running.  The repository and the client belong to the caller, and are not closed by
+     * {@link #close}.
+     *
+     * @param repository Blocking repository used by the resources returned from this repository
+     * @param httpClient Pre-configured non-blocking client
+     * @param executor Executor used to process responses (e.g., parse RDF) off the I/O reactor threads
+     */
+    public AsyncFedoraRepositoryImpl(final FedoraRepositoryImpl repository, final CloseableHttpAsyncClient httpClient,
+                                     final Executor executor) {
+        this(repository, httpClient, executor, false);
+    }
+
+    private AsyncFedoraRepositoryImpl(final FedoraRepositoryImpl repository, final CloseableHttpAsyncClient httpClient,
+                                      final Executor executor, final boolean ownsClients) {
+        this.repository = repository;
+        this.httpHelper = repository.httpHelper;
+        this.httpClient = httpClient;
+        this.executor = executor;
+        this.ownsClients = ownsClients;
+        if (!httpClient.isRunning()) {
+            httpClient.start();
+        }
+    }
+
+    private static CloseableHttpAsyncClient createHttpClient(final String repositoryURL, final String username,
+                                                             final String password, final HttpClientConfig config) {
+        final HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setMaxConnTotal(config.getMaxTotal())
+                .setMaxConnPerRoute(config.getMaxPerRoute())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(config.getConnectionRequestTimeout()).build())
+                .setRedirectStrategy(new DefaultRedirectStrategy());
+        final CredentialsProvider credsProvider = HttpHelper.createCredentialsProvider(repositoryURL, username,
+                password);
+        if (credsProvider != null) {
+            builder.setDefaultCredentialsProvider(credsProvider);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String getRepositoryUrl() {
+        return repository.getRepositoryUrl();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(final String path) {
+        return execute(httpHelper.createHeadMethod(path), (uri, response) -> {
+            final StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() == SC_OK) {
+                return true;
+            } else if (status.getStatusCode() == SC_NOT_FOUND) {
+                return false;
+            } else if (status.getStatusCode() == SC_FORBIDDEN) {
+                LOGGER.error("request for resource {} is not authorized.", uri);
+                throw new ForbiddenException("request for resource " + uri + " is not authorized.");
+            } else {
+                throw error("checking", uri, status);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<FedoraDatastream> getDatastream(final String path) {
+        final FedoraDatastreamImpl datastream = new FedoraDatastreamImpl(repository, httpHelper, path);
+        final HttpGet get = httpHelper.createPropertiesGetMethod(datastream);
+        return execute(get, (uri, response) -> (FedoraDatastream)httpHelper.readProperties(datastream, get,
+                response));
+    }
+
+    @Override
+    public CompletableFuture<FedoraObject> getObject(final String path) {
+        final FedoraObjectImpl object = new FedoraObjectImpl(repository, httpHelper, path);
+        final HttpGet get = httpHelper.createPropertiesGetMethod(object);
+        return execute(get, (uri, response) -> (FedoraObject)httpHelper.readProperties(object, get, response));
+    }
+
+    @Override
+    public CompletableFuture<FedoraDatastream> createDatastream(final String path, final FedoraContent content) {
+        final HttpPut put = httpHelper.createContentPutMethod(path, null, content);
+        return execute(put, (uri, response) -> {
+            checkCreated(uri, response);
+            return path;
+        }).thenCompose(this::getDatastream).thenCompose(datastream -> verifyDigests(put, content, datastream));
+    }
+
+    @Override
+    public CompletableFuture<FedoraObject> createObject(final String path) {
+        return execute(httpHelper.createPutMethod(path, null), (uri, response) -> {
+            checkCreated(uri, response);
+            return path;
+        }).thenCompose(this::getObject);
+    }
+
+    @Override
+    public CompletableFuture<FedoraObject> createResource(final String containerPath) {
+        final HttpUriRequest post = httpHelper.createPostMethod(containerPath == null ? "" : containerPath, null);
+        return execute(post, (uri, response) -> {
+            checkCreated(uri, response);
+            return response.getFirstHeader("Location").getValue().substring(getRepositoryUrl().length());
+        }).thenCompose(this::getObject);
+    }
+
+    @Override
+    public CompletableFuture<FedoraDatastream> findOrCreateDatastream(final String path) {
+        return createIfAbsent(path, httpHelper.createContentPutMethod(path, null, null))
+                .thenCompose(this::getDatastream);
+    }
+
+    @Override
+    public CompletableFuture<FedoraObject> findOrCreateObject(final String path) {
+        return createIfAbsent(path, httpHelper.createPutMethod(path, null)).thenCompose(this::getObject);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateProperties(final String path, final String sparqlUpdate) {
+        final HttpUriRequest patch;
+        try {
+            patch = httpHelper.createPatchMethod(path, sparqlUpdate);
+        } catch (final FedoraException e) {
+            return failed(e);
+        }
+        return execute(patch, (uri, response) -> {
+            final StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() == SC_NO_CONTENT) {
+                LOGGER.debug("triples updated successfully for resource {}", uri);
+            } else if (status.getStatusCode() == SC_CONFLICT) {
+                LOGGER.error("resource {} is locked", uri);
+                throw new FedoraException("resource is locked: " + uri);
+            } else {
+                throw error("updating", uri, status);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> copy(final String path, final String destination) {
+        return execute(httpHelper.createCopyMethod(path, destination), (uri, response) -> {
+            final StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() != SC_CREATED) {
+                throw error("copying", uri, status);
+            }
+            LOGGER.debug("resource successfully copied from {} to {}", path, destination);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> move(final String path, final String destination) {
+        return execute(httpHelper.createMoveMethod(path, destination), (uri, response) -> {
+            final StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() != SC_CREATED) {
+                throw error("moving", uri, status);
+            }
+            LOGGER.debug("resource successfully moved from {} to {}", path, destination);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(final String path) {
+        return execute(httpHelper.createDeleteMethod(path), (uri, response) -> {
+            final StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() != SC_NO_CONTENT) {
+                throw error("deleting", uri, status);
+            }
+            LOGGER.debug("resource {} deleted", uri);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean isWritable() {
+        return repository.isWritable();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsClients) {
+            httpClient.close();
+            repository.close();
+        }
+    }
+
+    /**
+     * Execute a request without blocking the calling thread.  Requests are guarded by the circuit breaker of the
+     * underlying repository's HttpHelper, if any, and writes invalidate the caches it shares with the blocking
+     * repository.  The concurrency limiter, retry policy and metrics recorder of the HttpHelper only apply to
+     * blocking requests: asynchronous requests are bounded by the connection pool of the non-blocking client, are
+     * not retried and are not recorded.
+     *
+     * @param request request to be executed
+     * @return future completed with the response, or exceptionally with a FedoraException
+     */
+    protected CompletableFuture<HttpResponse> execute(final HttpUriRequest request) {
+        final CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        final CircuitBreaker circuitBreaker = httpHelper.getCircuitBreaker();
+        final String route = circuitBreaker == null ? null : CircuitBreaker.route(request);
+        try {
+            httpHelper.checkWritable(request);
+            if (circuitBreaker != null) {
+                circuitBreaker.acquirePermission(route);
+            }
+        } catch (final FedoraException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        final long start = System.currentTimeMillis();
+        final FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(final HttpResponse response) {
+                onResult(response, response.getStatusLine().getStatusCode() >= SC_INTERNAL_SERVER_ERROR);
+                future.complete(response);
+            }
+
+            @Override
+            public void failed(final Exception ex) {
+                onResult(null, true);
+                LOGGER.error("Error executing request {}", request.getURI(), ex);
+                future.completeExceptionally(new FedoraException(ex));
+            }
+
+            @Override
+            public void cancelled() {
+                onResult(null, false);
+                future.cancel(false);
+            }
+
+            private void onResult(final HttpResponse response, final boolean failed) {
+                // the caches are shared with the blocking repository
+                httpHelper.invalidate(request, response);
+                if (circuitBreaker != null) {
+                    circuitBreaker.onResult(route, System.currentTimeMillis() - start, failed);
+                }
+            }
+        };
+        try {
+            httpClient.execute(request, callback);
+        } catch (final RuntimeException e) {
+            // e.g. the client was closed: release the circuit breaker permission acquired above
+            callback.failed(e);
+        }
+        return future;
+    }
+
+    private <T> CompletableFuture<T> execute(final HttpUriRequest request, final ResponseProcessor<T> processor) {
+        final String uri = request.getURI().toString();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        execute(request).whenCompleteAsync((response, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+                return;
+            }
+            try {
+                result.complete(processor.process(uri, response));
+            } catch (final FedoraException e) {
+                result.completeExceptionally(e);
+            } catch (final RuntimeException e) {
+                LOGGER.error("Error processing response for {}", uri, e);
+                result.completeExceptionally(new FedoraException(e));
+            }
+        }, executor);
+        return result;
+    }
+
+    private static void checkCreated(final String uri, final HttpResponse response) throws FedoraException {
+        final StatusLine status = response.getStatusLine();
+        if (status.getStatusCode() == SC_CREATED) {
+            return;
+        } else if (status.getStatusCode() == SC_CONFLICT) {
+            LOGGER.error("resource {} already exists", uri);
+            throw new AlreadyExistsException("resource " + uri + " already exists");
+        }
+        throw error("creating", uri, status);
+    }
+
+    /**
+     * Execute a PUT which creates a resource only if it does not exist yet.  A {@code 409 Conflict} is only
+     * taken to mean the resource exists if a HEAD request finds it.
+     *
+     * @return the path, once the resource was created or found
+     */
+    private CompletableFuture<String> createIfAbsent(final String path, final HttpUriRequest put) {
+        put.setHeader(HttpHeaders.IF_NONE_MATCH, "*");
+        final String uri = put.getURI().toString();
+        return execute(put, (u, response) -> {
+            final StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() == SC_CONFLICT) {
+                return status;
+            } else if (status.getStatusCode() == SC_PRECONDITION_FAILED) {
+                LOGGER.debug("resource {} already exists", uri);
+            } else {
+                checkCreated(uri, response);
+            }
+            return null;
+        }).thenCompose(conflict -> {
+            if (conflict == null) {
+                return CompletableFuture.completedFuture(path);
+            }
+            return exists(path).thenCompose(exists -> exists ? CompletableFuture.completedFuture(path)
+                    : failed(error("creating", uri, conflict)));
+        });
+    }
+
+    private static CompletableFuture<FedoraDatastream> verifyDigests(final HttpPut put, final FedoraContent content,
+                                                                     final FedoraDatastream datastream) {
+        try {
+            ((FedoraDatastreamImpl) datastream).verifyDigests(put, content);
+            return CompletableFuture.completedFuture(datastream);
+        } catch (final FedoraException e) {
+            return failed(e);
+        }
+    }
+
+    private static FedoraException error(final String action, final String uri, final StatusLine status) {
+        if (status.getStatusCode() == SC_FORBIDDEN) {
+            LOGGER.error("{} resource {} is not authorized.", action, uri);
+            return new ForbiddenException(action + " resource " + uri + " is not authorized.");
+        } else if (status.getStatusCode() == SC_NOT_FOUND) {
+            LOGGER.error("resource {} does not exist", uri);
+            return new NotFoundException("resource " + uri + " does not exist");
+        }
+        LOGGER.error("error {} resource {}: {} {}", action, uri, status.getStatusCode(), status.getReasonPhrase());
+        return new FedoraException("error " + action + " resource " + uri + ": " + status.getStatusCode() + " "
+                + status.getReasonPhrase());
+    }
+
+    private static Throwable unwrap(final Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    private static <T> CompletableFuture<T> failed(final Throwable error) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * Converts a response into the result of an operation.
+     */
+    @FunctionalInterface
+    private interface ResponseProcessor<T> {
+        T process(String uri, HttpResponse response) throws FedoraException;
+    }
+}
@@ -21,10 +21,18 @@ import static org.apache.http.HttpStatus.SC_FORBIDDEN;
 import static org.apache.http.HttpStatus.SC_NO_CONTENT;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_PARTIAL_CONTENT;
+import static org.apache.http.HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.fcrepo.client.metrics.Operation.CHECK_FIXITY;
+import static org.fcrepo.client.metrics.Operation.GET_CONTENT;
+import static org.fcrepo.client.metrics.Operation.UPDATE_CONTENT;
 
+import static com.hp.hpl.jena.graph.Factory.createDefaultGraph;
 import static com.hp.hpl.jena.rdf.model.ResourceFactory.createProperty;
 
+import static org.fcrepo.kernel.api.RdfLexicon.DESCRIBED_BY;
 import static org.fcrepo.kernel.api.RdfLexicon.DESCRIBES;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_MESSAGE_DIGEST;
 import static org.fcrepo.kernel.api.RdfLexicon.HAS_ORIGINAL_NAME;
 import static org.fcrepo.kernel.api.RdfLexicon.HAS_MIME_TYPE;
 import static org.fcrepo.kernel.api.RdfLexicon.HAS_SIZE;
@@ -32,31 +40,49 @@ import static org.fcrepo.kernel.api.RdfLexicon.REPOSITORY_NAMESPACE;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import org.fcrepo.client.ForbiddenException;
 import org.fcrepo.client.NotFoundException;
 
 import com.hp.hpl.jena.graph.Node;
-import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
 
-import org.apache.jena.atlas.lib.NotImplemented;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
 
 import org.fcrepo.client.FedoraContent;
 import org.fcrepo.client.FedoraDatastream;
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraObject;
 import org.fcrepo.client.FedoraRepository;
+import org.fcrepo.client.FixityException;
+import org.fcrepo.client.FixityResult;
+import org.fcrepo.client.utils.ContentNegotiation;
+import org.fcrepo.client.utils.DigestingEntity;
 import org.fcrepo.client.utils.HttpHelper;
 
 import org.fcrepo.kernel.api.FedoraJcrTypes;
@@ -71,6 +97,10 @@ import org.slf4j.Logger;
 public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDatastream {
     private static final Logger LOGGER = getLogger(FedoraDatastreamImpl.class);
     protected static final Property REST_API_DIGEST = createProperty(REPOSITORY_NAMESPACE + "digest");
+    protected static final String PREMIS_NAMESPACE = "http://www.loc.gov/premis/rdf/v1#";
+    protected static final Property HAS_FIXITY_RESULT = createProperty(PREMIS_NAMESPACE + "hasFixity");
+    protected static final Property HAS_FIXITY_STATE = createProperty(PREMIS_NAMESPACE + "hasEventOutcome");
+    private static final int VERIFY_BUFFER_SIZE = 64 << 10;
     private boolean hasContent;
     private Node contentSubject;
 
@@ -83,14 +113,33 @@ public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDa
      */
     public FedoraDatastreamImpl(final FedoraRepository repository, final HttpHelper httpHelper, final String path) {
         super(repository, httpHelper, path);
-        contentSubject = NodeFactory.createURI(
-                repository.getRepositoryUrl() + path.substring(0, path.lastIndexOf("/")) );
     }
 
+    /**
+     * Set the graph, and find the subject of the content properties in it: the binary described by this
+     * datastream's path if the path names its description, or the datastream itself if the path names the
+     * binary, as {@code fcr:metadata} responses describe it.
+     */
     @Override
     public void setGraph( final Graph graph ) {
         super.setGraph( graph );
-        hasContent = getTriple( subject, DESCRIBES ) != null;
+        contentSubject = subject;
+        hasContent = false;
+        if ( graph == null ) {
+            return;
+        }
+        final ExtendedIterator<Triple> described = graph.find( subject, DESCRIBES.asNode(), Node.ANY );
+        try {
+            if ( described.hasNext() ) {
+                contentSubject = described.next().getObject();
+                hasContent = true;
+            } else {
+                hasContent = graph.contains( subject, DESCRIBED_BY.asNode(), Node.ANY )
+                        || graph.contains( Node.ANY, DESCRIBES.asNode(), subject );
+            }
+        } finally {
+            described.close();
+        }
     }
 
     @Override
@@ -100,6 +149,7 @@ public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDa
 
     @Override
     public boolean hasContent() throws FedoraException {
+        loadedGraph();
         return hasContent;
     }
 
@@ -118,7 +168,10 @@ public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDa
 
     @Override
     public URI getContentDigest() throws FedoraException {
-        final Node contentDigest = getObjectValue( REST_API_DIGEST );
+        Node contentDigest = getObjectValue( HAS_MESSAGE_DIGEST );
+        if ( contentDigest == null ) {
+            contentDigest = getObjectValue( REST_API_DIGEST );
+        }
         try {
             if ( contentDigest == null ) {
                 return null;
@@ -130,6 +183,21 @@ public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDa
         }
     }
 
+    /**
+     * Compare the digest of the content sent with the digest of the stored content, if digests were computed
+     * while it was sent.
+     * @param put The request which sent the content.
+     * @param content The content, which gets the digests computed.
+    **/
+    void verifyDigests( final HttpPut put, final FedoraContent content ) throws FedoraException {
+        // the entity may have been wrapped when the request was executed, e.g. to count the bytes sent
+        final DigestingEntity entity = DigestingEntity.of( put.getEntity() );
+        if ( entity != null ) {
+            content.setDigests( entity.getDigests() );
+            entity.verify( put.getURI().toString(), getContentDigest() );
+        }
+    }
+
     @Override
     public Long getContentSize() throws FedoraException {
         final Node size = getObjectValue( HAS_SIZE );
@@ -165,7 +233,7 @@ public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDa
         final HttpPut put = httpHelper.createContentPutMethod( path, null, content );
 
         try {
-            final HttpResponse response = httpHelper.execute( put );
+            final HttpResponse response = httpHelper.execute( UPDATE_CONTENT, put );
             final StatusLine status = response.getStatusLine();
             final String uri = put.getURI().toString();
 
@@ -188,8 +256,10 @@ public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDa
                                           status.getReasonPhrase());
             }
 
-            // update properties from server
-            httpHelper.loadProperties(this);
+            // update properties from server, now or when next read; the ETag of the content is not that of the
+            // description
+            reload(null);
+            verifyDigests( put, content );
 
         } catch (final FedoraException e) {
             throw e;
@@ -203,15 +273,52 @@ public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDa
 
     @Override
     public InputStream getContent() throws FedoraException {
+        return getContent( null, 0, -1 );
+    }
+
+    @Override
+    public InputStream getContent( final long offset, final long length ) throws FedoraException {
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException("negative offset: " + offset);
+        } else if ( length == 0 ) {
+            return new ByteArrayInputStream( new byte[0] );
+        }
+        final boolean toEnd = length < 0 || length > Long.MAX_VALUE - offset;
+        return getContent( "bytes=" + offset + "-" + (toEnd ? "" : offset + length - 1), offset,
+                           toEnd ? -1 : length );
+    }
+
+    private InputStream getContent( final String range, final long offset, final long length )
+            throws FedoraException {
         final HttpGet get = httpHelper.createGetMethod( path, null );
         final String uri = get.getURI().toString();
+        boolean streaming = false;
+        if ( range != null ) {
+            get.setHeader( HttpHeaders.RANGE, range );
+        }
 
         try {
-            final HttpResponse response = httpHelper.execute( get );
+            final HttpResponse response = httpHelper.execute( GET_CONTENT, get );
             final StatusLine status = response.getStatusLine();
 
             if ( status.getStatusCode() == SC_OK) {
-                return response.getEntity().getContent();
+                InputStream content = response.getEntity().getContent();
+                if ( range != null ) {
+                    // the server ignored the range: skip to it in the complete content
+                    IOUtils.skip( content, offset );
+                    if ( length >= 0 ) {
+                        content = new BoundedInputStream( content, length );
+                    }
+                }
+                streaming = true;
+                return content;
+            } else if ( range != null && status.getStatusCode() == SC_PARTIAL_CONTENT ) {
+                final InputStream content = response.getEntity().getContent();
+                streaming = true;
+                return content;
+            } else if ( range != null && status.getStatusCode() == SC_REQUESTED_RANGE_NOT_SATISFIABLE ) {
+                // the offset is at or past the end of the content
+                return new ByteArrayInputStream( new byte[0] );
             } else if ( status.getStatusCode() == SC_FORBIDDEN) {
                 LOGGER.error("request for resource {} is not authorized.", uri);
                 throw new ForbiddenException("request for resource " + uri + " is not authorized.");
@@ -224,21 +331,150 @@ public class FedoraDatastreamImpl extends FedoraResourceImpl implements FedoraDa
                 throw new FedoraException("error retrieving resource " + uri + ": " + status.getStatusCode() + " " +
                                           status.getReasonPhrase());
             }
+        } catch (final FedoraException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.error("could not encode URI parameter", e);
             throw new FedoraException(e);
+        } finally {
+            // the connection of a returned stream is released when the stream is closed
+            if ( !streaming ) {
+                get.releaseConnection();
+            }
+        }
+    }
+
+    @Override
+    public long downloadTo( final Path file ) throws FedoraException {
+        return httpHelper.downloadContent( path, file );
+    }
+
+    @Override
+    public SeekableByteChannel openContentChannel() {
+        return httpHelper.openContentChannel( path );
+    }
+
+    @Override
+    public FixityResult checkFixity() throws FedoraException {
+        final HttpGet get = httpHelper.createGetMethod( path + "/fcr:fixity", null );
+        get.setHeader( "accept", httpHelper.getContentNegotiation().getAcceptHeader() );
+        final String uri = get.getURI().toString();
+
+        try {
+            final HttpResponse response = httpHelper.execute( CHECK_FIXITY, get );
+            final StatusLine status = response.getStatusLine();
+
+            if ( status.getStatusCode() == SC_OK) {
+                final HttpEntity entity = response.getEntity();
+                final Lang lang = entity.getContentType() == null ? null
+                        : ContentNegotiation.lang( entity.getContentType().getValue() );
+                if ( lang == null ) {
+                    throw new FedoraException("unsupported RDF content type for resource " + uri + ": "
+                            + entity.getContentType());
+                }
+                final Graph graph = createDefaultGraph();
+                RDFDataMgr.read( graph, entity.getContent(), uri, lang );
+                return checked( uri, fixityResult( graph ) );
+            } else if ( status.getStatusCode() == SC_FORBIDDEN) {
+                LOGGER.error("request for resource {} is not authorized.", uri);
+                throw new ForbiddenException("request for resource " + uri + " is not authorized.");
+            } else if ( status.getStatusCode() == SC_NOT_FOUND) {
+                LOGGER.error("resource {} does not exist, cannot retrieve", uri);
+                throw new NotFoundException("resource " + uri + " does not exist, cannot retrieve");
+            } else {
+                LOGGER.error("error retrieving resource {}: {} {}", uri, status.getStatusCode(),
+                             status.getReasonPhrase());
+                throw new FedoraException("error retrieving resource " + uri + ": " + status.getStatusCode() + " " +
+                                          status.getReasonPhrase());
+            }
+        } catch (final FedoraException e) {
+            throw e;
+        } catch (final Exception e) {
+            LOGGER.error("could not parse fixity of resource {}", uri, e);
+            throw new FedoraException(e);
         } finally {
             get.releaseConnection();
         }
     }
 
+    /**
+     * Read the fixity result of the repository; a binary has one result per copy of its content.
+    **/
+    private static FixityResult fixityResult( final Graph graph ) {
+        final Set<String> outcomes = new LinkedHashSet<>();
+        URI digest = null;
+        Long size = null;
+        final Iterator<Triple> results = graph.find( Node.ANY, HAS_FIXITY_RESULT.asNode(), Node.ANY );
+        while ( results.hasNext() ) {
+            final Node result = results.next().getObject();
+            final Iterator<Triple> it = graph.find( result, Node.ANY, Node.ANY );
+            while ( it.hasNext() ) {
+                final Triple t = it.next();
+                if ( t.getPredicate().equals( HAS_FIXITY_STATE.asNode() ) && t.getObject().isLiteral() ) {
+                    outcomes.add( t.getObject().getLiteralLexicalForm() );
+                } else if ( t.getPredicate().equals( HAS_MESSAGE_DIGEST.asNode() ) && t.getObject().isURI() ) {
+                    digest = URI.create( t.getObject().getURI() );
+                } else if ( t.getPredicate().equals( HAS_SIZE.asNode() ) && t.getObject().isLiteral() ) {
+                    size = Long.valueOf( t.getObject().getLiteralLexicalForm() );
+                }
+            }
+        }
+        return new FixityResult( outcomes, digest, size );
+    }
+
     @Override
-    public void checkFixity() {
-        throw new NotImplemented("Method checkFixity() is not implemented");
+    public FixityResult verifyContent() throws FedoraException {
+        final URI expectedDigest = getContentDigest();
+        final Long expectedSize = getContentSize();
+        final String algorithm = expectedDigest == null ? null : DigestingEntity.algorithm( expectedDigest );
+        if ( algorithm == null ) {
+            throw new FedoraException("resource " + path + " has no checksum to verify: " + expectedDigest);
+        }
+
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance( algorithm );
+        } catch ( final NoSuchAlgorithmException e ) {
+            throw new FedoraException("unsupported checksum " + expectedDigest, e);
+        }
+
+        // digest the content as it is downloaded
+        long size = 0;
+        try ( final InputStream content = getContent() ) {
+            final byte[] buffer = new byte[VERIFY_BUFFER_SIZE];
+            for ( int n = content.read( buffer ); n >= 0; n = content.read( buffer ) ) {
+                md.update( buffer, 0, n );
+                size += n;
+            }
+        } catch ( final IOException e ) {
+            LOGGER.error("could not read content of resource {}", path, e);
+            throw new FedoraException(e);
+        }
+
+        final URI digest = DigestingEntity.digestUri( algorithm, md.digest() );
+        final Set<String> outcomes = new LinkedHashSet<>();
+        if ( !digest.toString().equalsIgnoreCase( expectedDigest.toString() ) ) {
+            outcomes.add( FixityResult.BAD_CHECKSUM );
+        }
+        if ( expectedSize != null && size != expectedSize ) {
+            outcomes.add( FixityResult.BAD_SIZE );
+        }
+        if ( outcomes.isEmpty() ) {
+            outcomes.add( FixityResult.SUCCESS );
+        }
+        return checked( path, new FixityResult( outcomes, digest, size ) );
+    }
+
+    private static FixityResult checked( final String uri, final FixityResult result ) throws FixityException {
+        if ( !result.isSuccess() ) {
+            LOGGER.error("fixity check failed for {}: {}", uri, result);
+            throw new FixityException("fixity check failed for resource " + uri + ": " + result, result);
+        }
+        return result;
     }
 
-    private Node getObjectValue( final Property property ) {
-        if ( !hasContent ) {
+    private Node getObjectValue( final Property property ) throws FedoraException {
+        if ( !hasContent() ) {
             return null;
         }
 
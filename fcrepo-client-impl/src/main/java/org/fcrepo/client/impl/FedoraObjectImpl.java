@@ -15,22 +15,35 @@
  */
 package org.fcrepo.client.impl;
 
+import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.vocabulary.RDF;
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraObject;
 import org.fcrepo.client.FedoraRepository;
 import org.fcrepo.client.FedoraResource;
+import org.fcrepo.client.utils.CompactGraph;
 import org.fcrepo.client.utils.HttpHelper;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.fcrepo.kernel.api.RdfLexicon.CONTAINS;
+import static org.fcrepo.kernel.api.RdfLexicon.DESCRIBED_BY;
 import static org.fcrepo.kernel.api.RdfLexicon.HAS_MIXIN_TYPE;
+import static org.fcrepo.kernel.api.RdfLexicon.NON_RDF_SOURCE;
+import static org.fcrepo.kernel.api.RdfLexicon.REPOSITORY_NAMESPACE;
 
 /**
  * A Fedora Object Impl.
@@ -41,6 +54,7 @@ import static org.fcrepo.kernel.api.RdfLexicon.HAS_MIXIN_TYPE;
  */
 public class FedoraObjectImpl extends FedoraResourceImpl implements FedoraObject {
     private final static Node binaryType = NodeFactory.createLiteral("fedora:Binary");
+    private final static Node binaryClass = NodeFactory.createURI(REPOSITORY_NAMESPACE + "Binary");
 
     /**
      * Constructor for FedoraObjectImpl
@@ -54,30 +68,141 @@ public class FedoraObjectImpl extends FedoraResourceImpl implements FedoraObject
     }
 
     /**
-     * Get the Object and Datastream nodes that are children of the current Object.
+     * Get the Object and Datastream nodes that are children of the current Object.  Whether each child is an
+     * Object or a Datastream is decided from the triples about it in this Object's graph.  Children embedded in
+     * this Object's representation get their properties from the embedded triples; the others load their own
+     * properties when first read.
      *
      * @param mixin If not null, limit to results that have this mixin.
      */
     public Collection<FedoraResource> getChildren(final String mixin) throws FedoraException {
-        Node mixinLiteral = null;
-        if ( mixin != null ) {
-            mixinLiteral = NodeFactory.createLiteral(mixin);
+        final Graph g = completeGraph();
+        final Node mixinLiteral = mixin == null ? null : NodeFactory.createLiteral(mixin);
+        final String repositoryUrl = repository.getRepositoryUrl();
+        final List<FedoraResource> children = new ArrayList<>();
+        final ExtendedIterator<Triple> it = g.find(Node.ANY, CONTAINS.asNode(), Node.ANY);
+        try {
+            while (it.hasNext()) {
+                final Node child = it.next().getObject();
+                if ( !child.isURI() || (mixin != null && !g.contains(child, HAS_MIXIN_TYPE.asNode(), mixinLiteral)) ) {
+                    continue;
+                }
+                final String uri = child.getURI();
+                final String path = uri.startsWith(repositoryUrl) ? uri.substring(repositoryUrl.length()) : uri;
+                final FedoraResourceImpl resource = isBinary(g, child)
+                        ? new FedoraDatastreamImpl(repository, httpHelper, path)
+                        : new FedoraObjectImpl(repository, httpHelper, path);
+                final Graph embedded = embeddedGraph(g, child);
+                if ( embedded != null ) {
+                    resource.setEmbeddedGraph( embedded );
+                }
+                children.add( resource );
+            }
+        } finally {
+            it.close();
+        }
+        return children;
+    }
+
+    /**
+     * Get the Object and Datastream nodes that are children of the current Object, loading the properties of
+     * every child on the common fork-join pool before returning.
+     *
+     * @param mixin If not null, limit to results that have this mixin.
+     * @param parallelism Maximum number of children loaded concurrently.
+     */
+    public Collection<FedoraResource> getChildren(final String mixin, final int parallelism)
+            throws FedoraException {
+        return getChildren(mixin, parallelism, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Get the Object and Datastream nodes that are children of the current Object, loading the properties of
+     * every child on the given executor before returning.  At most {@code parallelism} tasks are submitted, each
+     * loading children until none are left, so no threads are created for the call.
+     *
+     * @param mixin If not null, limit to results that have this mixin.
+     * @param parallelism Maximum number of children loaded concurrently.
+     * @param executor Executor running the loads.
+     */
+    public Collection<FedoraResource> getChildren(final String mixin, final int parallelism,
+            final Executor executor) throws FedoraException {
+        final Collection<FedoraResource> children = getChildren(mixin);
+        final int tasks = Math.min(Math.max(1, parallelism), children.size());
+        if (tasks == 0) {
+            return children;
         }
-        final ExtendedIterator<Triple> it = graph.find(Node.ANY, CONTAINS.asNode(), Node.ANY);
-        final Set<FedoraResource> set = new HashSet<>();
-        while (it.hasNext()) {
-            final Node child = it.next().getObject();
-            if ( mixin == null || graph.contains(child, HAS_MIXIN_TYPE.asNode(), mixinLiteral) ) {
-                final String path = child.getURI().toString()
-                        .replaceAll(repository.getRepositoryUrl(),"");
-                if ( graph.contains(child, HAS_MIXIN_TYPE.asNode(), binaryType) ) {
-                    set.add( repository.getDatastream(path) );
-                } else {
-                    set.add( repository.getObject(path) );
+
+        final Queue<FedoraResource> pending = new ConcurrentLinkedQueue<>(children);
+        final CompletableFuture<?>[] loads = new CompletableFuture<?>[tasks];
+        for (int i = 0; i < tasks; i++) {
+            loads[i] = CompletableFuture.runAsync(() -> {
+                for (FedoraResource child = pending.poll(); child != null; child = pending.poll()) {
+                    try {
+                        ((FedoraResourceImpl) child).loadedGraph();
+                    } catch (final FedoraException e) {
+                        // stop the other tasks
+                        pending.clear();
+                        throw new CompletionException(e);
+                    }
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(loads).get();
+        } catch (final InterruptedException e) {
+            pending.clear();
+            Thread.currentThread().interrupt();
+            throw new FedoraException("interrupted while loading the children of " + path, e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof FedoraException) {
+                throw (FedoraException) e.getCause();
+            }
+            throw new FedoraException(e.getCause());
+        }
+        return children;
+    }
+
+    /**
+     * Collect the triples embedded for a child: those about the child and about its descriptions.
+     *
+     * @return the child's graph, or null if the child was not embedded
+     */
+    private static Graph embeddedGraph(final Graph g, final Node child) {
+        if ( !g.contains(child, Node.ANY, Node.ANY) ) {
+            return null;
+        }
+        final CompactGraph.Builder embedded = new CompactGraph.Builder();
+        final List<Node> descriptions = new ArrayList<>();
+        final ExtendedIterator<Triple> it = g.find(child, Node.ANY, Node.ANY);
+        try {
+            while (it.hasNext()) {
+                final Triple t = it.next();
+                embedded.send(t);
+                if ( t.getPredicate().equals(DESCRIBED_BY.asNode()) ) {
+                    descriptions.add(t.getObject());
+                }
+            }
+        } finally {
+            it.close();
+        }
+        for (final Node description : descriptions) {
+            final ExtendedIterator<Triple> triples = g.find(description, Node.ANY, Node.ANY);
+            try {
+                while (triples.hasNext()) {
+                    embedded.send(triples.next());
                 }
+            } finally {
+                triples.close();
             }
         }
-        return set;
+        return embedded.build();
+    }
+
+    private static boolean isBinary(final Graph g, final Node child) {
+        return g.contains(child, HAS_MIXIN_TYPE.asNode(), binaryType)
+                || g.contains(child, RDF.type.asNode(), binaryClass)
+                || g.contains(child, RDF.type.asNode(), NON_RDF_SOURCE.asNode());
     }
 
     @Override
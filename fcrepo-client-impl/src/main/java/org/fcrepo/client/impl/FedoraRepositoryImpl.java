@@ -17,6 +17,7 @@ package org.fcrepo.client.impl;
 
 import com.hp.hpl.jena.graph.Triple;
 
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
@@ -29,10 +30,14 @@ import org.fcrepo.client.FedoraDatastream;
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraObject;
 import org.fcrepo.client.FedoraRepository;
+import org.fcrepo.client.LoadMode;
 import org.fcrepo.client.ForbiddenException;
-import org.fcrepo.client.NotFoundException;
 import org.fcrepo.client.ReadOnlyException;
+import org.fcrepo.client.metrics.Operation;
+import org.fcrepo.client.utils.HttpClientConfig;
 import org.fcrepo.client.utils.HttpHelper;
+import org.fcrepo.client.utils.NegativeCache;
+import org.fcrepo.client.utils.ResourceCache;
 import org.slf4j.Logger;
 
 import java.io.InputStream;
@@ -44,6 +49,11 @@ import static org.apache.http.HttpStatus.SC_CREATED;
 import static org.apache.http.HttpStatus.SC_FORBIDDEN;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_PRECONDITION_FAILED;
+import static org.fcrepo.client.metrics.Operation.CREATE_DATASTREAM;
+import static org.fcrepo.client.metrics.Operation.CREATE_OBJECT;
+import static org.fcrepo.client.metrics.Operation.CREATE_RESOURCE;
+import static org.fcrepo.client.metrics.Operation.EXISTS;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -58,6 +68,7 @@ public class FedoraRepositoryImpl implements FedoraRepository {
 
     protected HttpHelper httpHelper;
     protected String repositoryURL;
+    private volatile LoadMode loadMode = LoadMode.EAGER;
 
     protected FedoraRepositoryImpl() {
         // for subclasses
@@ -80,8 +91,21 @@ public class FedoraRepositoryImpl implements FedoraRepository {
      * @param password Repository password
      */
     public FedoraRepositoryImpl(final String repositoryURL, final String username, final String password) {
+        this(repositoryURL, username, password, new HttpClientConfig());
+    }
+
+    /**
+     * Constructor that takes connection pool and transport settings
+     *
+     * @param repositoryURL Repository base URL
+     * @param username Repository username
+     * @param password Repository password
+     * @param config Connection pool and transport settings
+     */
+    public FedoraRepositoryImpl(final String repositoryURL, final String username, final String password,
+                                final HttpClientConfig config) {
         this.repositoryURL = repositoryURL;
-        this.httpHelper = new HttpHelper(repositoryURL, username, password, false);
+        this.httpHelper = new HttpHelper(repositoryURL, username, password, false, config);
     }
 
     /**
@@ -99,7 +123,7 @@ public class FedoraRepositoryImpl implements FedoraRepository {
     public boolean exists(final String path) throws FedoraException, ForbiddenException {
         final HttpHead head = httpHelper.createHeadMethod(path);
         try {
-            final HttpResponse response = httpHelper.execute(head);
+            final HttpResponse response = httpHelper.execute(EXISTS, head);
             final StatusLine status = response.getStatusLine();
             final int statusCode = status.getStatusCode();
             final String uri = head.getURI().toString();
@@ -115,6 +139,8 @@ public class FedoraRepositoryImpl implements FedoraRepository {
                 throw new FedoraException("error checking resource " + uri + ": " + statusCode + " " +
                                           status.getReasonPhrase());
             }
+        } catch (final FedoraException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.error("could not encode URI parameter", e);
             throw new FedoraException(e);
@@ -123,27 +149,102 @@ public class FedoraRepositoryImpl implements FedoraRepository {
         }
     }
 
+    /**
+     * Set when the properties of the resources returned by {@link #getObject(String)} and
+     * {@link #getDatastream(String)} are loaded.  The default is {@link LoadMode#EAGER}; {@link LoadMode#LAZY}
+     * saves a request for resources which are only written, moved or deleted.
+     *
+     * @param loadMode the load mode
+     */
+    public void setLoadMode(final LoadMode loadMode) {
+        this.loadMode = loadMode;
+    }
+
+    /**
+     * Get when the properties of returned resources are loaded.
+     *
+     * @return the load mode
+     */
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    /**
+     * Set when the properties of resources are reloaded after they are created or updated.  The default is
+     * {@link LoadMode#EAGER}, which reloads them with an extra request after every write; {@link LoadMode#LAZY}
+     * marks them stale instead, to be reloaded when next read, saving a request per write.  The
+     * ETag returned by the write remains available either way.
+     *
+     * @param writeLoadMode the load mode after writes
+     */
+    public void setWriteLoadMode(final LoadMode writeLoadMode) {
+        httpHelper.setWriteLoadMode(writeLoadMode);
+    }
+
+    /**
+     * Get when the properties of resources are reloaded after they are created or updated.
+     *
+     * @return the load mode after writes
+     */
+    public LoadMode getWriteLoadMode() {
+        return httpHelper.getWriteLoadMode();
+    }
+
+    /**
+     * Get the cache of loaded properties, configured with {@link HttpClientConfig#setResourceCache}.
+     *
+     * @return the resource cache, or null if properties are not cached
+     */
+    public ResourceCache getResourceCache() {
+        return httpHelper.getResourceCache();
+    }
+
+    /**
+     * Get the cache of resources known to be absent, configured with {@link HttpClientConfig#setNegativeCache}.
+     *
+     * @return the negative cache, or null if absent resources are not cached
+     */
+    public NegativeCache getNegativeCache() {
+        return httpHelper.getNegativeCache();
+    }
+
     @Override
     public FedoraDatastream getDatastream(final String path) throws FedoraException {
-        return (FedoraDatastream)httpHelper.loadProperties(new FedoraDatastreamImpl(this, httpHelper, path));
+        return getDatastream(path, loadMode);
+    }
+
+    @Override
+    public FedoraDatastream getDatastream(final String path, final LoadMode mode) throws FedoraException {
+        final FedoraDatastreamImpl datastream = new FedoraDatastreamImpl(this, httpHelper, path);
+        return mode == LoadMode.LAZY ? datastream : (FedoraDatastream)httpHelper.loadProperties(datastream);
     }
 
     @Override
     public FedoraObject getObject(final String path) throws FedoraException {
-        return (FedoraObject)httpHelper.loadProperties(new FedoraObjectImpl(this, httpHelper, path));
+        return getObject(path, loadMode);
+    }
+
+    @Override
+    public FedoraObject getObject(final String path, final LoadMode mode) throws FedoraException {
+        final FedoraObjectImpl object = new FedoraObjectImpl(this, httpHelper, path);
+        return mode == LoadMode.LAZY ? object : (FedoraObject)httpHelper.loadProperties(object);
     }
 
     @Override
     public FedoraDatastream createDatastream(final String path, final FedoraContent content) throws FedoraException {
         final HttpPut put = httpHelper.createContentPutMethod(path, null, content);
         try {
-            final HttpResponse response = httpHelper.execute(put);
+            final HttpResponse response = httpHelper.execute(CREATE_DATASTREAM, put);
             final String uri = put.getURI().toString();
             final StatusLine status = response.getStatusLine();
             final int statusCode = status.getStatusCode();
 
             if (statusCode == SC_CREATED) {
-                return getDatastream(path);
+                // the ETag of the content is not that of the description
+                final FedoraDatastreamImpl datastream = created(new FedoraDatastreamImpl(this, httpHelper, path),
+                        null);
+                datastream.verifyDigests(put, content);
+                return datastream;
             } else if (statusCode == SC_FORBIDDEN) {
                 LOGGER.error("request to create resource {} is not authorized.", uri);
                 throw new ForbiddenException("request to create resource " + uri + " is not authorized.");
@@ -155,6 +256,8 @@ public class FedoraRepositoryImpl implements FedoraRepository {
                 throw new FedoraException("error retrieving resource " + uri + ": " + statusCode + " " +
                                                   status.getReasonPhrase());
             }
+        } catch (final FedoraException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.error("could not encode URI parameter", e);
             throw new FedoraException(e);
@@ -169,13 +272,14 @@ public class FedoraRepositoryImpl implements FedoraRepository {
         final HttpPut put = httpHelper.createContentPutMethod(path, null, null);
         try {
             put.setHeader("Content-Type", "message/external-body; access-type=URL; URL=\"" + url + "\"");
-            final HttpResponse response = httpHelper.execute(put);
+            final HttpResponse response = httpHelper.execute(CREATE_DATASTREAM, put);
             final String uri = put.getURI().toString();
             final StatusLine status = response.getStatusLine();
             final int statusCode = status.getStatusCode();
 
             if (statusCode == SC_CREATED) {
-                return getDatastream(path);
+                // the ETag of the content is not that of the description
+                return created(new FedoraDatastreamImpl(this, httpHelper, path), null);
             } else if (statusCode == SC_FORBIDDEN) {
                 LOGGER.error("request to create resource {} is not authorized.", uri);
                 throw new ForbiddenException("request to create resource " + uri + " is not authorized.");
@@ -184,6 +288,8 @@ public class FedoraRepositoryImpl implements FedoraRepository {
                 throw new FedoraException("error creating resource " + uri + ": " + statusCode + " " +
                         status.getReasonPhrase());
             }
+        } catch (final FedoraException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.error("Error making or building PUT request.", e);
             throw new FedoraException(e);
@@ -196,13 +302,13 @@ public class FedoraRepositoryImpl implements FedoraRepository {
     public FedoraObject createObject(final String path) throws FedoraException {
         final HttpPut put = httpHelper.createPutMethod(path, null);
         try {
-            final HttpResponse response = httpHelper.execute(put);
+            final HttpResponse response = httpHelper.execute(CREATE_OBJECT, put);
             final String uri = put.getURI().toString();
             final StatusLine status = response.getStatusLine();
             final int statusCode = status.getStatusCode();
 
             if (statusCode == SC_CREATED) {
-                return getObject(path);
+                return created(new FedoraObjectImpl(this, httpHelper, path), response);
             } else if (statusCode == SC_FORBIDDEN) {
                 LOGGER.error("request to create resource {} is not authorized.", uri);
                 throw new ForbiddenException("request to create resource " + uri + " is not authorized.");
@@ -214,6 +320,8 @@ public class FedoraRepositoryImpl implements FedoraRepository {
                 throw new FedoraException("error retrieving resource " + uri + ": " + statusCode + " " +
                                                   status.getReasonPhrase());
             }
+        } catch (final FedoraException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.error("could not encode URI parameter", e);
             throw new FedoraException(e);
@@ -226,13 +334,14 @@ public class FedoraRepositoryImpl implements FedoraRepository {
     public FedoraObject createResource(final String containerPath) throws FedoraException {
         final HttpPost post = httpHelper.createPostMethod(containerPath == null ? "" : containerPath, null);
         try {
-            final HttpResponse response = httpHelper.execute(post);
+            final HttpResponse response = httpHelper.execute(CREATE_RESOURCE, post);
             final String uri = post.getURI().toString();
             final StatusLine status = response.getStatusLine();
             final int statusCode = status.getStatusCode();
 
             if (statusCode == SC_CREATED) {
-                return getObject(response.getFirstHeader("Location").getValue().substring(repositoryURL.length()));
+                final String path = response.getFirstHeader("Location").getValue().substring(repositoryURL.length());
+                return created(new FedoraObjectImpl(this, httpHelper, path), response);
             } else if (statusCode == SC_FORBIDDEN) {
                 LOGGER.error("request to create resource {} is not authorized.", uri);
                 throw new ForbiddenException("request to create resource " + uri + " is not authorized.");
@@ -241,6 +350,8 @@ public class FedoraRepositoryImpl implements FedoraRepository {
                 throw new FedoraException("error creating resource " + uri + ": " + statusCode + " " +
                         status.getReasonPhrase());
             }
+        } catch (final FedoraException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.error("could not encode URI parameter", e);
             throw new FedoraException(e);
@@ -249,21 +360,78 @@ public class FedoraRepositoryImpl implements FedoraRepository {
         }
     }
 
+    /**
+     * Get a created resource, with its properties loaded now or, if the {@link #setWriteLoadMode write load mode}
+     * is {@link LoadMode#LAZY}, when first read.
+     */
+    private <T extends FedoraResourceImpl> T created(final T resource, final HttpResponse response)
+            throws FedoraException {
+        resource.reload(response == null ? null : response.getFirstHeader(HttpHeaders.ETAG));
+        return resource;
+    }
+
+    /**
+     * Find or create a datastream with a single conditional PUT ({@code If-None-Match: *}), which creates it if
+     * it is absent and fails with {@code 412 Precondition Failed} if it exists.  Either way the properties are
+     * then loaded according to the {@link #setLoadMode load mode}, so with {@link LoadMode#LAZY} this costs one
+     * request.  A {@code 409 Conflict} is only taken to mean the datastream exists if a HEAD request finds it.
+     */
     @Override
     public FedoraDatastream findOrCreateDatastream(final String path) throws FedoraException {
-        try {
-            return getDatastream(path);
-        } catch ( NotFoundException ex ) {
-            return createDatastream(path, null);
-        }
+        createIfAbsent(CREATE_DATASTREAM, path, httpHelper.createContentPutMethod(path, null, null));
+        return getDatastream(path);
     }
 
+    /**
+     * Find or create an object with a single conditional PUT ({@code If-None-Match: *}), which creates it if it
+     * is absent and fails with {@code 412 Precondition Failed} if it exists.  Either way the properties are then
+     * loaded according to the {@link #setLoadMode load mode}, so with {@link LoadMode#LAZY} this costs one
+     * request.  A {@code 409 Conflict} is only taken to mean the object exists if a HEAD request finds it.
+     */
     @Override
     public FedoraObject findOrCreateObject(final String path) throws FedoraException {
+        createIfAbsent(CREATE_OBJECT, path, httpHelper.createPutMethod(path, null));
+        return getObject(path);
+    }
+
+    /**
+     * Execute a PUT which creates a resource only if it does not exist yet.
+     *
+     * @throws FedoraException if the resource was neither created nor found
+     */
+    private void createIfAbsent(final Operation operation, final String path, final HttpPut put)
+            throws FedoraException {
+        put.setHeader(HttpHeaders.IF_NONE_MATCH, "*");
+        final String uri = put.getURI().toString();
+        final StatusLine status;
         try {
-            return getObject(path);
-        } catch ( NotFoundException ex ) {
-            return createObject(path);
+            status = httpHelper.execute(operation, put).getStatusLine();
+        } catch (final FedoraException e) {
+            throw e;
+        } catch (final Exception e) {
+            LOGGER.error("could not encode URI parameter", e);
+            throw new FedoraException(e);
+        } finally {
+            put.releaseConnection();
+        }
+
+        final int statusCode = status.getStatusCode();
+        if (statusCode == SC_CREATED) {
+            return;
+        } else if (statusCode == SC_PRECONDITION_FAILED) {
+            LOGGER.debug("resource {} already exists", uri);
+            return;
+        } else if (statusCode == SC_CONFLICT && exists(path)) {
+            // a conflict may also be e.g. a tombstone or a missing parent: only an existing resource is found
+            LOGGER.debug("resource {} already exists", uri);
+            return;
+        } else if (statusCode == SC_FORBIDDEN) {
+            LOGGER.error("request to create resource {} is not authorized.", uri);
+            throw new ForbiddenException("request to create resource " + uri + " is not authorized.");
+        } else {
+            LOGGER.error("error creating resource {}: {} {}", uri, statusCode, status.getReasonPhrase());
+            throw new FedoraException("error creating resource " + uri + ": " + statusCode + " " +
+                    status.getReasonPhrase());
         }
     }
 
@@ -319,4 +487,11 @@ public class FedoraRepositoryImpl implements FedoraRepository {
         return repositoryURL;
     }
 
+    /**
+     * Release the connections held by this repository.  Has no effect on a pre-configured HttpClient.
+     */
+    public void close() {
+        httpHelper.close();
+    }
+
 }
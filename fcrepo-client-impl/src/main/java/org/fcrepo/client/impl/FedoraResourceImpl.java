@@ -19,6 +19,11 @@ import static org.apache.http.HttpStatus.SC_CONFLICT;
 import static org.apache.http.HttpStatus.SC_FORBIDDEN;
 import static org.apache.http.HttpStatus.SC_NO_CONTENT;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.fcrepo.client.metrics.Operation.COPY;
+import static org.fcrepo.client.metrics.Operation.CREATE_VERSION;
+import static org.fcrepo.client.metrics.Operation.DELETE;
+import static org.fcrepo.client.metrics.Operation.MOVE;
+import static org.fcrepo.client.metrics.Operation.UPDATE_PROPERTIES;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.IOException;
@@ -31,6 +36,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
@@ -42,10 +49,12 @@ import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraRepository;
 import org.fcrepo.client.FedoraResource;
 import org.fcrepo.client.ForbiddenException;
+import org.fcrepo.client.LoadMode;
 import org.fcrepo.client.NotFoundException;
 import org.fcrepo.client.utils.HttpCopy;
 import org.fcrepo.client.utils.HttpHelper;
 import org.fcrepo.client.utils.HttpMove;
+import org.fcrepo.client.utils.NodeInterner;
 import org.fcrepo.kernel.api.RdfLexicon;
 import org.slf4j.Logger;
 
@@ -78,10 +87,12 @@ public class FedoraResourceImpl implements FedoraResource {
 
     protected Node subject = null;
 
-    protected Graph graph;
+    protected volatile Graph graph;
 
     private String etagValue = null;
 
+    private volatile boolean embedded = false;
+
     /**
      * FedoraResourceImpl constructor
      *
@@ -93,7 +104,18 @@ public class FedoraResourceImpl implements FedoraResource {
         this.repository = repository;
         this.httpHelper = httpHelper;
         this.path = path;
-        subject = NodeFactory.createURI(repository.getRepositoryUrl() + path);
+        subject = intern(NodeFactory.createURI(repository.getRepositoryUrl() + path));
+    }
+
+    /**
+     * Get the canonical instance of a node from the HTTP helper's interner, if it has one.
+     *
+     * @param node The node.
+     * @return the canonical node, or the node itself if nodes are not interned
+     */
+    protected Node intern(final Node node) {
+        final NodeInterner interner = httpHelper == null ? null : httpHelper.getNodeInterner();
+        return interner == null ? node : interner.intern(node);
     }
 
     @Override
@@ -102,7 +124,7 @@ public class FedoraResourceImpl implements FedoraResource {
         final HttpCopy copy = httpHelper.createCopyMethod(path,destination);
 
         try {
-            final HttpResponse response = httpHelper.execute( copy );
+            final HttpResponse response = httpHelper.execute( COPY, copy );
             final StatusLine status = response.getStatusLine();
             final String uri = copy.getURI().toString();
 
@@ -140,7 +162,7 @@ public class FedoraResourceImpl implements FedoraResource {
         final HttpDelete delete = httpHelper.createDeleteMethod(path);
 
         try {
-            final HttpResponse response = httpHelper.execute( delete );
+            final HttpResponse response = httpHelper.execute( DELETE, delete );
             final StatusLine status = response.getStatusLine();
             final String uri = delete.getURI().toString();
 
@@ -186,7 +208,7 @@ public class FedoraResourceImpl implements FedoraResource {
         final HttpDelete delete = httpHelper.createDeleteMethod(path + "/fcr:tombstone");
 
         try {
-            final HttpResponse response = httpHelper.execute( delete );
+            final HttpResponse response = httpHelper.execute( DELETE, delete );
             final StatusLine status = response.getStatusLine();
             final String uri = delete.getURI().toString();
 
@@ -212,12 +234,15 @@ public class FedoraResourceImpl implements FedoraResource {
     }
 
     @Override
-    public Date getCreatedDate() {
+    public Date getCreatedDate() throws FedoraException {
         return getDate(RdfLexicon.CREATED_DATE);
     }
 
     @Override
-    public String getEtagValue() {
+    public String getEtagValue() throws FedoraException {
+        if (etagValue == null || embedded) {
+            completeGraph();
+        }
         return etagValue;
     }
 
@@ -231,12 +256,12 @@ public class FedoraResourceImpl implements FedoraResource {
     }
 
     @Override
-    public Date getLastModifiedDate() {
+    public Date getLastModifiedDate() throws FedoraException {
         return getDate(RdfLexicon.LAST_MODIFIED_DATE);
     }
 
     @Override
-    public Collection<String> getMixins() {
+    public Collection<String> getMixins() throws FedoraException {
         return getPropertyValues(RdfLexicon.HAS_MIXIN_TYPE);
     }
 
@@ -253,13 +278,13 @@ public class FedoraResourceImpl implements FedoraResource {
     }
 
     @Override
-    public Iterator<Triple> getProperties() {
-        return graph.find(Node.ANY, Node.ANY, Node.ANY);
+    public Iterator<Triple> getProperties() throws FedoraException {
+        return loadedGraph().find(Node.ANY, Node.ANY, Node.ANY);
     }
 
     @Override
-    public Long getSize() {
-        return (long) graph.size();
+    public Long getSize() throws FedoraException {
+        return (long) loadedGraph().size();
     }
 
     @Override
@@ -267,7 +292,7 @@ public class FedoraResourceImpl implements FedoraResource {
         final HttpMove move = httpHelper.createMoveMethod(path,destination);
 
         try {
-            final HttpResponse response = httpHelper.execute( move );
+            final HttpResponse response = httpHelper.execute( MOVE, move );
             final StatusLine status = response.getStatusLine();
             final String uri = move.getURI().toString();
 
@@ -275,7 +300,7 @@ public class FedoraResourceImpl implements FedoraResource {
                 LOGGER.debug("resource successfully moved from " + path + " to " + destination, uri);
                 oldPath = path;
                 path = destination;
-                subject = NodeFactory.createURI(repository.getRepositoryUrl() + path);
+                subject = intern(NodeFactory.createURI(repository.getRepositoryUrl() + path));
             } else if (status.getStatusCode() == HttpStatus.SC_CONFLICT) { // Source path doesn't exists
                 LOGGER.error("error moving resource {}: {} {}", uri, status.getStatusCode(),
                         status.getReasonPhrase());
@@ -316,7 +341,7 @@ public class FedoraResourceImpl implements FedoraResource {
         final HttpPatch patch = httpHelper.createPatchMethod(getPropertiesPath(), sparqlUpdate);
 
         try {
-            final HttpResponse response = httpHelper.execute( patch );
+            final HttpResponse response = httpHelper.execute( UPDATE_PROPERTIES, patch );
             final StatusLine status = response.getStatusLine();
             final String uri = patch.getURI().toString();
 
@@ -338,8 +363,8 @@ public class FedoraResourceImpl implements FedoraResource {
                                           status.getReasonPhrase());
             }
 
-            // update properties from server
-            httpHelper.loadProperties(this);
+            // update properties from server, now or when next read
+            reload(response.getFirstHeader(HttpHeaders.ETAG));
 
         } catch (final FedoraException e) {
             throw e;
@@ -358,7 +383,7 @@ public class FedoraResourceImpl implements FedoraResource {
         final HttpPut put = httpHelper.createTriplesPutMethod(getPropertiesPath(), updatedProperties, contentType);
 
         try {
-            final HttpResponse response = httpHelper.execute( put );
+            final HttpResponse response = httpHelper.execute( UPDATE_PROPERTIES, put );
             final StatusLine status = response.getStatusLine();
             final String uri = put.getURI().toString();
 
@@ -380,8 +405,8 @@ public class FedoraResourceImpl implements FedoraResource {
                                           status.getReasonPhrase());
             }
 
-            // update properties from server
-            httpHelper.loadProperties(this);
+            // update properties from server, now or when next read
+            reload(response.getFirstHeader(HttpHeaders.ETAG));
 
         } catch (final FedoraException e) {
             throw e;
@@ -395,7 +420,13 @@ public class FedoraResourceImpl implements FedoraResource {
 
     @Override
     public boolean isWritable() {
-        final Collection<String> values = getPropertyValues(RdfLexicon.WRITABLE);
+        final Collection<String> values;
+        try {
+            values = getPropertyValues(RdfLexicon.WRITABLE);
+        } catch (final FedoraException e) {
+            LOGGER.warn("could not load resource {}, assuming it is not writable", path, e);
+            return false;
+        }
         if (values != null && values.size() > 0) {
             final Iterator<String> it = values.iterator();
             return Boolean.parseBoolean(it.next());
@@ -408,7 +439,7 @@ public class FedoraResourceImpl implements FedoraResource {
         final HttpPost postVersion = httpHelper.createPostMethod(path + "/fcr:versions", null);
         try {
             postVersion.setHeader("Slug", label);
-            final HttpResponse response = httpHelper.execute(postVersion);
+            final HttpResponse response = httpHelper.execute(CREATE_VERSION, postVersion);
             final StatusLine status = response.getStatusLine();
             final String uri = postVersion.getURI().toString();
 
@@ -453,9 +484,105 @@ public class FedoraResourceImpl implements FedoraResource {
     **/
     public void setGraph( final Graph graph ) {
         this.graph = graph;
+        this.embedded = false;
+    }
+
+    /**
+     * Set the properties graph from the representation of a parent object in which this resource was embedded.
+     * The embedded triples describe the resource itself but not its children, and come without an ETag; those
+     * are requested from the repository when first needed.
+     *
+     * @param graph graph of the triples embedded for this resource
+    **/
+    public void setEmbeddedGraph( final Graph graph ) {
+        setGraph( graph );
+        this.embedded = true;
+    }
+
+    /**
+     * Check whether the properties of this resource were taken from the representation of its parent rather
+     * than loaded from the resource itself.
+     *
+     * @return true if the properties graph holds embedded triples only
+    **/
+    public boolean isEmbedded() {
+        return embedded;
+    }
+
+    /**
+     * Check whether the properties of this resource have been loaded.  Resources listed as the children of an
+     * object are not loaded until one of their properties is first read.
+     *
+     * @return true if the properties graph is available
+    **/
+    public boolean isLoaded() {
+        return graph != null;
+    }
+
+    /**
+     * Mark the properties of this resource stale after it has been written, so they are reloaded when next
+     * read.  The ETag returned by the write, if any, remains available without a reload.
+     *
+     * @param etag ETag of the written resource, or null if unknown
+    **/
+    public synchronized void markStale( final String etag ) {
+        setGraph( null );
+        this.etagValue = etag;
+    }
+
+    /**
+     * Refresh the properties after this resource has been written: reload them now, or mark them stale if the
+     * HTTP helper's write load mode is {@link LoadMode#LAZY}.
+     *
+     * @param etag ETag header of the write response, or null
+     * @throws FedoraException if the properties cannot be loaded
+    **/
+    protected void reload( final Header etag ) throws FedoraException {
+        if (httpHelper.getWriteLoadMode() == LoadMode.LAZY) {
+            markStale( etag == null ? null : etag.getValue() );
+        } else {
+            httpHelper.loadProperties(this);
+        }
+    }
+
+    /**
+     * Get the properties graph, loading it from the repository first if it has not been loaded yet.
+     *
+     * @return Graph containing properties for this resource
+     * @throws FedoraException if the properties cannot be loaded
+    **/
+    protected Graph loadedGraph() throws FedoraException {
+        Graph loaded = graph;
+        if (loaded == null) {
+            synchronized (this) {
+                if (graph == null) {
+                    httpHelper.loadProperties(this);
+                }
+                loaded = graph;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Get the properties graph as returned by the resource itself, reloading it if it only holds the triples
+     * embedded in the representation of the parent.
+     *
+     * @return Graph containing properties for this resource
+     * @throws FedoraException if the properties cannot be loaded
+    **/
+    protected Graph completeGraph() throws FedoraException {
+        if (embedded) {
+            synchronized (this) {
+                if (embedded) {
+                    httpHelper.loadProperties(this);
+                }
+            }
+        }
+        return loadedGraph();
     }
 
-    private Date getDate(final Property property) {
+    private Date getDate(final Property property) throws FedoraException {
         Date date = null;
         final Triple t = getTriple(subject, property);
         if ( t != null ) {
@@ -474,9 +601,10 @@ public class FedoraResourceImpl implements FedoraResource {
      *
      * @param property The Property to get values for
      * @return Collection of values
+     * @throws FedoraException if the properties cannot be loaded
      */
-    protected Collection<String> getPropertyValues(final Property property) {
-        final ExtendedIterator<Triple> iterator = graph.find(Node.ANY,
+    protected Collection<String> getPropertyValues(final Property property) throws FedoraException {
+        final ExtendedIterator<Triple> iterator = loadedGraph().find(Node.ANY,
                                                              property.asNode(),
                                                              Node.ANY);
         final Set<String> set = new HashSet<>();
@@ -493,8 +621,8 @@ public class FedoraResourceImpl implements FedoraResource {
         return set;
     }
 
-    protected Triple getTriple( final Node subject, final Property property ) {
-        final ExtendedIterator<Triple> it = graph.find( subject, property.asNode(), null );
+    protected Triple getTriple( final Node subject, final Property property ) throws FedoraException {
+        final ExtendedIterator<Triple> it = loadedGraph().find( subject, property.asNode(), null );
         try {
             if ( it.hasNext() ) {
                 return it.next();
@@ -29,6 +29,7 @@ import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraObject;
 import org.fcrepo.client.FedoraRepository;
 import org.fcrepo.client.ReadOnlyException;
+import org.fcrepo.client.utils.HttpClientConfig;
 import org.fcrepo.client.utils.HttpHelper;
 import org.slf4j.Logger;
 
@@ -49,7 +50,7 @@ public class ReadOnlyFedoraRepositoryImpl extends FedoraRepositoryImpl implement
      */
     public ReadOnlyFedoraRepositoryImpl(final String repositoryURL) {
         this.repositoryURL = repositoryURL;
-        this.httpHelper = new HttpHelper(repositoryURL, null, null, true);
+        this.httpHelper = new HttpHelper(repositoryURL, null, null, true, new HttpClientConfig());
     }
 
     /**
@@ -60,8 +61,21 @@ public class ReadOnlyFedoraRepositoryImpl extends FedoraRepositoryImpl implement
      * @param password Repository password
      */
     public ReadOnlyFedoraRepositoryImpl(final String repositoryURL, final String username, final String password) {
+        this(repositoryURL, username, password, new HttpClientConfig());
+    }
+
+    /**
+     * Constructor that takes connection pool and transport settings
+     *
+     * @param repositoryURL Repository base URL
+     * @param username Repository username
+     * @param password Repository password
+     * @param config Connection pool and transport settings
+     */
+    public ReadOnlyFedoraRepositoryImpl(final String repositoryURL, final String username, final String password,
+                                        final HttpClientConfig config) {
         this.repositoryURL = repositoryURL;
-        this.httpHelper = new HttpHelper(repositoryURL, username, password, true);
+        this.httpHelper = new HttpHelper(repositoryURL, username, password, true, config);
     }
 
     /**
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.metrics;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Entity wrapper which counts the bytes written to or read from the wrapped entity.  Bytes written are
+ * reported when {@link #writeTo} completes; bytes read are reported when the content stream reaches its end or
+ * is closed.
+ *
+ * @author escowles
+**/
+public class CountingEntity extends HttpEntityWrapper {
+
+    private final LongConsumer listener;
+
+    /**
+     * Create a counting entity.
+     *
+     * @param entity The entity to wrap.
+     * @param listener Receives the number of bytes transferred.
+    **/
+    public CountingEntity(final HttpEntity entity, final LongConsumer listener) {
+        super(entity);
+        this.listener = listener;
+    }
+
+    /**
+     * Get the wrapped entity.
+     *
+     * @return the entity whose bytes are counted
+    **/
+    public HttpEntity getWrappedEntity() {
+        return wrappedEntity;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new CountingInputStream(super.getContent());
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) throws IOException {
+        final CountingOutputStream counting = new CountingOutputStream(out);
+        try {
+            super.writeTo(counting);
+        } finally {
+            listener.accept(counting.count);
+        }
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+        private boolean reported = false;
+
+        CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b < 0) {
+                report();
+            } else {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n < 0) {
+                report();
+            } else {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                report();
+            }
+        }
+
+        private void report() {
+            if (!reported) {
+                reported = true;
+                listener.accept(count);
+            }
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
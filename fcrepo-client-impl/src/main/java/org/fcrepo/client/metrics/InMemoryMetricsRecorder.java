@@ -0,0 +1,244 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics recorder which keeps histograms and counters in memory, to be polled by the application or exported
+ * to a monitoring system with {@link #toMap}.  All durations are in nanoseconds.
+ *
+ * @author escowles
+**/
+public class InMemoryMetricsRecorder implements MetricsRecorder {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final Map<Operation, OperationMetrics> operations = new EnumMap<>(Operation.class);
+    private final LatencyHistogram leaseWait = new LatencyHistogram();
+
+    /**
+     * Default constructor.
+    **/
+    public InMemoryMetricsRecorder() {
+        for (final Operation operation : Operation.values()) {
+            operations.put(operation, new OperationMetrics());
+        }
+    }
+
+    @Override
+    public void requestCompleted(final Operation operation, final int status, final long nanos) {
+        final OperationMetrics metrics = operations.get(operation);
+        metrics.network.record(nanos);
+        metrics.statusCounts.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void operationCompleted(final Operation operation, final long nanos, final boolean failed) {
+        final OperationMetrics metrics = operations.get(operation);
+        metrics.latency.record(nanos);
+        if (failed) {
+            metrics.failures.increment();
+        }
+    }
+
+    @Override
+    public void parseCompleted(final Operation operation, final long nanos) {
+        operations.get(operation).parse.record(nanos);
+    }
+
+    @Override
+    public void bytesSent(final Operation operation, final long bytes) {
+        operations.get(operation).bytesSent.add(bytes);
+    }
+
+    @Override
+    public void bytesReceived(final Operation operation, final long bytes) {
+        operations.get(operation).bytesReceived.add(bytes);
+    }
+
+    @Override
+    public void leaseCompleted(final long nanos) {
+        leaseWait.record(nanos);
+    }
+
+    /**
+     * Get the metrics of an operation.
+     *
+     * @param operation The operation.
+     * @return metrics of the operation
+    **/
+    public OperationMetrics getOperation(final Operation operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * Get the histogram of time spent waiting to lease a pooled connection.
+     *
+     * @return lease wait histogram
+    **/
+    public LatencyHistogram getLeaseWait() {
+        return leaseWait;
+    }
+
+    /**
+     * Clear all metrics.
+    **/
+    public void reset() {
+        for (final OperationMetrics metrics : operations.values()) {
+            metrics.reset();
+        }
+        leaseWait.reset();
+    }
+
+    /**
+     * Export the metrics of every operation that has been used as a flat map, with keys such as
+     * {@code getObject.latency.p99}, {@code getObject.status.200} and {@code pool.leaseWait.max}.
+     *
+     * @return map of metric names to values, sorted by name
+    **/
+    public Map<String, Number> toMap() {
+        final Map<String, Number> map = new TreeMap<>();
+        for (final Map.Entry<Operation, OperationMetrics> entry : operations.entrySet()) {
+            final OperationMetrics metrics = entry.getValue();
+            if (metrics.latency.getCount() == 0 && metrics.network.getCount() == 0
+                    && metrics.parse.getCount() == 0) {
+                continue;
+            }
+            final String prefix = entry.getKey().getName() + ".";
+            export(map, prefix + "latency", metrics.latency);
+            export(map, prefix + "network", metrics.network);
+            export(map, prefix + "parse", metrics.parse);
+            map.put(prefix + "failures", metrics.getFailures());
+            map.put(prefix + "bytesSent", metrics.getBytesSent());
+            map.put(prefix + "bytesReceived", metrics.getBytesReceived());
+            for (final Map.Entry<Integer, Long> status : metrics.getStatusCounts().entrySet()) {
+                map.put(prefix + "status." + status.getKey(), status.getValue());
+            }
+        }
+        export(map, "pool.leaseWait", leaseWait);
+        return map;
+    }
+
+    private static void export(final Map<String, Number> map, final String prefix,
+                               final LatencyHistogram histogram) {
+        map.put(prefix + ".count", histogram.getCount());
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        map.put(prefix + ".mean", histogram.getMean());
+        map.put(prefix + ".max", histogram.getMax());
+        for (final double percentile : PERCENTILES) {
+            final String name = Double.toString(percentile).replace(".0", "").replace(".", "");
+            map.put(prefix + ".p" + name, histogram.getValueAtPercentile(percentile));
+        }
+    }
+
+    /**
+     * Metrics of a single operation.
+    **/
+    public static class OperationMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram network = new LatencyHistogram();
+        private final LatencyHistogram parse = new LatencyHistogram();
+        private final ConcurrentMap<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+
+        /**
+         * Get the histogram of operation durations, including retries.
+         *
+         * @return latency histogram
+        **/
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Get the histogram of request attempt durations, until the response headers were received.
+         *
+         * @return network time histogram
+        **/
+        public LatencyHistogram getNetwork() {
+            return network;
+        }
+
+        /**
+         * Get the histogram of time spent reading and parsing RDF responses.
+         *
+         * @return parse time histogram
+        **/
+        public LatencyHistogram getParse() {
+            return parse;
+        }
+
+        /**
+         * Get the number of request attempts by response status code; 0 counts attempts without a response.
+         *
+         * @return map of status codes to counts
+        **/
+        public Map<Integer, Long> getStatusCounts() {
+            final Map<Integer, Long> counts = new TreeMap<>();
+            for (final Map.Entry<Integer, LongAdder> entry : statusCounts.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().sum());
+            }
+            return counts;
+        }
+
+        /**
+         * Get the number of operations which ended with an exception.
+         *
+         * @return number of failures
+        **/
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * Get the number of bytes sent in request bodies.
+         *
+         * @return bytes sent
+        **/
+        public long getBytesSent() {
+            return bytesSent.sum();
+        }
+
+        /**
+         * Get the number of bytes read from response bodies.
+         *
+         * @return bytes received
+        **/
+        public long getBytesReceived() {
+            return bytesReceived.sum();
+        }
+
+        private void reset() {
+            latency.reset();
+            network.reset();
+            parse.reset();
+            statusCounts.clear();
+            failures.reset();
+            bytesSent.reset();
+            bytesReceived.reset();
+        }
+    }
+}
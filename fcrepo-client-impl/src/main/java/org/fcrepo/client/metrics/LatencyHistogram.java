@@ -0,0 +1,144 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with log-linear buckets, in the style of HdrHistogram: each power
+ * of two is divided into 32 linear sub-buckets, so recorded values are reported within about 3% of their true
+ * value.  Values above 2^40 (about 18 minutes, when recording nanoseconds) are clamped.
+ *
+ * @author escowles
+**/
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS >> 1;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value.
+     *
+     * @param value The value; negative values are recorded as zero.
+    **/
+    public void record(final long value) {
+        final long v = Math.min(MAX_VALUE, Math.max(0, value));
+        counts.incrementAndGet(index(v));
+        count.incrementAndGet();
+        total.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return count
+    **/
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get the sum of recorded values.
+     *
+     * @return sum
+    **/
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return maximum, or 0 if nothing was recorded
+    **/
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the mean of recorded values.
+     *
+     * @return mean, or 0 if nothing was recorded
+    **/
+    public double getMean() {
+        final long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * Get the value at a percentile: the highest value of the bucket containing the requested rank, so the
+     * result is never below the true percentile.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return value at the percentile, or 0 if nothing was recorded
+    **/
+    public long getValueAtPercentile(final double percentile) {
+        final long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clear all recorded values.  Values recorded concurrently may be partially lost.
+    **/
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // value >> shift is in [HALF, SUB_BUCKETS), so each power of two gets HALF sub-buckets
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return HALF * shift + (int) (value >> shift);
+    }
+
+    static long highestEquivalentValue(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / HALF - 1;
+        final long subBucket = index % HALF + HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.metrics;
+
+/**
+ * Receives measurements of the requests made to a repository.  All methods have empty default implementations,
+ * so implementations only need to override the measurements they use.  Implementations must be thread-safe and
+ * should not block, since they are called on the request path.
+ *
+ * <p>For each call to {@link org.fcrepo.client.utils.HttpHelper#execute}, {@link #requestCompleted} is called
+ * once per attempt and {@link #operationCompleted} once for the whole operation, including retries and time
+ * spent waiting for a concurrency permit.  Loading properties additionally reports {@link #parseCompleted}; the
+ * parse time includes reading the response body, which is streamed into the parser.</p>
+ *
+ * @author escowles
+**/
+public interface MetricsRecorder {
+
+    /**
+     * Recorder which ignores all measurements.
+    **/
+    MetricsRecorder NOOP = new MetricsRecorder() { };
+
+    /**
+     * Record one attempt of a request.
+     *
+     * @param operation The operation.
+     * @param status HTTP status code of the response, or 0 if no response was received.
+     * @param nanos Time until the response headers were received, in nanoseconds.
+    **/
+    default void requestCompleted(final Operation operation, final int status, final long nanos) {
+    }
+
+    /**
+     * Record a completed operation.
+     *
+     * @param operation The operation.
+     * @param nanos Duration of the operation, in nanoseconds.
+     * @param failed Whether the operation ended with an exception.
+    **/
+    default void operationCompleted(final Operation operation, final long nanos, final boolean failed) {
+    }
+
+    /**
+     * Record the parsing of an RDF response.
+     *
+     * @param operation The operation.
+     * @param nanos Time spent reading and parsing the response body, in nanoseconds.
+    **/
+    default void parseCompleted(final Operation operation, final long nanos) {
+    }
+
+    /**
+     * Record bytes sent in a request body.
+     *
+     * @param operation The operation.
+     * @param bytes Number of bytes sent.
+    **/
+    default void bytesSent(final Operation operation, final long bytes) {
+    }
+
+    /**
+     * Record bytes read from a response body.
+     *
+     * @param operation The operation.
+     * @param bytes Number of bytes received.
+    **/
+    default void bytesReceived(final Operation operation, final long bytes) {
+    }
+
+    /**
+     * Record the time spent waiting to lease a connection from the pool.
+     *
+     * @param nanos Wait time, in nanoseconds.
+    **/
+    default void leaseCompleted(final long nanos) {
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.metrics;
+
+/**
+ * Repository operations distinguished by the metrics.
+ *
+ * @author escowles
+**/
+public enum Operation {
+    EXISTS("exists"),
+    GET_OBJECT("getObject"),
+    GET_DATASTREAM("getDatastream"),
+    GET_CONTENT("getContent"),
+    CREATE_OBJECT("createObject"),
+    CREATE_DATASTREAM("createDatastream"),
+    CREATE_RESOURCE("createResource"),
+    UPDATE_PROPERTIES("updateProperties"),
+    UPDATE_CONTENT("updateContent"),
+    CREATE_VERSION("createVersionSnapshot"),
+    CHECK_FIXITY("checkFixity"),
+    COPY("copy"),
+    MOVE("move"),
+    DELETE("delete"),
+    OTHER("other");
+
+    private final String name;
+
+    private Operation(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the operation, as used in exported metrics.
+     *
+     * @return operation name
+    **/
+    public String getName() {
+        return name;
+    }
+}
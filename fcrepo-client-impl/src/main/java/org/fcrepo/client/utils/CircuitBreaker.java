@@ -0,0 +1,274 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.client.methods.HttpUriRequest;
+import org.fcrepo.client.CircuitBreakerOpenException;
+import org.slf4j.Logger;
+
+/**
+ * Circuit breaker keyed by route (scheme, host and port).  Each route tracks the outcome of its most recent calls
+ * in a sliding window; when enough calls have been seen and either the failure rate or the slow-call rate
+ * reaches its threshold, the route opens and requests fail fast with a {@link CircuitBreakerOpenException}.
+ * After the open duration a limited number of trial calls are let through (half-open); if they succeed the route
+ * closes again, otherwise it re-opens.
+ *
+ * @author escowles
+**/
+public class CircuitBreaker {
+    private static final Logger LOGGER = getLogger(CircuitBreaker.class);
+
+    /**
+     * State of a route.
+    **/
+    public enum State {
+        /** Requests flow normally. */
+        CLOSED,
+        /** Requests are rejected. */
+        OPEN,
+        /** A limited number of trial requests are allowed. */
+        HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallDuration;
+    private final long openDuration;
+    private final int halfOpenCalls;
+
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Create a circuit breaker with the default settings: a window of 50 calls, at least 20 calls before
+     * tripping, 50% failure rate or 80% of calls slower than 10 seconds, 30 seconds open and 5 trial calls.
+    **/
+    public CircuitBreaker() {
+        this(50, 20, 0.5, 0.8, 10000, 30000, 5);
+    }
+
+    /**
+     * Create a circuit breaker.
+     *
+     * @param windowSize Number of recent calls per route used to compute rates.
+     * @param minimumCalls Minimum number of calls in the window before the route can open.
+     * @param failureRateThreshold Fraction of failed calls (0-1) that opens the route.
+     * @param slowCallRateThreshold Fraction of slow calls (0-1) that opens the route.
+     * @param slowCallDuration Duration in milliseconds above which a call is slow.
+     * @param openDuration Time in milliseconds a route stays open before allowing trial calls.
+     * @param halfOpenCalls Number of trial calls allowed while half-open.
+    **/
+    public CircuitBreaker(final int windowSize, final int minimumCalls, final double failureRateThreshold,
+                          final double slowCallRateThreshold, final long slowCallDuration, final long openDuration,
+                          final int halfOpenCalls) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Get the route of a request.
+     *
+     * @param request The request.
+     * @return route key, in the form scheme://host:port
+    **/
+    public static String route(final HttpUriRequest request) {
+        final URI uri = request.getURI();
+        int port = uri.getPort();
+        if (port < 0) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return uri.getScheme() + "://" + uri.getHost() + ":" + port;
+    }
+
+    /**
+     * Reserve permission to send a request on a route.  Every successful call must be followed by a call to
+     * {@link #onResult}.
+     *
+     * @param route The route key.
+     * @throws CircuitBreakerOpenException if the route is open, or half-open with all trial calls in flight
+    **/
+    public void acquirePermission(final String route) throws CircuitBreakerOpenException {
+        if (!getRoute(route).tryAcquire(System.currentTimeMillis())) {
+            throw new CircuitBreakerOpenException("circuit breaker for " + route + " is open");
+        }
+    }
+
+    /**
+     * Record the outcome of a call.
+     *
+     * @param route The route key.
+     * @param duration Duration of the call, in milliseconds.
+     * @param failed Whether the call failed (an I/O error or a 5xx response).
+    **/
+    public void onResult(final String route, final long duration, final boolean failed) {
+        getRoute(route).record(route, System.currentTimeMillis(), failed, duration >= slowCallDuration);
+    }
+
+    /**
+     * Get the state of a route.  Routes that have not been used are closed.
+     *
+     * @param route The route key.
+     * @return state of the route
+    **/
+    public State getState(final String route) {
+        final Route r = routes.get(route);
+        return r == null ? State.CLOSED : r.getState(System.currentTimeMillis());
+    }
+
+    /**
+     * Get the state of every route used so far.
+     *
+     * @return map of route keys to states
+    **/
+    public Map<String, State> getStates() {
+        final long now = System.currentTimeMillis();
+        final Map<String, State> states = new HashMap<>();
+        for (final Map.Entry<String, Route> entry : routes.entrySet()) {
+            states.put(entry.getKey(), entry.getValue().getState(now));
+        }
+        return states;
+    }
+
+    private Route getRoute(final String route) {
+        Route r = routes.get(route);
+        if (r == null) {
+            final Route created = new Route();
+            r = routes.putIfAbsent(route, created);
+            if (r == null) {
+                r = created;
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Sliding window of call outcomes for a single route.
+    **/
+    private class Route {
+        private static final byte FAILED = 1;
+        private static final byte SLOW = 2;
+
+        private final byte[] outcomes = new byte[windowSize];
+        private int next = 0;
+        private int calls = 0;
+        private int failures = 0;
+        private int slowCalls = 0;
+
+        private State state = State.CLOSED;
+        private long openedAt = 0;
+        private int trialsStarted = 0;
+        private int trialsCompleted = 0;
+        private int trialFailures = 0;
+
+        synchronized State getState(final long now) {
+            if (state == State.OPEN && now - openedAt >= openDuration) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        }
+
+        synchronized boolean tryAcquire(final long now) {
+            if (state == State.OPEN) {
+                if (now - openedAt < openDuration) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialsStarted = 0;
+                trialsCompleted = 0;
+                trialFailures = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsStarted >= halfOpenCalls) {
+                    return false;
+                }
+                trialsStarted++;
+            }
+            return true;
+        }
+
+        synchronized void record(final String route, final long now, final boolean failed, final boolean slow) {
+            if (state == State.HALF_OPEN) {
+                trialsCompleted++;
+                if (failed || slow) {
+                    trialFailures++;
+                }
+                if (trialsCompleted >= halfOpenCalls) {
+                    if (trialFailures >= failureRateThreshold * halfOpenCalls) {
+                        open(route, now);
+                    } else {
+                        LOGGER.info("closing circuit breaker for {}", route);
+                        state = State.CLOSED;
+                        reset();
+                    }
+                }
+                return;
+            } else if (state == State.OPEN) {
+                // result of a call started before the route opened
+                return;
+            }
+
+            if (calls == windowSize) {
+                final byte evicted = outcomes[next];
+                failures -= evicted & FAILED;
+                slowCalls -= (evicted & SLOW) >> 1;
+            } else {
+                calls++;
+            }
+            outcomes[next] = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+            next = (next + 1) % windowSize;
+            if (failed) {
+                failures++;
+            }
+            if (slow) {
+                slowCalls++;
+            }
+
+            if (calls >= minimumCalls && (failures >= failureRateThreshold * calls
+                    || slowCalls >= slowCallRateThreshold * calls)) {
+                open(route, now);
+            }
+        }
+
+        private void open(final String route, final long now) {
+            LOGGER.warn("opening circuit breaker for {} ({} failed and {} slow of {} calls)", route, failures,
+                    slowCalls, calls);
+            state = State.OPEN;
+            openedAt = now;
+            reset();
+        }
+
+        private void reset() {
+            next = 0;
+            calls = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.atlas.lib.Sink;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+/**
+ * Immutable graph holding its triples as arrays of node ids.  Each distinct node is stored once in a dictionary
+ * and every triple takes three ints, sorted by subject/predicate/object, plus one int in an index sorted by
+ * predicate/object/subject.  A few hundred triples therefore cost a few kilobytes, against several hundred bytes
+ * per triple for the default in-memory graph.
+ *
+ * <p>Patterns with a concrete subject are answered from the first ordering, patterns with a concrete predicate
+ * from the second, and other patterns by a scan.  Literal objects are matched by value, as by the default
+ * graph, so {@code "a"} finds {@code "a"^^xsd:string}.  Adding or removing triples throws.</p>
+ *
+ * @author escowles
+**/
+public final class CompactGraph extends GraphBase {
+
+    // ids of up to 21 bits are packed three to a long for sorting
+    private static final int PACKED_BITS = 21;
+    private static final long PACKED_MASK = (1L << PACKED_BITS) - 1;
+
+    private final Node[] nodes;
+    private final int[] byHash;
+    private final int[] spo;
+    private final int[] pos;
+
+    private CompactGraph(final Node[] nodes, final int[] spo, final int[] pos) {
+        this.nodes = nodes;
+        this.spo = spo;
+        this.pos = pos;
+        // order the ids by hash code, kept in the high half of each key
+        final long[] keys = new long[nodes.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) nodes[i].hashCode() << 32) | i;
+        }
+        Arrays.sort(keys);
+        this.byHash = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            byHash[i] = (int) keys[i];
+        }
+    }
+
+    /**
+     * Copy the triples of a graph.
+     *
+     * @param graph graph to copy
+     * @return compact copy of the graph
+    **/
+    public static CompactGraph copyOf(final Graph graph) {
+        final Builder builder = new Builder();
+        final ExtendedIterator<Triple> it = graph.find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (it.hasNext()) {
+                builder.send(it.next());
+            }
+        } finally {
+            it.close();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the number of distinct nodes in the graph.
+     *
+     * @return size of the node dictionary
+    **/
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return triples();
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(final TripleMatch match) {
+        final Node s = concrete(match.getMatchSubject());
+        final Node p = concrete(match.getMatchPredicate());
+        final Node o = concrete(match.getMatchObject());
+
+        if (s != null) {
+            final int sid = id(s);
+            if (sid < 0) {
+                return NiceIterator.emptyIterator();
+            }
+            int from = lowerBound(sid, 0, 0, triples(), true);
+            int to = lowerBound(sid + 1, 0, from, triples(), true);
+            if (p != null) {
+                final int pid = id(p);
+                if (pid < 0) {
+                    return NiceIterator.emptyIterator();
+                }
+                from = lowerBound(pid, 1, from, to, true);
+                to = lowerBound(pid + 1, 1, from, to, true);
+            }
+            return new Matches(from, to, false, o);
+        } else if (p != null) {
+            final int pid = id(p);
+            if (pid < 0) {
+                return NiceIterator.emptyIterator();
+            }
+            final int from = lowerBound(pid, 0, 0, triples(), false);
+            final int to = lowerBound(pid + 1, 0, from, triples(), false);
+            return new Matches(from, to, true, o);
+        }
+        return new Matches(0, triples(), false, o);
+    }
+
+    private int triples() {
+        return spo.length / 3;
+    }
+
+    private static Node concrete(final Node node) {
+        return node == null || node == Node.ANY ? null : node;
+    }
+
+    /**
+     * Find the id of a node.
+     *
+     * @return id, or -1 if the node is not in the dictionary
+    **/
+    private int id(final Node node) {
+        final int hash = node.hashCode();
+        int low = 0;
+        int high = byHash.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midHash = nodes[byHash[mid]].hashCode();
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                // scan the run of nodes sharing the hash code
+                int i = mid;
+                while (i > 0 && nodes[byHash[i - 1]].hashCode() == hash) {
+                    i--;
+                }
+                for (; i < byHash.length && nodes[byHash[i]].hashCode() == hash; i++) {
+                    if (nodes[byHash[i]].equals(node)) {
+                        return byHash[i];
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the first triple in {@code [from, to)} of an ordering whose component at {@code field} (0 for the
+     * leading component, 1 for the second) is not less than {@code id}.
+    **/
+    private int lowerBound(final int id, final int field, final int from, final int to, final boolean subjectOrder) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (component(mid, field, subjectOrder) < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int component(final int position, final int field, final boolean subjectOrder) {
+        if (subjectOrder) {
+            return spo[position * 3 + field];
+        }
+        // predicate/object/subject ordering
+        final int triple = pos[position];
+        return spo[triple * 3 + (field == 0 ? 1 : 2)];
+    }
+
+    /**
+     * Triples in a range of one of the orderings, optionally filtered by object value.
+    **/
+    private class Matches extends NiceIterator<Triple> {
+        private final int to;
+        private final boolean predicateOrder;
+        private final Node object;
+        private int next;
+        private Triple current;
+
+        Matches(final int from, final int to, final boolean predicateOrder, final Node object) {
+            this.next = from;
+            this.to = to;
+            this.predicateOrder = predicateOrder;
+            this.object = object;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current == null && next < to) {
+                final int triple = predicateOrder ? pos[next] : next;
+                next++;
+                final Node o = nodes[spo[triple * 3 + 2]];
+                if (object == null || object.sameValueAs(o)) {
+                    current = Triple.create(nodes[spo[triple * 3]], nodes[spo[triple * 3 + 1]], o);
+                }
+            }
+            return current != null;
+        }
+
+        @Override
+        public Triple next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Triple t = current;
+            current = null;
+            return t;
+        }
+    }
+
+    /**
+     * Collects triples, for example from a parser, and builds a CompactGraph.  Duplicate triples are stored once.
+     * If an interner is given, each distinct node is replaced by its canonical instance as it is first seen.
+    **/
+    public static class Builder implements Sink<Triple> {
+        private final NodeInterner interner;
+        private final Map<Node, Integer> ids = new HashMap<>();
+        private final List<Node> nodes = new ArrayList<>();
+        private int[] triples = new int[48];
+        private int count = 0;
+
+        /**
+         * Create a builder which keeps the nodes it receives.
+        **/
+        public Builder() {
+            this(null);
+        }
+
+        /**
+         * Create a builder which stores the canonical instance of each node.
+         *
+         * @param interner Interner supplying canonical nodes, or null to keep the nodes received.
+        **/
+        public Builder(final NodeInterner interner) {
+            this.interner = interner;
+        }
+
+        @Override
+        public void send(final Triple triple) {
+            if (count * 3 == triples.length) {
+                triples = Arrays.copyOf(triples, triples.length * 2);
+            }
+            triples[count * 3] = id(triple.getSubject());
+            triples[count * 3 + 1] = id(triple.getPredicate());
+            triples[count * 3 + 2] = id(triple.getObject());
+            count++;
+        }
+
+        private int id(final Node node) {
+            Integer id = ids.get(node);
+            if (id == null) {
+                id = nodes.size();
+                ids.put(node, id);
+                nodes.add(interner == null ? node : interner.intern(node));
+            }
+            return id;
+        }
+
+        /**
+         * Add the triples received by another builder, for example one filled by a parser on another thread.
+         *
+         * @param other The other builder, which is left unchanged.
+        **/
+        public void addAll(final Builder other) {
+            final int[] remap = new int[other.nodes.size()];
+            for (int i = 0; i < remap.length; i++) {
+                remap[i] = id(other.nodes.get(i));
+            }
+            if ((count + other.count) * 3 > triples.length) {
+                triples = Arrays.copyOf(triples, Math.max(triples.length * 2, (count + other.count) * 3));
+            }
+            for (int i = 0; i < other.count * 3; i++) {
+                triples[count * 3 + i] = remap[other.triples[i]];
+            }
+            count += other.count;
+        }
+
+        @Override
+        public void flush() {
+            // triples are held until build()
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+
+        /**
+         * Build the graph from the triples received so far.
+         *
+         * @return the graph
+        **/
+        public CompactGraph build() {
+            return nodes.size() <= PACKED_MASK + 1 ? buildPacked() : buildBoxed();
+        }
+
+        private CompactGraph buildPacked() {
+            final long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = pack(triples[i * 3], triples[i * 3 + 1], triples[i * 3 + 2]);
+            }
+            Arrays.sort(keys);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || keys[i] != keys[unique - 1]) {
+                    keys[unique++] = keys[i];
+                }
+            }
+
+            final int[] spo = new int[unique * 3];
+            final long[] posKeys = new long[unique];
+            for (int i = 0; i < unique; i++) {
+                spo[i * 3] = (int) (keys[i] >>> (2 * PACKED_BITS));
+                spo[i * 3 + 1] = (int) ((keys[i] >>> PACKED_BITS) & PACKED_MASK);
+                spo[i * 3 + 2] = (int) (keys[i] & PACKED_MASK);
+                posKeys[i] = pack(spo[i * 3 + 1], spo[i * 3 + 2], spo[i * 3]);
+            }
+            Arrays.sort(posKeys);
+            final int[] pos = new int[unique];
+            for (int i = 0; i < unique; i++) {
+                final long p = posKeys[i] >>> (2 * PACKED_BITS);
+                final long o = (posKeys[i] >>> PACKED_BITS) & PACKED_MASK;
+                final long s = posKeys[i] & PACKED_MASK;
+                pos[i] = Arrays.binarySearch(keys, 0, unique, pack(s, p, o));
+            }
+            return new CompactGraph(nodes.toArray(new Node[nodes.size()]), spo, pos);
+        }
+
+        private static long pack(final long first, final long second, final long third) {
+            return (first << (2 * PACKED_BITS)) | (second << PACKED_BITS) | third;
+        }
+
+        /**
+         * Build the graph by sorting boxed triple indexes, for dictionaries too large to pack three ids in a long.
+         *
+         * @return the graph
+        **/
+        CompactGraph buildBoxed() {
+            final Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, ordering(triples, 0, 1, 2));
+            final List<Integer> distinct = new ArrayList<>(count);
+            for (final Integer t : order) {
+                if (distinct.isEmpty() || ordering(triples, 0, 1, 2).compare(t, distinct.get(distinct.size() - 1))
+                        != 0) {
+                    distinct.add(t);
+                }
+            }
+
+            final int[] spo = new int[distinct.size() * 3];
+            for (int i = 0; i < distinct.size(); i++) {
+                System.arraycopy(triples, distinct.get(i) * 3, spo, i * 3, 3);
+            }
+            final Integer[] posOrder = new Integer[distinct.size()];
+            for (int i = 0; i < posOrder.length; i++) {
+                posOrder[i] = i;
+            }
+            Arrays.sort(posOrder, ordering(spo, 1, 2, 0));
+            final int[] pos = new int[posOrder.length];
+            for (int i = 0; i < pos.length; i++) {
+                pos[i] = posOrder[i];
+            }
+            return new CompactGraph(nodes.toArray(new Node[nodes.size()]), spo, pos);
+        }
+
+        private static Comparator<Integer> ordering(final int[] t, final int first, final int second,
+                                                    final int third) {
+            return (a, b) -> {
+                int c = Integer.compare(t[a * 3 + first], t[b * 3 + first]);
+                if (c == 0) {
+                    c = Integer.compare(t[a * 3 + second], t[b * 3 + second]);
+                }
+                return c == 0 ? Integer.compare(t[a * 3 + third], t[b * 3 + third]) : c;
+            };
+        }
+    }
+}
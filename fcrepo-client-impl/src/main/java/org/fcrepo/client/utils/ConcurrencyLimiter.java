@@ -0,0 +1,245 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.fcrepo.client.ConcurrencyLimitException;
+import org.slf4j.Logger;
+
+/**
+ * Adaptive limit on the number of requests in flight to a repository, using a latency gradient: the limit grows
+ * while request latency stays close to its long-term average, and shrinks in proportion when latency rises
+ * above it (a sign that requests are queueing in the server) or when requests are dropped.
+ *
+ * <p>After each request, with {@code shortRtt} the latency of the request and {@code longRtt} an exponential
+ * moving average of recent latencies, the new limit is</p>
+ * <pre>
+ * gradient = max(0.5, min(1.0, tolerance * longRtt / shortRtt))
+ * newLimit = limit * gradient + sqrt(limit)
+ * </pre>
+ * <p>smoothed and bounded by the minimum and maximum limits.  Dropped requests (timeouts, 429 and 503)
+ * reduce the limit by the backoff ratio instead.  The limit is not raised while fewer than half of the permits
+ * are in use, so an idle client does not accumulate an unbounded limit.</p>
+ *
+ * <p>Callers over the limit wait up to the maximum queue time for a permit, and are then rejected with a
+ * {@link ConcurrencyLimitException}.</p>
+ *
+ * @author escowles
+**/
+public class ConcurrencyLimiter {
+    private static final Logger LOGGER = getLogger(ConcurrencyLimiter.class);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final double smoothing;
+    private final long maxQueueTime;
+    private final int longWindow;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private double limit;
+    private double longRtt = 0;
+    private int samples = 0;
+    private int inFlight = 0;
+    private int waiting = 0;
+    private long rejected = 0;
+
+    /**
+     * Create a limiter with the default settings: an initial limit of 20 requests bounded between 1 and 200,
+     * a latency tolerance of 1.5, a backoff ratio of 0.9, a smoothing factor of 0.2, a long-term window of
+     * 600 requests and callers waiting up to 60 seconds for a permit.
+    **/
+    public ConcurrencyLimiter() {
+        this(20, 1, 200, 1.5, 0.9, 0.2, 600, 60000);
+    }
+
+    /**
+     * Create a limiter.
+     *
+     * @param initialLimit Initial number of requests allowed in flight.
+     * @param minLimit Minimum limit.
+     * @param maxLimit Maximum limit.
+     * @param tolerance Ratio of request latency to long-term latency tolerated before the limit shrinks.
+     * @param backoffRatio Factor applied to the limit when a request is dropped.
+     * @param smoothing Weight (0-1) of each new limit estimate.
+     * @param longWindow Number of requests averaged into the long-term latency.
+     * @param maxQueueTime Time in milliseconds a caller waits for a permit; zero rejects immediately.
+    **/
+    public ConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit,
+                              final double tolerance, final double backoffRatio, final double smoothing,
+                              final int longWindow, final long maxQueueTime) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.smoothing = smoothing;
+        this.longWindow = longWindow;
+        this.maxQueueTime = maxQueueTime;
+    }
+
+    /**
+     * Acquire a permit to send a request, waiting up to the maximum queue time if the limit has been reached.
+     * Every successful call must be followed by a call to {@link #release} or {@link #abort}.
+     *
+     * @throws ConcurrencyLimitException if no permit became available in time
+     * @throws InterruptedException if interrupted while waiting
+    **/
+    public void acquire() throws ConcurrencyLimitException, InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            long remaining = MILLISECONDS.toNanos(maxQueueTime);
+            waiting++;
+            try {
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        rejected++;
+                        throw new ConcurrencyLimitException("concurrency limit of " + (int) limit
+                                + " requests reached");
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release a permit and update the limit with the outcome of the request.
+     *
+     * @param latency Latency of the request, in nanoseconds.
+     * @param dropped Whether the request was dropped or refused by an overloaded server.
+    **/
+    public void release(final long latency, final boolean dropped) {
+        lock.lock();
+        try {
+            update(latency, dropped);
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release a permit without updating the limit, when the request was not sent.
+    **/
+    public void abort() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(final long latency, final boolean dropped) {
+        final double previous = limit;
+        final double estimate;
+        if (dropped) {
+            estimate = limit * backoffRatio;
+        } else {
+            final double shortRtt = Math.max(1, latency);
+            samples = Math.min(samples + 1, longWindow);
+            longRtt += (shortRtt - longRtt) / samples;
+            // after a period of high latency, let the long-term average recover quickly
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+            if (inFlight < limit / 2) {
+                return;
+            }
+            final double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            estimate = limit * gradient + Math.sqrt(limit);
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + estimate * smoothing));
+        if ((int) limit != (int) previous) {
+            LOGGER.debug("concurrency limit changed from {} to {}", (int) previous, (int) limit);
+            if (limit > previous) {
+                released.signalAll();
+            }
+        }
+    }
+
+    /**
+     * Get the current limit.
+     *
+     * @return number of requests allowed in flight
+    **/
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of requests in flight.
+     *
+     * @return number of permits held
+    **/
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of callers waiting for a permit.
+     *
+     * @return number of queued callers
+    **/
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of callers rejected because no permit became available in time.
+     *
+     * @return number of rejected callers
+    **/
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
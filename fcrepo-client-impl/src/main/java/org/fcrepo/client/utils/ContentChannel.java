@@ -0,0 +1,238 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_PARTIAL_CONTENT;
+import static org.apache.http.HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.fcrepo.client.metrics.Operation.GET_CONTENT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpGet;
+import org.fcrepo.client.FedoraException;
+
+/**
+ * Read-only seekable channel over the content of a binary.  Content is read in aligned blocks with
+ * {@code Range} requests, and the most recently used blocks are kept, so small reads around the same position
+ * are served from memory instead of issuing one request each.  No request is made until the channel is read or
+ * its size is asked.
+ *
+ * <p>The size of the content is taken from the first response.  Blocks are not revalidated, so a binary
+ * updated while the channel is open may be read as a mix of both versions; a block whose range no longer fits
+ * the size fails the read.</p>
+ *
+ * @author escowles
+**/
+class ContentChannel implements SeekableByteChannel {
+
+    private static final Pattern UNSATISFIED_RANGE = Pattern.compile("bytes\\s+\\*/(\\d+)");
+
+    private final HttpHelper httpHelper;
+    private final String path;
+    private final int blockSize;
+    private final Map<Long, byte[]> blocks;
+
+    private long position = 0;
+    private long size = -1;
+    private boolean open = true;
+
+    /**
+     * Create a channel.
+     *
+     * @param httpHelper HTTP helper executing the requests
+     * @param path Path of the binary
+     * @param blockSize Size in bytes of the blocks requested
+     * @param cachedBlocks Number of blocks kept in memory
+    **/
+    ContentChannel(final HttpHelper httpHelper, final String path, final int blockSize, final int cachedBlocks) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("block size must be positive: " + blockSize);
+        }
+        this.httpHelper = httpHelper;
+        this.path = path;
+        this.blockSize = blockSize;
+        final int capacity = Math.max(cachedBlocks, 1);
+        this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public synchronized int read(final ByteBuffer dst) throws IOException {
+        checkOpen();
+        int read = 0;
+        while (dst.hasRemaining()) {
+            final long index = position / blockSize;
+            final byte[] block = block(index);
+            final int offset = (int) (position - index * blockSize);
+            if (offset >= block.length) {
+                break;
+            }
+            final int n = Math.min(block.length - offset, dst.remaining());
+            dst.put(block, offset, n);
+            position += n;
+            read += n;
+            // only wait for another request if nothing was read yet
+            if (n < block.length - offset || !blocks.containsKey(index + 1)) {
+                break;
+            }
+        }
+        return read == 0 && dst.hasRemaining() ? -1 : read;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        checkOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(final long newPosition) throws IOException {
+        checkOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("negative position: " + newPosition);
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public synchronized long size() throws IOException {
+        checkOpen();
+        if (size < 0) {
+            block(position / blockSize);
+        }
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long newSize) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        blocks.clear();
+    }
+
+    private void checkOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * Get a block from the cache or the repository; blocks past the end of the content are empty.
+    **/
+    private byte[] block(final long index) throws IOException {
+        final long start = index * blockSize;
+        if (size >= 0 && start >= size) {
+            return new byte[0];
+        }
+        byte[] block = blocks.get(index);
+        if (block == null) {
+            block = fetch(start);
+            if (block.length > 0) {
+                blocks.put(index, block);
+            }
+        }
+        return block;
+    }
+
+    private byte[] fetch(final long start) throws IOException {
+        final long end = start + blockSize - 1;
+        final HttpGet get = httpHelper.createGetMethod(path, null);
+        get.setHeader(HttpHeaders.RANGE, "bytes=" + start + "-" + end);
+        try {
+            final HttpResponse response = httpHelper.execute(GET_CONTENT, get);
+            final String uri = get.getURI().toString();
+            final StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() == SC_PARTIAL_CONTENT) {
+                final long[] range = SegmentedDownload.contentRange(uri, response);
+                if (range[0] != start || range[1] != Math.min(end, range[2] - 1)
+                        || (size >= 0 && range[2] != size)) {
+                    throw new FedoraException("resource " + uri + " changed while it was read");
+                }
+                size = range[2];
+                return read(uri, response.getEntity(), 0, (int) (range[1] - start + 1));
+            } else if (status.getStatusCode() == SC_OK) {
+                // the server ignored the range: skip to the block in the complete content
+                final HttpEntity entity = response.getEntity();
+                size = entity == null ? 0 : entity.getContentLength();
+                if (entity == null || size <= start) {
+                    return new byte[0];
+                }
+                return read(uri, entity, start, (int) Math.min(blockSize, size - start));
+            } else if (status.getStatusCode() == SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                final Header header = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+                final Matcher matcher = header == null ? null : UNSATISFIED_RANGE.matcher(header.getValue().trim());
+                if (matcher != null && matcher.matches()) {
+                    size = Long.parseLong(matcher.group(1));
+                } else if (size < 0) {
+                    size = start;
+                }
+                return new byte[0];
+            }
+            throw SegmentedDownload.error(uri, status);
+        } catch (final FedoraException e) {
+            throw new IOException(e);
+        } finally {
+            get.releaseConnection();
+        }
+    }
+
+    private static byte[] read(final String uri, final HttpEntity entity, final long skip, final int length)
+            throws IOException {
+        final byte[] block = new byte[length];
+        try (InputStream in = entity.getContent()) {
+            IOUtils.skipFully(in, skip);
+            IOUtils.readFully(in, block);
+        } catch (final IOException e) {
+            throw new IOException("incomplete content for resource " + uri, e);
+        }
+        return block;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.slf4j.Logger;
+
+/**
+ * Choice of the RDF serializations requested when loading resource properties.  Formats are listed in order of
+ * preference and sent in a single Accept header with decreasing quality values, so the repository returns the
+ * most preferred format it supports.  If the repository answers 406 Not Acceptable, the most preferred format is
+ * dropped and the request retried; the remaining formats are used for all later requests.
+ *
+ * <p>The default prefers N-Triples, which is the cheapest to parse, then Turtle, then RDF/XML.  RDF Thrift
+ * ({@link Lang#RDFTHRIFT}) can be listed first for repositories that support it.</p>
+ *
+ * @author escowles
+**/
+public class ContentNegotiation {
+    private static final Logger LOGGER = getLogger(ContentNegotiation.class);
+
+    private final List<Lang> formats;
+    private int first = 0;
+    private long fallbacks = 0;
+
+    /**
+     * Create a negotiation preferring N-Triples, then Turtle, then RDF/XML.
+    **/
+    public ContentNegotiation() {
+        this(Lang.NTRIPLES, Lang.TURTLE, Lang.RDFXML);
+    }
+
+    /**
+     * Create a negotiation.
+     *
+     * @param formats RDF serializations, most preferred first.
+    **/
+    public ContentNegotiation(final Lang... formats) {
+        if (formats.length == 0) {
+            throw new IllegalArgumentException("at least one RDF format is required");
+        }
+        this.formats = Collections.unmodifiableList(Arrays.asList(formats.clone()));
+    }
+
+    /**
+     * Get the value of the Accept header for the formats still in use.
+     *
+     * @return Accept header value
+    **/
+    public synchronized String getAcceptHeader() {
+        final StringBuilder accept = new StringBuilder();
+        for (int i = first; i < formats.size(); i++) {
+            if (i > first) {
+                accept.append(", ");
+            }
+            accept.append(formats.get(i).getContentType().getContentType());
+            if (i > first) {
+                accept.append(";q=").append(Math.max(1, 10 - (i - first)) / 10.0);
+            }
+        }
+        return accept.toString();
+    }
+
+    /**
+     * Record that the repository answered 406 Not Acceptable to a request, and drop the most preferred format if
+     * the request asked for the formats still in use.
+     *
+     * @param rejected The Accept header of the rejected request.
+     * @return true if the request should be retried with the current Accept header, false if no formats are left
+    **/
+    public synchronized boolean notAcceptable(final String rejected) {
+        if (!getAcceptHeader().equals(rejected)) {
+            // another request has already fallen back
+            return true;
+        }
+        if (first == formats.size() - 1) {
+            return false;
+        }
+        LOGGER.info("repository does not return {}, falling back to {}", formats.get(first).getLabel(),
+                formats.get(first + 1).getLabel());
+        first++;
+        fallbacks++;
+        return true;
+    }
+
+    /**
+     * Get the formats still in use, most preferred first.
+     *
+     * @return RDF serializations
+    **/
+    public synchronized List<Lang> getFormats() {
+        return formats.subList(first, formats.size());
+    }
+
+    /**
+     * Get the number of formats dropped after a 406 response.
+     *
+     * @return number of fallbacks
+    **/
+    public synchronized long getFallbacks() {
+        return fallbacks;
+    }
+
+    /**
+     * Get the RDF serialization of a Content-Type header value, ignoring parameters such as the charset.
+     *
+     * @param contentType Content-Type header value.
+     * @return the serialization, or null if the content type is missing or not an RDF serialization
+    **/
+    public static Lang lang(final String contentType) {
+        if (contentType == null || contentType.trim().isEmpty()) {
+            return null;
+        }
+        return RDFLanguages.contentTypeToLang(
+                ContentType.create(contentType.trim()).getContentType().toLowerCase(Locale.ROOT));
+    }
+}
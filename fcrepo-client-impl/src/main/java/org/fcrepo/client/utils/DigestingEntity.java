@@ -0,0 +1,253 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.fcrepo.client.FixityException;
+import org.fcrepo.client.metrics.CountingEntity;
+import org.slf4j.Logger;
+
+/**
+ * Request entity computing digests of the content while it is sent, so the content does not have to be read
+ * once to compute its checksum and again to send it.  Digests are computed whether the content is written by
+ * the blocking client or read by the non-blocking one, and are available once all of it has been sent; a
+ * retried request computes them again.
+ *
+ * <p>Digests are named as the repository names them, e.g. {@code urn:sha1:<hex>}, so they can be compared
+ * with the digest of the stored content.</p>
+ *
+ * @author escowles
+**/
+public class DigestingEntity extends HttpEntityWrapper {
+    private static final Logger LOGGER = getLogger(DigestingEntity.class);
+
+    private final String[] algorithms;
+    private volatile Map<String, URI> digests = emptyMap();
+
+    /**
+     * Create an entity computing digests of another.
+     *
+     * @param wrapped The entity sent.
+     * @param algorithms Names of the {@link MessageDigest} algorithms, e.g. {@code SHA-1}.
+     * @throws IllegalArgumentException if an algorithm is not supported
+    **/
+    public DigestingEntity(final HttpEntity wrapped, final Collection<String> algorithms) {
+        super(wrapped);
+        this.algorithms = algorithms.toArray(new String[algorithms.size()]);
+        newDigests();
+    }
+
+    /**
+     * Find the digesting entity of a request, which may have been wrapped since, e.g. to count its bytes.
+     *
+     * @param entity The request entity, or null.
+     * @return the digesting entity, or null if the request does not compute digests
+    **/
+    public static DigestingEntity of(final HttpEntity entity) {
+        HttpEntity e = entity;
+        while (e instanceof CountingEntity) {
+            e = ((CountingEntity) e).getWrappedEntity();
+        }
+        return e instanceof DigestingEntity ? (DigestingEntity) e : null;
+    }
+
+    /**
+     * Get the digests of the content sent.
+     *
+     * @return digest URIs by algorithm name, empty until all the content has been sent
+    **/
+    public Map<String, URI> getDigests() {
+        return digests;
+    }
+
+    /**
+     * Compare the digest of the content sent with the digest computed by the repository.  Content which cannot
+     * be compared, because the repository has no digest for it or used an algorithm which was not computed, is
+     * not taken as verified.
+     *
+     * @param uri The URI of the binary, for error messages.
+     * @param repositoryDigest The digest computed by the repository, or null if unknown.
+     * @throws FixityException if the digests differ, or cannot be compared
+    **/
+    public void verify(final String uri, final URI repositoryDigest) throws FixityException {
+        if (repositoryDigest == null) {
+            LOGGER.error("no digest for resource {}, content sent cannot be verified", uri);
+            throw new FixityException("no digest for resource " + uri + ", content sent cannot be verified");
+        }
+        final String urn = repositoryDigest.toString();
+        for (final URI digest : digests.values()) {
+            final String sent = digest.toString();
+            if (sent.regionMatches(true, 0, urn, 0, sent.lastIndexOf(':') + 1)) {
+                if (!sent.equalsIgnoreCase(urn)) {
+                    LOGGER.error("checksum mismatch for {}: sent {}, repository has {}", uri, sent, urn);
+                    throw new FixityException("checksum mismatch for resource " + uri + ": sent " + sent
+                            + ", repository has " + urn);
+                }
+                return;
+            }
+        }
+        LOGGER.error("digest {} of resource {} was not computed, content sent cannot be verified", urn, uri);
+        throw new FixityException("digest " + urn + " of resource " + uri
+                + " was not computed, content sent cannot be verified");
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        final MessageDigest[] md = newDigests();
+        return new FilterInputStream(super.getContent()) {
+            private boolean done = false;
+
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+                if (b >= 0) {
+                    for (final MessageDigest d : md) {
+                        d.update((byte) b);
+                    }
+                } else {
+                    complete();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int n = super.read(b, off, len);
+                if (n > 0) {
+                    for (final MessageDigest d : md) {
+                        d.update(b, off, n);
+                    }
+                } else if (n < 0) {
+                    complete();
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(final long n) throws IOException {
+                throw new IOException("content cannot be skipped while computing its digests");
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            private void complete() {
+                if (!done) {
+                    done = true;
+                    publish(md);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) throws IOException {
+        final MessageDigest[] md = newDigests();
+        super.writeTo(new FilterOutputStream(out) {
+            @Override
+            public void write(final int b) throws IOException {
+                out.write(b);
+                for (final MessageDigest d : md) {
+                    d.update((byte) b);
+                }
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+                for (final MessageDigest d : md) {
+                    d.update(b, off, len);
+                }
+            }
+        });
+        publish(md);
+    }
+
+    private MessageDigest[] newDigests() {
+        digests = emptyMap();
+        final MessageDigest[] md = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            try {
+                md[i] = MessageDigest.getInstance(algorithms[i]);
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("unsupported digest algorithm " + algorithms[i], e);
+            }
+        }
+        return md;
+    }
+
+    private void publish(final MessageDigest[] md) {
+        final Map<String, URI> computed = new LinkedHashMap<>();
+        for (int i = 0; i < md.length; i++) {
+            computed.put(algorithms[i], digestUri(algorithms[i], md[i].digest()));
+        }
+        digests = unmodifiableMap(computed);
+    }
+
+    /**
+     * Name a digest as the repository names it, e.g. {@code urn:sha1:<hex>}.
+     *
+     * @param algorithm Name of the {@link MessageDigest} algorithm, e.g. {@code SHA-1}.
+     * @param digest The digest.
+     * @return the digest URI
+    **/
+    public static URI digestUri(final String algorithm, final byte[] digest) {
+        return URI.create("urn:" + algorithm.toLowerCase(Locale.ROOT).replace("-", "") + ":" + hex(digest));
+    }
+
+    /**
+     * Get the {@link MessageDigest} algorithm of a digest named as the repository names it.
+     *
+     * @param digestUri The digest URI, e.g. {@code urn:sha1:<hex>}.
+     * @return the algorithm name, e.g. {@code SHA-1}, or null if the URI does not name a digest
+    **/
+    public static String algorithm(final URI digestUri) {
+        final String[] parts = digestUri.toString().split(":");
+        if (parts.length != 3 || !parts[0].equalsIgnoreCase("urn")) {
+            return null;
+        }
+        final String name = parts[1].toUpperCase(Locale.ROOT);
+        return name.startsWith("SHA") && !name.startsWith("SHA-") ? "SHA-" + name.substring(3) : name;
+    }
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.apache.http.HttpStatus.SC_BAD_GATEWAY;
+import static org.apache.http.HttpStatus.SC_GATEWAY_TIMEOUT;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.slf4j.Logger;
+
+/**
+ * Retry policy using exponential backoff with full jitter: the delay before attempt n+1 is chosen uniformly
+ * between zero and min(maxDelay, baseDelay * 2^(n-1)), or the server's Retry-After if that is longer.
+ *
+ * <p>What is retried depends on whether the server may already have acted on the request:</p>
+ * <ul>
+ * <li>connection failures (the request was never sent) are retried for every method;</li>
+ * <li>429, 502, 503 and 504 responses, and connections dropped before a response, are retried for the
+ *     idempotent methods GET, HEAD, OPTIONS, PUT and DELETE;</li>
+ * <li>COPY and MOVE are additionally retried on 429 and 503, where the server refused the request without
+ *     processing it, but not on 502/504, where a gateway may have forwarded it;</li>
+ * <li>requests with a non-repeatable entity (e.g., content streamed from an InputStream) are never
+ *     retried.</li>
+ * </ul>
+ *
+ * <p>Retries are limited by a budget shared by all requests using the policy: each request adds
+ * {@code budgetRatio} tokens (up to {@code maxBudget}) and each retry spends one, so a failing repository sees
+ * at most about {@code budgetRatio} extra requests per request instead of a retry storm.</p>
+ *
+ * @author escowles
+**/
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+    private static final Logger LOGGER = getLogger(ExponentialBackoffRetryPolicy.class);
+
+    private static final long TOKEN = 1000;
+
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long budgetDeposit;
+    private final long maxBudget;
+
+    private final AtomicLong budget;
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * Create a policy with the default settings: 4 attempts, 100ms base delay, 10s maximum delay and a budget
+     * of 10% extra requests, with up to 10 retries in reserve.
+    **/
+    public ExponentialBackoffRetryPolicy() {
+        this(4, 100, 10000, 0.1, 10);
+    }
+
+    /**
+     * Create a policy.
+     *
+     * @param maxAttempts Maximum number of attempts per request, including the first.
+     * @param baseDelay Upper bound of the first retry delay, in milliseconds.
+     * @param maxDelay Upper bound of any retry delay, in milliseconds.  Requests whose Retry-After exceeds this
+     *        are not retried.
+     * @param budgetRatio Retry tokens earned by each request.
+     * @param maxBudget Maximum number of retry tokens held in reserve (and the initial number).
+    **/
+    public ExponentialBackoffRetryPolicy(final int maxAttempts, final long baseDelay, final long maxDelay,
+                                         final double budgetRatio, final int maxBudget) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.budgetDeposit = (long) (budgetRatio * TOKEN);
+        this.maxBudget = maxBudget * TOKEN;
+        this.budget = new AtomicLong(this.maxBudget);
+    }
+
+    @Override
+    public long retryDelay(final HttpUriRequest request, final HttpResponse response, final IOException exception,
+                           final int attempt) {
+        attempts.incrementAndGet();
+        if (attempt == 1) {
+            budget.accumulateAndGet(budgetDeposit, (current, deposit) -> Math.min(maxBudget, current + deposit));
+        }
+
+        if (attempt >= maxAttempts || !isRetryable(request, response, exception)) {
+            return -1;
+        }
+
+        final long retryAfter = response == null ? 0 : retryAfter(response);
+        if (retryAfter > maxDelay) {
+            LOGGER.debug("not retrying {} {}: Retry-After {}ms exceeds maximum delay", request.getMethod(),
+                    request.getURI(), retryAfter);
+            return -1;
+        }
+
+        if (budget.getAndUpdate(current -> current >= TOKEN ? current - TOKEN : current) < TOKEN) {
+            budgetExhausted.incrementAndGet();
+            LOGGER.debug("not retrying {} {}: retry budget exhausted", request.getMethod(), request.getURI());
+            return -1;
+        }
+
+        final long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        final long delay = Math.max(retryAfter, ThreadLocalRandom.current().nextLong(ceiling + 1));
+        retries.incrementAndGet();
+        LOGGER.info("retrying {} {} after attempt {} ({}) in {}ms", request.getMethod(), request.getURI(), attempt,
+                response != null ? response.getStatusLine() : exception.toString(), delay);
+        return delay;
+    }
+
+    /**
+     * Check whether a failed attempt may safely be repeated.
+     *
+     * @param request The request that was executed.
+     * @param response The response received, or null.
+     * @param exception The exception thrown, or null.
+     * @return true if the request may be retried
+    **/
+    protected boolean isRetryable(final HttpUriRequest request, final HttpResponse response,
+                                  final IOException exception) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            final HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+            if (enclosing.getEntity() != null && !enclosing.getEntity().isRepeatable()) {
+                return false;
+            }
+        }
+
+        final String method = request.getMethod().toUpperCase();
+        if (exception != null) {
+            if (exception instanceof ConnectException || exception instanceof ConnectTimeoutException) {
+                return true;
+            }
+            return exception instanceof NoHttpResponseException && isIdempotent(method);
+        }
+
+        switch (response.getStatusLine().getStatusCode()) {
+            case SC_TOO_MANY_REQUESTS: case SC_SERVICE_UNAVAILABLE:
+                return isIdempotent(method) || method.equals("COPY") || method.equals("MOVE");
+            case SC_BAD_GATEWAY: case SC_GATEWAY_TIMEOUT:
+                return isIdempotent(method);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isIdempotent(final String method) {
+        switch (method) {
+            case "GET": case "HEAD": case "OPTIONS": case "PUT": case "DELETE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Parse the Retry-After header of a response.
+     *
+     * @param response The response.
+     * @return the requested delay in milliseconds, or 0 if none was given
+    **/
+    static long retryAfter(final HttpResponse response) {
+        final Header header = response.getFirstHeader("Retry-After");
+        if (header == null) {
+            return 0;
+        }
+        final String value = header.getValue().trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (final NumberFormatException e) {
+            final Date date = DateUtils.parseDate(value);
+            return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Get the number of attempts made by requests using this policy.
+     *
+     * @return number of attempts
+    **/
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    /**
+     * Get the number of retries made by requests using this policy.
+     *
+     * @return number of retries
+    **/
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Get the number of retryable failures that were not retried because the retry budget was exhausted.
+     *
+     * @return number of retries denied by the budget
+    **/
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.ContentEncoderChannel;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+/**
+ * Request entity sent from a file.  The length of the file is known, so the request has a
+ * {@code Content-Length} rather than chunked transfer encoding, and the entity is repeatable, so the request can
+ * be retried.
+ *
+ * <p>Only the non-blocking client avoids copying the content: it writes the file with
+ * {@link FileContentEncoder#transfer}, which lets the operating system send it straight from the page cache on
+ * plain connections.  The blocking client only exposes an output stream, so there the content is copied through
+ * user space by the JDK's channel adapter, as for any stream.</p>
+ *
+ * <p>The length is read when the entity is created: a file which is shorter when it is sent fails the request,
+ * and bytes appended since are not sent.</p>
+ *
+ * @author escowles
+**/
+public class FileChannelEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+    private final Path file;
+    private final long length;
+
+    private FileChannel channel;
+    private long position;
+
+    /**
+     * Create an entity sending a file.
+     *
+     * @param file The file.
+     * @param contentType MIME type of the file, or null.
+    **/
+    public FileChannelEntity(final Path file, final String contentType) {
+        this.file = file;
+        this.length = file.toFile().length();
+        setContentType(contentType);
+    }
+
+    /**
+     * Get the file sent.
+     *
+     * @return the file
+    **/
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) throws IOException {
+        try (FileChannel in = FileChannel.open(file, READ)) {
+            final WritableByteChannel target = Channels.newChannel(out);
+            long sent = 0;
+            while (sent < length) {
+                final long n = in.transferTo(sent, length - sent, target);
+                if (n <= 0) {
+                    throw new EOFException("file " + file + " is shorter than " + length + " bytes");
+                }
+                sent += n;
+            }
+        }
+        out.flush();
+    }
+
+    @Override
+    public synchronized void produceContent(final ContentEncoder encoder, final IOControl ioctrl)
+            throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, READ);
+            position = 0;
+        }
+        final long n;
+        if (encoder instanceof FileContentEncoder) {
+            n = ((FileContentEncoder) encoder).transfer(channel, position, length - position);
+        } else {
+            n = channel.transferTo(position, length - position, new ContentEncoderChannel(encoder));
+        }
+        if (n < 0 || (n == 0 && position < length && position >= channel.size())) {
+            close();
+            throw new EOFException("file " + file + " is shorter than " + length + " bytes");
+        }
+        position += n;
+        if (position >= length) {
+            encoder.complete();
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            try {
+                channel.close();
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,523 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.fcrepo.client.metrics.MetricsRecorder;
+
+/**
+ * Transport settings for the HTTP clients created by the repository implementations.  All setters return the
+ * updated object so they can be chained:
+ * <pre>{@code HttpClientConfig config = new HttpClientConfig().setMaxTotal(50).setMaxPerRoute(50);}</pre>
+ *
+ * All durations are in milliseconds.
+ *
+ * @author escowles
+**/
+public class HttpClientConfig {
+
+    /** Size from which N-Triples responses are parsed in parallel by default: 4 MB. */
+    public static final long DEFAULT_PARALLEL_PARSE_THRESHOLD = 4L << 20;
+
+    /**
+     * Default size in bytes of the ranges in which content is downloaded in parallel.
+    **/
+    public static final long DEFAULT_DOWNLOAD_SEGMENT_SIZE = 32L << 20;
+
+    /**
+     * Default number of ranges of one content downloaded at the same time.
+    **/
+    public static final int DEFAULT_DOWNLOAD_PARALLELISM = 4;
+
+    /**
+     * Default size in bytes of the blocks read by content channels.
+    **/
+    public static final int DEFAULT_READ_BLOCK_SIZE = 64 << 10;
+
+    /**
+     * Default number of blocks kept in memory by each content channel.
+    **/
+    public static final int DEFAULT_READ_CACHE_BLOCKS = 16;
+
+    private int maxTotal = 200;
+    private int maxPerRoute = 100;
+    private long connectionTimeToLive = -1;
+    private long maxIdleTime = 30000;
+    private long evictionInterval = 5000;
+    private int validateAfterInactivity = 2000;
+    private int connectionRequestTimeout = 60000;
+    private RetryPolicy retryPolicy = RetryPolicy.NO_RETRY;
+    private CircuitBreaker circuitBreaker = null;
+    private ConcurrencyLimiter concurrencyLimiter = null;
+    private MetricsRecorder metricsRecorder = MetricsRecorder.NOOP;
+    private NodeInterner nodeInterner = NodeInterner.shared();
+    private ContentNegotiation contentNegotiation = new ContentNegotiation();
+    private long parallelParseThreshold = DEFAULT_PARALLEL_PARSE_THRESHOLD;
+    private ForkJoinPool parsePool = ForkJoinPool.commonPool();
+    private long downloadSegmentSize = DEFAULT_DOWNLOAD_SEGMENT_SIZE;
+    private int downloadParallelism = DEFAULT_DOWNLOAD_PARALLELISM;
+    private int readBlockSize = DEFAULT_READ_BLOCK_SIZE;
+    private int readCacheBlocks = DEFAULT_READ_CACHE_BLOCKS;
+    private ResourceCache resourceCache = null;
+    private NegativeCache negativeCache = null;
+
+    /**
+     * Default constructor.
+    **/
+    public HttpClientConfig() {
+    }
+
+    /**
+     * Get the maximum number of connections held open to all hosts.
+     *
+     * @return maximum number of connections
+    **/
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * Get the maximum number of connections held open to a single host.
+     *
+     * @return maximum number of connections per route
+    **/
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * Get the maximum lifetime of a pooled connection; a non-positive value means connections never expire.
+     *
+     * @return connection time to live
+    **/
+    public long getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    /**
+     * Get how long a pooled connection may remain idle before the evictor closes it.
+     *
+     * @return maximum idle time
+    **/
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * Get how often the background evictor checks for expired and idle connections.
+     *
+     * @return eviction interval
+    **/
+    public long getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    /**
+     * Get how long a pooled connection may be inactive before it is re-validated on lease; a non-positive value
+     * disables validation.
+     *
+     * @return inactivity period before validation
+    **/
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Get how long a request waits to lease a connection from the pool; zero waits indefinitely.
+     *
+     * @return connection lease timeout
+    **/
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * Get the policy deciding which failed requests are retried.
+     *
+     * @return retry policy, {@link RetryPolicy#NO_RETRY} unless set
+    **/
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Get the circuit breaker guarding requests to each host.
+     *
+     * @return circuit breaker, or null if disabled, the default
+    **/
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Get the limiter bounding the number of requests in flight to the repository.
+     *
+     * @return concurrency limiter, or null if disabled, the default
+    **/
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Get the recorder receiving request metrics.
+     *
+     * @return metrics recorder
+    **/
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * Get the interner supplying canonical instances of the nodes in loaded properties.
+     *
+     * @return node interner, or null if disabled
+    **/
+    public NodeInterner getNodeInterner() {
+        return nodeInterner;
+    }
+
+    /**
+     * Get the RDF serializations requested when loading resource properties.
+     *
+     * @return content negotiation
+    **/
+    public ContentNegotiation getContentNegotiation() {
+        return contentNegotiation;
+    }
+
+    /**
+     * Get the size in bytes from which N-Triples responses are parsed in parallel.
+     *
+     * @return response size, or zero or less if disabled
+    **/
+    public long getParallelParseThreshold() {
+        return parallelParseThreshold;
+    }
+
+    /**
+     * Get the pool parsing large N-Triples responses.
+     *
+     * @return fork-join pool
+    **/
+    public ForkJoinPool getParsePool() {
+        return parsePool;
+    }
+
+    /**
+     * Get the size in bytes of the ranges in which content is downloaded in parallel.
+     *
+     * @return range size, or zero or less if disabled
+    **/
+    public long getDownloadSegmentSize() {
+        return downloadSegmentSize;
+    }
+
+    /**
+     * Get the number of ranges of one content downloaded at the same time.
+     *
+     * @return number of parallel requests
+    **/
+    public int getDownloadParallelism() {
+        return downloadParallelism;
+    }
+
+    /**
+     * Get the size in bytes of the blocks read by content channels.
+     *
+     * @return block size
+    **/
+    public int getReadBlockSize() {
+        return readBlockSize;
+    }
+
+    /**
+     * Get the number of blocks kept in memory by each content channel.
+     *
+     * @return number of blocks
+    **/
+    public int getReadCacheBlocks() {
+        return readCacheBlocks;
+    }
+
+    /**
+     * Get the cache of loaded resource properties.
+     *
+     * @return resource cache, or null if disabled
+    **/
+    public ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    /**
+     * Get the cache of resources known to be absent.
+     *
+     * @return negative cache, or null if disabled
+    **/
+    public NegativeCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    /**
+     * Set the maximum number of connections held open to all hosts.
+     *
+     * @param maxTotal maximum number of connections
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setMaxTotal( final int maxTotal ) {
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of connections held open to a single host.
+     *
+     * @param maxPerRoute maximum number of connections per route
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setMaxPerRoute( final int maxPerRoute ) {
+        this.maxPerRoute = maxPerRoute;
+        return this;
+    }
+
+    /**
+     * Set the maximum lifetime of a pooled connection; a non-positive value means connections never expire.
+     *
+     * @param connectionTimeToLive connection time to live
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setConnectionTimeToLive( final long connectionTimeToLive ) {
+        this.connectionTimeToLive = connectionTimeToLive;
+        return this;
+    }
+
+    /**
+     * Set how long a pooled connection may remain idle before the evictor closes it.
+     *
+     * @param maxIdleTime maximum idle time
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setMaxIdleTime( final long maxIdleTime ) {
+        this.maxIdleTime = maxIdleTime;
+        return this;
+    }
+
+    /**
+     * Set how often the background evictor checks for expired and idle connections; a non-positive value
+     * disables the evictor.
+     *
+     * @param evictionInterval eviction interval
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setEvictionInterval( final long evictionInterval ) {
+        this.evictionInterval = evictionInterval;
+        return this;
+    }
+
+    /**
+     * Set how long a pooled connection may be inactive before it is re-validated on lease; a non-positive value
+     * disables validation.
+     *
+     * @param validateAfterInactivity inactivity period before validation
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setValidateAfterInactivity( final int validateAfterInactivity ) {
+        this.validateAfterInactivity = validateAfterInactivity;
+        return this;
+    }
+
+    /**
+     * Set how long a request waits to lease a connection from the pool; zero waits indefinitely.
+     *
+     * @param connectionRequestTimeout connection lease timeout
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setConnectionRequestTimeout( final int connectionRequestTimeout ) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        return this;
+    }
+
+    /**
+     * Set the policy deciding which failed requests are retried.  Requests are not retried by default
+     * ({@link RetryPolicy#NO_RETRY}); use e.g. an {@link ExponentialBackoffRetryPolicy} to retry them.
+     *
+     * @param retryPolicy retry policy
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setRetryPolicy( final RetryPolicy retryPolicy ) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Set the circuit breaker guarding requests to each host, or null to disable it.  There is none by default,
+     * so requests fail only as the repository fails them.  A circuit breaker can be shared by several clients so
+     * they see the same host state.
+     *
+     * @param circuitBreaker circuit breaker
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setCircuitBreaker( final CircuitBreaker circuitBreaker ) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Set the limiter bounding the number of requests in flight to the repository, or null to disable it.  There
+     * is none by default, so requests are bounded only by the connection pool.
+     *
+     * @param concurrencyLimiter concurrency limiter
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setConcurrencyLimiter( final ConcurrencyLimiter concurrencyLimiter ) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
+    /**
+     * Set the recorder receiving request metrics, such as an
+     * {@link org.fcrepo.client.metrics.InMemoryMetricsRecorder}.  Metrics are disabled by default.
+     *
+     * @param metricsRecorder metrics recorder
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setMetricsRecorder( final MetricsRecorder metricsRecorder ) {
+        this.metricsRecorder = metricsRecorder;
+        return this;
+    }
+
+    /**
+     * Set the interner supplying canonical instances of the nodes in loaded properties, or null to disable
+     * interning.  By default all clients share {@link NodeInterner#shared()}, so resources loaded through
+     * different repositories share their common URIs and literals.
+     *
+     * @param nodeInterner node interner
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setNodeInterner( final NodeInterner nodeInterner ) {
+        this.nodeInterner = nodeInterner;
+        return this;
+    }
+
+    /**
+     * Set the RDF serializations requested when loading resource properties.  The negotiation remembers formats
+     * the repository has refused, so it should only be shared by clients of the same repository.
+     *
+     * @param contentNegotiation content negotiation
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setContentNegotiation( final ContentNegotiation contentNegotiation ) {
+        this.contentNegotiation = contentNegotiation;
+        return this;
+    }
+
+    /**
+     * Set the size in bytes from which N-Triples responses, such as those of containers with many children, are
+     * split at line boundaries and parsed in parallel; zero or less disables parallel parsing.  Only responses
+     * with a {@code Content-Length} are parsed in parallel: chunked responses are streamed to the parser.
+     *
+     * @param parallelParseThreshold response size
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setParallelParseThreshold( final long parallelParseThreshold ) {
+        this.parallelParseThreshold = parallelParseThreshold;
+        return this;
+    }
+
+    /**
+     * Set the pool parsing large N-Triples responses; by default the common fork-join pool.  Parsing is
+     * sequential with a pool of parallelism one.
+     *
+     * @param parsePool fork-join pool
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setParsePool( final ForkJoinPool parsePool ) {
+        this.parsePool = parsePool;
+        return this;
+    }
+
+    /**
+     * Set the size in bytes of the ranges in which content larger than one range is downloaded to a file, with
+     * parallel {@code Range} requests; zero or less disables ranged downloads.
+     *
+     * @param downloadSegmentSize range size
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setDownloadSegmentSize( final long downloadSegmentSize ) {
+        this.downloadSegmentSize = downloadSegmentSize;
+        return this;
+    }
+
+    /**
+     * Set the number of ranges of one content downloaded at the same time.  Each takes a connection, so it should
+     * not exceed the maximum number of connections per host; one disables ranged downloads.
+     *
+     * @param downloadParallelism number of parallel requests
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setDownloadParallelism( final int downloadParallelism ) {
+        this.downloadParallelism = downloadParallelism;
+        return this;
+    }
+
+    /**
+     * Set the size in bytes of the blocks read by content channels with each {@code Range} request.  Larger
+     * blocks read further ahead, smaller blocks transfer less for scattered reads.
+     *
+     * @param readBlockSize block size
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setReadBlockSize( final int readBlockSize ) {
+        this.readBlockSize = readBlockSize;
+        return this;
+    }
+
+    /**
+     * Set the number of most recently used blocks kept in memory by each content channel.
+     *
+     * @param readCacheBlocks number of blocks
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setReadCacheBlocks( final int readCacheBlocks ) {
+        this.readCacheBlocks = readCacheBlocks;
+        return this;
+    }
+
+    /**
+     * Set the cache of loaded resource properties; caching is disabled by default.  A cache should only be shared
+     * by clients of the same repository, since writes through other clients are only detected by revalidation.
+     *
+     * @param resourceCache resource cache
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setResourceCache( final ResourceCache resourceCache ) {
+        this.resourceCache = resourceCache;
+        return this;
+    }
+
+    /**
+     * Set the cache of resources known to be absent, which answers repeated existence checks and lookups of
+     * missing resources without a request; disabled by default.  Like the resource cache, it should only be
+     * shared by clients of the same repository.
+     *
+     * @param negativeCache negative cache
+     * @return The updated object for chaining.
+    **/
+    public HttpClientConfig setNegativeCache( final NegativeCache negativeCache ) {
+        this.negativeCache = negativeCache;
+        return this;
+    }
+}
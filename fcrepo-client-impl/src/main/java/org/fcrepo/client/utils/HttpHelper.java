@@ -15,26 +15,39 @@
  */
 package org.fcrepo.client.utils;
 
-import static java.lang.Integer.MAX_VALUE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.http.HttpStatus.SC_FORBIDDEN;
+import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
+import static org.apache.http.HttpStatus.SC_NOT_ACCEPTABLE;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_NOT_MODIFIED;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 
 import static org.apache.jena.riot.WebContent.contentTypeSPARQLUpdate;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import org.fcrepo.client.BadRequestException;
 import org.fcrepo.client.ForbiddenException;
@@ -43,38 +56,52 @@ import org.fcrepo.client.NotFoundException;
 import com.hp.hpl.jena.graph.Node;
 
 import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
 import org.apache.http.StatusLine;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.IdleConnectionEvictor;
 import org.apache.http.impl.client.StandardHttpRequestRetryHandler;
-import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
 
 import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFLanguages;
-import org.apache.jena.riot.RiotReader;
-import org.apache.jena.riot.lang.CollectorStreamTriples;
+import org.apache.jena.riot.RDFDataMgr;
 
 import org.fcrepo.client.FedoraContent;
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraObject;
+import org.fcrepo.client.LoadMode;
 import org.fcrepo.client.ReadOnlyException;
 import org.fcrepo.client.impl.FedoraResourceImpl;
+import org.fcrepo.client.metrics.CountingEntity;
+import org.fcrepo.client.metrics.MetricsRecorder;
+import org.fcrepo.client.metrics.Operation;
 
 import org.slf4j.Logger;
 
@@ -87,12 +114,35 @@ import org.slf4j.Logger;
 public class HttpHelper {
     private static final Logger LOGGER = getLogger(HttpHelper.class);
 
+    // not defined by HttpStatus
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
     private final String repositoryURL;
     private final HttpClient httpClient;
     private final boolean readOnly;
+    private final boolean ownsClient;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private IdleConnectionEvictor connectionEvictor;
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private volatile MetricsRecorder metrics = MetricsRecorder.NOOP;
+    private volatile NodeInterner nodeInterner = NodeInterner.shared();
+    private volatile ContentNegotiation contentNegotiation = new ContentNegotiation();
+    private volatile long parallelParseThreshold = HttpClientConfig.DEFAULT_PARALLEL_PARSE_THRESHOLD;
+    private volatile ForkJoinPool parsePool = ForkJoinPool.commonPool();
+    private volatile long downloadSegmentSize = HttpClientConfig.DEFAULT_DOWNLOAD_SEGMENT_SIZE;
+    private volatile int downloadParallelism = HttpClientConfig.DEFAULT_DOWNLOAD_PARALLELISM;
+    private volatile int readBlockSize = HttpClientConfig.DEFAULT_READ_BLOCK_SIZE;
+    private volatile int readCacheBlocks = HttpClientConfig.DEFAULT_READ_CACHE_BLOCKS;
+    private volatile ResourceCache resourceCache;
+    private volatile NegativeCache negativeCache;
+    private volatile LoadMode writeLoadMode = LoadMode.EAGER;
 
     /**
-     * Create an HTTP helper with a pre-configured HttpClient instance.
+     * Create an HTTP helper with a pre-configured HttpClient instance.  Requests are not retried unless a retry
+     * policy is set with {@link #setRetryPolicy}, and no circuit breaker or concurrency limiter is used unless one
+     * is set with {@link #setCircuitBreaker} or {@link #setConcurrencyLimiter}.
      * @param repositoryURL Fedora base URL.
      * @param httpClient Pre-configured HttpClient instance.
      * @param readOnly If true, throw an exception when an update is attempted.
@@ -101,6 +151,8 @@ public class HttpHelper {
         this.repositoryURL = repositoryURL;
         this.httpClient = httpClient;
         this.readOnly = readOnly;
+        this.ownsClient = false;
+        this.retryPolicy = RetryPolicy.NO_RETRY;
     }
 
     /**
@@ -113,30 +165,97 @@ public class HttpHelper {
     **/
     public HttpHelper(final String repositoryURL, final String fedoraUsername, final String fedoraPassword,
                       final boolean readOnly) {
+        this(repositoryURL, fedoraUsername, fedoraPassword, readOnly, new HttpClientConfig());
+    }
+
+    /**
+     * Create an HTTP helper for the specified repository, with a bounded connection pool.  If fedoraUsername and
+     * fedoraPassword are not null, then they will be used to connect to the repository.
+     * @param repositoryURL Fedora base URL.
+     * @param fedoraUsername Fedora username
+     * @param fedoraPassword Fedora password
+     * @param readOnly If true, throw an exception when an update is attempted.
+     * @param config Connection pool and transport settings.
+    **/
+    public HttpHelper(final String repositoryURL, final String fedoraUsername, final String fedoraPassword,
+                      final boolean readOnly, final HttpClientConfig config) {
         this.repositoryURL = repositoryURL;
         this.readOnly = readOnly;
 
-        final PoolingClientConnectionManager connMann = new PoolingClientConnectionManager();
-        connMann.setMaxTotal(MAX_VALUE);
-        connMann.setDefaultMaxPerRoute(MAX_VALUE);
+        final PoolingHttpClientConnectionManager connMann
+                = new PoolingHttpClientConnectionManager(config.getConnectionTimeToLive(), MILLISECONDS) {
+            @Override
+            public ConnectionRequest requestConnection(final HttpRoute route, final Object state) {
+                return new TimedConnectionRequest(super.requestConnection(route, state));
+            }
+        };
+        connMann.setMaxTotal(config.getMaxTotal());
+        connMann.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        connMann.setValidateAfterInactivity(config.getValidateAfterInactivity());
+
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .build();
 
-        final DefaultHttpClient httpClient = new DefaultHttpClient(connMann);
-        httpClient.setRedirectStrategy(new DefaultRedirectStrategy());
-        httpClient.setHttpRequestRetryHandler(new StandardHttpRequestRetryHandler(0, false));
+        final HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(connMann)
+                .setDefaultRequestConfig(requestConfig)
+                .setRedirectStrategy(new DefaultRedirectStrategy())
+                // retries are handled by the RetryPolicy in execute()
+                .setRetryHandler(new StandardHttpRequestRetryHandler(0, false));
 
         // If the Fedora instance requires authentication, set it up here
-        if (!isBlank(fedoraUsername) && !isBlank(fedoraPassword)) {
-            LOGGER.debug("Adding BASIC credentials to client for repo requests.");
+        final CredentialsProvider credsProvider = createCredentialsProvider(repositoryURL, fedoraUsername,
+                fedoraPassword);
+        if (credsProvider != null) {
+            builder.setDefaultCredentialsProvider(credsProvider);
+        }
 
-            final URI fedoraUri = URI.create(repositoryURL);
-            final CredentialsProvider credsProvider = new BasicCredentialsProvider();
-            credsProvider.setCredentials(new AuthScope(fedoraUri.getHost(), fedoraUri.getPort()),
-                                         new UsernamePasswordCredentials(fedoraUsername, fedoraPassword));
+        this.httpClient = builder.build();
+        this.ownsClient = true;
+        this.connectionManager = connMann;
+        this.retryPolicy = config.getRetryPolicy();
+        this.circuitBreaker = config.getCircuitBreaker();
+        this.concurrencyLimiter = config.getConcurrencyLimiter();
+        this.metrics = config.getMetricsRecorder();
+        this.nodeInterner = config.getNodeInterner();
+        this.contentNegotiation = config.getContentNegotiation();
+        this.parallelParseThreshold = config.getParallelParseThreshold();
+        this.parsePool = config.getParsePool();
+        this.downloadSegmentSize = config.getDownloadSegmentSize();
+        this.downloadParallelism = config.getDownloadParallelism();
+        this.readBlockSize = config.getReadBlockSize();
+        this.readCacheBlocks = config.getReadCacheBlocks();
+        this.resourceCache = config.getResourceCache();
+        this.negativeCache = config.getNegativeCache();
 
-            httpClient.setCredentialsProvider(credsProvider);
+        // close expired and idle connections in the background, so stale sockets are not leased
+        if (config.getEvictionInterval() > 0) {
+            this.connectionEvictor = new IdleConnectionEvictor(connMann, config.getEvictionInterval(),
+                    MILLISECONDS, config.getMaxIdleTime(), MILLISECONDS);
+            this.connectionEvictor.start();
         }
+    }
 
-        this.httpClient = httpClient;
+    /**
+     * Create a provider for BASIC credentials scoped to the repository host.
+     * @param repositoryURL Fedora base URL.
+     * @param fedoraUsername Fedora username
+     * @param fedoraPassword Fedora password
+     * @return the credentials provider, or null if either the username or password is blank
+    **/
+    public static CredentialsProvider createCredentialsProvider(final String repositoryURL,
+            final String fedoraUsername, final String fedoraPassword) {
+        if (isBlank(fedoraUsername) || isBlank(fedoraPassword)) {
+            return null;
+        }
+        LOGGER.debug("Adding BASIC credentials to client for repo requests.");
+
+        final URI fedoraUri = URI.create(repositoryURL);
+        final CredentialsProvider credsProvider = new BasicCredentialsProvider();
+        credsProvider.setCredentials(new AuthScope(fedoraUri.getHost(), fedoraUri.getPort()),
+                                     new UsernamePasswordCredentials(fedoraUsername, fedoraPassword));
+        return credsProvider;
     }
 
     /**
@@ -144,10 +263,498 @@ public class HttpHelper {
      *
      * @param request request to be executed
      * @return response containing response to request
-     * @throws IOException
-     * @throws ReadOnlyException
+     * @throws IOException if the request fails, or is refused because the circuit breaker for the repository
+     *         host is open or no concurrency limiter permit became available in time; the cause is then the
+     *         {@link FedoraException} thrown by {@link #execute(Operation, HttpUriRequest)}
+     * @throws ReadOnlyException if the request would update a read-only repository
     **/
     public HttpResponse execute( final HttpUriRequest request ) throws IOException, ReadOnlyException {
+        try {
+            return execute(Operation.OTHER, request);
+        } catch (final ReadOnlyException e) {
+            throw e;
+        } catch (final FedoraException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Execute a request, recording its metrics under an operation.
+     *
+     * @param operation operation the request is part of
+     * @param request request to be executed
+     * @return response containing response to request
+     * @throws IOException
+     * @throws ReadOnlyException if the request would update a read-only repository
+     * @throws org.fcrepo.client.CircuitBreakerOpenException if the circuit breaker for the repository host is open
+     * @throws org.fcrepo.client.ConcurrencyLimitException if no concurrency limiter permit became available in time
+     * @throws FedoraException
+    **/
+    public HttpResponse execute( final Operation operation, final HttpUriRequest request )
+            throws IOException, FedoraException {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        HttpResponse response = null;
+        try {
+            checkWritable(request);
+            final NegativeCache absent = negativeCache;
+            final boolean lookup = absent != null
+                    && NegativeCache.applies(request.getMethod(), request.getURI().toString());
+            if (lookup && absent.contains(request.getURI().toString())) {
+                LOGGER.debug("{} is known to be absent", request.getURI());
+                failed = false;
+                return new BasicHttpResponse(HttpVersion.HTTP_1_1, SC_NOT_FOUND, "Not Found");
+            }
+            final long epoch = lookup ? absent.epoch() : 0;
+            if (metrics != MetricsRecorder.NOOP && request instanceof HttpEntityEnclosingRequest) {
+                final HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+                if (enclosing.getEntity() != null && !(enclosing.getEntity() instanceof CountingEntity)) {
+                    enclosing.setEntity(new CountingEntity(enclosing.getEntity(),
+                            bytes -> metrics.bytesSent(operation, bytes)));
+                }
+            }
+
+            response = executeAttempts(operation, request);
+            if (lookup && response.getStatusLine().getStatusCode() == SC_NOT_FOUND) {
+                absent.add(request.getURI().toString(), epoch);
+            }
+            if (metrics != MetricsRecorder.NOOP && response.getEntity() != null) {
+                response.setEntity(new CountingEntity(response.getEntity(),
+                        bytes -> metrics.bytesReceived(operation, bytes)));
+            }
+            failed = false;
+            return response;
+        } finally {
+            metrics.operationCompleted(operation, System.nanoTime() - start, failed);
+            invalidate(request, response);
+        }
+    }
+
+    /**
+     * Invalidate the cached properties and absent paths affected by a request once it has completed, whatever its
+     * outcome.  Requests executed by this helper are handled already; clients sending requests through another
+     * HTTP client, such as the non-blocking one, call this for each of them.  Reads invalidate nothing.
+     * @param request The completed request
+     * @param response The response, or null if the request failed
+    **/
+    public void invalidate( final HttpUriRequest request, final HttpResponse response ) {
+        final ResourceCache cache = resourceCache;
+        final NegativeCache absent = negativeCache;
+        if ( cache == null && absent == null ) {
+            return;
+        }
+        switch ( request.getMethod().toLowerCase() ) {
+            case "get": case "head": case "options":
+                break;
+            default:
+                final String uri = request.getURI().toString();
+                final Header destination = request.getFirstHeader(HttpHeaders.DESTINATION);
+                final Header location = response == null ? null : response.getFirstHeader(HttpHeaders.LOCATION);
+                if ( cache != null ) {
+                    cache.invalidate(uri);
+                    if ( destination != null ) {
+                        cache.invalidate(destination.getValue());
+                    }
+                }
+                if ( absent != null ) {
+                    absent.invalidate(uri, false);
+                    if ( destination != null ) {
+                        absent.invalidate(destination.getValue(), true);
+                    }
+                    if ( location != null ) {
+                        absent.invalidate(location.getValue(), false);
+                    }
+                }
+                break;
+        }
+    }
+
+    private HttpResponse executeAttempts( final Operation operation, final HttpUriRequest request )
+            throws IOException, FedoraException {
+        final String route = circuitBreaker == null ? null : CircuitBreaker.route(request);
+        for (int attempt = 1; ; attempt++) {
+            acquirePermits(request, route);
+
+            HttpResponse response = null;
+            IOException exception = null;
+            final long start = System.nanoTime();
+            try {
+                response = httpClient.execute(request);
+            } catch (final IOException e) {
+                exception = e;
+            } finally {
+                final long latency = System.nanoTime() - start;
+                final int status = response == null ? 0 : response.getStatusLine().getStatusCode();
+                metrics.requestCompleted(operation, status, latency);
+                if (circuitBreaker != null) {
+                    circuitBreaker.onResult(route, NANOSECONDS.toMillis(latency),
+                            response == null || status >= SC_INTERNAL_SERVER_ERROR);
+                }
+                if (concurrencyLimiter != null) {
+                    concurrencyLimiter.release(latency, response == null || status == SC_SERVICE_UNAVAILABLE
+                            || status == SC_TOO_MANY_REQUESTS);
+                }
+            }
+
+            final long delay = retryPolicy.retryDelay(request, response, exception, attempt);
+            if (delay < 0) {
+                if (exception != null) {
+                    throw exception;
+                }
+                return response;
+            }
+
+            // release the connection so the request can be executed again
+            if (response != null) {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+            if (request instanceof HttpRequestBase) {
+                ((HttpRequestBase) request).releaseConnection();
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting to retry " + request.getURI());
+            }
+        }
+    }
+
+    /**
+     * Acquire a concurrency limiter permit and circuit breaker permission for one attempt of a request.
+    **/
+    private void acquirePermits(final HttpUriRequest request, final String route) throws IOException,
+            FedoraException {
+        if (concurrencyLimiter != null) {
+            try {
+                concurrencyLimiter.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting to execute " + request.getURI());
+            }
+        }
+        if (circuitBreaker != null) {
+            try {
+                circuitBreaker.acquirePermission(route);
+            } catch (final FedoraException e) {
+                if (concurrencyLimiter != null) {
+                    concurrencyLimiter.abort();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Set the policy deciding which failed requests are retried.
+     *
+     * @param retryPolicy the retry policy
+    **/
+    public void setRetryPolicy( final RetryPolicy retryPolicy ) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Get the policy deciding which failed requests are retried.
+     *
+     * @return the retry policy
+    **/
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Set the circuit breaker guarding requests to the repository host, or null to disable it.
+     *
+     * @param circuitBreaker the circuit breaker
+    **/
+    public void setCircuitBreaker( final CircuitBreaker circuitBreaker ) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Get the circuit breaker guarding requests to the repository host.
+     *
+     * @return the circuit breaker, or null if none is used
+    **/
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Set the limiter bounding the number of requests in flight to the repository, or null to disable it.
+     *
+     * @param concurrencyLimiter the concurrency limiter
+    **/
+    public void setConcurrencyLimiter( final ConcurrencyLimiter concurrencyLimiter ) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Get the limiter bounding the number of requests in flight to the repository.
+     *
+     * @return the concurrency limiter, or null if none is used
+    **/
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Set the recorder receiving request metrics; use {@link MetricsRecorder#NOOP} to disable metrics.
+     *
+     * @param metrics the metrics recorder
+    **/
+    public void setMetricsRecorder( final MetricsRecorder metrics ) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the recorder receiving request metrics.
+     *
+     * @return the metrics recorder
+    **/
+    public MetricsRecorder getMetricsRecorder() {
+        return metrics;
+    }
+
+    /**
+     * Set the interner supplying canonical instances of the nodes in loaded properties, or null to keep the
+     * nodes produced by the parser.
+     *
+     * @param nodeInterner the node interner
+    **/
+    public void setNodeInterner( final NodeInterner nodeInterner ) {
+        this.nodeInterner = nodeInterner;
+    }
+
+    /**
+     * Get the interner supplying canonical instances of the nodes in loaded properties.
+     *
+     * @return the node interner, or null if nodes are not interned
+    **/
+    public NodeInterner getNodeInterner() {
+        return nodeInterner;
+    }
+
+    /**
+     * Set the RDF serializations requested when loading properties.
+     *
+     * @param contentNegotiation the content negotiation
+    **/
+    public void setContentNegotiation( final ContentNegotiation contentNegotiation ) {
+        this.contentNegotiation = contentNegotiation;
+    }
+
+    /**
+     * Get the RDF serializations requested when loading properties.
+     *
+     * @return the content negotiation
+    **/
+    public ContentNegotiation getContentNegotiation() {
+        return contentNegotiation;
+    }
+
+    /**
+     * Set the size in bytes from which N-Triples responses are parsed in parallel; zero or less disables
+     * parallel parsing.  Responses of unknown length are streamed to the parser, rather than buffered to find
+     * their length.
+     *
+     * @param parallelParseThreshold the response size
+    **/
+    public void setParallelParseThreshold( final long parallelParseThreshold ) {
+        this.parallelParseThreshold = parallelParseThreshold;
+    }
+
+    /**
+     * Get the size in bytes from which N-Triples responses are parsed in parallel.
+     *
+     * @return the response size, or zero or less if parallel parsing is disabled
+    **/
+    public long getParallelParseThreshold() {
+        return parallelParseThreshold;
+    }
+
+    /**
+     * Set the pool parsing large N-Triples responses.  Parsing is sequential if it has a parallelism of one.
+     *
+     * @param parsePool the fork-join pool
+    **/
+    public void setParsePool( final ForkJoinPool parsePool ) {
+        this.parsePool = parsePool;
+    }
+
+    /**
+     * Get the pool parsing large N-Triples responses.
+     *
+     * @return the fork-join pool
+    **/
+    public ForkJoinPool getParsePool() {
+        return parsePool;
+    }
+
+    /**
+     * Set the size in bytes of the ranges in which content is downloaded in parallel, or zero or less to
+     * download it with a single request.
+     *
+     * @param downloadSegmentSize range size
+    **/
+    public void setDownloadSegmentSize( final long downloadSegmentSize ) {
+        this.downloadSegmentSize = downloadSegmentSize;
+    }
+
+    /**
+     * Get the size in bytes of the ranges in which content is downloaded in parallel.
+     *
+     * @return range size, or zero or less if disabled
+    **/
+    public long getDownloadSegmentSize() {
+        return downloadSegmentSize;
+    }
+
+    /**
+     * Set the number of ranges of one content downloaded at the same time.
+     *
+     * @param downloadParallelism number of parallel requests
+    **/
+    public void setDownloadParallelism( final int downloadParallelism ) {
+        this.downloadParallelism = downloadParallelism;
+    }
+
+    /**
+     * Get the number of ranges of one content downloaded at the same time.
+     *
+     * @return number of parallel requests
+    **/
+    public int getDownloadParallelism() {
+        return downloadParallelism;
+    }
+
+    /**
+     * Set the size in bytes of the blocks read by content channels.
+     *
+     * @param readBlockSize block size
+    **/
+    public void setReadBlockSize( final int readBlockSize ) {
+        this.readBlockSize = readBlockSize;
+    }
+
+    /**
+     * Get the size in bytes of the blocks read by content channels.
+     *
+     * @return block size
+    **/
+    public int getReadBlockSize() {
+        return readBlockSize;
+    }
+
+    /**
+     * Set the number of blocks kept in memory by each content channel.
+     *
+     * @param readCacheBlocks number of blocks
+    **/
+    public void setReadCacheBlocks( final int readCacheBlocks ) {
+        this.readCacheBlocks = readCacheBlocks;
+    }
+
+    /**
+     * Get the number of blocks kept in memory by each content channel.
+     *
+     * @return number of blocks
+    **/
+    public int getReadCacheBlocks() {
+        return readCacheBlocks;
+    }
+
+    /**
+     * Set the cache of loaded properties, or null to load them from the repository every time.
+     *
+     * @param resourceCache the resource cache
+    **/
+    public void setResourceCache( final ResourceCache resourceCache ) {
+        this.resourceCache = resourceCache;
+    }
+
+    /**
+     * Get the cache of loaded properties.
+     *
+     * @return the resource cache, or null if properties are not cached
+    **/
+    public ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    /**
+     * Set the cache of resources known to be absent, or null to look them up in the repository every time.
+     *
+     * @param negativeCache the negative cache
+    **/
+    public void setNegativeCache( final NegativeCache negativeCache ) {
+        this.negativeCache = negativeCache;
+    }
+
+    /**
+     * Get the cache of resources known to be absent.
+     *
+     * @return the negative cache, or null if absent resources are not cached
+    **/
+    public NegativeCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    /**
+     * Set when the properties of a resource are reloaded after it is created or updated.  With
+     * {@link LoadMode#EAGER} they are reloaded immediately; with {@link LoadMode#LAZY} they are marked stale and
+     * reloaded when next read.
+     *
+     * @param writeLoadMode the load mode after writes
+    **/
+    public void setWriteLoadMode( final LoadMode writeLoadMode ) {
+        this.writeLoadMode = writeLoadMode;
+    }
+
+    /**
+     * Get when the properties of a resource are reloaded after it is created or updated.
+     *
+     * @return the load mode after writes
+    **/
+    public LoadMode getWriteLoadMode() {
+        return writeLoadMode;
+    }
+
+    /**
+     * Connection request which reports the time spent waiting for a pooled connection.
+    **/
+    private class TimedConnectionRequest implements ConnectionRequest {
+        private final ConnectionRequest request;
+
+        TimedConnectionRequest(final ConnectionRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public HttpClientConnection get(final long timeout, final TimeUnit unit) throws InterruptedException,
+                ExecutionException, ConnectionPoolTimeoutException {
+            final long start = System.nanoTime();
+            try {
+                return request.get(timeout, unit);
+            } finally {
+                metrics.leaseCompleted(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            return request.cancel();
+        }
+    }
+
+    /**
+     * Check that a request may be executed against this repository.
+     *
+     * @param request request to be executed
+     * @throws ReadOnlyException if the request would update a read-only repository
+    **/
+    public void checkWritable( final HttpUriRequest request ) throws ReadOnlyException {
         if ( readOnly ) {
             switch ( request.getMethod().toLowerCase() ) {
                 case "copy": case "delete": case "move": case "patch": case "post": case "put":
@@ -156,8 +763,49 @@ public class HttpHelper {
                     break;
             }
         }
+    }
+
+    /**
+     * Get the repository base URL.
+     *
+     * @return Fedora base URL
+    **/
+    public String getRepositoryURL() {
+        return repositoryURL;
+    }
 
-        return httpClient.execute(request);
+    /**
+     * Get the connection pool of the HTTP client created by this helper, for tests.
+     *
+     * @return the connection manager, or null if the client was supplied
+    **/
+    PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Get the background evictor of idle connections, for tests.
+     *
+     * @return the evictor, or null if none was started
+    **/
+    IdleConnectionEvictor getConnectionEvictor() {
+        return connectionEvictor;
+    }
+
+    /**
+     * Stop the connection evictor and close the HTTP client, if it was created by this helper.
+    **/
+    public void close() {
+        if (connectionEvictor != null) {
+            connectionEvictor.shutdown();
+        }
+        if (ownsClient && httpClient instanceof Closeable) {
+            try {
+                ((Closeable) httpClient).close();
+            } catch (final IOException e) {
+                LOGGER.warn("Error closing HTTP client", e);
+            }
+        }
     }
 
     /**
@@ -265,11 +913,18 @@ public class HttpHelper {
 
         final HttpPut put = createPutMethod( contentPath, params );
 
-        // content stream
-        if ( content != null ) {
+        // content file, sent with its length, or stream
+        if ( content != null && content.getFile() != null ) {
+            put.setEntity( new FileChannelEntity(content.getFile(), content.getContentType()) );
+        } else if ( content != null ) {
             put.setEntity( new InputStreamEntity(content.getContent()) );
         }
 
+        // digests computed while the content is sent
+        if ( content != null && !content.getDigestAlgorithms().isEmpty() ) {
+            put.setEntity( new DigestingEntity(put.getEntity(), content.getDigestAlgorithms()) );
+        }
+
         // filename
         if ( content != null && content.getFilename() != null ) {
             put.setHeader("Content-Disposition", "attachment; filename=\"" + content.getFilename() + "\"" );
@@ -283,6 +938,28 @@ public class HttpHelper {
         return put;
     }
 
+    /**
+     * Download the content of a binary into a file, in parallel ranges of the
+     * {@link #setDownloadSegmentSize download segment size} if it is larger than one.
+     * @param path The binary path.
+     * @param file The file, replaced if it exists.
+     * @return the number of bytes downloaded
+     * @throws FedoraException if the content cannot be downloaded or written
+    **/
+    public long downloadContent(final String path, final Path file) throws FedoraException {
+        return new SegmentedDownload(this, path, downloadSegmentSize, downloadParallelism).downloadTo(file);
+    }
+
+    /**
+     * Open a read-only seekable channel over the content of a binary, reading blocks of the
+     * {@link #setReadBlockSize read block size} with range requests.  No request is made until it is read.
+     * @param path The binary path.
+     * @return the channel
+    **/
+    public SeekableByteChannel openContentChannel(final String path) {
+        return new ContentChannel(this, path, readBlockSize, readCacheBlocks);
+    }
+
     /**
      * Create a request to update triples.
      * @param path The datastream path.
@@ -306,6 +983,21 @@ public class HttpHelper {
         return put;
     }
 
+    /**
+     * Create a request to retrieve the RDF properties of a resource.
+     * @param resource The resource to retrieve properties for
+     * @return GET method
+    **/
+    public HttpGet createPropertiesGetMethod( final FedoraResourceImpl resource ) {
+        final HttpGet get = createGetMethod(resource.getPropertiesPath(), null);
+        if (resource instanceof FedoraObject) {
+            get.addHeader("Prefer", "return=representation; "
+                + "include=\"http://fedora.info/definitions/v4/repository#EmbedResources\"");
+        }
+        get.setHeader("accept", contentNegotiation.getAcceptHeader());
+        return get;
+    }
+
     /**
      * Retrieve RDF from the repository and update the properties of a resource
      * @param resource The resource to update
@@ -313,17 +1005,96 @@ public class HttpHelper {
      * @throws FedoraException
     **/
     public FedoraResourceImpl loadProperties( final FedoraResourceImpl resource ) throws FedoraException {
-        final String path = resource.getPropertiesPath();
-        final HttpGet get = createGetMethod(path, null);
-        if (resource instanceof FedoraObject) {
-            get.addHeader("Prefer", "return=representation; "
-                + "include=\"http://fedora.info/definitions/v4/repository#EmbedResources\"");
-        }
+        return loadProperties(resource, null, null);
+    }
 
+    /**
+     * Retrieve RDF from the repository and update the properties of a resource with the triples whose subject and
+     * predicate are in the allowlists.  The other triples are dropped while the response is parsed.  Callers
+     * narrowing the predicates should keep those the resource relies on, such as ldp:contains and
+     * fedora:hasMixinType for listing children.  Complete properties are served from and stored in the resource
+     * cache, if there is one; filtered properties always bypass it.
+     * @param resource The resource to update
+     * @param subjects Subjects to keep, or null for all subjects
+     * @param properties Properties to keep, or null for all properties
+     * @return the updated resource
+     * @throws FedoraException
+    **/
+    public FedoraResourceImpl loadProperties( final FedoraResourceImpl resource, final Collection<Node> subjects,
+                                              final Collection<Node> properties ) throws FedoraException {
+        HttpGet get = createPropertiesGetMethod(resource);
+        final String uri = get.getURI().toString();
+        final ResourceCache cache = subjects == null && properties == null ? resourceCache : null;
+        final ResourceCache.Entry cached = cache == null ? null : cache.get(uri);
+        if (cached != null && cache.isFresh(cached)) {
+            cache.hit(cached, false);
+            return cachedProperties(resource, cached);
+        }
+        final long epoch = cache == null ? 0 : cache.epoch();
         try {
-            get.setHeader("accept", "application/rdf+xml");
-            final HttpResponse response = execute(get);
+            HttpResponse response = execute(loadOperation(resource), revalidate(get, cached));
+            while (response.getStatusLine().getStatusCode() == SC_NOT_ACCEPTABLE
+                    && contentNegotiation.notAcceptable(get.getFirstHeader("accept").getValue())) {
+                get.releaseConnection();
+                get = revalidate(createPropertiesGetMethod(resource), cached);
+                response = execute(loadOperation(resource), get);
+            }
+            if (cache == null) {
+                return readProperties(resource, get, response, subjects, properties);
+            }
+
+            final int status = response.getStatusLine().getStatusCode();
+            if (status == SC_NOT_MODIFIED && cached != null) {
+                LOGGER.debug("Cached properties for resource {} not modified", uri);
+                cache.hit(cached, true);
+                return cachedProperties(resource, cached);
+            } else if (status != SC_OK) {
+                cache.remove(uri);
+            }
+            readProperties(resource, get, response);
+            final Header etag = response.getFirstHeader("ETag");
+            cache.put(uri, resource.getGraph(), etag == null ? null : etag.getValue(), epoch);
+            return resource;
+        } catch (final FedoraException e) {
+            throw e;
+        } catch (final Exception e) {
+            e.printStackTrace();
+            LOGGER.info("could not encode URI parameter", e);
+            throw new FedoraException(e);
+        } finally {
+            get.releaseConnection();
+        }
+    }
+
+    /**
+     * Update the properties of a resource from the response to a request created by
+     * {@link #createPropertiesGetMethod}.
+     * @param resource The resource to update
+     * @param get The request that was executed
+     * @param response The response to the request
+     * @return the updated resource
+     * @throws FedoraException
+    **/
+    public FedoraResourceImpl readProperties( final FedoraResourceImpl resource, final HttpGet get,
+                                              final HttpResponse response ) throws FedoraException {
+        return readProperties(resource, get, response, null, null);
+    }
 
+    /**
+     * Update the properties of a resource from the response to a request created by
+     * {@link #createPropertiesGetMethod}, keeping the triples whose subject and predicate are in the allowlists.
+     * @param resource The resource to update
+     * @param get The request that was executed
+     * @param response The response to the request
+     * @param subjects Subjects to keep, or null for all subjects
+     * @param properties Properties to keep, or null for all properties
+     * @return the updated resource
+     * @throws FedoraException
+    **/
+    public FedoraResourceImpl readProperties( final FedoraResourceImpl resource, final HttpGet get,
+                                              final HttpResponse response, final Collection<Node> subjects,
+                                              final Collection<Node> properties ) throws FedoraException {
+        try {
             final String uri = get.getURI().toString();
             final StatusLine status = response.getStatusLine();
 
@@ -338,18 +1109,37 @@ public class HttpHelper {
 
                 // StreamRdf
                 final HttpEntity entity = response.getEntity();
-                final Lang lang = RDFLanguages.contentTypeToLang(entity.getContentType().getValue().split(":")[0]);
-                final CollectorStreamTriples streamTriples = new CollectorStreamTriples();
-                RiotReader.parse(entity.getContent(), lang, uri, streamTriples);
-                resource.setGraph( RDFSinkFilter.filterTriples(streamTriples.getCollected().iterator(), Node.ANY) );
+                final Lang lang = entity.getContentType() == null ? null
+                        : ContentNegotiation.lang(entity.getContentType().getValue());
+                if (lang == null) {
+                    throw new FedoraException("unsupported RDF content type for resource " + uri + ": "
+                            + entity.getContentType());
+                }
+                final CompactGraph.Builder graph = new CompactGraph.Builder(nodeInterner);
+                final long start = System.nanoTime();
+                if (parallelParse(lang, entity)) {
+                    ParallelNTriplesParser.parse(EntityUtils.toByteArray(entity), uri, parsePool,
+                            parsePool.getParallelism() * 2, graph, subjects, properties, nodeInterner);
+                } else {
+                    RDFDataMgr.parse(new RDFSinkFilter(graph, subjects, properties), entity.getContent(), uri,
+                            lang);
+                }
+                resource.setGraph( graph.build() );
+                metrics.parseCompleted(loadOperation(resource), System.nanoTime() - start);
                 return resource;
             } else if (status.getStatusCode() == SC_FORBIDDEN) {
                 LOGGER.info("request for resource {} is not authorized.", uri);
                 throw new ForbiddenException("request for resource " + uri + " is not authorized.");
             } else if (status.getStatusCode() == SC_BAD_REQUEST) {
-                LOGGER.info("server does not support metadata type application/rdf+xml for resource {} " +
-                                     " cannot retrieve", uri);
+                LOGGER.info("server does not support the requested metadata type for resource {}, cannot retrieve",
+                        uri);
                 throw new BadRequestException("server does not support the request metadata type for resource " + uri);
+            } else if (status.getStatusCode() == SC_NOT_ACCEPTABLE) {
+                // let later requests fall back to another format
+                contentNegotiation.notAcceptable(get.getFirstHeader("accept").getValue());
+                LOGGER.info("server cannot return resource {} in any of the requested formats", uri);
+                throw new FedoraException("server cannot return resource " + uri + " in any of the requested formats: "
+                        + get.getFirstHeader("accept").getValue());
             } else if (status.getStatusCode() == SC_NOT_FOUND) {
                 LOGGER.info("resource {} does not exist, cannot retrieve", uri);
                 throw new NotFoundException("resource " + uri + " does not exist, cannot retrieve");
@@ -361,14 +1151,34 @@ public class HttpHelper {
         } catch (final FedoraException e) {
             throw e;
         } catch (final Exception e) {
-            e.printStackTrace();
-            LOGGER.info("could not encode URI parameter", e);
+            LOGGER.info("could not parse properties", e);
             throw new FedoraException(e);
-        } finally {
-            get.releaseConnection();
         }
     }
 
+    private static HttpGet revalidate( final HttpGet get, final ResourceCache.Entry cached ) {
+        if (cached != null && cached.getEtag() != null) {
+            get.setHeader("If-None-Match", cached.getEtag());
+        }
+        return get;
+    }
+
+    private static FedoraResourceImpl cachedProperties( final FedoraResourceImpl resource,
+                                                        final ResourceCache.Entry cached ) {
+        resource.setEtagValue( cached.getEtag() );
+        resource.setGraph( cached.getGraph() );
+        return resource;
+    }
+
+    private boolean parallelParse( final Lang lang, final HttpEntity entity ) {
+        return lang == Lang.NTRIPLES && parallelParseThreshold > 0 && parsePool.getParallelism() > 1
+                && entity.getContentLength() >= parallelParseThreshold;
+    }
+
+    private static Operation loadOperation( final FedoraResourceImpl resource ) {
+        return resource instanceof FedoraObject ? Operation.GET_OBJECT : Operation.GET_DATASTREAM;
+    }
+
     /**
      * Create COPY method
      * @param sourcePath Source path, relative to repository baseURL
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded cache of resources recently confirmed absent, so that repeated {@code exists()} checks and lookups of
+ * the same missing paths are answered in memory instead of with a HEAD or GET returning {@code 404 Not Found}.
+ *
+ * <p>Entries expire after the time to live, since other clients may create the resources, and are removed as soon
+ * as a write through the same client may have created them: the target of any PUT, POST, COPY or MOVE, its
+ * ancestors (created as intermediate containers), the location of a created resource, and the descendants of a
+ * COPY or MOVE destination.  The least recently recorded entry is evicted once the maximum size is reached.</p>
+ *
+ * <p>With the optional Bloom filter, paths that were never recorded absent (the common case when most lookups
+ * are for new paths) are rejected without taking the cache lock.  Bits are never cleared individually, so the
+ * filter is rebuilt from the remaining entries once it has seen twice the maximum size in insertions.</p>
+ *
+ * @author escowles
+**/
+public class NegativeCache {
+
+    private static final String FCR = "/fcr:";
+
+    private final int maximumSize;
+    private final long timeToLive;
+    private final BloomFilter bloomFilter;
+    private final Map<String, Long> entries = new LinkedHashMap<>();
+    private long epoch = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Create a cache of up to 100000 absent paths, each remembered for 30 seconds, without a Bloom filter.
+    **/
+    public NegativeCache() {
+        this(100000, 30, TimeUnit.SECONDS, false);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maximumSize Maximum number of absent paths held.
+     * @param timeToLive Time an absent path is remembered.
+     * @param unit Unit of the time to live.
+     * @param bloomFilter Whether to front the cache with a Bloom filter.
+    **/
+    public NegativeCache(final int maximumSize, final long timeToLive, final TimeUnit unit,
+                         final boolean bloomFilter) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.timeToLive = unit.toNanos(timeToLive);
+        this.bloomFilter = bloomFilter ? new BloomFilter(maximumSize) : null;
+    }
+
+    /**
+     * Whether the cache applies to a request: a GET or HEAD of a resource itself, without parameters or an
+     * {@code fcr:} path segment, for which a {@code 404} means the resource does not exist.
+    **/
+    static boolean applies(final String method, final String uri) {
+        return ("GET".equals(method) || "HEAD".equals(method)) && uri.indexOf('?') < 0 && !uri.contains(FCR);
+    }
+
+    /**
+     * Whether a resource is known to be absent.
+     *
+     * @param uri The resource URI.
+     * @return true if the resource was recently confirmed absent and not written to since
+    **/
+    public boolean contains(final String uri) {
+        final String key = key(uri);
+        if (bloomFilter != null && !bloomFilter.mightContain(key)) {
+            synchronized (this) {
+                misses++;
+            }
+            return false;
+        }
+        synchronized (this) {
+            final Long recorded = entries.get(key);
+            if (recorded != null && System.nanoTime() - recorded < timeToLive) {
+                hits++;
+                return true;
+            } else if (recorded != null) {
+                entries.remove(key);
+            }
+            misses++;
+            return false;
+        }
+    }
+
+    /**
+     * Get the invalidation epoch, to be passed to {@link #add} by a lookup started now.
+    **/
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Record that a resource is absent, unless a write invalidated any entry since the lookup started.
+    **/
+    synchronized void add(final String uri, final long startEpoch) {
+        if (startEpoch != epoch) {
+            return;
+        }
+        final String key = key(uri);
+        entries.remove(key);
+        entries.put(key, System.nanoTime());
+        if (entries.size() > maximumSize) {
+            final Iterator<String> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+        if (bloomFilter != null && bloomFilter.put(key) > 2L * maximumSize) {
+            bloomFilter.clear();
+            for (final String remaining : entries.keySet()) {
+                bloomFilter.put(remaining);
+            }
+        }
+    }
+
+    /**
+     * Remove the paths a write to a URI may have created: the resource (the part of the URI before any
+     * query, fragment or {@code fcr:} path segment) and its ancestors, and also its descendants if the write
+     * copied or moved a tree of resources there.
+     *
+     * @param uri The URI written to.
+     * @param descendants Whether descendants may have been created.
+    **/
+    public synchronized void invalidate(final String uri, final boolean descendants) {
+        epoch++;
+        String resource = key(withoutQuery(uri));
+        final int fcr = resource.indexOf(FCR);
+        if (fcr >= 0) {
+            resource = resource.substring(0, fcr);
+        }
+        if (descendants) {
+            final String prefix = resource + "/";
+            entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        // stop at the authority, "scheme://host:port"
+        final int root = resource.indexOf("//") + 2;
+        for (String path = resource; path.length() > root; path = path.substring(0, Math.max(0,
+                path.lastIndexOf('/')))) {
+            entries.remove(path);
+        }
+    }
+
+    /**
+     * Remove every entry.
+    **/
+    public synchronized void invalidateAll() {
+        epoch++;
+        entries.clear();
+        if (bloomFilter != null) {
+            bloomFilter.clear();
+        }
+    }
+
+    /**
+     * Get the number of lookups answered from the cache.
+     *
+     * @return number of hits
+    **/
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups which had to be sent to the repository.
+     *
+     * @return number of misses
+    **/
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of absent paths evicted to stay within the maximum size.
+     *
+     * @return number of evictions
+    **/
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of absent paths held, including expired ones not yet removed.
+     *
+     * @return number of entries
+    **/
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static String key(final String uri) {
+        return uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    /**
+     * Strip the query and fragment of a URI written to, e.g. the checksum of a content update.
+    **/
+    private static String withoutQuery(final String uri) {
+        int end = uri.indexOf('?');
+        final int fragment = uri.indexOf('#');
+        if (fragment >= 0 && (end < 0 || fragment < end)) {
+            end = fragment;
+        }
+        return end < 0 ? uri : uri.substring(0, end);
+    }
+
+    /**
+     * Bloom filter of 10 bits per entry and 5 hash functions, for a false positive rate around 1%.  Bits are set
+     * and read atomically, so lookups do not need the cache lock.
+    **/
+    private static final class BloomFilter {
+        private static final int HASHES = 5;
+
+        private final AtomicLongArray bits;
+        private final int size;
+        private long insertions = 0;
+
+        BloomFilter(final int expected) {
+            this.size = (int) Math.min(Integer.MAX_VALUE - 63L, Math.max(64L, expected * 10L));
+            this.bits = new AtomicLongArray((size + 63) / 64);
+        }
+
+        boolean mightContain(final String key) {
+            final int h1 = key.hashCode();
+            final int h2 = mix(h1);
+            for (int i = 0; i < HASHES; i++) {
+                final int bit = index(h1 + i * h2);
+                if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long put(final String key) {
+            final int h1 = key.hashCode();
+            final int h2 = mix(h1);
+            for (int i = 0; i < HASHES; i++) {
+                final int bit = index(h1 + i * h2);
+                final long mask = 1L << bit;
+                long word = bits.get(bit >>> 6);
+                while ((word & mask) == 0 && !bits.compareAndSet(bit >>> 6, word, word | mask)) {
+                    word = bits.get(bit >>> 6);
+                }
+            }
+            return ++insertions;
+        }
+
+        void clear() {
+            for (int i = 0; i < bits.length(); i++) {
+                bits.set(i, 0);
+            }
+            insertions = 0;
+        }
+
+        private int index(final int hash) {
+            return (hash & Integer.MAX_VALUE) % size;
+        }
+
+        private static int mix(final int hash) {
+            int h = hash * 0x9e3779b9;
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            return (h ^ h >>> 13) | 1;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * Bounded, thread-safe pool of canonical nodes, so that URIs and literals repeated across many loaded resources
+ * (predicates, rdf:type values, mixins, parents) share a single instance instead of one copy per graph.
+ *
+ * <p>Entries are kept in two generations: new nodes go into the young generation, and when it is full it becomes
+ * the old generation and the previous old generation is dropped.  A node found in the old generation is
+ * promoted back into the young one, so frequently used nodes survive while one-off values such as timestamps
+ * age out.  At most twice the generation size is held at any time.</p>
+ *
+ * <p>Interning is best-effort: while a generation is being replaced two threads may receive different but equal
+ * instances.  Blank nodes and variables are returned unchanged.</p>
+ *
+ * @author escowles
+**/
+public class NodeInterner {
+
+    private static final NodeInterner SHARED = new NodeInterner(65536);
+
+    private final int generationSize;
+    private volatile Generation young = new Generation();
+    private volatile Generation old = new Generation();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create an interner.
+     *
+     * @param generationSize Number of nodes held by each of the two generations.
+    **/
+    public NodeInterner(final int generationSize) {
+        if (generationSize < 1) {
+            throw new IllegalArgumentException("generation size must be positive: " + generationSize);
+        }
+        this.generationSize = generationSize;
+    }
+
+    /**
+     * Get the interner shared by repositories that are not configured with their own, holding up to two
+     * generations of 65536 nodes.
+     *
+     * @return the shared interner
+    **/
+    public static NodeInterner shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the canonical instance of a node.
+     *
+     * @param node The node.
+     * @return an equal node held by the interner, or the node itself if it was not held or is not a URI or literal
+    **/
+    public Node intern(final Node node) {
+        if (node == null || !(node.isURI() || node.isLiteral())) {
+            return node;
+        }
+        final Generation current = young;
+        Node canonical = current.nodes.get(node);
+        if (canonical != null) {
+            hits.increment();
+            return canonical;
+        }
+        canonical = old.nodes.get(node);
+        if (canonical == null) {
+            misses.increment();
+            canonical = node;
+        } else {
+            hits.increment();
+        }
+        final Node existing = current.nodes.putIfAbsent(canonical, canonical);
+        if (existing != null) {
+            return existing;
+        }
+        if (current.size.incrementAndGet() >= generationSize) {
+            rotate(current);
+        }
+        return canonical;
+    }
+
+    private synchronized void rotate(final Generation full) {
+        if (young == full) {
+            evictions.addAndGet(old.size.get());
+            old = full;
+            young = new Generation();
+        }
+    }
+
+    /**
+     * Get the number of lookups that returned a node already held by the interner.
+     *
+     * @return number of hits
+    **/
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups of nodes not held by the interner.
+     *
+     * @return number of misses
+    **/
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the fraction of lookups that returned a node already held by the interner.
+     *
+     * @return hit rate between 0 and 1, or 0 if no lookups have been made
+    **/
+    public double getHitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Get the number of nodes dropped with an old generation.
+     *
+     * @return number of evicted nodes
+    **/
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Get the approximate number of nodes held.
+     *
+     * @return number of nodes in both generations
+    **/
+    public int size() {
+        return young.size.get() + old.size.get();
+    }
+
+    private static class Generation {
+        private final ConcurrentHashMap<Node, Node> nodes = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
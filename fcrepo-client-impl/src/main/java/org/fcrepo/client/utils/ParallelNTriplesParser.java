@@ -0,0 +1,119 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.lang.LangNTriples;
+import org.apache.jena.riot.system.ParserProfile;
+import org.apache.jena.riot.system.RiotLib;
+import org.apache.jena.riot.tokens.TokenizerFactory;
+
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * Parses an N-Triples document in parallel.  Since every triple is on its own line, the document is split at line
+ * boundaries into chunks which are parsed as separate documents, each into its own graph builder, and the builders
+ * are then merged in document order.  Blank node labels are scoped to the whole document, so a label used in two
+ * chunks is the same node.
+ *
+ * @author escowles
+**/
+final class ParallelNTriplesParser {
+
+    private ParallelNTriplesParser() {
+    }
+
+    /**
+     * Parse a document into a graph builder.
+     *
+     * @param data The document.
+     * @param base Base URI.
+     * @param pool Pool running the chunk parsers.
+     * @param chunks Number of chunks to split the document into.
+     * @param dest Builder receiving the triples.
+     * @param subjects Subjects to keep, or null for all subjects.
+     * @param properties Properties to keep, or null for all properties.
+     * @param interner Interner supplying canonical nodes, or null to keep the parsed nodes.
+     * @throws InterruptedException if interrupted while waiting for the chunk parsers
+    **/
+    static void parse(final byte[] data, final String base, final ExecutorService pool, final int chunks,
+                      final CompactGraph.Builder dest, final Collection<Node> subjects,
+                      final Collection<Node> properties, final NodeInterner interner) throws InterruptedException {
+        final UUID scope = UUID.randomUUID();
+        final int[] bounds = split(data, chunks);
+        final List<Callable<CompactGraph.Builder>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            tasks.add(() -> {
+                final CompactGraph.Builder builder = new CompactGraph.Builder(interner);
+                final ParserProfile profile = RiotLib.profile(Lang.NTRIPLES, base);
+                profile.setLabelToNode(LabelToNode.createScopeByDocumentHash(scope));
+                new LangNTriples(TokenizerFactory.makeTokenizerUTF8(new ByteArrayInputStream(data, from, to - from)),
+                        profile, new RDFSinkFilter(builder, subjects, properties)).parse();
+                return builder;
+            });
+        }
+        final List<Future<CompactGraph.Builder>> results = pool.invokeAll(tasks);
+        try {
+            for (final Future<CompactGraph.Builder> result : results) {
+                dest.addAll(result.get());
+            }
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RiotException(e.getCause());
+        }
+    }
+
+    /**
+     * Split a document at line boundaries into chunks of about the same size.
+     *
+     * @param data The document.
+     * @param chunks Number of chunks wanted.
+     * @return offsets of the start of each non-empty chunk, followed by the length of the document
+    **/
+    static int[] split(final byte[] data, final int chunks) {
+        final int[] bounds = new int[chunks + 1];
+        int count = 1;
+        for (int i = 1; i < chunks; i++) {
+            int offset = Math.max((int) ((long) data.length * i / chunks), bounds[count - 1]);
+            while (offset > 0 && offset < data.length && data[offset - 1] != '\n') {
+                offset++;
+            }
+            if (offset > bounds[count - 1] && offset < data.length) {
+                bounds[count++] = offset;
+            }
+        }
+        bounds[count++] = data.length;
+        final int[] result = new int[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+}
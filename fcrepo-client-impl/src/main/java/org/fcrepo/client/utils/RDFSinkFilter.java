@@ -15,41 +15,79 @@
  */
 package org.fcrepo.client.utils;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
+
 import org.apache.jena.atlas.lib.Sink;
 import org.apache.jena.riot.lang.SinkTriplesToGraph;
 import org.apache.jena.riot.system.StreamRDFBase;
 
+import com.hp.hpl.jena.graph.Factory;
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
-import com.hp.hpl.jena.shared.RandomOrderGraph;
 
 /**
- * class RDFSinkFilter filtering StreamRDF to Sink.
+ * class RDFSinkFilter filtering StreamRDF to Sink.  It can be handed directly to a RIOT parser, so triples are
+ * projected while the response is parsed: only triples whose subject and predicate are in the allowlists reach
+ * the destination, and the others are never stored.
  * @author lsitu
  * @since 2014-08-13
 **/
 public class RDFSinkFilter extends StreamRDFBase {
-    // properties to filter
-    private final Node[] properties ;
+    // subjects to keep, or null for all subjects
+    private final Set<Node> subjects ;
+    // properties to keep, or null for all properties
+    private final Set<Node> properties ;
     // destination to send the triples filtered.
     private final Sink<Triple> dest ;
 
-    private RDFSinkFilter(final Sink<Triple> dest, final Node... properties) {
+    private long accepted = 0;
+    private long dropped = 0;
+
+    /**
+     * Create a filter.
+     * @param dest Destination of the accepted triples
+     * @param subjects Subjects to keep; null or a collection containing Node.ANY keeps all subjects
+     * @param properties Properties to keep; null or a collection containing Node.ANY keeps all properties
+    **/
+    public RDFSinkFilter(final Sink<Triple> dest, final Collection<Node> subjects,
+                         final Collection<Node> properties) {
         this.dest = dest ;
-        this.properties = new Node[properties.length];
-        for ( int i = 0; i < properties.length; i++) {
-            this.properties[i] = properties[i];
+        this.subjects = allowlist(subjects);
+        this.properties = allowlist(properties);
+    }
+
+    private static Set<Node> allowlist(final Collection<Node> nodes) {
+        if ( nodes == null || nodes.contains(Node.ANY) ) {
+            return null;
         }
+        return new HashSet<>(nodes);
+    }
+
+    /**
+     * Create a filter adding the accepted triples to a graph.
+     * @param graph Destination graph
+     * @param subjects Subjects to keep, or null for all subjects
+     * @param properties Properties to keep, or null for all properties
+     * @return the filter
+    **/
+    public static RDFSinkFilter toGraph(final Graph graph, final Collection<Node> subjects,
+                                        final Collection<Node> properties) {
+        return new RDFSinkFilter(new SinkTriplesToGraph(true, graph), subjects, properties);
     }
 
     @Override
     public void triple(final Triple triple) {
-        for ( final Node p : properties ) {
-            if ( Node.ANY == p || triple.getPredicate().equals(p) ) {
-                dest.send(triple);
-            }
+        if ( (subjects == null || subjects.contains(triple.getSubject()))
+                && (properties == null || properties.contains(triple.getPredicate())) ) {
+            accepted++;
+            dest.send(triple);
+        } else {
+            dropped++;
         }
     }
 
@@ -59,6 +97,22 @@ public class RDFSinkFilter extends StreamRDFBase {
         dest.flush() ;
     }
 
+    /**
+     * Get the number of triples passed to the destination.
+     * @return number of accepted triples
+    **/
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Get the number of triples dropped by the allowlists.
+     * @return number of dropped triples
+    **/
+    public long getDropped() {
+        return dropped;
+    }
+
     /**
      * Filter the triples
      * @param triples Iterator of triples
@@ -68,9 +122,8 @@ public class RDFSinkFilter extends StreamRDFBase {
     public static Graph filterTriples (
             final Iterator<Triple> triples,
             final Node... properties) {
-        final Graph filteredGraph = new RandomOrderGraph(RandomOrderGraph.createDefaultGraph());
-        final Sink<Triple> graphOutput = new SinkTriplesToGraph(true, filteredGraph);
-        final RDFSinkFilter rdfFilter = new RDFSinkFilter(graphOutput, properties);
+        final Graph filteredGraph = Factory.createDefaultGraph();
+        final RDFSinkFilter rdfFilter = toGraph(filteredGraph, null, Arrays.asList(properties));
         rdfFilter.start();
         while (triples.hasNext()) {
             final Triple triple = triples.next();
@@ -0,0 +1,453 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.hp.hpl.jena.graph.Graph;
+
+/**
+ * Bounded cache of loaded resource properties, keyed by the URI they were loaded from.  Each entry holds the
+ * immutable properties graph and the ETag it was returned with, and is weighted by its number of triples.
+ *
+ * <p>Entries younger than the time to live are served without a request.  Older entries are revalidated with
+ * {@code If-None-Match}: a {@code 304 Not Modified} response reuses the cached graph without downloading or
+ * parsing the representation again.  Writes made through the same client invalidate the resource written, its
+ * descendants and its parent, whose representation lists and embeds its children.  Changes made by other clients
+ * are only seen once an entry is revalidated, so the default time to live of zero revalidates every load.</p>
+ *
+ * <p>Eviction follows W-TinyLFU: new entries go into a small LRU window, and an entry leaving the window is only
+ * admitted into the main segmented LRU if it has been requested more often than the entry it would evict, as
+ * estimated by a count-min sketch that is periodically halved.  One-off loads, such as a scan of a large
+ * container, therefore do not flush frequently used resources.</p>
+ *
+ * @author escowles
+**/
+public class ResourceCache {
+
+    private static final String FCR = "/fcr:";
+    private static final String METADATA = "/fcr:metadata";
+
+    private final long maximumWeight;
+    private final long timeToLive;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+    private final Map<String, Entry> window = new LinkedHashMap<>();
+    private final Map<String, Entry> probation = new LinkedHashMap<>();
+    private final Map<String, Entry> protect = new LinkedHashMap<>();
+    private long windowWeight = 0;
+    private long probationWeight = 0;
+    private long protectedWeight = 0;
+    private long epoch = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long revalidations = 0;
+    private long evictions = 0;
+
+    /**
+     * Create a cache holding up to one million triples, revalidating every load.
+    **/
+    public ResourceCache() {
+        this(1000000, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maximumWeight Maximum number of triples held by all entries.
+     * @param timeToLive Time an entry is served without revalidation; zero revalidates every load.
+     * @param unit Unit of the time to live.
+    **/
+    public ResourceCache(final long maximumWeight, final long timeToLive, final TimeUnit unit) {
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("maximum weight must be positive: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.timeToLive = unit.toNanos(timeToLive);
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * 4 / 5;
+        this.sketch = new FrequencySketch(maximumWeight);
+    }
+
+    /**
+     * Look up the entry loaded from a URI, recording the request in the frequency sketch.
+    **/
+    synchronized Entry get(final String uri) {
+        final String key = key(uri);
+        sketch.increment(key);
+        return entries.get(key);
+    }
+
+    /**
+     * Whether an entry can be served without revalidation.
+    **/
+    boolean isFresh(final Entry entry) {
+        return timeToLive > 0 && System.nanoTime() - entry.validated < timeToLive;
+    }
+
+    /**
+     * Record that an entry was served, after revalidating it if it was not fresh.
+    **/
+    synchronized void hit(final Entry entry, final boolean revalidated) {
+        hits++;
+        if (revalidated) {
+            revalidations++;
+            entry.validated = System.nanoTime();
+        }
+        if (entries.get(entry.key) == entry) {
+            touch(entry);
+        }
+    }
+
+    /**
+     * Get the invalidation epoch, to be passed to {@link #put} by a load started now.
+    **/
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Record that the properties of a resource were downloaded and cache them, unless a write invalidated any
+     * entry since the epoch at which the download started.
+    **/
+    synchronized void put(final String uri, final Graph graph, final String etag, final long startEpoch) {
+        misses++;
+        final String key = key(uri);
+        remove(entries.get(key));
+        final long weight = Math.max(1, graph.size());
+        if (startEpoch != epoch || weight > maximumWeight) {
+            return;
+        }
+        final Entry entry = new Entry(key, graph, etag, weight);
+        entries.put(key, entry);
+        window.put(key, entry);
+        windowWeight += weight;
+        evict();
+    }
+
+    /**
+     * Remove the entry loaded from a URI, when the resource no longer exists.
+    **/
+    synchronized void remove(final String uri) {
+        remove(entries.get(key(uri)));
+    }
+
+    /**
+     * Invalidate the entries affected by a write to a URI: the resource itself (the part of the URI before any
+     * query, fragment or {@code fcr:} path segment), its description, its descendants and its parent.
+     *
+     * @param uri The URI written to.
+    **/
+    public synchronized void invalidate(final String uri) {
+        epoch++;
+        String resource = key(withoutQuery(uri));
+        final int fcr = resource.indexOf(FCR);
+        if (fcr >= 0) {
+            resource = resource.substring(0, fcr);
+        }
+        // descendants sort between "resource/" and "resource0"
+        final Iterator<Entry> descendants = entries.subMap(resource + "/", resource + "0").values().iterator();
+        while (descendants.hasNext()) {
+            final Entry entry = descendants.next();
+            descendants.remove();
+            unlink(entry);
+        }
+        remove(entries.get(resource));
+        final int slash = resource.lastIndexOf('/');
+        if (slash > 0) {
+            remove(entries.get(resource.substring(0, slash)));
+        }
+    }
+
+    /**
+     * Remove every entry.
+    **/
+    public synchronized void invalidateAll() {
+        epoch++;
+        entries.clear();
+        window.clear();
+        probation.clear();
+        protect.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+
+    /**
+     * Get the number of loads served from the cache, with or without revalidation.
+     *
+     * @return number of hits
+    **/
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of loads which downloaded the properties.
+     *
+     * @return number of misses
+    **/
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the fraction of loads served from the cache.
+     *
+     * @return hit rate between 0 and 1, or 0 if nothing was loaded
+    **/
+    public synchronized double getHitRate() {
+        final long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Get the number of hits for which the repository answered a revalidation with {@code 304 Not Modified}.
+     *
+     * @return number of revalidations
+    **/
+    public synchronized long getRevalidations() {
+        return revalidations;
+    }
+
+    /**
+     * Get the number of entries evicted or refused admission to keep the cache within its maximum weight.
+     *
+     * @return number of evictions
+    **/
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of entries held.
+     *
+     * @return number of entries
+    **/
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of triples held by all entries.
+     *
+     * @return total weight
+    **/
+    public synchronized long getWeight() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    private static String key(final String uri) {
+        return uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    /**
+     * Strip the query and fragment of a URI written to, e.g. the checksum of a content update.
+    **/
+    private static String withoutQuery(final String uri) {
+        int end = uri.indexOf('?');
+        final int fragment = uri.indexOf('#');
+        if (fragment >= 0 && (end < 0 || fragment < end)) {
+            end = fragment;
+        }
+        return end < 0 ? uri : uri.substring(0, end);
+    }
+
+    private void touch(final Entry entry) {
+        switch (entry.segment) {
+            case WINDOW:
+                window.remove(entry.key);
+                window.put(entry.key, entry);
+                break;
+            case PROBATION:
+                probation.remove(entry.key);
+                probationWeight -= entry.weight;
+                entry.segment = Segment.PROTECTED;
+                protect.put(entry.key, entry);
+                protectedWeight += entry.weight;
+                // demote the least recently used protected entries back to probation
+                while (protectedWeight > protectedMaximum && protect.size() > 1) {
+                    final Entry demoted = first(protect);
+                    protect.remove(demoted.key);
+                    protectedWeight -= demoted.weight;
+                    demoted.segment = Segment.PROBATION;
+                    probation.put(demoted.key, demoted);
+                    probationWeight += demoted.weight;
+                }
+                break;
+            default:
+                protect.remove(entry.key);
+                protect.put(entry.key, entry);
+                break;
+        }
+    }
+
+    private void evict() {
+        while (windowWeight > windowMaximum) {
+            final Entry candidate = first(window);
+            window.remove(candidate.key);
+            windowWeight -= candidate.weight;
+            admit(candidate);
+        }
+    }
+
+    /**
+     * Move an entry leaving the window into probation if it is requested more often than the main entries it
+     * would displace, otherwise drop it.
+    **/
+    private void admit(final Entry candidate) {
+        final int frequency = sketch.frequency(candidate.key);
+        while (windowWeight + probationWeight + protectedWeight + candidate.weight > maximumWeight) {
+            final Entry victim = first(probation.isEmpty() ? protect : probation);
+            if (victim == null || sketch.frequency(victim.key) >= frequency) {
+                entries.remove(candidate.key);
+                evictions++;
+                return;
+            }
+            remove(victim);
+            evictions++;
+        }
+        candidate.segment = Segment.PROBATION;
+        probation.put(candidate.key, candidate);
+        probationWeight += candidate.weight;
+    }
+
+    private void remove(final Entry entry) {
+        if (entry != null) {
+            entries.remove(entry.key);
+            unlink(entry);
+        }
+    }
+
+    private void unlink(final Entry entry) {
+        switch (entry.segment) {
+            case WINDOW:
+                window.remove(entry.key);
+                windowWeight -= entry.weight;
+                break;
+            case PROBATION:
+                probation.remove(entry.key);
+                probationWeight -= entry.weight;
+                break;
+            default:
+                protect.remove(entry.key);
+                protectedWeight -= entry.weight;
+                break;
+        }
+    }
+
+    private static Entry first(final Map<String, Entry> segment) {
+        final Iterator<Entry> it = segment.values().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    /**
+     * Cached properties of a resource.
+    **/
+    static final class Entry {
+        private final String key;
+        private final Graph graph;
+        private final String etag;
+        private final long weight;
+        private Segment segment = Segment.WINDOW;
+        private volatile long validated = System.nanoTime();
+
+        private Entry(final String key, final Graph graph, final String etag, final long weight) {
+            this.key = key;
+            this.graph = graph;
+            this.etag = etag;
+            this.weight = weight;
+        }
+
+        Graph getGraph() {
+            return graph;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters estimating how often each key was requested recently.  Once the number
+     * of increments reaches ten times the width of the sketch every counter is halved, so old popularity fades.
+    **/
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = { 0x97cb3127, 0xb7a4f1e5, 0x5a5f3c2d, 0x2c1b3c6d };
+        private static final int MAXIMUM = 15;
+
+        private final int[][] counters = new int[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(final long maximumWeight) {
+            final int width = Integer.highestOneBit((int) Math.max(256, Math.min(1 << 20, maximumWeight / 8)));
+            for (int i = 0; i < SEEDS.length; i++) {
+                counters[i] = new int[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = width * 10;
+        }
+
+        void increment(final String key) {
+            final int hash = key.hashCode();
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final int index = index(hash, i);
+                if (counters[i][index] < MAXIMUM) {
+                    counters[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (final int[] row : counters) {
+                    for (int j = 0; j < row.length; j++) {
+                        row[j] >>>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(final String key) {
+            final int hash = key.hashCode();
+            int frequency = MAXIMUM;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, counters[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(final int hash, final int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            return h & mask;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Decides whether, and after how long, {@link HttpHelper#execute} repeats a request.
+ *
+ * @author escowles
+**/
+public interface RetryPolicy {
+
+    /**
+     * Policy that never retries.
+    **/
+    public static final RetryPolicy NO_RETRY = (request, response, exception, attempt) -> -1;
+
+    /**
+     * Called after each attempt to execute a request.  Exactly one of response and exception is not null.
+     *
+     * @param request The request that was executed.
+     * @param response The response received, or null if the attempt failed with an exception.
+     * @param exception The exception thrown by the attempt, or null if a response was received.
+     * @param attempt The number of attempts made so far, starting at 1.
+     * @return The number of milliseconds to wait before the next attempt, or a negative number to stop and return
+     *         the response (or throw the exception) to the caller.
+    **/
+    public long retryDelay( HttpUriRequest request, HttpResponse response, IOException exception, int attempt );
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apache.http.HttpStatus.SC_FORBIDDEN;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_PARTIAL_CONTENT;
+import static org.apache.http.HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.fcrepo.client.metrics.Operation.GET_CONTENT;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpGet;
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.ForbiddenException;
+import org.fcrepo.client.NotFoundException;
+import org.slf4j.Logger;
+
+/**
+ * Download of a binary's content into a file.  The first request asks for the first range only; if the server
+ * answers with {@code 206 Partial Content}, the remaining ranges are requested in parallel and each is written
+ * in place at its offset in the file.  A server ignoring the range sends the whole content in the first
+ * response, which is then simply copied.
+ *
+ * @author escowles
+**/
+class SegmentedDownload {
+    private static final Logger LOGGER = getLogger(SegmentedDownload.class);
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+)");
+
+    private final HttpHelper httpHelper;
+    private final String path;
+    private final long segmentSize;
+    private final int parallelism;
+
+    /**
+     * Create a download.
+     *
+     * @param httpHelper HTTP helper executing the requests
+     * @param path Path of the binary
+     * @param segmentSize Size of the ranges, or zero or less to use a single request
+     * @param parallelism Number of ranges requested at the same time
+    **/
+    SegmentedDownload(final HttpHelper httpHelper, final String path, final long segmentSize,
+                      final int parallelism) {
+        this.httpHelper = httpHelper;
+        this.path = path;
+        this.segmentSize = segmentSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Download the content, replacing the file if it exists.
+     *
+     * @param file The file.
+     * @return the number of bytes downloaded
+     * @throws FedoraException if the content cannot be downloaded or written; the file is then incomplete
+    **/
+    long downloadTo(final Path file) throws FedoraException {
+        final boolean ranged = segmentSize > 0 && parallelism > 1;
+        try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            final HttpGet get = httpHelper.createGetMethod(path, null);
+            if (ranged) {
+                get.setHeader(HttpHeaders.RANGE, "bytes=0-" + (segmentSize - 1));
+            }
+            try {
+                final HttpResponse response = httpHelper.execute(GET_CONTENT, get);
+                final String uri = get.getURI().toString();
+                final StatusLine status = response.getStatusLine();
+                if (status.getStatusCode() == SC_OK) {
+                    final HttpEntity entity = response.getEntity();
+                    return entity == null ? 0 : copy(uri, entity, channel, 0, entity.getContentLength());
+                } else if (status.getStatusCode() == SC_PARTIAL_CONTENT) {
+                    final long[] range = contentRange(uri, response);
+                    return downloadRanges(uri, response, range, channel);
+                } else if (ranged && status.getStatusCode() == SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                    // no byte can be satisfied: the content is empty
+                    return 0;
+                }
+                throw error(uri, status);
+            } finally {
+                get.releaseConnection();
+            }
+        } catch (final FedoraException e) {
+            throw e;
+        } catch (final IOException e) {
+            LOGGER.error("Error downloading {} to {}", path, file, e);
+            throw new FedoraException(e);
+        }
+    }
+
+    /**
+     * Copy the first range, while the others are downloaded by a pool of threads.
+    **/
+    private long downloadRanges(final String uri, final HttpResponse first, final long[] range,
+                                final FileChannel channel) throws FedoraException, IOException {
+        if (range[0] != 0) {
+            throw new FedoraException("unexpected range " + range[0] + "-" + range[1] + " for resource " + uri);
+        }
+        final long total = range[2];
+        final AtomicLong next = new AtomicLong(range[1] + 1);
+        final int workers = (int) Math.min(parallelism - 1, (total - next.get() + segmentSize - 1) / segmentSize);
+        final ExecutorService pool = workers > 0 ? Executors.newFixedThreadPool(workers) : null;
+        final List<Future<Void>> segments = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers; i++) {
+                segments.add(pool.submit(() -> {
+                    downloadSegments(next, total, channel);
+                    return null;
+                }));
+            }
+            try {
+                copy(uri, first.getEntity(), channel, 0, range[1] + 1);
+            } catch (final FedoraException | IOException e) {
+                next.set(total);
+                throw e;
+            }
+            for (final Future<Void> segment : segments) {
+                try {
+                    segment.get();
+                } catch (final ExecutionException e) {
+                    next.set(total);
+                    if (e.getCause() instanceof FedoraException) {
+                        throw (FedoraException) e.getCause();
+                    }
+                    throw new FedoraException(e.getCause());
+                } catch (final InterruptedException e) {
+                    next.set(total);
+                    Thread.currentThread().interrupt();
+                    throw new FedoraException(e);
+                }
+            }
+            return total;
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Download ranges until every range has been taken.
+    **/
+    private void downloadSegments(final AtomicLong next, final long total, final FileChannel channel)
+            throws FedoraException, IOException {
+        for (long start = next.getAndAdd(segmentSize); start < total; start = next.getAndAdd(segmentSize)) {
+            final long end = Math.min(start + segmentSize, total) - 1;
+            final HttpGet get = httpHelper.createGetMethod(path, null);
+            get.setHeader(HttpHeaders.RANGE, "bytes=" + start + "-" + end);
+            try {
+                final HttpResponse response = httpHelper.execute(GET_CONTENT, get);
+                final String uri = get.getURI().toString();
+                if (response.getStatusLine().getStatusCode() != SC_PARTIAL_CONTENT) {
+                    throw error(uri, response.getStatusLine());
+                }
+                final long[] range = contentRange(uri, response);
+                if (range[0] != start || range[1] != end || range[2] != total) {
+                    throw new FedoraException("resource " + uri + " changed during download");
+                }
+                copy(uri, response.getEntity(), channel, start, end - start + 1);
+            } finally {
+                get.releaseConnection();
+            }
+        }
+    }
+
+    /**
+     * Copy a response into the file at an offset, through a direct buffer.
+     *
+     * @param expected number of bytes expected, or a negative number if unknown
+     * @return the number of bytes copied
+    **/
+    private static long copy(final String uri, final HttpEntity entity, final FileChannel channel,
+                             final long position, final long expected) throws FedoraException, IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long written = 0;
+        try (ReadableByteChannel in = Channels.newChannel(entity.getContent())) {
+            while (in.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) {
+                    written += drain(buffer, channel, position + written);
+                }
+            }
+            written += drain(buffer, channel, position + written);
+        }
+        if (expected >= 0 && written != expected) {
+            throw new FedoraException("incomplete content for resource " + uri + ": " + written + " of " + expected
+                    + " bytes");
+        }
+        return written;
+    }
+
+    private static long drain(final ByteBuffer buffer, final FileChannel channel, final long position)
+            throws IOException {
+        buffer.flip();
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    /**
+     * Parse the Content-Range of a partial response as its first byte, last byte and complete length.
+    **/
+    static long[] contentRange(final String uri, final HttpResponse response) throws FedoraException {
+        final Header header = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+        final Matcher matcher = header == null ? null : CONTENT_RANGE.matcher(header.getValue().trim());
+        if (matcher == null || !matcher.matches()) {
+            throw new FedoraException("invalid Content-Range for resource " + uri + ": "
+                    + (header == null ? null : header.getValue()));
+        }
+        return new long[] { Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)),
+                Long.parseLong(matcher.group(3)) };
+    }
+
+    static FedoraException error(final String uri, final StatusLine status) {
+        if (status.getStatusCode() == SC_FORBIDDEN) {
+            LOGGER.error("request for resource {} is not authorized.", uri);
+            return new ForbiddenException("request for resource " + uri + " is not authorized.");
+        } else if (status.getStatusCode() == SC_NOT_FOUND) {
+            LOGGER.error("resource {} does not exist, cannot retrieve", uri);
+            return new NotFoundException("resource " + uri + " does not exist, cannot retrieve");
+        }
+        LOGGER.error("error retrieving resource {}: {} {}", uri, status.getStatusCode(), status.getReasonPhrase());
+        return new FedoraException("error retrieving resource " + uri + ": " + status.getStatusCode() + " "
+                + status.getReasonPhrase());
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.impl;
+
+import static org.apache.http.HttpStatus.SC_CONFLICT;
+import static org.apache.http.HttpStatus.SC_CREATED;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_NO_CONTENT;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_PRECONDITION_FAILED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.fcrepo.client.AlreadyExistsException;
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.FedoraObject;
+import org.fcrepo.client.NotFoundException;
+import org.fcrepo.client.utils.CircuitBreaker;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Non-blocking repository impl, run against a mock client that completes each request immediately.
+ *
+ * @author escowles
+ */
+public class AsyncFedoraRepositoryImplTest {
+
+    private AsyncFedoraRepositoryImpl asyncRepository;
+
+    @Mock
+    private HttpClient mockClient;
+
+    @Mock
+    private CloseableHttpAsyncClient mockAsyncClient;
+
+    private final String testRepositoryUrl = "http://localhost:8080/rest";
+
+    private final String testContent = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"" +
+                " xmlns:fcrepo=\"http://fedora.info/definitions/v4/repository#\">" +
+                "<rdf:Description rdf:about=\"http://localhost:8080/rest/testObject\">" +
+                "<fcrepo:uuid>2fb9c440-db63-434f-929b-0ff29253205c</fcrepo:uuid>" +
+                "</rdf:Description>" +
+                "</rdf:RDF>";
+
+    @Before
+    public void setUp() throws IOException {
+        initMocks(this);
+        when(mockAsyncClient.isRunning()).thenReturn(true);
+        asyncRepository = new AsyncFedoraRepositoryImpl(new FedoraRepositoryImpl(testRepositoryUrl, mockClient),
+                mockAsyncClient, Runnable::run);
+    }
+
+    @Test
+    public void testGetObject() throws Exception {
+        respondWith(rdfResponse());
+        final FedoraObject object = asyncRepository.getObject("/testObject").get();
+        assertEquals("/testObject", object.getPath());
+        assertTrue(object.getProperties().hasNext());
+    }
+
+    @Test
+    public void testGetObjectNotFound() throws Exception {
+        respondWith(response(SC_NOT_FOUND));
+        assertFailsWith(NotFoundException.class, () -> asyncRepository.getObject("/missing").get());
+    }
+
+    @Test
+    public void testExists() throws Exception {
+        respondWith(response(SC_OK), response(SC_NOT_FOUND));
+        assertTrue(asyncRepository.exists("/testObject").get());
+        assertFalse(asyncRepository.exists("/missing").get());
+    }
+
+    @Test
+    public void testCreateObject() throws Exception {
+        respondWith(response(SC_CREATED), rdfResponse());
+        final FedoraObject object = asyncRepository.createObject("/testObject").get();
+        assertEquals("/testObject", object.getPath());
+    }
+
+    @Test
+    public void testCreateObjectExists() throws Exception {
+        respondWith(response(SC_CONFLICT));
+        assertFailsWith(AlreadyExistsException.class, () -> asyncRepository.createObject("/testObject").get());
+    }
+
+    @Test
+    public void testFindOrCreateObjectNonExistent() throws Exception {
+        respondWith(response(SC_CREATED), rdfResponse());
+        final FedoraObject object = asyncRepository.findOrCreateObject("/testObject").get();
+        assertEquals("/testObject", object.getPath());
+    }
+
+    @Test
+    public void testFindOrCreateObjectExists() throws Exception {
+        respondWith(response(SC_PRECONDITION_FAILED), rdfResponse());
+        final FedoraObject object = asyncRepository.findOrCreateObject("/testObject").get();
+        assertEquals("/testObject", object.getPath());
+    }
+
+    @Test
+    public void testFindOrCreateObjectConflictExists() throws Exception {
+        respondWith(response(SC_CONFLICT), response(SC_OK), rdfResponse());
+        final FedoraObject object = asyncRepository.findOrCreateObject("/testObject").get();
+        assertEquals("/testObject", object.getPath());
+    }
+
+    @Test
+    public void testFindOrCreateObjectConflictAbsent() throws Exception {
+        respondWith(response(SC_CONFLICT), response(SC_NOT_FOUND));
+        assertFailsWith(FedoraException.class, () -> asyncRepository.findOrCreateObject("/testObject").get());
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        respondWith(response(SC_NO_CONTENT));
+        asyncRepository.delete("/testObject").get();
+    }
+
+    @Test
+    public void testDeleteNotFound() throws Exception {
+        respondWith(response(SC_NOT_FOUND));
+        assertFailsWith(NotFoundException.class, () -> asyncRepository.delete("/testObject").get());
+    }
+
+    @Test
+    public void testUpdateProperties() throws Exception {
+        respondWith(response(SC_NO_CONTENT));
+        asyncRepository.updateProperties("/testObject", "INSERT DATA {}").get();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testClientClosed() throws Exception {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 1, 0.5, 1.0, 10000, 60000, 1);
+        asyncRepository.httpHelper.setCircuitBreaker(circuitBreaker);
+        when(mockAsyncClient.execute(any(HttpUriRequest.class), any(FutureCallback.class)))
+                .thenThrow(new IllegalStateException("Request cannot be executed; I/O reactor status: STOPPED"));
+
+        assertFailsWith(FedoraException.class, () -> asyncRepository.exists("/testObject").get());
+        assertEquals("the failure is reported to the circuit breaker", CircuitBreaker.State.OPEN,
+                circuitBreaker.getState("http://localhost:8080"));
+    }
+
+    @Test
+    public void testCloseDoesNotCloseSuppliedClient() throws Exception {
+        asyncRepository.close();
+        verify(mockAsyncClient, never()).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respondWith(final HttpResponse... responses) {
+        when(mockAsyncClient.execute(any(HttpUriRequest.class), any(FutureCallback.class)))
+                .thenAnswer(new Answer<Object>() {
+                    private int count = 0;
+
+                    @Override
+                    public Object answer(final InvocationOnMock invocation) {
+                        final FutureCallback<HttpResponse> callback
+                                = (FutureCallback<HttpResponse>) invocation.getArguments()[1];
+                        callback.completed(responses[Math.min(count++, responses.length - 1)]);
+                        return null;
+                    }
+                });
+    }
+
+    private static HttpResponse response(final int statusCode) {
+        return new BasicHttpResponse(new ProtocolVersion("HTTP", 1, 1), statusCode, "");
+    }
+
+    private HttpResponse rdfResponse() {
+        final HttpResponse response = response(HttpStatus.SC_OK);
+        final ByteArrayEntity entity = new ByteArrayEntity(testContent.getBytes());
+        entity.setContentType("application/rdf+xml");
+        response.setEntity(entity);
+        return response;
+    }
+
+    private static void assertFailsWith(final Class<? extends Exception> expected, final Call call)
+            throws Exception {
+        try {
+            call.run();
+        } catch (final ExecutionException e) {
+            assertEquals(expected, e.getCause().getClass());
+            return;
+        }
+        throw new AssertionError("expected " + expected.getSimpleName());
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+}
@@ -65,6 +65,7 @@ import org.apache.http.client.methods.HttpPut;
 import org.fcrepo.client.FedoraContent;
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraObject;
+import org.fcrepo.client.metrics.Operation;
 import org.fcrepo.client.utils.HttpHelper;
 import org.fcrepo.kernel.api.RdfLexicon;
 
@@ -234,7 +235,7 @@ public class FedoraDatastreamImplTest {
 
         when(mockHelper.createGetMethod(anyString(), any(Map.class))).thenReturn(mockGet);
         when(mockGet.getURI()).thenReturn(getURI);
-        when(mockHelper.execute(any(HttpGet.class))).thenReturn(mockResponse);
+        when(mockHelper.execute(any(Operation.class), any(HttpGet.class))).thenReturn(mockResponse);
         when(mockResponse.getStatusLine()).thenReturn(mockStatus);
         when(mockStatus.getStatusCode()).thenReturn(200);
         when(mockResponse.getEntity()).thenReturn(mockEntity);
@@ -245,6 +246,28 @@ public class FedoraDatastreamImplTest {
         assertEquals("Content doesn't match", mockContent, content);
     }
 
+    @Test
+    public void testGetContentRangeIgnored() throws IOException, URISyntaxException, FedoraException {
+        final URI getURI = new URI(repositoryURL + path);
+        final HttpGet mockGet = mock(HttpGet.class);
+        final HttpResponse mockResponse = mock(HttpResponse.class);
+        final StatusLine mockStatus = mock(StatusLine.class);
+        final HttpEntity mockEntity = mock(HttpEntity.class);
+        final String mockContent = "test datastream content";
+
+        when(mockHelper.createGetMethod(anyString(), any(Map.class))).thenReturn(mockGet);
+        when(mockGet.getURI()).thenReturn(getURI);
+        when(mockHelper.execute(any(Operation.class), any(HttpGet.class))).thenReturn(mockResponse);
+        when(mockResponse.getStatusLine()).thenReturn(mockStatus);
+        when(mockStatus.getStatusCode()).thenReturn(200);
+        when(mockResponse.getEntity()).thenReturn(mockEntity);
+        when(mockEntity.getContent()).thenReturn(new ByteArrayInputStream(mockContent.getBytes()));
+
+        final InputStream contentStream = datastream.getContent(5, 10);
+        verify(mockGet).setHeader("Range", "bytes=5-14");
+        assertEquals("Range doesn't match", "datastream", IOUtils.toString(contentStream));
+    }
+
     @Test
     public void testUpdateContent() throws IOException, URISyntaxException, FedoraException {
         final String newFilename = "test.png";
@@ -262,7 +285,7 @@ public class FedoraDatastreamImplTest {
 
         when(mockHelper.createContentPutMethod(anyString(), any(Map.class), eq(content))).thenReturn(mockPut);
         when(mockPut.getURI()).thenReturn(putURI);
-        when(mockHelper.execute(any(HttpPut.class))).thenReturn(mockResponse);
+        when(mockHelper.execute(any(Operation.class), any(HttpPut.class))).thenReturn(mockResponse);
         when(mockResponse.getStatusLine()).thenReturn(mockStatus);
         when(mockStatus.getStatusCode()).thenReturn(204);
         when(mockResponse.getEntity()).thenReturn(mockEntity);
@@ -271,7 +294,7 @@ public class FedoraDatastreamImplTest {
 
         datastream.updateContent( content );
 
-        verify(mockHelper).execute(any(HttpPut.class));
+        verify(mockHelper).execute(eq(Operation.UPDATE_CONTENT), any(HttpPut.class));
         verify(mockHelper).loadProperties(datastream);
     }
 }
@@ -19,29 +19,36 @@ import static com.hp.hpl.jena.graph.Factory.createDefaultGraph;
 import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
 import static com.hp.hpl.jena.graph.NodeFactory.createURI;
 import static com.hp.hpl.jena.graph.Triple.create;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
-import static org.mockito.Matchers.eq;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.fcrepo.kernel.api.RdfLexicon.CONTAINS;
+import static org.fcrepo.kernel.api.RdfLexicon.DESCRIBED_BY;
+import static org.fcrepo.kernel.api.RdfLexicon.DESCRIBES;
 import static org.fcrepo.kernel.api.RdfLexicon.HAS_MIXIN_TYPE;
+import static org.fcrepo.kernel.api.RdfLexicon.NON_RDF_SOURCE;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.vocabulary.RDF;
 
 import org.fcrepo.client.FedoraDatastream;
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraObject;
 import org.fcrepo.client.FedoraResource;
+import org.fcrepo.client.NotFoundException;
 import org.fcrepo.client.utils.HttpHelper;
 
 import org.junit.Before;
@@ -61,8 +68,6 @@ public class FedoraObjectImplTest {
     @Mock
     HttpHelper mockHelper;
 
-    private FedoraObject object;
-
     private String objectPath = "/test/object";
     private String objectWithoutChildrenPath = "/test/objectWithoutChildren";
     private String datastreamChildPath = "/test/object/ds1";
@@ -76,9 +81,6 @@ public class FedoraObjectImplTest {
     private Node datastreamChildSubj = createURI(repositoryURL + datastreamChildPath);
     private FedoraObjectImpl objectWithChildren;
     private FedoraObjectImpl objectWithoutChildren;
-    private FedoraObject objectChild;
-    private FedoraObject customChild;
-    private FedoraDatastream datastreamChild;
 
     private static String BINARY = "fedora:Binary";
     private static String CONTAINER = "fedora:Container";
@@ -91,9 +93,6 @@ public class FedoraObjectImplTest {
 
         objectWithChildren = new FedoraObjectImpl(mockRepository, mockHelper, objectPath);
         objectWithoutChildren = new FedoraObjectImpl(mockRepository, mockHelper, objectWithoutChildrenPath);
-        objectChild = new FedoraObjectImpl(mockRepository, mockHelper, objectChildPath);
-        customChild = new FedoraObjectImpl(mockRepository, mockHelper, customChildPath);
-        datastreamChild = new FedoraDatastreamImpl(mockRepository, mockHelper, datastreamChildPath);
 
         final Graph graph = createDefaultGraph();
         graph.add( create(objectSubj, CONTAINS.asNode(), datastreamChildSubj) );
@@ -106,69 +105,174 @@ public class FedoraObjectImplTest {
         objectWithoutChildren.setGraph( createDefaultGraph() );
 
         when(mockRepository.getRepositoryUrl()).thenReturn(repositoryURL);
-        when(mockRepository.getObject(eq(objectPath))).thenReturn(objectWithChildren);
-        when(mockRepository.getObject(eq(objectChildPath))).thenReturn(objectChild);
-        when(mockRepository.getObject(eq(customChildPath))).thenReturn(customChild);
-        when(mockRepository.getDatastream(eq(datastreamChildPath))).thenReturn(datastreamChild);
     }
 
     @Test
     public void testGetChildren() throws FedoraException {
         final Collection<FedoraResource> children = objectWithChildren.getChildren(null);
-        verify(mockRepository).getObject(objectChildPath);
-        verify(mockRepository).getObject(customChildPath);
-        verify(mockRepository).getDatastream(datastreamChildPath);
-        assertTrue( children.contains(objectChild) );
-        assertTrue( children.contains(customChild) );
-        assertTrue( children.contains(datastreamChild) );
+        verify(mockRepository, never()).getObject(anyString());
+        verify(mockRepository, never()).getDatastream(anyString());
+        verify(mockHelper, never()).loadProperties(any(FedoraResourceImpl.class));
+        assertEquals( 3, children.size() );
+        assertTrue( child(children, objectChildPath) instanceof FedoraObject );
+        assertTrue( child(children, customChildPath) instanceof FedoraObject );
+        assertTrue( child(children, datastreamChildPath) instanceof FedoraDatastream );
+        for (final FedoraResource child : children) {
+            assertTrue( ((FedoraResourceImpl) child).isEmbedded() );
+        }
     }
 
     @Test
     public void testGetChildrenObjects() throws FedoraException {
         final Collection<FedoraResource> children = objectWithChildren.getChildren(CONTAINER);
-        verify(mockRepository).getObject(objectChildPath);
-        verify(mockRepository, never()).getObject(customChildPath);
-        verify(mockRepository, never()).getDatastream(datastreamChildPath);
-        assertTrue( children.contains(objectChild) );
-        assertFalse( children.contains(customChild) );
-        assertFalse( children.contains(datastreamChild) );
+        assertEquals( 1, children.size() );
+        assertTrue( child(children, objectChildPath) instanceof FedoraObject );
     }
 
     @Test
     public void testGetChildrenCustom() throws FedoraException {
         final Collection<FedoraResource> children = objectWithChildren.getChildren(CUSTOM);
-        verify(mockRepository, never()).getObject(objectChildPath);
-        verify(mockRepository).getObject(customChildPath);
-        verify(mockRepository, never()).getDatastream(datastreamChildPath);
-        assertFalse( children.contains(objectChild) );
-        assertTrue( children.contains(customChild) );
-        assertFalse( children.contains(datastreamChild) );
+        assertEquals( 1, children.size() );
+        assertTrue( child(children, customChildPath) instanceof FedoraObject );
     }
 
     @Test
     public void testGetChildrenDatastreams() throws FedoraException {
         final Collection<FedoraResource> children = objectWithChildren.getChildren(BINARY);
-        verify(mockRepository, never()).getObject(objectChildPath);
-        verify(mockRepository, never()).getObject(customChildPath);
-        verify(mockRepository).getDatastream(datastreamChildPath);
-        assertFalse( children.contains(objectChild) );
-        assertFalse( children.contains(customChild) );
-        assertTrue( children.contains(datastreamChild) );
+        assertEquals( 1, children.size() );
+        assertTrue( child(children, datastreamChildPath) instanceof FedoraDatastream );
     }
 
     @Test
     public void testGetChildrenNoChildren() throws FedoraException {
         final Collection<FedoraResource> children = objectWithoutChildren.getChildren(null);
-        verify(mockRepository, never()).getObject(anyString());
-        verify(mockRepository, never()).getDatastream(anyString());
         assertEquals( 0, children.size() );
     }
 
     @Test
     public void testGetChildrenNoMatch() throws FedoraException {
         final Collection<FedoraResource> children = objectWithChildren.getChildren(BOGUS_MIXIN);
-        verify(mockRepository, never()).getObject(anyString());
-        verify(mockRepository, never()).getDatastream(anyString());
         assertEquals( 0, children.size() );
     }
+
+    @Test
+    public void testGetChildrenTypeFromRdfType() throws FedoraException {
+        final Graph graph = createDefaultGraph();
+        graph.add( create(objectSubj, CONTAINS.asNode(), datastreamChildSubj) );
+        graph.add( create(datastreamChildSubj, RDF.type.asNode(), NON_RDF_SOURCE.asNode()) );
+        objectWithChildren.setGraph( graph );
+
+        final Collection<FedoraResource> children = objectWithChildren.getChildren(null);
+        assertTrue( child(children, datastreamChildPath) instanceof FedoraDatastream );
+    }
+
+    @Test
+    public void testEmbeddedChild() throws FedoraException {
+        final FedoraResourceImpl child =
+                (FedoraResourceImpl) child(objectWithChildren.getChildren(null), objectChildPath);
+        assertTrue( child.getMixins().contains(CONTAINER) );
+        verify(mockHelper, never()).loadProperties(any(FedoraResourceImpl.class));
+
+        when(mockHelper.loadProperties(child)).then(invocation -> {
+            child.setEtagValue("W/\"1\"");
+            child.setGraph(createDefaultGraph());
+            return child;
+        });
+        assertEquals( "W/\"1\"", child.getEtagValue() );
+        verify(mockHelper, times(1)).loadProperties(child);
+        assertFalse( child.isEmbedded() );
+    }
+
+    @Test
+    public void testEmbeddedDatastreamDescription() throws FedoraException {
+        final Node description = createURI(repositoryURL + datastreamChildPath + "/fcr:metadata");
+        final Graph graph = objectWithChildren.getGraph();
+        graph.add( create(datastreamChildSubj, DESCRIBED_BY.asNode(), description) );
+        graph.add( create(description, DESCRIBES.asNode(), datastreamChildSubj) );
+
+        final FedoraResourceImpl child =
+                (FedoraResourceImpl) child(objectWithChildren.getChildren(null), datastreamChildPath);
+        assertTrue( child.getGraph().contains(description, DESCRIBES.asNode(), datastreamChildSubj) );
+        assertFalse( child.getGraph().contains(objectSubj, Node.ANY, Node.ANY) );
+    }
+
+    @Test
+    public void testChildLoadedOnFirstAccess() throws FedoraException {
+        containmentOnly();
+        final FedoraResourceImpl child =
+                (FedoraResourceImpl) child(objectWithChildren.getChildren(null), objectChildPath);
+        when(mockHelper.loadProperties(child)).then(invocation -> {
+            child.setGraph(createDefaultGraph());
+            return child;
+        });
+
+        assertFalse( child.isLoaded() );
+        child.getMixins();
+        child.getCreatedDate();
+        verify(mockHelper, times(1)).loadProperties(child);
+        assertTrue( child.isLoaded() );
+    }
+
+    @Test
+    public void testGetChildrenParallel() throws FedoraException {
+        containmentOnly();
+        when(mockHelper.loadProperties(any(FedoraResourceImpl.class))).then(invocation -> {
+            final FedoraResourceImpl child = (FedoraResourceImpl) invocation.getArguments()[0];
+            child.setGraph(createDefaultGraph());
+            return child;
+        });
+
+        final Collection<FedoraResource> children = objectWithChildren.getChildren(null, 2);
+        assertEquals( 3, children.size() );
+        verify(mockHelper, times(3)).loadProperties(any(FedoraResourceImpl.class));
+        for (final FedoraResource child : children) {
+            assertTrue( ((FedoraResourceImpl) child).isLoaded() );
+        }
+    }
+
+    @Test
+    public void testGetChildrenOnExecutor() throws FedoraException {
+        containmentOnly();
+        when(mockHelper.loadProperties(any(FedoraResourceImpl.class))).then(invocation -> {
+            final FedoraResourceImpl child = (FedoraResourceImpl) invocation.getArguments()[0];
+            child.setGraph(createDefaultGraph());
+            return child;
+        });
+
+        final AtomicInteger tasks = new AtomicInteger();
+        final Collection<FedoraResource> children = objectWithChildren.getChildren(null, 2, task -> {
+            tasks.incrementAndGet();
+            task.run();
+        });
+        assertEquals( 3, children.size() );
+        assertEquals( "each task loads children until none are left", 2, tasks.get() );
+        for (final FedoraResource child : children) {
+            assertTrue( ((FedoraResourceImpl) child).isLoaded() );
+        }
+    }
+
+    @Test (expected = NotFoundException.class)
+    public void testGetChildrenParallelFailure() throws FedoraException {
+        containmentOnly();
+        when(mockHelper.loadProperties(any(FedoraResourceImpl.class))).thenThrow(new NotFoundException("gone"));
+        objectWithChildren.getChildren(null, 2);
+    }
+
+    private void containmentOnly() {
+        final Graph graph = createDefaultGraph();
+        graph.add( create(objectSubj, CONTAINS.asNode(), datastreamChildSubj) );
+        graph.add( create(objectSubj, CONTAINS.asNode(), objectChildSubj) );
+        graph.add( create(objectSubj, CONTAINS.asNode(), customChildSubj) );
+        objectWithChildren.setGraph( graph );
+    }
+
+    private static FedoraResource child(final Collection<FedoraResource> children, final String path)
+            throws FedoraException {
+        for (final FedoraResource child : children) {
+            if (child.getPath().equals(path)) {
+                return child;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,550 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singleton;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import org.apache.commons.io.IOUtils;
+import org.fcrepo.client.AlreadyExistsException;
+import org.fcrepo.client.FedoraContent;
+import org.fcrepo.client.FedoraDatastream;
+import org.fcrepo.client.FedoraException;
+import org.fcrepo.client.FedoraObject;
+import org.fcrepo.client.FedoraResource;
+import org.fcrepo.client.FixityException;
+import org.fcrepo.client.FixityResult;
+import org.fcrepo.client.LoadMode;
+import org.fcrepo.client.NotFoundException;
+import org.fcrepo.client.metrics.InMemoryMetricsRecorder;
+import org.fcrepo.client.metrics.Operation;
+import org.fcrepo.client.testing.FakeFedoraServer;
+import org.fcrepo.client.testing.FaultProfile;
+import org.fcrepo.client.utils.ContentNegotiation;
+import org.fcrepo.client.utils.ExponentialBackoffRetryPolicy;
+import org.fcrepo.client.utils.HttpClientConfig;
+import org.fcrepo.client.utils.NegativeCache;
+import org.fcrepo.client.utils.ResourceCache;
+import org.fcrepo.kernel.api.RdfLexicon;
+import org.apache.jena.riot.Lang;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Round trips between the client and an in-process fake repository.
+ * @author escowles
+ */
+public class FedoraRepositoryImplRoundTripTest {
+
+    private FakeFedoraServer server;
+    private FedoraRepositoryImpl repo;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeFedoraServer(0, 8);
+        repo = new FedoraRepositoryImpl(server.getRepositoryUrl() + "/", null, null, new HttpClientConfig()
+                .setRetryPolicy(new ExponentialBackoffRetryPolicy(3, 1, 10, 0.1, 10)));
+    }
+
+    @After
+    public void tearDown() {
+        repo.close();
+        server.close();
+    }
+
+    @Test
+    public void testCreateObjectAndDatastream() throws FedoraException {
+        final FedoraObject object = repo.createObject("obj");
+        assertNotNull(object.getCreatedDate());
+        assertTrue(object.isWritable());
+        assertTrue(object.getMixins().contains("fedora:Container"));
+
+        assertNotNull(repo.createDatastream("obj/ds", content("foo")));
+        assertTrue(repo.exists("obj/ds"));
+
+        try {
+            repo.createObject("obj");
+            fail("object should already exist");
+        } catch (final AlreadyExistsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCreateDatastreamFromFile() throws Exception {
+        final Path file = Files.createTempFile("content", ".txt");
+        try {
+            Files.write(file, "foo".getBytes(UTF_8));
+            final FedoraDatastream datastream = repo.createDatastream("obj/ds",
+                    new FedoraContent().setFile(file).setContentType("text/plain"));
+            assertEquals(Long.valueOf(3), datastream.getContentSize());
+            assertEquals("foo", IOUtils.toString(datastream.getContent(), UTF_8));
+
+            Files.write(file, "foobar".getBytes(UTF_8));
+            datastream.updateContent(new FedoraContent().setFile(file));
+            assertEquals("foobar", IOUtils.toString(datastream.getContent(), UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testDigestsComputedWhileSent() throws Exception {
+        final URI sha1 = URI.create("urn:sha1:0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33");
+        final FedoraContent content = new FedoraContent().setContent(new ByteArrayInputStream("foo".getBytes(UTF_8)))
+                .setContentType("text/plain").setDigestAlgorithms("SHA-256");
+        final FedoraDatastream datastream = repo.createDatastream("obj/ds", content);
+        assertEquals(sha1, content.getDigests().get("SHA-1"));
+        assertEquals(URI.create("urn:sha256:2c26b46b68ffc68ff99b453c1d30413413422d706483bfa0f98a5e886266e7ae"),
+                content.getDigests().get("SHA-256"));
+        assertEquals(sha1, datastream.getContentDigest());
+
+        final Path file = Files.createTempFile("content", ".txt");
+        try {
+            Files.write(file, "foobar".getBytes(UTF_8));
+            final FedoraContent update = new FedoraContent().setFile(file).setDigestAlgorithms();
+            datastream.updateContent(update);
+            assertEquals(datastream.getContentDigest(), update.getDigests().get("SHA-1"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testDigestsWithMetrics() throws Exception {
+        // the binary is overwritten once the upload completes, as a concurrent writer would
+        final InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder() {
+            @Override
+            public void operationCompleted(final Operation operation, final long nanos, final boolean failed) {
+                super.operationCompleted(operation, nanos, failed);
+                if (operation == Operation.UPDATE_CONTENT) {
+                    server.createBinary("/obj/ds", "bar".getBytes(UTF_8), "text/plain");
+                }
+            }
+        };
+        final FedoraRepositoryImpl counted = new FedoraRepositoryImpl(server.getRepositoryUrl() + "/", null, null,
+                new HttpClientConfig().setMetricsRecorder(metrics));
+        try {
+            final FedoraContent content = new FedoraContent()
+                    .setContent(new ByteArrayInputStream("foo".getBytes(UTF_8))).setDigestAlgorithms();
+            final FedoraDatastream datastream = counted.createDatastream("obj/ds", content);
+            assertEquals(URI.create("urn:sha1:0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33"),
+                    content.getDigests().get("SHA-1"));
+            assertEquals(3, metrics.getOperation(Operation.CREATE_DATASTREAM).getBytesSent());
+
+            final FedoraContent update = new FedoraContent()
+                    .setContent(new ByteArrayInputStream("foobar".getBytes(UTF_8))).setDigestAlgorithms();
+            try {
+                datastream.updateContent(update);
+                fail("content differing from the content sent should fail the update");
+            } catch (final FixityException e) {
+                assertEquals(URI.create("urn:sha1:8843d7f92416211de9ebb963ff4ce28125932878"),
+                        update.getDigests().get("SHA-1"));
+            }
+        } finally {
+            counted.close();
+        }
+    }
+
+    @Test
+    public void testFixity() throws Exception {
+        server.createBinary("/obj/bin", "foo".getBytes(UTF_8), "text/plain");
+        final FedoraDatastream datastream = repo.getDatastream("obj/bin", LoadMode.LAZY);
+        final URI sha1 = URI.create("urn:sha1:0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33");
+
+        FixityResult result = datastream.checkFixity();
+        assertTrue(result.isSuccess());
+        assertEquals(sha1, result.getComputedChecksum());
+        assertEquals(Long.valueOf(3), result.getComputedSize());
+        result = datastream.verifyContent();
+        assertTrue(result.isSuccess());
+        assertEquals(sha1, result.getComputedChecksum());
+
+        server.corruptBinary("/obj/bin", "fob".getBytes(UTF_8));
+        try {
+            datastream.checkFixity();
+            fail("damaged content should fail the fixity check");
+        } catch (final FixityException e) {
+            assertEquals(singleton(FixityResult.BAD_CHECKSUM), e.getResult().getOutcomes());
+        }
+        try {
+            datastream.verifyContent();
+            fail("damaged content should fail the verification");
+        } catch (final FixityException e) {
+            assertEquals(singleton(FixityResult.BAD_CHECKSUM), e.getResult().getOutcomes());
+        }
+    }
+
+    @Test
+    public void testDownloadTo() throws Exception {
+        final byte[] content = "the quick brown fox jumps".getBytes(UTF_8);
+        server.createBinary("/obj/bin", content, "text/plain");
+        server.createBinary("/obj/empty", new byte[0], "text/plain");
+        final FedoraRepositoryImpl ranged = new FedoraRepositoryImpl(server.getRepositoryUrl() + "/", null, null,
+                new HttpClientConfig().setDownloadSegmentSize(4).setDownloadParallelism(3));
+        final Path file = Files.createTempFile("content", ".txt");
+        try {
+            final long requests = server.getRequestCount();
+            assertEquals(content.length, ranged.getDatastream("obj/bin", LoadMode.LAZY).downloadTo(file));
+            assertArrayEquals(content, Files.readAllBytes(file));
+            assertEquals("one request per range", requests + 7, server.getRequestCount());
+
+            assertEquals(0, ranged.getDatastream("obj/empty", LoadMode.LAZY).downloadTo(file));
+            assertEquals(0, Files.size(file));
+
+            assertEquals(content.length, repo.getDatastream("obj/bin", LoadMode.LAZY).downloadTo(file));
+            assertArrayEquals(content, Files.readAllBytes(file));
+
+            try {
+                ranged.getDatastream("obj/missing", LoadMode.LAZY).downloadTo(file);
+                fail("missing datastream should not be downloaded");
+            } catch (final NotFoundException e) {
+                // expected
+            }
+        } finally {
+            ranged.close();
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testContentRanges() throws Exception {
+        final byte[] content = "the quick brown fox jumps".getBytes(UTF_8);
+        server.createBinary("/obj/bin", content, "text/plain");
+        final FedoraDatastream datastream = repo.getDatastream("obj/bin", LoadMode.LAZY);
+
+        assertEquals("quick", IOUtils.toString(datastream.getContent(4, 5), UTF_8));
+        assertEquals("jumps", IOUtils.toString(datastream.getContent(20, -1), UTF_8));
+        assertEquals("jumps", IOUtils.toString(datastream.getContent(20, 100), UTF_8));
+        assertEquals("", IOUtils.toString(datastream.getContent(25, 5), UTF_8));
+
+        final FedoraRepositoryImpl blocks = new FedoraRepositoryImpl(server.getRepositoryUrl() + "/", null, null,
+                new HttpClientConfig().setReadBlockSize(8).setReadCacheBlocks(2));
+        try (SeekableByteChannel channel = blocks.getDatastream("obj/bin", LoadMode.LAZY).openContentChannel()) {
+            final long requests = server.getRequestCount();
+            final ByteBuffer buffer = ByteBuffer.allocate(5);
+            channel.position(10);
+            assertEquals(5, channel.read(buffer));
+            assertEquals("brown", new String(buffer.array(), UTF_8));
+            assertEquals(25, channel.size());
+
+            buffer.clear();
+            channel.position(4);
+            assertEquals(5, channel.read(buffer));
+            assertEquals("quick", new String(buffer.array(), UTF_8));
+            assertEquals("reads within cached blocks reuse them", requests + 2, server.getRequestCount());
+
+            buffer.clear();
+            channel.position(20);
+            assertEquals("a read stops at a block not cached yet", 4, channel.read(buffer));
+            assertEquals(1, channel.read(buffer));
+            assertEquals("jumps", new String(buffer.array(), UTF_8));
+            buffer.clear();
+            assertEquals(-1, channel.read(buffer));
+            channel.position(100);
+            assertEquals(-1, channel.read(buffer));
+            assertEquals(requests + 4, server.getRequestCount());
+        } finally {
+            blocks.close();
+        }
+    }
+
+    @Test
+    public void testContentNegotiation() throws FedoraException {
+        repo.createObject("obj");
+        server.setSerializations(Lang.RDFTHRIFT, Lang.RDFXML);
+        final FedoraRepositoryImpl thrift = new FedoraRepositoryImpl(server.getRepositoryUrl() + "/", null, null,
+                new HttpClientConfig().setContentNegotiation(new ContentNegotiation(Lang.RDFTHRIFT, Lang.TURTLE)));
+        try {
+            assertTrue(thrift.getObject("obj").getMixins().contains("fedora:Container"));
+        } finally {
+            thrift.close();
+        }
+
+        // the default formats end with RDF/XML, which every Fedora server returns
+        assertTrue(repo.getObject("obj").getMixins().contains("fedora:Container"));
+    }
+
+    @Test
+    public void testLazyLoad() throws FedoraException {
+        repo.createObject("obj");
+        final long requests = server.getRequestCount();
+        final FedoraObject object = repo.getObject("obj", LoadMode.LAZY);
+        assertEquals("obj", object.getName());
+        assertEquals("lazy handles make no request", requests, server.getRequestCount());
+
+        assertTrue(object.getMixins().contains("fedora:Container"));
+        assertEquals("properties are loaded on first read", requests + 1, server.getRequestCount());
+
+        repo.setLoadMode(LoadMode.LAZY);
+        repo.getObject("obj").delete();
+        assertEquals("path-based operations never load the properties", requests + 2, server.getRequestCount());
+        assertTrue(server.isDeleted("obj"));
+
+        try {
+            repo.getDatastream("other/missing").getContent();
+            fail("missing datastream should be reported on first use");
+        } catch (final NotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFindOrCreate() throws FedoraException {
+        repo.setLoadMode(LoadMode.LAZY);
+        final long requests = server.getRequestCount();
+        repo.findOrCreateObject("obj");
+        assertEquals("a new object costs one request", requests + 1, server.getRequestCount());
+        assertTrue(server.exists("obj"));
+
+        repo.findOrCreateObject("obj");
+        assertEquals("an existing object costs one request", requests + 2, server.getRequestCount());
+
+        repo.setLoadMode(LoadMode.EAGER);
+        assertTrue(repo.findOrCreateObject("obj").getMixins().contains("fedora:Container"));
+    }
+
+    @Test
+    public void testResourceCache() throws FedoraException {
+        final ResourceCache cache = new ResourceCache();
+        final FedoraRepositoryImpl cached = new FedoraRepositoryImpl(server.getRepositoryUrl() + "/", null, null,
+                new HttpClientConfig().setResourceCache(cache));
+        try {
+            cached.createObject("obj");
+            final FedoraObject first = cached.getObject("obj");
+            final FedoraObject second = cached.getObject("obj");
+            assertEquals(first.getEtagValue(), second.getEtagValue());
+            // createObject loaded the properties, so both loads are revalidated
+            assertEquals(2, cache.getRevalidations());
+            assertEquals(1, cache.getMisses());
+
+            // local writes invalidate the cached properties
+            second.updateProperties("INSERT DATA { <> <" + RdfLexicon.DC_NAMESPACE + "identifier> 'test' . }");
+            final long requests = server.getRequestCount();
+            final FedoraObject third = cached.getObject("obj");
+            final Node identifier = NodeFactory.createURI(RdfLexicon.DC_NAMESPACE + "identifier");
+            assertEquals("test", ((FedoraObjectImpl) third).getGraph().find(null, identifier, null).next()
+                    .getObject().getLiteralLexicalForm());
+            assertEquals(requests + 1, server.getRequestCount());
+            assertNotEquals(first.getEtagValue(), third.getEtagValue());
+
+            third.delete();
+            try {
+                cached.getObject("obj");
+                fail("deleted object should not be served from the cache");
+            } catch (final FedoraException e) {
+                // expected
+            }
+        } finally {
+            cached.close();
+        }
+    }
+
+    @Test
+    public void testCachesInvalidatedByChecksummedContent() throws FedoraException {
+        final ResourceCache cache = new ResourceCache(1000000, 1, TimeUnit.HOURS);
+        final FedoraRepositoryImpl cached = new FedoraRepositoryImpl(server.getRepositoryUrl() + "/", null, null,
+                new HttpClientConfig().setResourceCache(cache).setNegativeCache(new NegativeCache()));
+        try {
+            final URI foo = URI.create("urn:sha1:0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33");
+            final URI bar = URI.create("urn:sha1:62cdb7020ff920e5aa642c3d4066950dd1f01f4d");
+
+            // content is sent to "path?checksum=...", which must invalidate the absence of "path"
+            assertFalse(cached.exists("obj/ds"));
+            cached.createDatastream("obj/ds", content("foo").setChecksum(foo));
+            assertTrue(cached.exists("obj/ds"));
+            assertEquals(foo, cached.getDatastream("obj/ds").getContentDigest());
+
+            // and the cached description of the binary, which is fresh for an hour
+            cached.getDatastream("obj/ds").updateContent(content("bar").setChecksum(bar));
+            assertEquals(bar, cached.getDatastream("obj/ds").getContentDigest());
+        } finally {
+            cached.close();
+        }
+    }
+
+    @Test
+    public void testNegativeCache() throws FedoraException {
+        final NegativeCache cache = new NegativeCache();
+        final FedoraRepositoryImpl cached = new FedoraRepositoryImpl(server.getRepositoryUrl() + "/", null, null,
+                new HttpClientConfig().setNegativeCache(cache));
+        try {
+            assertFalse(cached.exists("parent/obj"));
+            final long requests = server.getRequestCount();
+            assertFalse(cached.exists("parent/obj"));
+            try {
+                cached.getObject("parent/obj");
+                fail("absent object should not be found");
+            } catch (final NotFoundException e) {
+                // expected
+            }
+            assertEquals("absent paths are answered in memory", requests, server.getRequestCount());
+            assertEquals(2, cache.getHits());
+
+            // creating the object, or a descendant, invalidates it
+            cached.createObject("parent/obj/child");
+            assertTrue(cached.exists("parent/obj"));
+            assertTrue(cached.findOrCreateObject("parent/obj").getPath().endsWith("parent/obj"));
+        } finally {
+            cached.close();
+        }
+    }
+
+    @Test
+    public void testNegativeCacheInvalidatedByAsyncWrites() throws Exception {
+        final HttpClientConfig config = new HttpClientConfig().setNegativeCache(new NegativeCache());
+        final AsyncFedoraRepositoryImpl async = new AsyncFedoraRepositoryImpl(server.getRepositoryUrl() + "/",
+                null, null, config);
+        try {
+            assertFalse(async.repository.exists("parent/obj"));
+
+            // the asynchronous write invalidates the absence cached by the blocking client it shares caches with
+            async.createObject("parent/obj/child").get();
+            assertTrue(async.repository.exists("parent/obj"));
+            assertTrue(async.repository.exists("parent/obj/child"));
+        } finally {
+            async.close();
+        }
+    }
+
+    @Test
+    public void testGetChildren() throws FedoraException {
+        repo.createObject("obj/child");
+        repo.createDatastream("obj/ds", content("foo"));
+        final FedoraObject object = repo.getObject("obj");
+        final long requests = server.getRequestCount();
+        final Collection<FedoraResource> children = object.getChildren(null);
+        assertEquals(2, children.size());
+        int datastreams = 0;
+        for (final FedoraResource child : children) {
+            if (child instanceof FedoraDatastream) {
+                datastreams++;
+            }
+            assertNotNull(child.getCreatedDate());
+        }
+        assertEquals(1, datastreams);
+        assertEquals("children are read from the embedded triples", requests, server.getRequestCount());
+    }
+
+    @Test
+    public void testCreateResource() throws FedoraException {
+        final FedoraObject object = repo.createResource("");
+        assertTrue(repo.exists(object.getPath()));
+        final FedoraObject contained = object.createObject();
+        assertTrue(contained.getPath().startsWith(object.getPath()));
+    }
+
+    @Test
+    public void testUpdateProperties() throws FedoraException {
+        final FedoraObject object = repo.createObject("obj");
+        object.updateProperties("INSERT DATA { <> <" + RdfLexicon.DC_NAMESPACE + "identifier> 'test' . }");
+        final FedoraResourceImpl reloaded = (FedoraResourceImpl) repo.getObject("obj");
+        assertTrue(reloaded.getGraph().contains(NodeFactory.createURI(server.getRepositoryUrl() + "/obj"),
+                NodeFactory.createURI(RdfLexicon.DC_NAMESPACE + "identifier"), NodeFactory.createLiteral("test")));
+    }
+
+    @Test
+    public void testWriteWithoutReload() throws FedoraException {
+        repo.setWriteLoadMode(LoadMode.LAZY);
+        final long requests = server.getRequestCount();
+        final FedoraObject object = repo.createObject("obj");
+        final String created = object.getEtagValue();
+        assertNotNull("the ETag of the create is kept", created);
+        object.updateProperties("INSERT DATA { <> <" + RdfLexicon.DC_NAMESPACE + "identifier> 'test' . }");
+        final String updated = object.getEtagValue();
+        assertNotNull("the ETag of the update is kept", updated);
+        assertNotEquals(created, updated);
+        assertEquals("writes are not followed by a reload", requests + 2, server.getRequestCount());
+
+        assertTrue(((FedoraResourceImpl) object).loadedGraph().contains(
+                NodeFactory.createURI(server.getRepositoryUrl() + "/obj"),
+                NodeFactory.createURI(RdfLexicon.DC_NAMESPACE + "identifier"), NodeFactory.createLiteral("test")));
+        assertEquals("stale properties are reloaded when read", requests + 3, server.getRequestCount());
+        assertEquals(updated, object.getEtagValue());
+    }
+
+    @Test
+    public void testMoveCopyAndDelete() throws FedoraException {
+        final FedoraObject object = repo.createObject("obj");
+        object.copy("copy");
+        assertTrue(repo.exists("copy"));
+
+        object.forceMove("moved");
+        assertTrue(repo.exists("moved"));
+        assertFalse(server.isDeleted("/obj"));
+
+        final FedoraObject moved = repo.getObject("moved");
+        moved.delete();
+        try {
+            repo.getObject("moved");
+            fail("object should be deleted");
+        } catch (final FedoraException e) {
+            assertTrue(e.getMessage().contains("410"));
+        }
+        moved.removeTombstone();
+        try {
+            repo.getObject("moved");
+            fail("tombstone should be removed");
+        } catch (final NotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testVersionSnapshot() throws FedoraException {
+        repo.createObject("obj").createVersionSnapshot("v1");
+        assertTrue(repo.exists("obj/fcr:versions/v1"));
+    }
+
+    @Test
+    public void testRetriesInjectedErrors() throws FedoraException {
+        repo.createObject("obj");
+        final long before = server.getRequestCount();
+        server.setFaultProfile(new FaultProfile().setErrorRate(1.0));
+        try {
+            repo.getObject("obj");
+            fail("request should fail");
+        } catch (final FedoraException e) {
+            assertTrue(e.getMessage().contains("503"));
+        }
+        assertEquals(3, server.getRequestCount() - before);
+    }
+
+    private static FedoraContent content(final String value) {
+        return new FedoraContent().setContent(new ByteArrayInputStream(value.getBytes(UTF_8)))
+                .setContentType("text/plain");
+    }
+}
@@ -17,9 +17,11 @@ package org.fcrepo.client.impl;
 
 import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
 import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static org.apache.http.HttpStatus.SC_CONFLICT;
 import static org.apache.http.HttpStatus.SC_CREATED;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_PRECONDITION_FAILED;
 import static org.fcrepo.kernel.api.RdfLexicon.HAS_PRIMARY_IDENTIFIER;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -29,9 +31,10 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -40,22 +43,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 
-import org.fcrepo.client.NotFoundException;
-
 import com.hp.hpl.jena.graph.Graph;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.message.BasicHttpResponse;
 import org.fcrepo.client.FedoraContent;
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraObject;
 import org.fcrepo.client.utils.HttpHelper;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 /**
@@ -181,25 +185,55 @@ public class FedoraRepositoryImplTest {
     }
 
     @Test
-    public void testFindOrCreateObject() throws FedoraException {
+    public void testFindOrCreateObject() throws IOException, FedoraException {
         final FedoraRepositoryImpl spy = spy( new FedoraRepositoryImpl(testRepositoryUrl, mockClient) );
         final FedoraObject mockObject = mock(FedoraObject.class);
         doReturn(mockObject).when(spy).getObject(anyString());
+        when(mockClient.execute(any(HttpUriRequest.class))).thenReturn(mockResponse);
+        when(mockResponse.getStatusLine()).thenReturn(mockStatusLine);
+        when(mockStatusLine.getStatusCode()).thenReturn(SC_PRECONDITION_FAILED);
 
         final FedoraObject object = spy.findOrCreateObject("/foo");
         assertEquals(mockObject, object);
+        verify(spy, never()).createObject(anyString());
+    }
+
+    @Test
+    public void testFindOrCreateObjectConflictExists() throws IOException, FedoraException {
+        final FedoraRepositoryImpl spy = spy( new FedoraRepositoryImpl(testRepositoryUrl, mockClient) );
+        final FedoraObject mockObject = mock(FedoraObject.class);
+        doReturn(mockObject).when(spy).getObject(anyString());
+        when(mockClient.execute(any(HttpUriRequest.class))).thenReturn(response(SC_CONFLICT), response(SC_OK));
+
+        assertEquals(mockObject, spy.findOrCreateObject("/foo"));
+        verify(spy).exists("/foo");
+    }
+
+    @Test (expected = FedoraException.class)
+    public void testFindOrCreateObjectConflictAbsent() throws IOException, FedoraException {
+        final FedoraRepositoryImpl spy = spy( new FedoraRepositoryImpl(testRepositoryUrl, mockClient) );
+        when(mockClient.execute(any(HttpUriRequest.class))).thenReturn(response(SC_CONFLICT),
+                response(SC_NOT_FOUND));
+
+        spy.findOrCreateObject("/foo");
     }
 
     @Test
-    public void testFindOrCreateObjectNonExistent() throws FedoraException {
+    public void testFindOrCreateObjectNonExistent() throws IOException, FedoraException {
         final FedoraRepositoryImpl spy = spy( new FedoraRepositoryImpl(testRepositoryUrl, mockClient) );
-        final NotFoundException mockException = mock(NotFoundException.class);
-        doThrow(mockException).when(spy).getObject(anyString());
         final FedoraObject mockObject = mock(FedoraObject.class);
-        doReturn(mockObject).when(spy).createObject(anyString());
+        doReturn(mockObject).when(spy).getObject(anyString());
+        when(mockClient.execute(any(HttpUriRequest.class))).thenReturn(mockResponse);
+        when(mockResponse.getStatusLine()).thenReturn(mockStatusLine);
+        when(mockStatusLine.getStatusCode()).thenReturn(SC_CREATED);
 
         final FedoraObject object = spy.findOrCreateObject("/foo");
         assertEquals(mockObject, object);
+
+        final ArgumentCaptor<HttpUriRequest> request = ArgumentCaptor.forClass(HttpUriRequest.class);
+        verify(mockClient).execute(request.capture());
+        assertEquals("PUT", request.getValue().getMethod());
+        assertEquals("*", request.getValue().getFirstHeader("If-None-Match").getValue());
     }
 
     @Test
@@ -255,4 +289,8 @@ public class FedoraRepositoryImplTest {
         assertEquals( mime, put.getFirstHeader("Content-Type").getValue() );
         assertEquals( "attachment; filename=\"" + fn + "\"", put.getFirstHeader("Content-Disposition").getValue() );
     }
+
+    private static HttpResponse response(final int statusCode) {
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, null);
+    }
 }
@@ -39,6 +39,7 @@ import org.apache.http.client.methods.HttpPut;
 
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraRepository;
+import org.fcrepo.client.metrics.Operation;
 import org.fcrepo.client.utils.HttpHelper;
 import org.fcrepo.kernel.api.RdfLexicon;
 import org.junit.Before;
@@ -157,13 +158,13 @@ public class FedoraResourceImplTest {
         final HttpResponse mockResponse = mock(HttpResponse.class);
         final StatusLine mockStatus = mock(StatusLine.class);
         final HttpPatch patch = new HttpPatch(repositoryURL);
-        when(mockHelper.execute(any(HttpPatch.class))).thenReturn(mockResponse);
+        when(mockHelper.execute(any(Operation.class), any(HttpPatch.class))).thenReturn(mockResponse);
         when(mockResponse.getStatusLine()).thenReturn(mockStatus);
         when(mockStatus.getStatusCode()).thenReturn(204);
         when(mockHelper.createPatchMethod(anyString(), anyString())).thenReturn(patch);
 
         resource.updateProperties("test sparql update");
-        verify(mockHelper).execute(patch);
+        verify(mockHelper).execute(Operation.UPDATE_PROPERTIES, patch);
         verify(mockHelper).loadProperties(resource);
     }
 
@@ -172,14 +173,14 @@ public class FedoraResourceImplTest {
         final HttpResponse mockResponse = mock(HttpResponse.class);
         final StatusLine mockStatus = mock(StatusLine.class);
         final HttpPut put = new HttpPut(repositoryURL);
-        when(mockHelper.execute(any(HttpPatch.class))).thenReturn(mockResponse);
+        when(mockHelper.execute(any(Operation.class), any(HttpPatch.class))).thenReturn(mockResponse);
         when(mockResponse.getStatusLine()).thenReturn(mockStatus);
         when(mockStatus.getStatusCode()).thenReturn(204);
         when(mockHelper.createTriplesPutMethod(anyString(), any(InputStream.class), anyString())).thenReturn(put);
 
         final InputStream in = new ByteArrayInputStream("dummy rdf content".getBytes());
         resource.updateProperties(in, "text/n3");
-        verify(mockHelper).execute(put);
+        verify(mockHelper).execute(Operation.UPDATE_PROPERTIES, put);
         verify(mockHelper).loadProperties(resource);
     }
 
@@ -188,13 +189,13 @@ public class FedoraResourceImplTest {
         final HttpResponse mockResponse = mock(HttpResponse.class);
         final StatusLine mockStatus = mock(StatusLine.class);
         final HttpPost post = new HttpPost(repositoryURL);
-        when(mockHelper.execute(any(HttpPost.class))).thenReturn(mockResponse);
+        when(mockHelper.execute(any(Operation.class), any(HttpPost.class))).thenReturn(mockResponse);
         when(mockResponse.getStatusLine()).thenReturn(mockStatus);
         when(mockStatus.getStatusCode()).thenReturn(204);
         when(mockHelper.createPostMethod(anyString(), any(Map.class))).thenReturn(post);
         final String label = "examplelabel";
         resource.createVersionSnapshot(label);
-        verify(mockHelper).execute(post);
+        verify(mockHelper).execute(Operation.CREATE_VERSION, post);
         assertEquals(label, post.getFirstHeader("Slug").getValue());
     }
 }
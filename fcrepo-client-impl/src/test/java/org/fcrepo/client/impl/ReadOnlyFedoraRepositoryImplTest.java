@@ -74,7 +74,7 @@ public class ReadOnlyFedoraRepositoryImplTest extends FedoraRepositoryImplTest {
     }
 
     @Test
-    public void testFindOrCreateObject() throws FedoraException {
+    public void testFindOrCreateObject() throws IOException, FedoraException {
         super.testFindOrCreateObject();
     }
 
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.metrics;
+
+import static org.fcrepo.client.metrics.Operation.GET_CONTENT;
+import static org.fcrepo.client.metrics.Operation.GET_OBJECT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.junit.Test;
+
+/**
+ * In-memory metrics recorder test
+ * @author escowles
+ */
+public class InMemoryMetricsRecorderTest {
+
+    @Test
+    public void testRecordAndExport() {
+        final InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+        recorder.requestCompleted(GET_OBJECT, 503, 2000);
+        recorder.requestCompleted(GET_OBJECT, 200, 1000);
+        recorder.operationCompleted(GET_OBJECT, 5000, false);
+        recorder.parseCompleted(GET_OBJECT, 700);
+        recorder.bytesReceived(GET_OBJECT, 1234);
+        recorder.leaseCompleted(10);
+
+        final InMemoryMetricsRecorder.OperationMetrics metrics = recorder.getOperation(GET_OBJECT);
+        assertEquals(2, metrics.getNetwork().getCount());
+        assertEquals(1, metrics.getLatency().getCount());
+        assertEquals(Long.valueOf(1), metrics.getStatusCounts().get(503));
+        assertEquals(1234, metrics.getBytesReceived());
+
+        final Map<String, Number> map = recorder.toMap();
+        assertEquals(1L, map.get("getObject.status.200"));
+        assertEquals(5000L, map.get("getObject.latency.max"));
+        assertEquals(700L, map.get("getObject.parse.p99"));
+        assertEquals(1L, map.get("pool.leaseWait.count"));
+        assertFalse(map.containsKey("delete.latency.count"));
+
+        recorder.reset();
+        assertEquals(0, recorder.getOperation(GET_OBJECT).getLatency().getCount());
+        assertEquals(0, recorder.getLeaseWait().getCount());
+    }
+
+    @Test
+    public void testCountingEntity() throws Exception {
+        final InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+        final CountingEntity entity = new CountingEntity(new ByteArrayEntity(new byte[100]),
+                bytes -> recorder.bytesReceived(GET_CONTENT, bytes));
+        try (final InputStream in = entity.getContent()) {
+            IOUtils.toByteArray(in);
+        }
+        assertEquals(100, recorder.getOperation(GET_CONTENT).getBytesReceived());
+
+        final CountingEntity sent = new CountingEntity(new ByteArrayEntity(new byte[42]),
+                bytes -> recorder.bytesSent(GET_CONTENT, bytes));
+        sent.writeTo(new ByteArrayOutputStream());
+        assertEquals(42, recorder.getOperation(GET_CONTENT).getBytesSent());
+    }
+}
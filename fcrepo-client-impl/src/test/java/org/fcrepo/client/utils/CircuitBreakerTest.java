@@ -0,0 +1,135 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.fcrepo.client.utils.CircuitBreaker.State.CLOSED;
+import static org.fcrepo.client.utils.CircuitBreaker.State.HALF_OPEN;
+import static org.fcrepo.client.utils.CircuitBreaker.State.OPEN;
+import static org.junit.Assert.assertEquals;
+
+import org.apache.http.client.methods.HttpGet;
+import org.fcrepo.client.CircuitBreakerOpenException;
+import org.junit.Test;
+
+/**
+ * Circuit breaker test
+ * @author escowles
+ */
+public class CircuitBreakerTest {
+
+    private static final String route = "http://localhost:8080";
+
+    @Test
+    public void testRoute() {
+        assertEquals(route, CircuitBreaker.route(new HttpGet("http://localhost:8080/rest/foo")));
+        assertEquals("https://example.org:443", CircuitBreaker.route(new HttpGet("https://example.org/rest")));
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(10, 5, 0.5, 1.0, 1000, 60000, 1);
+        for (int i = 0; i < 4; i++) {
+            breaker.acquirePermission(route);
+            breaker.onResult(route, 1, true);
+        }
+        assertEquals(CLOSED, breaker.getState(route));
+    }
+
+    @Test
+    public void testOpensOnFailureRate() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, 1.0, 1000, 60000, 1);
+        breaker.onResult(route, 1, false);
+        breaker.onResult(route, 1, false);
+        breaker.onResult(route, 1, true);
+        assertEquals(CLOSED, breaker.getState(route));
+        breaker.onResult(route, 1, true);
+        assertEquals(OPEN, breaker.getState(route));
+        assertEquals(OPEN, breaker.getStates().get(route));
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        final CircuitBreaker breaker = new CircuitBreaker(4, 2, 1.0, 0.5, 100, 60000, 1);
+        breaker.onResult(route, 1, false);
+        breaker.onResult(route, 500, false);
+        assertEquals(OPEN, breaker.getState(route));
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        final CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, 1.0, 1000, 60000, 1);
+        breaker.onResult(route, 1, true);
+        for (int i = 0; i < 6; i++) {
+            breaker.onResult(route, 1, false);
+        }
+        // the early failure has left the window
+        breaker.onResult(route, 1, true);
+        assertEquals(CLOSED, breaker.getState(route));
+    }
+
+    @Test (expected = CircuitBreakerOpenException.class)
+    public void testRejectsWhenOpen() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 2, 0.5, 1.0, 1000, 60000, 1);
+        breaker.onResult(route, 1, true);
+        breaker.onResult(route, 1, true);
+        breaker.acquirePermission(route);
+    }
+
+    @Test
+    public void testOtherRoutesUnaffected() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 2, 0.5, 1.0, 1000, 60000, 1);
+        breaker.onResult(route, 1, true);
+        breaker.onResult(route, 1, true);
+        breaker.acquirePermission("http://localhost:8081");
+        assertEquals(CLOSED, breaker.getState("http://localhost:8081"));
+    }
+
+    @Test
+    public void testHalfOpenCloses() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 2, 0.5, 1.0, 1000, 0, 2);
+        breaker.onResult(route, 1, true);
+        breaker.onResult(route, 1, true);
+        assertEquals(HALF_OPEN, breaker.getState(route));
+
+        breaker.acquirePermission(route);
+        breaker.acquirePermission(route);
+        try {
+            breaker.acquirePermission(route);
+            throw new AssertionError("only two trial calls should be allowed");
+        } catch (final CircuitBreakerOpenException e) {
+            // expected
+        }
+        breaker.onResult(route, 1, false);
+        breaker.onResult(route, 1, false);
+        assertEquals(CLOSED, breaker.getState(route));
+    }
+
+    @Test
+    public void testHalfOpenReopens() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 2, 0.5, 1.0, 1000, 60000, 1);
+        breaker.onResult(route, 1, true);
+        breaker.onResult(route, 1, true);
+
+        final CircuitBreaker quick = new CircuitBreaker(2, 2, 0.5, 1.0, 1000, 0, 1);
+        quick.onResult(route, 1, true);
+        quick.onResult(route, 1, true);
+        quick.acquirePermission(route);
+        quick.onResult(route, 1, true);
+        // open duration is zero, so a re-opened route is immediately half-open again
+        assertEquals(HALF_OPEN, quick.getState(route));
+        assertEquals(OPEN, breaker.getState(route));
+    }
+}
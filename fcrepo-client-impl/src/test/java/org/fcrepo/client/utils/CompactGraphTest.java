@@ -0,0 +1,129 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static com.hp.hpl.jena.graph.Factory.createDefaultGraph;
+import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
+import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static com.hp.hpl.jena.graph.Triple.create;
+import static org.fcrepo.kernel.api.RdfLexicon.CONTAINS;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_MIXIN_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.shared.AddDeniedException;
+
+/**
+ * CompactGraph test
+ * @author escowles
+ */
+public class CompactGraphTest {
+
+    private static final String BASE = "http://localhost:8080/rest/";
+
+    private final Node parent = createURI(BASE + "parent");
+    private final Node child1 = createURI(BASE + "parent/child1");
+    private final Node child2 = createURI(BASE + "parent/child2");
+
+    private Graph reference;
+
+    @Before
+    public void setUp() {
+        reference = createDefaultGraph();
+        reference.add(create(parent, CONTAINS.asNode(), child1));
+        reference.add(create(parent, CONTAINS.asNode(), child2));
+        reference.add(create(parent, HAS_MIXIN_TYPE.asNode(), createLiteral("fedora:Container")));
+        reference.add(create(child1, HAS_MIXIN_TYPE.asNode(),
+                createLiteral("fedora:Binary", null, XSDDatatype.XSDstring)));
+        reference.add(create(child2, HAS_MIXIN_TYPE.asNode(), createLiteral("fedora:Container")));
+    }
+
+    @Test
+    public void testFind() {
+        final CompactGraph graph = CompactGraph.copyOf(reference);
+        assertEquals(5, graph.size());
+        assertEquals(7, graph.getNodeCount());
+        assertEquals(3, graph.find(parent, Node.ANY, Node.ANY).toList().size());
+        assertEquals(2, graph.find(parent, CONTAINS.asNode(), Node.ANY).toList().size());
+        assertEquals(3, graph.find(Node.ANY, HAS_MIXIN_TYPE.asNode(), Node.ANY).toList().size());
+        assertEquals(1, graph.find(Node.ANY, Node.ANY, child2).toList().size());
+        assertTrue(graph.contains(parent, CONTAINS.asNode(), child1));
+        assertFalse(graph.contains(child1, CONTAINS.asNode(), parent));
+        assertFalse(graph.contains(createURI(BASE + "missing"), Node.ANY, Node.ANY));
+    }
+
+    @Test
+    public void testLiteralsMatchByValue() {
+        final CompactGraph graph = CompactGraph.copyOf(reference);
+        assertTrue(graph.contains(child1, HAS_MIXIN_TYPE.asNode(), createLiteral("fedora:Binary")));
+        assertEquals(reference.find(Node.ANY, HAS_MIXIN_TYPE.asNode(), createLiteral("fedora:Binary")).toList(),
+                graph.find(Node.ANY, HAS_MIXIN_TYPE.asNode(), createLiteral("fedora:Binary")).toList());
+    }
+
+    @Test
+    public void testDuplicatesStoredOnce() {
+        final CompactGraph.Builder builder = new CompactGraph.Builder();
+        builder.send(create(parent, CONTAINS.asNode(), child1));
+        builder.send(create(parent, CONTAINS.asNode(), child1));
+        assertEquals(1, builder.build().size());
+    }
+
+    @Test (expected = AddDeniedException.class)
+    public void testImmutable() {
+        CompactGraph.copyOf(reference).add(create(child1, CONTAINS.asNode(), child2));
+    }
+
+    @Test
+    public void testMatchesDefaultGraph() {
+        final Random random = new Random(42);
+        final Graph graph = createDefaultGraph();
+        final CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (int i = 0; i < 2000; i++) {
+            final Node o = random.nextBoolean() ? createURI(BASE + random.nextInt(50))
+                    : createLiteral(String.valueOf(random.nextInt(20)));
+            final Node p = createURI(BASE + "p" + random.nextInt(10));
+            final Triple t = create(createURI(BASE + random.nextInt(50)), p, o);
+            graph.add(t);
+            builder.send(t);
+        }
+        assertSameTriples(graph, builder.build());
+        assertSameTriples(graph, builder.buildBoxed());
+    }
+
+    private static void assertSameTriples(final Graph expected, final CompactGraph actual) {
+        assertEquals(expected.size(), actual.size());
+        final Node[] patterns = { Node.ANY, createURI(BASE + "7"), createURI(BASE + "p3"), createLiteral("5") };
+        for (final Node s : patterns) {
+            for (final Node p : patterns) {
+                for (final Node o : patterns) {
+                    final Set<Triple> found = actual.find(s, p, o).toSet();
+                    assertEquals(expected.find(s, p, o).toSet(), found);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.fcrepo.client.ConcurrencyLimitException;
+import org.junit.Test;
+
+/**
+ * Concurrency limiter test
+ * @author escowles
+ */
+public class ConcurrencyLimiterTest {
+
+    private static final long MS = 1000000;
+
+    @Test
+    public void testRejectsOverLimit() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 1.5, 0.9, 0.2, 10, 0);
+        limiter.acquire();
+        limiter.acquire();
+        assertEquals(2, limiter.getInFlight());
+        try {
+            limiter.acquire();
+            throw new AssertionError("expected ConcurrencyLimitException");
+        } catch (final ConcurrencyLimitException e) {
+            assertEquals(1, limiter.getRejected());
+        }
+        limiter.abort();
+        limiter.acquire();
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void testQueuedCallerProceeds() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1.5, 0.9, 0.2, 10, 10000);
+        limiter.acquire();
+        final Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waiter.start();
+        while (limiter.getWaiting() == 0) {
+            Thread.sleep(1);
+        }
+        limiter.release(MS, false);
+        waiter.join(10000);
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getWaiting());
+    }
+
+    @Test
+    public void testGrowsWithSteadyLatency() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 100, 1.5, 0.9, 0.5, 10, 0);
+        for (int i = 0; i < 20; i++) {
+            saturate(limiter, 10 * MS, false);
+        }
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    public void testDoesNotGrowWhenIdle() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 1.5, 0.9, 0.5, 10, 0);
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire();
+            limiter.release(10 * MS, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void testShrinksWithRisingLatency() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 1, 100, 1.5, 0.9, 0.5, 100, 0);
+        saturate(limiter, 10 * MS, false);
+        final int limit = limiter.getLimit();
+        saturate(limiter, 100 * MS, false);
+        assertTrue(limiter.getLimit() < limit);
+    }
+
+    @Test
+    public void testShrinksOnDrop() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 2, 100, 1.5, 0.5, 1.0, 10, 0);
+        limiter.acquire();
+        limiter.release(MS, true);
+        assertEquals(10, limiter.getLimit());
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.release(MS, true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    private static void saturate(final ConcurrencyLimiter limiter, final long latency, final boolean dropped)
+            throws Exception {
+        final int permits = limiter.getLimit();
+        for (int i = 0; i < permits; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < permits; i++) {
+            limiter.release(latency, dropped);
+        }
+    }
+}
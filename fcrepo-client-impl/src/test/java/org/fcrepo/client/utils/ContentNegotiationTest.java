@@ -0,0 +1,65 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.jena.riot.Lang;
+import org.junit.Test;
+
+/**
+ * Content negotiation test
+ * @author escowles
+ */
+public class ContentNegotiationTest {
+
+    @Test
+    public void testDefaultAcceptHeader() {
+        assertEquals("application/n-triples, text/turtle;q=0.9, application/rdf+xml;q=0.8",
+                new ContentNegotiation().getAcceptHeader());
+    }
+
+    @Test
+    public void testFallback() {
+        final ContentNegotiation negotiation = new ContentNegotiation(Lang.RDFTHRIFT, Lang.NTRIPLES);
+        final String first = negotiation.getAcceptHeader();
+        assertTrue(negotiation.notAcceptable(first));
+        assertEquals("application/n-triples", negotiation.getAcceptHeader());
+        assertEquals(Arrays.asList(Lang.NTRIPLES), negotiation.getFormats());
+
+        // a request sent before the fallback is retried without dropping another format
+        assertTrue(negotiation.notAcceptable(first));
+        assertEquals(1, negotiation.getFallbacks());
+
+        assertFalse(negotiation.notAcceptable("application/n-triples"));
+        assertEquals(1, negotiation.getFallbacks());
+    }
+
+    @Test
+    public void testLang() {
+        assertEquals(Lang.TURTLE, ContentNegotiation.lang("text/turtle;charset=utf-8"));
+        assertEquals(Lang.NTRIPLES, ContentNegotiation.lang("application/n-triples"));
+        assertEquals(Lang.RDFXML, ContentNegotiation.lang(" Application/RDF+XML "));
+        assertEquals(Lang.RDFTHRIFT, ContentNegotiation.lang("application/rdf+thrift"));
+        assertNull(ContentNegotiation.lang("image/png"));
+        assertNull(ContentNegotiation.lang(null));
+    }
+}
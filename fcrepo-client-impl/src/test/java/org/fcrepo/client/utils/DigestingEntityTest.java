@@ -0,0 +1,91 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.fcrepo.client.FixityException;
+import org.junit.Test;
+
+/**
+ * Digesting entity test
+ * @author escowles
+ */
+public class DigestingEntityTest {
+
+    private static final URI SHA1 = URI.create("urn:sha1:2a6d6229e30f667c60d406f7bf44d834e52d11b7");
+    private static final URI MD5 = URI.create("urn:md5:90c55a38064627dca337dfa5fc5be120");
+
+    private static DigestingEntity entity() {
+        return new DigestingEntity(new ByteArrayEntity("dummy content".getBytes(UTF_8)),
+                Arrays.asList("SHA-1", "MD5"));
+    }
+
+    @Test
+    public void testWriteTo() throws IOException, FixityException {
+        final DigestingEntity entity = entity();
+        assertTrue(entity.getDigests().isEmpty());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        assertEquals("dummy content", new String(out.toByteArray(), UTF_8));
+        assertEquals(SHA1, entity.getDigests().get("SHA-1"));
+        assertEquals(MD5, entity.getDigests().get("MD5"));
+        entity.verify("test", SHA1);
+    }
+
+    @Test
+    public void testGetContent() throws IOException {
+        final DigestingEntity entity = entity();
+        assertEquals("dummy content", IOUtils.toString(entity.getContent(), UTF_8));
+        assertEquals(SHA1, entity.getDigests().get("SHA-1"));
+        assertEquals(MD5, entity.getDigests().get("MD5"));
+    }
+
+    @Test (expected = FixityException.class)
+    public void testMismatch() throws IOException, FixityException {
+        final DigestingEntity entity = entity();
+        entity.writeTo(new ByteArrayOutputStream());
+        entity.verify("test", URI.create("urn:sha1:0000000000000000000000000000000000000000"));
+    }
+
+    @Test (expected = FixityException.class)
+    public void testUnknownAlgorithm() throws IOException, FixityException {
+        final DigestingEntity entity = entity();
+        entity.writeTo(new ByteArrayOutputStream());
+        entity.verify("test", URI.create("urn:sha256:0000000000000000000000000000000000000000"));
+    }
+
+    @Test (expected = FixityException.class)
+    public void testNoRepositoryDigest() throws IOException, FixityException {
+        final DigestingEntity entity = entity();
+        entity.writeTo(new ByteArrayOutputStream());
+        entity.verify("test", null);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testUnsupportedAlgorithm() {
+        new DigestingEntity(new ByteArrayEntity(new byte[0]), Arrays.asList("NO-SUCH-DIGEST"));
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.net.ConnectException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Retry policy test
+ * @author escowles
+ */
+public class ExponentialBackoffRetryPolicyTest {
+
+    private static final String uri = "http://localhost:8080/rest/foo";
+
+    private ExponentialBackoffRetryPolicy policy;
+
+    @Before
+    public void setUp() {
+        policy = new ExponentialBackoffRetryPolicy(3, 100, 1000, 0.1, 10);
+    }
+
+    @Test
+    public void testRetryIdempotentOnServiceUnavailable() {
+        final long delay = policy.retryDelay(new HttpGet(uri), response(503), null, 1);
+        assertTrue(delay >= 0 && delay <= 100);
+        assertEquals(1, policy.getRetries());
+    }
+
+    @Test
+    public void testGiveUpAfterMaxAttempts() {
+        assertEquals(-1, policy.retryDelay(new HttpGet(uri), response(503), null, 3));
+    }
+
+    @Test
+    public void testNoRetryOnSuccessOrClientError() {
+        assertEquals(-1, policy.retryDelay(new HttpGet(uri), response(200), null, 1));
+        assertEquals(-1, policy.retryDelay(new HttpDelete(uri), response(404), null, 1));
+    }
+
+    @Test
+    public void testNoRetryNonIdempotentOnGatewayError() {
+        assertEquals(-1, policy.retryDelay(new HttpPost(uri), response(503), null, 1));
+        assertEquals(-1, policy.retryDelay(new HttpCopy(uri, uri + "2"), response(502), null, 1));
+        assertEquals(-1, policy.retryDelay(new HttpPost(uri), null, new NoHttpResponseException("dropped"), 1));
+    }
+
+    @Test
+    public void testRetryCopyMoveOnServiceUnavailable() {
+        assertTrue(policy.retryDelay(new HttpCopy(uri, uri + "2"), response(503), null, 1) >= 0);
+        assertTrue(policy.retryDelay(new HttpMove(uri, uri + "2"), response(503), null, 1) >= 0);
+    }
+
+    @Test
+    public void testRetryAnyMethodOnConnectFailure() {
+        assertTrue(policy.retryDelay(new HttpPost(uri), null, new ConnectException("refused"), 1) >= 0);
+    }
+
+    @Test
+    public void testNoRetryNonRepeatableEntity() {
+        final HttpPut put = new HttpPut(uri);
+        put.setEntity(new InputStreamEntity(new ByteArrayInputStream("foo".getBytes())));
+        assertEquals(-1, policy.retryDelay(put, response(503), null, 1));
+    }
+
+    @Test
+    public void testRetryAfter() {
+        final HttpResponse response = response(503);
+        response.setHeader("Retry-After", "1");
+        assertEquals(1000, policy.retryDelay(new HttpGet(uri), response, null, 1));
+
+        response.setHeader("Retry-After", "2");
+        assertEquals(-1, policy.retryDelay(new HttpGet(uri), response, null, 1));
+    }
+
+    @Test
+    public void testRetryAfterTooManyRequests() {
+        final HttpResponse response = response(429);
+        response.setHeader("Retry-After", "1");
+        assertEquals(1000, policy.retryDelay(new HttpGet(uri), response, null, 1));
+        assertEquals(1000, policy.retryDelay(new HttpMove(uri, uri + "2"), response, null, 1));
+        assertEquals(-1, policy.retryDelay(new HttpPost(uri), response, null, 1));
+    }
+
+    @Test
+    public void testRetryBudget() {
+        final ExponentialBackoffRetryPolicy small = new ExponentialBackoffRetryPolicy(3, 1, 10, 0.0, 2);
+        assertTrue(small.retryDelay(new HttpGet(uri), response(503), null, 1) >= 0);
+        assertTrue(small.retryDelay(new HttpGet(uri), response(503), null, 1) >= 0);
+        assertEquals(-1, small.retryDelay(new HttpGet(uri), response(503), null, 1));
+        assertEquals(2, small.getRetries());
+        assertEquals(1, small.getBudgetExhausted());
+        assertEquals(3, small.getAttempts());
+    }
+
+    private static HttpResponse response(final int statusCode) {
+        return new BasicHttpResponse(new ProtocolVersion("HTTP", 1, 1), statusCode, "");
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * File channel entity test
+ * @author escowles
+ */
+public class FileChannelEntityTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteTo() throws IOException {
+        final Path file = folder.newFile().toPath();
+        Files.write(file, "dummy content".getBytes(UTF_8));
+        final FileChannelEntity entity = new FileChannelEntity(file, "text/plain");
+        assertEquals(13, entity.getContentLength());
+        assertEquals("text/plain", entity.getContentType().getValue());
+        assertTrue(entity.isRepeatable());
+
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            assertEquals("dummy content", new String(out.toByteArray(), UTF_8));
+        }
+        assertEquals("dummy content", IOUtils.toString(entity.getContent(), UTF_8));
+    }
+
+    @Test (expected = EOFException.class)
+    public void testTruncated() throws IOException {
+        final Path file = folder.newFile().toPath();
+        Files.write(file, "dummy content".getBytes(UTF_8));
+        final FileChannelEntity entity = new FileChannelEntity(file, null);
+        Files.write(file, "dummy".getBytes(UTF_8));
+        entity.writeTo(new ByteArrayOutputStream());
+    }
+}
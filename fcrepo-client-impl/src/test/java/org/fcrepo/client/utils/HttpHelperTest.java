@@ -15,25 +15,32 @@
  */
 package org.fcrepo.client.utils;
 
+import static java.util.Collections.singleton;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
@@ -42,9 +49,16 @@ import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.IdleConnectionEvictor;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.jena.riot.Lang;
 
 import org.fcrepo.client.BadRequestException;
+import org.fcrepo.client.CircuitBreakerOpenException;
+import org.fcrepo.client.ConcurrencyLimitException;
 import org.fcrepo.client.FedoraContent;
 import org.fcrepo.client.FedoraException;
 import org.fcrepo.client.FedoraRepository;
@@ -52,12 +66,24 @@ import org.fcrepo.client.ForbiddenException;
 import org.fcrepo.client.NotFoundException;
 import org.fcrepo.client.ReadOnlyException;
 import org.fcrepo.client.impl.FedoraResourceImpl;
+import org.fcrepo.client.metrics.InMemoryMetricsRecorder;
+import org.fcrepo.client.metrics.Operation;
+import org.fcrepo.kernel.api.RdfLexicon;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
 
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -104,6 +130,94 @@ public class HttpHelperTest {
         verify(mockClient).execute(eq(put));
     }
 
+    @Test
+    public void testExecuteRetry() throws Exception {
+        final HttpResponse unavailable = mock(HttpResponse.class);
+        final StatusLine unavailableStatus = mock(StatusLine.class);
+        when(unavailable.getStatusLine()).thenReturn(unavailableStatus);
+        when(unavailableStatus.getStatusCode()).thenReturn(503);
+        final HttpResponse ok = mock(HttpResponse.class);
+        final StatusLine okStatus = mock(StatusLine.class);
+        when(ok.getStatusLine()).thenReturn(okStatus);
+        when(okStatus.getStatusCode()).thenReturn(200);
+        when(mockClient.execute(any(HttpGet.class))).thenReturn(unavailable, ok);
+
+        helper.setRetryPolicy(new ExponentialBackoffRetryPolicy(3, 1, 10, 0.1, 10));
+        final HttpGet get = new HttpGet(repoURL);
+        assertEquals(ok, helper.execute(get));
+        verify(mockClient, times(2)).execute(eq(get));
+    }
+
+    @Test (expected = CircuitBreakerOpenException.class)
+    public void testExecuteCircuitBreakerOpen() throws Exception {
+        final HttpResponse unavailable = mock(HttpResponse.class);
+        final StatusLine unavailableStatus = mock(StatusLine.class);
+        when(unavailable.getStatusLine()).thenReturn(unavailableStatus);
+        when(unavailableStatus.getStatusCode()).thenReturn(503);
+        when(mockClient.execute(any(HttpGet.class))).thenReturn(unavailable);
+
+        helper.setCircuitBreaker(new CircuitBreaker(4, 2, 0.5, 1.0, 10000, 60000, 1));
+        final HttpGet get = new HttpGet(repoURL);
+        helper.execute(Operation.OTHER, get);
+        helper.execute(Operation.OTHER, get);
+        try {
+            helper.execute(Operation.OTHER, get);
+        } finally {
+            verify(mockClient, times(2)).execute(eq(get));
+        }
+    }
+
+    @Test
+    public void testExecuteConcurrencyLimiter() throws Exception {
+        final HttpResponse ok = mock(HttpResponse.class);
+        final StatusLine okStatus = mock(StatusLine.class);
+        when(ok.getStatusLine()).thenReturn(okStatus);
+        when(okStatus.getStatusCode()).thenReturn(200);
+        when(mockClient.execute(any(HttpGet.class))).thenReturn(ok);
+
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1.5, 0.9, 0.2, 10, 0);
+        helper.setConcurrencyLimiter(limiter);
+        helper.execute(new HttpGet(repoURL));
+        helper.execute(new HttpGet(repoURL));
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test (expected = ConcurrencyLimitException.class)
+    public void testExecuteConcurrencyLimitReached() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1.5, 0.9, 0.2, 10, 0);
+        limiter.acquire();
+        helper.setConcurrencyLimiter(limiter);
+        helper.execute(Operation.OTHER, new HttpGet(repoURL));
+    }
+
+    @Test
+    public void testExecuteRefusedAsIOException() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1.5, 0.9, 0.2, 10, 0);
+        limiter.acquire();
+        helper.setConcurrencyLimiter(limiter);
+        try {
+            helper.execute(new HttpGet(repoURL));
+            fail("expected IOException");
+        } catch (final IOException e) {
+            assertTrue(e.getCause() instanceof ConcurrencyLimitException);
+        }
+    }
+
+    @Test
+    public void testExecuteMetrics() throws Exception {
+        final HttpResponse ok = mock(HttpResponse.class);
+        final StatusLine okStatus = mock(StatusLine.class);
+        when(ok.getStatusLine()).thenReturn(okStatus);
+        when(okStatus.getStatusCode()).thenReturn(204);
+        when(mockClient.execute(any(HttpPut.class))).thenReturn(ok);
+
+        final InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        helper.setMetricsRecorder(metrics);
+        helper.execute(Operation.UPDATE_CONTENT, new HttpPut(repoURL));
+        assertEquals(1, metrics.getOperation(Operation.UPDATE_CONTENT).getLatency().getCount());
+        assertEquals(Long.valueOf(1), metrics.getOperation(Operation.UPDATE_CONTENT).getStatusCounts().get(204));
+    }
+
     @Test
     public void testExecuteReadOnlyGet() throws Exception {
         final HttpGet get = new HttpGet(repoURL);
@@ -117,6 +231,41 @@ public class HttpHelperTest {
         readOnlyHelper.execute(put);
     }
 
+    @Test
+    public void testPooledHelper() throws InterruptedException {
+        final HttpClientConfig config = new HttpClientConfig().setMaxTotal(10).setMaxPerRoute(5)
+                .setConnectionTimeToLive(60000).setMaxIdleTime(1000).setEvictionInterval(500);
+        final HttpHelper pooled = new HttpHelper(repoURL, "user", "pass", false, config);
+        final HttpGet get = pooled.createGetMethod("/foo", null);
+        assertEquals( repoURL + "/foo", get.getURI().toString() );
+        assertEquals( 10, pooled.getConnectionManager().getMaxTotal() );
+        assertEquals( 5, pooled.getConnectionManager().getDefaultMaxPerRoute() );
+
+        final IdleConnectionEvictor evictor = pooled.getConnectionEvictor();
+        assertTrue( evictor.isRunning() );
+        pooled.close();
+        evictor.awaitTermination(5, TimeUnit.SECONDS);
+        assertFalse( evictor.isRunning() );
+    }
+
+    @Test
+    public void testPooledHelperDefaults() {
+        final HttpHelper pooled = new HttpHelper(repoURL, null, null, false, new HttpClientConfig());
+        // resilience policies which fail requests the repository would serve are opt-in
+        assertNull(pooled.getCircuitBreaker());
+        assertNull(pooled.getConcurrencyLimiter());
+        // so are retries, which repeat requests the repository may be failing under
+        assertSame(RetryPolicy.NO_RETRY, pooled.getRetryPolicy());
+        pooled.close();
+    }
+
+    @Test
+    public void testCloseDoesNotCloseSuppliedClient() {
+        final CloseableHttpClient closeableClient = mock(CloseableHttpClient.class);
+        new HttpHelper(repoURL, closeableClient, false).close();
+        verifyZeroInteractions(closeableClient);
+    }
+
     @Test
     public void testCreateHeadMethod() {
         final HttpHead head = helper.createHeadMethod("/foo");
@@ -204,6 +353,143 @@ public class HttpHelperTest {
         assertTrue(testResource.getMixins().contains("fedora:resource") );
     }
 
+    @Test
+    public void testLoadPropertiesProjection() throws Exception {
+        final Node foo = NodeFactory.createURI(repoURL + "/foo");
+        assertEquals(2, testLoadPropertiesWithStatus(200, null, null).getGraph().size());
+        assertEquals(1, testLoadPropertiesWithStatus(200, singleton(foo), null).getGraph().size());
+        assertEquals(0, testLoadPropertiesWithStatus(200, null, singleton(RdfLexicon.CREATED_DATE.asNode()))
+                .getGraph().size());
+    }
+
+    @Test
+    public void testLoadPropertiesInterned() throws Exception {
+        final NodeInterner interner = new NodeInterner(16);
+        helper.setNodeInterner(interner);
+        final Node foo = NodeFactory.createURI(repoURL + "/foo");
+        final FedoraResourceImpl first = testLoadPropertiesWithStatus(200);
+        final FedoraResourceImpl second = testLoadPropertiesWithStatus(200);
+        final Triple a = first.getGraph().find(foo, Node.ANY, Node.ANY).next();
+        final Triple b = second.getGraph().find(foo, Node.ANY, Node.ANY).next();
+        assertSame(a.getSubject(), b.getSubject());
+        assertSame(a.getPredicate(), b.getPredicate());
+        assertSame(a.getObject(), b.getObject());
+        assertTrue(interner.getHits() > 0);
+    }
+
+    @Test
+    public void testLoadPropertiesNotAcceptable() throws Exception {
+        final FedoraRepository mockRepo = mock(FedoraRepository.class);
+        when(mockRepo.getRepositoryUrl()).thenReturn(repoURL);
+        final HttpResponse notAcceptable = new BasicHttpResponse(HttpVersion.HTTP_1_1, 406, "Not Acceptable");
+        final HttpResponse ok = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        final ByteArrayEntity entity = new ByteArrayEntity(
+                ("<" + repoURL + "/foo> <" + RdfLexicon.HAS_MIXIN_TYPE + "> \"fedora:resource\" .").getBytes());
+        entity.setContentType("text/turtle; charset=utf-8");
+        ok.setEntity(entity);
+        when(mockClient.execute(any(HttpGet.class))).thenReturn(notAcceptable, ok);
+
+        helper.setContentNegotiation(new ContentNegotiation(Lang.RDFTHRIFT, Lang.TURTLE));
+        final FedoraResourceImpl resource = helper.loadProperties(new FedoraResourceImpl(mockRepo, helper, "/foo"));
+        assertTrue(resource.getMixins().contains("fedora:resource"));
+
+        final ArgumentCaptor<HttpGet> gets = ArgumentCaptor.forClass(HttpGet.class);
+        verify(mockClient, times(2)).execute(gets.capture());
+        assertEquals("application/rdf+thrift, text/turtle;q=0.9",
+                gets.getAllValues().get(0).getFirstHeader("accept").getValue());
+        assertEquals("text/turtle", gets.getAllValues().get(1).getFirstHeader("accept").getValue());
+        assertEquals(1, helper.getContentNegotiation().getFallbacks());
+    }
+
+    @Test
+    public void testLoadPropertiesCached() throws Exception {
+        final FedoraRepository mockRepo = mock(FedoraRepository.class);
+        when(mockRepo.getRepositoryUrl()).thenReturn(repoURL);
+        final HttpResponse ok = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        final ByteArrayEntity entity = new ByteArrayEntity(
+                ("<" + repoURL + "/foo> <" + RdfLexicon.HAS_MIXIN_TYPE + "> \"fedora:resource\" .").getBytes());
+        entity.setContentType("application/n-triples");
+        ok.setEntity(entity);
+        ok.setHeader("ETag", "W/\"1\"");
+        final HttpResponse notModified = new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified");
+        when(mockClient.execute(any(HttpGet.class))).thenReturn(ok, notModified);
+
+        final ResourceCache cache = new ResourceCache();
+        helper.setResourceCache(cache);
+        final FedoraResourceImpl first = helper.loadProperties(new FedoraResourceImpl(mockRepo, helper, "/foo"));
+        final FedoraResourceImpl second = helper.loadProperties(new FedoraResourceImpl(mockRepo, helper, "/foo"));
+        assertSame(first.getGraph(), second.getGraph());
+        assertEquals("W/\"1\"", second.getEtagValue());
+
+        final ArgumentCaptor<HttpGet> gets = ArgumentCaptor.forClass(HttpGet.class);
+        verify(mockClient, times(2)).execute(gets.capture());
+        assertNull(gets.getAllValues().get(0).getFirstHeader("If-None-Match"));
+        assertEquals("W/\"1\"", gets.getAllValues().get(1).getFirstHeader("If-None-Match").getValue());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getRevalidations());
+
+        // a write through the helper invalidates the entry
+        helper.execute(new HttpPut(repoURL + "/foo"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLoadPropertiesParallel() throws Exception {
+        final FedoraRepository mockRepo = mock(FedoraRepository.class);
+        when(mockRepo.getRepositoryUrl()).thenReturn(repoURL);
+        final StringBuilder triples = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            triples.append("<" + repoURL + "/foo> <" + RdfLexicon.HAS_MIXIN_TYPE + "> \"mixin" + i + "\" .\n");
+        }
+        final HttpResponse ok = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        final ByteArrayEntity entity = new ByteArrayEntity(triples.toString().getBytes());
+        entity.setContentType("application/n-triples");
+        ok.setEntity(entity);
+        when(mockClient.execute(any(HttpGet.class))).thenReturn(ok);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            helper.setParsePool(pool);
+            helper.setParallelParseThreshold(1);
+            final FedoraResourceImpl resource = helper.loadProperties(
+                    new FedoraResourceImpl(mockRepo, helper, "/foo"));
+            assertEquals(100, resource.getGraph().size());
+            assertTrue(resource.getMixins().contains("mixin99"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoadPropertiesUnknownLengthStreamed() throws Exception {
+        final FedoraRepository mockRepo = mock(FedoraRepository.class);
+        when(mockRepo.getRepositoryUrl()).thenReturn(repoURL);
+        final StringBuilder triples = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            triples.append("<" + repoURL + "/foo> <" + RdfLexicon.HAS_MIXIN_TYPE + "> \"mixin" + i + "\" .\n");
+        }
+        final HttpResponse ok = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        final InputStreamEntity entity = new InputStreamEntity(
+                new ByteArrayInputStream(triples.toString().getBytes()), -1);
+        entity.setContentType("application/n-triples");
+        ok.setEntity(entity);
+        when(mockClient.execute(any(HttpGet.class))).thenReturn(ok);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            helper.setParsePool(pool);
+            helper.setParallelParseThreshold(1);
+            final FedoraResourceImpl resource = helper.loadProperties(
+                    new FedoraResourceImpl(mockRepo, helper, "/foo"));
+            assertEquals(100, resource.getGraph().size());
+            // parsed as it was read, without starting the pool
+            assertEquals(0, pool.getPoolSize());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Test (expected = ForbiddenException.class)
     public void testLoadPropertiesForbidden() throws Exception {
         testLoadPropertiesWithStatus(403);
@@ -220,12 +506,21 @@ public class HttpHelperTest {
     }
 
     private FedoraResourceImpl testLoadPropertiesWithStatus( final int statusCode ) throws Exception {
+        return testLoadPropertiesWithStatus(statusCode, null, null);
+    }
+
+    private FedoraResourceImpl testLoadPropertiesWithStatus( final int statusCode, final Collection<Node> subjects,
+                                                             final Collection<Node> properties ) throws Exception {
         final String triples = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
             "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\">" +
               "<rdf:Description rdf:about=\"http://localhost:8080/rest/foo\">" +
                 "<mixinTypes xmlns=\"http://fedora.info/definitions/v4/repository#\" " +
                     "rdf:datatype=\"http://www.w3.org/2001/XMLSchema#string\">fedora:resource</mixinTypes>" +
               "</rdf:Description>" +
+              "<rdf:Description rdf:about=\"http://localhost:8080/rest/foo/bar\">" +
+                "<mixinTypes xmlns=\"http://fedora.info/definitions/v4/repository#\" " +
+                    "rdf:datatype=\"http://www.w3.org/2001/XMLSchema#string\">fedora:resource</mixinTypes>" +
+              "</rdf:Description>" +
             "</rdf:RDF>";
         final FedoraRepository mockRepo = mock(FedoraRepository.class);
         when(mockRepo.getRepositoryUrl()).thenReturn(repoURL);
@@ -243,7 +538,7 @@ public class HttpHelperTest {
         when(mockResponse.getStatusLine()).thenReturn(mockStatus);
         when(mockStatus.getStatusCode()).thenReturn(statusCode);
 
-        return helper.loadProperties( origResource );
+        return helper.loadProperties( origResource, subjects, properties );
     }
 
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Negative cache test
+ * @author escowles
+ */
+public class NegativeCacheTest {
+
+    private static final String REPO = "http://localhost:8080/rest";
+
+    @Test
+    public void testApplies() {
+        assertTrue(NegativeCache.applies("HEAD", REPO + "/foo"));
+        assertTrue(NegativeCache.applies("GET", REPO + "/foo"));
+        assertFalse(NegativeCache.applies("PUT", REPO + "/foo"));
+        assertFalse(NegativeCache.applies("GET", REPO + "/foo/fcr:metadata"));
+        assertFalse(NegativeCache.applies("GET", REPO + "/fcr:search?q=foo"));
+    }
+
+    @Test
+    public void testContains() {
+        final NegativeCache cache = new NegativeCache();
+        assertFalse(cache.contains(REPO + "/foo"));
+        cache.add(REPO + "/foo", cache.epoch());
+        assertTrue(cache.contains(REPO + "/foo"));
+        assertTrue(cache.contains(REPO + "/foo/"));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testExpiry() {
+        final NegativeCache cache = new NegativeCache(10, 0, TimeUnit.SECONDS, false);
+        cache.add(REPO + "/foo", cache.epoch());
+        assertFalse(cache.contains(REPO + "/foo"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidate() {
+        final NegativeCache cache = new NegativeCache();
+        for (final String path : new String[] { "/a", "/a/b", "/a/b/c", "/a/b/c/d", "/a/x", "/dest/e", "/other" }) {
+            cache.add(REPO + path, cache.epoch());
+        }
+
+        // a PUT creates the resource and its missing ancestors
+        cache.invalidate(REPO + "/a/b/c", false);
+        assertFalse(cache.contains(REPO + "/a"));
+        assertFalse(cache.contains(REPO + "/a/b"));
+        assertFalse(cache.contains(REPO + "/a/b/c"));
+        assertTrue(cache.contains(REPO + "/a/b/c/d"));
+        assertTrue(cache.contains(REPO + "/a/x"));
+
+        // a COPY or MOVE may create descendants of the destination
+        cache.invalidate(REPO + "/dest", true);
+        assertFalse(cache.contains(REPO + "/dest/e"));
+        assertTrue(cache.contains(REPO + "/other"));
+
+        // content is sent with its checksum in the query
+        cache.invalidate(REPO + "/other?checksum=urn:sha1:0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33", false);
+        assertFalse(cache.contains(REPO + "/other"));
+    }
+
+    @Test
+    public void testInvalidatedDuringLookup() {
+        final NegativeCache cache = new NegativeCache();
+        final long epoch = cache.epoch();
+        cache.invalidate(REPO + "/foo", false);
+        cache.add(REPO + "/foo", epoch);
+        assertFalse("a lookup overlapping a write is not cached", cache.contains(REPO + "/foo"));
+    }
+
+    @Test
+    public void testEviction() {
+        final NegativeCache cache = new NegativeCache(2, 30, TimeUnit.SECONDS, false);
+        cache.add(REPO + "/a", cache.epoch());
+        cache.add(REPO + "/b", cache.epoch());
+        cache.add(REPO + "/c", cache.epoch());
+        assertFalse(cache.contains(REPO + "/a"));
+        assertTrue(cache.contains(REPO + "/c"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testBloomFilter() {
+        final NegativeCache cache = new NegativeCache(100, 30, TimeUnit.SECONDS, true);
+        for (int i = 0; i < 1000; i++) {
+            cache.add(REPO + "/absent" + i, cache.epoch());
+        }
+        // the filter has been rebuilt several times, and still holds every remaining entry
+        assertEquals(100, cache.size());
+        for (int i = 900; i < 1000; i++) {
+            assertTrue(cache.contains(REPO + "/absent" + i));
+        }
+        int found = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (cache.contains(REPO + "/present" + i)) {
+                found++;
+            }
+        }
+        assertEquals(0, found);
+    }
+}
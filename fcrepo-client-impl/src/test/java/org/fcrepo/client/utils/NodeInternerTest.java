@@ -0,0 +1,115 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+
+/**
+ * Node interner test
+ * @author escowles
+ */
+public class NodeInternerTest {
+
+    private static final String URI = "http://localhost:8080/rest/foo";
+
+    @Test
+    public void testInternUrisAndLiterals() {
+        final NodeInterner interner = new NodeInterner(16);
+        final Node uri = interner.intern(NodeFactory.createURI(URI));
+        assertSame(uri, interner.intern(NodeFactory.createURI(URI)));
+
+        final Node literal = interner.intern(NodeFactory.createLiteral("fedora:Container", XSDDatatype.XSDstring));
+        assertSame(literal, interner.intern(NodeFactory.createLiteral("fedora:Container", XSDDatatype.XSDstring)));
+        assertNotSame(literal, interner.intern(NodeFactory.createLiteral("fedora:Container")));
+
+        assertEquals(2, interner.getHits());
+        assertEquals(3, interner.getMisses());
+        assertEquals(0.4, interner.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testBlankNodesNotInterned() {
+        final NodeInterner interner = new NodeInterner(16);
+        final Node blank = NodeFactory.createAnon();
+        assertSame(blank, interner.intern(blank));
+        assertEquals(0, interner.getMisses());
+        assertEquals(0, interner.size());
+    }
+
+    @Test
+    public void testBounded() {
+        final NodeInterner interner = new NodeInterner(100);
+        final Node hot = interner.intern(NodeFactory.createURI(URI));
+        for (int i = 0; i < 10000; i++) {
+            interner.intern(NodeFactory.createURI(URI + "/" + i));
+            if (i % 50 == 0) {
+                assertSame(hot, interner.intern(NodeFactory.createURI(URI)));
+            }
+            assertTrue(interner.size() <= 200);
+        }
+        assertTrue(interner.getEvictions() > 0);
+        assertSame(hot, interner.intern(NodeFactory.createURI(URI)));
+    }
+
+    @Test
+    public void testConcurrentIntern() throws Exception {
+        final NodeInterner interner = new NodeInterner(1000);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Callable<Node[]>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                tasks.add(new Callable<Node[]>() {
+                    @Override
+                    public Node[] call() {
+                        final Node[] nodes = new Node[500];
+                        for (int i = 0; i < nodes.length; i++) {
+                            nodes[i] = interner.intern(NodeFactory.createURI(URI + "/" + i));
+                        }
+                        return nodes;
+                    }
+                });
+            }
+            final List<Future<Node[]>> results = executor.invokeAll(tasks);
+            final Node[] first = results.get(0).get();
+            for (final Future<Node[]> result : results) {
+                final Node[] nodes = result.get();
+                for (int i = 0; i < nodes.length; i++) {
+                    assertSame(first[i], nodes[i]);
+                }
+            }
+            assertEquals(2000, interner.getHits() + interner.getMisses());
+            assertTrue(interner.getMisses() >= 500);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singleton;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RiotException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.sparql.graph.GraphFactory;
+
+/**
+ * Parallel N-Triples parser test
+ * @author escowles
+ */
+public class ParallelNTriplesParserTest {
+
+    private static final String BASE = "http://localhost:8080/rest/foo";
+
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testSplitAtLineBoundaries() {
+        final byte[] data = "a\nbb\nccc\ndddd\n".getBytes(UTF_8);
+        final int[] bounds = ParallelNTriplesParser.split(data, 3);
+        assertArrayEquals(new int[] { 0, 5, 9, 14 }, bounds);
+        assertArrayEquals(new int[] { 0, 2 }, ParallelNTriplesParser.split("a\n".getBytes(UTF_8), 8));
+        assertArrayEquals(new int[] { 0, 0 }, ParallelNTriplesParser.split(new byte[0], 4));
+    }
+
+    @Test
+    public void testParseMatchesSequential() throws Exception {
+        final StringBuilder doc = new StringBuilder();
+        doc.append("_:b0 <" + BASE + "#label> \"first\" .\n");
+        for (int i = 0; i < 1000; i++) {
+            doc.append("<" + BASE + "> <http://www.w3.org/ns/ldp#contains> <" + BASE + "/child" + i + "> .\n");
+            doc.append("<" + BASE + "/child" + i + "> <" + BASE + "#title> \"child \\n" + i + "\"@en .\n");
+        }
+        doc.append("<" + BASE + "> <" + BASE + "#note> _:b0 .\n");
+        final byte[] data = doc.toString().getBytes(UTF_8);
+
+        final CompactGraph.Builder builder = new CompactGraph.Builder();
+        ParallelNTriplesParser.parse(data, BASE, pool, 8, builder, null, null, null);
+        final Graph parallel = builder.build();
+
+        final Graph sequential = GraphFactory.createDefaultGraph();
+        RDFDataMgr.read(sequential, new ByteArrayInputStream(data), Lang.NTRIPLES);
+        assertEquals(sequential.size(), parallel.size());
+        assertTrue(parallel.isIsomorphicWith(sequential));
+
+        // the blank node shared by the first and last chunks is a single node
+        final Node note = parallel.find(NodeFactory.createURI(BASE), NodeFactory.createURI(BASE + "#note"),
+                Node.ANY).next().getObject();
+        final Triple label = parallel.find(note, Node.ANY, Node.ANY).next();
+        assertEquals("first", label.getObject().getLiteralLexicalForm());
+    }
+
+    @Test
+    public void testParseFiltered() throws Exception {
+        final byte[] data = ("<" + BASE + "> <" + BASE + "#a> \"1\" .\n<" + BASE + "> <" + BASE + "#b> \"2\" .\n")
+                .getBytes(UTF_8);
+        final CompactGraph.Builder builder = new CompactGraph.Builder();
+        ParallelNTriplesParser.parse(data, BASE, pool, 2, builder, null,
+                singleton(NodeFactory.createURI(BASE + "#b")), null);
+        assertEquals(1, builder.build().size());
+    }
+
+    @Test (expected = RiotException.class)
+    public void testParseError() throws Exception {
+        final byte[] data = ("<" + BASE + "> <" + BASE + "#a> \"1\" .\nnot n-triples\n").getBytes(UTF_8);
+        ParallelNTriplesParser.parse(data, BASE, pool, 2, new CompactGraph.Builder(), null, null, null);
+    }
+}
@@ -15,7 +15,9 @@
  */
 package org.fcrepo.client.utils;
 
+import static com.hp.hpl.jena.graph.Factory.createDefaultGraph;
 import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static java.util.Collections.singleton;
 import static com.hp.hpl.jena.graph.Triple.create;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.mockito.Mockito.when;
@@ -79,6 +81,20 @@ public class RDFSinkFilterTest {
         assertTrue(graph.contains(testIsWritable));
     }
 
+    @Test
+    public void testSubjectAllowlist() {
+        final Node other = createURI(RdfLexicon.REPOSITORY_NAMESPACE + "other");
+        final Graph graph = createDefaultGraph();
+        final RDFSinkFilter filter = RDFSinkFilter.toGraph(graph, singleton(other), null);
+        filter.start();
+        filter.triple(testCreatedDateTriple);
+        filter.triple(create(other, RdfLexicon.CREATED_DATE.asNode(), testCreatedDateTriple.getObject()));
+        filter.finish();
+        assertEquals(1, graph.size());
+        assertEquals(1, filter.getAccepted());
+        assertEquals(1, filter.getDropped());
+    }
+
     @Test
     public void testFilterTriples() throws FedoraException {
         final Graph graph = RDFSinkFilter.filterTriples(mockTriples, RdfLexicon.CREATED_DATE.asNode());
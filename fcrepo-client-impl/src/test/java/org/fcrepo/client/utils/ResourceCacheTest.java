@@ -0,0 +1,147 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.sparql.graph.GraphFactory;
+
+/**
+ * Resource cache test
+ * @author escowles
+ */
+public class ResourceCacheTest {
+
+    private static final String REPO = "http://localhost:8080/rest";
+
+    @Test
+    public void testGetAndRevalidate() {
+        final ResourceCache cache = new ResourceCache();
+        final Graph graph = graph("obj", 3);
+        cache.put(REPO + "/obj", graph, "W/\"1\"", cache.epoch());
+
+        final ResourceCache.Entry entry = cache.get(REPO + "/obj/");
+        assertSame(graph, entry.getGraph());
+        assertEquals("W/\"1\"", entry.getEtag());
+        assertFalse("entries are revalidated by default", cache.isFresh(entry));
+        cache.hit(entry, true);
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getRevalidations());
+        assertEquals(0.5, cache.getHitRate(), 0.001);
+        assertEquals(3, cache.getWeight());
+    }
+
+    @Test
+    public void testTimeToLive() {
+        final ResourceCache cache = new ResourceCache(100, 1, TimeUnit.HOURS);
+        cache.put(REPO + "/obj", graph("obj", 1), null, cache.epoch());
+        assertTrue(cache.isFresh(cache.get(REPO + "/obj")));
+    }
+
+    @Test
+    public void testInvalidate() {
+        final ResourceCache cache = new ResourceCache();
+        for (final String path : new String[] { "", "/obj", "/obj/child", "/obj/child/grandchild",
+                "/obj/ds/fcr:metadata", "/obj2", "/other" }) {
+            cache.put(REPO + path, graph(path, 1), null, cache.epoch());
+        }
+
+        // a write to a datastream invalidates its description and its parent
+        cache.invalidate(REPO + "/obj/ds");
+        assertNull(cache.get(REPO + "/obj/ds/fcr:metadata"));
+        assertNull(cache.get(REPO + "/obj"));
+        assertNotNull(cache.get(REPO + "/obj/child"));
+
+        // a write to a container invalidates its descendants, but not its siblings
+        cache.invalidate(REPO + "/obj/fcr:versions");
+        assertNull(cache.get(REPO + "/obj/child"));
+        assertNull(cache.get(REPO + "/obj/child/grandchild"));
+        assertNull(cache.get(REPO));
+        assertNotNull(cache.get(REPO + "/obj2"));
+        assertEquals(2, cache.size());
+
+        // content is sent with its checksum in the query
+        cache.put(REPO + "/obj2/ds/fcr:metadata", graph("/obj2/ds/fcr:metadata", 1), null, cache.epoch());
+        cache.invalidate(REPO + "/obj2/ds?checksum=urn:sha1:0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33");
+        assertNull(cache.get(REPO + "/obj2/ds/fcr:metadata"));
+        assertNull(cache.get(REPO + "/obj2"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testInvalidatedDuringLoad() {
+        final ResourceCache cache = new ResourceCache();
+        final long epoch = cache.epoch();
+        cache.invalidate(REPO + "/other");
+        cache.put(REPO + "/obj", graph("obj", 1), null, epoch);
+        assertNull("a load overlapping a write is not cached", cache.get(REPO + "/obj"));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan() {
+        final ResourceCache cache = new ResourceCache(100, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 9; i++) {
+            cache.get(REPO + "/hot" + i);
+            cache.put(REPO + "/hot" + i, graph("hot" + i, 10), null, cache.epoch());
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 9; i++) {
+                cache.hit(cache.get(REPO + "/hot" + i), true);
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            cache.get(REPO + "/cold" + i);
+            cache.put(REPO + "/cold" + i, graph("cold" + i, 10), null, cache.epoch());
+        }
+        for (int i = 0; i < 9; i++) {
+            assertNotNull("hot entry " + i + " was evicted", cache.get(REPO + "/hot" + i));
+        }
+        assertTrue(cache.getWeight() <= 100);
+        assertEquals(49, cache.getEvictions());
+
+        // an entry over the maximum weight is never cached
+        cache.put(REPO + "/huge", graph("huge", 101), null, cache.epoch());
+        assertNull(cache.get(REPO + "/huge"));
+    }
+
+    private static Graph graph(final String path, final int triples) {
+        final Graph graph = GraphFactory.createGraphMem();
+        for (int i = 0; i < triples; i++) {
+            graph.add(Triple.create(NodeFactory.createURI(REPO + path), NodeFactory.createURI(REPO + "#p" + i),
+                    NodeFactory.createLiteral("value")));
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,1309 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.testing;
+
+import static com.hp.hpl.jena.datatypes.xsd.XSDDatatype.XSDdateTime;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.fcrepo.kernel.api.RdfLexicon.CONTAINS;
+import static org.fcrepo.kernel.api.RdfLexicon.CREATED_BY;
+import static org.fcrepo.kernel.api.RdfLexicon.CREATED_DATE;
+import static org.fcrepo.kernel.api.RdfLexicon.DESCRIBED_BY;
+import static org.fcrepo.kernel.api.RdfLexicon.DESCRIBES;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_MESSAGE_DIGEST;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_MIME_TYPE;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_MIXIN_TYPE;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_ORIGINAL_NAME;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_PARENT;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_PRIMARY_TYPE;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_SIZE;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_VERSION;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_VERSION_HISTORY;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_VERSION_LABEL;
+import static org.fcrepo.kernel.api.RdfLexicon.LAST_MODIFIED_BY;
+import static org.fcrepo.kernel.api.RdfLexicon.LAST_MODIFIED_DATE;
+import static org.fcrepo.kernel.api.RdfLexicon.LDP_NAMESPACE;
+import static org.fcrepo.kernel.api.RdfLexicon.REPOSITORY_NAMESPACE;
+import static org.fcrepo.kernel.api.RdfLexicon.WRITABLE;
+import static org.fcrepo.kernel.api.RdfLexicon.isManagedPredicate;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.hp.hpl.jena.query.QueryParseException;
+import com.hp.hpl.jena.rdf.model.Literal;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.update.UpdateAction;
+import com.hp.hpl.jena.update.UpdateFactory;
+import com.hp.hpl.jena.update.UpdateRequest;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RiotException;
+import org.slf4j.Logger;
+
+/**
+ * Lightweight in-process stand-in for a Fedora 4 repository, for tests and benchmarks of the client that must
+ * run on one machine without a servlet container.  Resources are held in memory and served over HTTP from an
+ * ephemeral port under {@code /rest}.
+ *
+ * <p>The server implements the parts of the Fedora 4 REST API used by the client: containers and binaries
+ * (created with PUT or POST, with {@code fcr:metadata} descriptions), ETags with {@code If-Match} and
+ * {@code If-None-Match}, SPARQL Update PATCH, COPY and MOVE, version snapshots under {@code fcr:versions},
+ * tombstones under {@code fcr:tombstone}, checksum verification, fixity checks under {@code fcr:fixity}, single
+ * byte ranges of binary content, content negotiation of RDF, and the {@code Prefer} header (embedding children,
+ * omitting containment or server-managed triples).</p>
+ *
+ * <p>Latency and errors can be injected into every request with a {@link FaultProfile}.  Requests are served by
+ * a fixed pool of worker threads, so injected latency also limits the server's throughput, as it would for a
+ * real repository.</p>
+ *
+ * @author escowles
+**/
+public class FakeFedoraServer implements AutoCloseable {
+    private static final Logger LOGGER = getLogger(FakeFedoraServer.class);
+
+    private static final String CONTEXT = "/rest";
+    private static final String METADATA = "/fcr:metadata";
+    private static final String VERSIONS = "/fcr:versions";
+    private static final String TOMBSTONE = "/fcr:tombstone";
+    private static final String FIXITY = "/fcr:fixity";
+    private static final String PREMIS_NAMESPACE = "http://www.loc.gov/premis/rdf/v1#";
+    private static final Property HAS_FIXITY_RESULT = ResourceFactory.createProperty(PREMIS_NAMESPACE + "hasFixity");
+    private static final Property HAS_FIXITY_STATE =
+            ResourceFactory.createProperty(PREMIS_NAMESPACE + "hasEventOutcome");
+    private static final String EMBED_RESOURCES = REPOSITORY_NAMESPACE + "EmbedResources";
+    private static final String SERVER_MANAGED = REPOSITORY_NAMESPACE + "ServerManaged";
+    private static final String PREFER_CONTAINMENT = LDP_NAMESPACE + "PreferContainment";
+    private static final String SPARQL_UPDATE = "application/sparql-update";
+    private static final String EXTERNAL_BODY = "message/external-body";
+    private static final String USER = "bypassAdmin";
+    private static final List<Lang> FEDORA_SERIALIZATIONS =
+            Arrays.asList(Lang.TURTLE, Lang.RDFXML, Lang.NTRIPLES, Lang.N3);
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    static {
+        // without TCP_NODELAY small responses wait for the client's delayed ACK, adding ~40ms to every request;
+        // the JDK server reads this once, so it only applies if no other HttpServer has been started first
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String repositoryUrl;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, StoredResource> resources = new HashMap<>();
+    private final Set<String> tombstones = new HashSet<>();
+    private final AtomicLong revision = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFaults = new AtomicLong();
+    private volatile FaultProfile faultProfile = new FaultProfile();
+    private volatile List<Lang> serializations = FEDORA_SERIALIZATIONS;
+
+    /**
+     * Start a server on an ephemeral port with 64 worker threads.
+     *
+     * @throws IOException if the server cannot be started
+    **/
+    public FakeFedoraServer() throws IOException {
+        this(0, 64);
+    }
+
+    /**
+     * Start a server.
+     *
+     * @param port Port to listen on, or zero for an ephemeral port.
+     * @param threads Number of worker threads serving requests.
+     * @throws IOException if the server cannot be started
+    **/
+    public FakeFedoraServer(final int port, final int threads) throws IOException {
+        resources.put("", new StoredResource(false, System.currentTimeMillis(), revision.incrementAndGet()));
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext(CONTEXT, this::handle);
+        server.start();
+        repositoryUrl = "http://localhost:" + server.getAddress().getPort() + CONTEXT;
+        LOGGER.debug("fake repository listening at {}", repositoryUrl);
+    }
+
+    /**
+     * Get the base URL of the repository.
+     *
+     * @return repository URL
+    **/
+    public String getRepositoryUrl() {
+        return repositoryUrl;
+    }
+
+    /**
+     * Get the faults injected into requests.
+     *
+     * @return fault profile
+    **/
+    public FaultProfile getFaultProfile() {
+        return faultProfile;
+    }
+
+    /**
+     * Set the faults injected into requests; changes apply to requests received afterwards.
+     *
+     * @param faultProfile fault profile
+    **/
+    public void setFaultProfile(final FaultProfile faultProfile) {
+        this.faultProfile = faultProfile == null ? new FaultProfile() : faultProfile;
+    }
+
+    /**
+     * Get the RDF serializations the server returns.
+     *
+     * @return serializations, the default first
+    **/
+    public List<Lang> getSerializations() {
+        return serializations;
+    }
+
+    /**
+     * Set the RDF serializations the server returns, the default for requests without a usable Accept header
+     * first.  By default these are the serializations Fedora returns, other than JSON-LD: Turtle, RDF/XML,
+     * N-Triples and N3.
+     *
+     * @param serializations serializations
+    **/
+    public void setSerializations(final Lang... serializations) {
+        if (serializations.length == 0) {
+            throw new IllegalArgumentException("at least one serialization is required");
+        }
+        this.serializations = Collections.unmodifiableList(Arrays.asList(serializations.clone()));
+    }
+
+    /**
+     * Get the number of requests received.
+     *
+     * @return number of requests
+    **/
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Get the number of requests failed or reset by the fault profile.
+     *
+     * @return number of injected faults
+    **/
+    public long getInjectedFaultCount() {
+        return injectedFaults.get();
+    }
+
+    /**
+     * Create a container, and any missing ancestors, without going through HTTP or the fault profile.
+     *
+     * @param path Path of the container.
+    **/
+    public void createContainer(final String path) {
+        final Lock write = lock.writeLock();
+        write.lock();
+        try {
+            create(normalize(path), false);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Create a binary, and any missing ancestors, without going through HTTP or the fault profile.
+     *
+     * @param path Path of the binary.
+     * @param content Content of the binary.
+     * @param contentType MIME type of the content.
+    **/
+    public void createBinary(final String path, final byte[] content, final String contentType) {
+        final Lock write = lock.writeLock();
+        write.lock();
+        try {
+            final StoredResource binary = create(normalize(path), true);
+            binary.content = content;
+            binary.contentType = contentType;
+            binary.digest = "urn:sha1:" + hex(digest("SHA-1", content));
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Replace the content of a binary without updating its checksum, as damaged storage would, without going
+     * through HTTP or the fault profile.
+     *
+     * @param path Path of the binary.
+     * @param content Damaged content of the binary.
+    **/
+    public void corruptBinary(final String path, final byte[] content) {
+        final Lock write = lock.writeLock();
+        write.lock();
+        try {
+            final StoredResource binary = resources.get(normalize(path));
+            if (binary == null || !binary.binary) {
+                throw new IllegalArgumentException("no binary at " + path);
+            }
+            binary.content = content;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Check whether a resource exists.
+     *
+     * @param path Path of the resource.
+     * @return true if the resource exists
+    **/
+    public boolean exists(final String path) {
+        final Lock read = lock.readLock();
+        read.lock();
+        try {
+            return resources.containsKey(normalize(path));
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Check whether a resource has been deleted and left a tombstone.
+     *
+     * @param path Path of the resource.
+     * @return true if the resource is deleted
+    **/
+    public boolean isDeleted(final String path) {
+        final Lock read = lock.readLock();
+        read.lock();
+        try {
+            return tombstones.contains(normalize(path));
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (injectFaults(exchange)) {
+                return;
+            }
+            final String path = normalize(exchange.getRequestURI().getPath().substring(CONTEXT.length()));
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                case "HEAD":
+                    doGet(exchange, path);
+                    break;
+                case "PUT":
+                    doPut(exchange, path);
+                    break;
+                case "POST":
+                    doPost(exchange, path);
+                    break;
+                case "PATCH":
+                    doPatch(exchange, path);
+                    break;
+                case "DELETE":
+                    doDelete(exchange, path);
+                    break;
+                case "COPY":
+                    doCopy(exchange, path, false);
+                    break;
+                case "MOVE":
+                    doCopy(exchange, path, true);
+                    break;
+                case "OPTIONS":
+                    exchange.getResponseHeaders().set("Allow", "GET,HEAD,PUT,POST,PATCH,DELETE,COPY,MOVE,OPTIONS");
+                    send(exchange, 200, null, null);
+                    break;
+                default:
+                    send(exchange, 405, null, null);
+                    break;
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.warn("error handling {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            send(exchange, 500, "text/plain", String.valueOf(e.getMessage()).getBytes(UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Delay the request and fail or reset it according to the fault profile.
+     *
+     * @return true if the request has been answered
+    **/
+    private boolean injectFaults(final HttpExchange exchange) throws IOException {
+        final FaultProfile profile = faultProfile;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long delay = profile.nextDelay(random);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (profile.getResetRate() > 0 && random.nextDouble() < profile.getResetRate()) {
+            // closing the exchange before sending headers closes the connection
+            injectedFaults.incrementAndGet();
+            return true;
+        }
+        if (profile.getErrorRate() > 0 && random.nextDouble() < profile.getErrorRate()) {
+            injectedFaults.incrementAndGet();
+            if (profile.getRetryAfter() >= 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(profile.getRetryAfter()));
+            }
+            send(exchange, profile.getErrorStatus(), null, null);
+            return true;
+        }
+        return false;
+    }
+
+    private void doGet(final HttpExchange exchange, final String path) throws IOException {
+        final Lock read = lock.readLock();
+        read.lock();
+        try {
+            if (path.endsWith(TOMBSTONE)) {
+                send(exchange, tombstones.contains(parent(path)) ? 405 : 404, null, null);
+                return;
+            } else if (path.contains(VERSIONS)) {
+                getVersions(exchange, path);
+                return;
+            } else if (path.endsWith(FIXITY)) {
+                getFixity(exchange, parent(path));
+                return;
+            }
+
+            final boolean metadata = path.endsWith(METADATA);
+            final String target = metadata ? parent(path) : path;
+            final StoredResource resource = resources.get(target);
+            if (resource == null) {
+                sendMissing(exchange, target);
+                return;
+            } else if (metadata && !resource.binary) {
+                send(exchange, 404, null, null);
+                return;
+            }
+
+            final String etag = resource.etag(metadata || !resource.binary);
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Last-Modified", httpDate(resource.modified));
+            addLinks(exchange.getResponseHeaders(), target, resource);
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                send(exchange, 304, null, null);
+            } else if (resource.binary && !metadata) {
+                getContent(exchange, resource);
+            } else {
+                final Model model = ModelFactory.createDefaultModel();
+                final Preferences preferences = new Preferences(exchange.getRequestHeaders().getFirst("Prefer"));
+                describe(model, target, resource, preferences);
+                if (preferences.applied != null) {
+                    exchange.getResponseHeaders().set("Preference-Applied", preferences.applied);
+                }
+                sendModel(exchange, model);
+            }
+        } finally {
+            read.unlock();
+        }
+    }
+
+    private void getContent(final HttpExchange exchange, final StoredResource binary) throws IOException {
+        if (binary.externalUrl != null) {
+            exchange.getResponseHeaders().set("Location", binary.externalUrl);
+            send(exchange, 307, null, null);
+            return;
+        }
+        if (binary.filename != null) {
+            exchange.getResponseHeaders().set("Content-Disposition",
+                    "attachment; filename=\"" + binary.filename + "\"");
+        }
+        final byte[] content = binary.content;
+        final long[] range = byteRange(exchange.getRequestHeaders().getFirst("Range"), content.length);
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        if (range == null) {
+            send(exchange, 200, binary.contentType, content);
+        } else if (range[0] < 0) {
+            exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+            send(exchange, 416, null, null);
+        } else {
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + range[0] + "-" + range[1] + "/" + content.length);
+            send(exchange, 206, binary.contentType, Arrays.copyOfRange(content, (int) range[0], (int) range[1] + 1));
+        }
+    }
+
+    /**
+     * Parse a Range header holding a single byte range.
+     *
+     * @return the first and last byte positions, {@code {-1, -1}} if the range cannot be satisfied, or null if
+     *         the header is absent or not a single byte range, in which case the whole content is sent
+    **/
+    private static long[] byteRange(final String header, final long length) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        final String spec = header.substring("bytes=".length()).trim();
+        final int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            final String from = spec.substring(0, dash).trim();
+            final String to = spec.substring(dash + 1).trim();
+            if (from.isEmpty()) {
+                final long suffix = Long.parseLong(to);
+                return suffix <= 0 || length == 0 ? new long[] { -1, -1 }
+                        : new long[] { Math.max(0, length - suffix), length - 1 };
+            }
+            final long first = Long.parseLong(from);
+            final long last = to.isEmpty() ? Long.MAX_VALUE : Long.parseLong(to);
+            if (last < first) {
+                return null;
+            }
+            return first >= length ? new long[] { -1, -1 } : new long[] { first, Math.min(last, length - 1) };
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void getFixity(final HttpExchange exchange, final String path) throws IOException {
+        final StoredResource binary = resources.get(path);
+        if (binary == null) {
+            sendMissing(exchange, path);
+            return;
+        } else if (!binary.binary || binary.content == null) {
+            send(exchange, 404, null, null);
+            return;
+        }
+        final String digest = "urn:sha1:" + hex(digest("SHA-1", binary.content));
+        final Model model = ModelFactory.createDefaultModel();
+        final Resource result = model.createResource(uri(path) + "#fixity");
+        model.createResource(uri(path)).addProperty(HAS_FIXITY_RESULT, result);
+        result.addProperty(RDF.type, model.createResource(PREMIS_NAMESPACE + "Fixity"));
+        result.addProperty(HAS_FIXITY_STATE, digest.equals(binary.digest) ? "SUCCESS" : "BAD_CHECKSUM");
+        result.addProperty(HAS_MESSAGE_DIGEST, model.createResource(digest));
+        result.addLiteral(HAS_SIZE, (long) binary.content.length);
+        sendModel(exchange, model);
+    }
+
+    private void getVersions(final HttpExchange exchange, final String path) throws IOException {
+        final int index = path.indexOf(VERSIONS);
+        final String target = path.substring(0, index);
+        final StoredResource resource = resources.get(target);
+        if (resource == null) {
+            sendMissing(exchange, target);
+            return;
+        }
+
+        final String label = path.length() > index + VERSIONS.length()
+                ? path.substring(index + VERSIONS.length() + 1) : null;
+        final Model model = ModelFactory.createDefaultModel();
+        if (label == null) {
+            final Resource subject = model.createResource(uri(target));
+            for (final Map.Entry<String, StoredResource> version : resource.versions.entrySet()) {
+                final Resource versionResource = model.createResource(uri(target + VERSIONS + "/"
+                        + version.getKey()));
+                subject.addProperty(HAS_VERSION, versionResource);
+                versionResource.addProperty(HAS_VERSION_LABEL, version.getKey());
+                versionResource.addProperty(CREATED_DATE, date(model, version.getValue().created));
+            }
+        } else {
+            final StoredResource version = resource.versions.get(label);
+            if (version == null) {
+                send(exchange, 404, null, null);
+                return;
+            } else if (version.binary) {
+                getContent(exchange, version);
+                return;
+            }
+            describe(model, path, version, new Preferences(null));
+        }
+        sendModel(exchange, model);
+    }
+
+    private void doPut(final HttpExchange exchange, final String path) throws IOException {
+        final byte[] body = readBody(exchange);
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        final Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (path.endsWith(TOMBSTONE) || path.contains(VERSIONS)) {
+                send(exchange, 405, null, null);
+                return;
+            }
+
+            final boolean metadata = path.endsWith(METADATA);
+            final String target = metadata ? parent(path) : path;
+            final StoredResource existing = resources.get(target);
+            if (existing == null && (metadata || isGone(target))) {
+                sendMissing(exchange, target);
+                return;
+            } else if (existing != null) {
+                if (preconditionFailed(exchange, existing.etag(metadata))) {
+                    send(exchange, 412, null, null);
+                } else if (existing.binary && !metadata) {
+                    setContent(exchange, existing, body, contentType);
+                } else if (existing.binary != metadata) {
+                    send(exchange, 404, null, null);
+                } else if (body.length == 0) {
+                    send(exchange, 409, "text/plain", "resource already exists".getBytes(UTF_8));
+                } else if (rdfLang(contentType) == null) {
+                    send(exchange, 415, null, null);
+                } else {
+                    replaceProperties(exchange, target, existing, body, contentType);
+                }
+                return;
+            }
+            createFromBody(exchange, target, body, contentType);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    private void doPost(final HttpExchange exchange, final String path) throws IOException {
+        final byte[] body = readBody(exchange);
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        final String slug = exchange.getRequestHeaders().getFirst("Slug");
+        final Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (path.endsWith(VERSIONS)) {
+                createVersion(exchange, parent(path), slug);
+                return;
+            } else if (path.endsWith(TOMBSTONE) || path.endsWith(METADATA) || path.contains(VERSIONS)) {
+                send(exchange, 405, null, null);
+                return;
+            }
+
+            final StoredResource container = resources.get(path);
+            if (container == null) {
+                sendMissing(exchange, path);
+                return;
+            } else if (container.binary) {
+                send(exchange, 405, null, null);
+                return;
+            }
+            String name = slug == null || slug.isEmpty() ? null : slug.replace('/', '_');
+            if (name == null || container.children.contains(name) || tombstones.contains(child(path, name))) {
+                name = UUID.randomUUID().toString();
+            }
+            createFromBody(exchange, child(path, name), body, contentType);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    private void doPatch(final HttpExchange exchange, final String path) throws IOException {
+        final byte[] body = readBody(exchange);
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        final Lock write = lock.writeLock();
+        write.lock();
+        try {
+            final boolean metadata = path.endsWith(METADATA);
+            final String target = metadata ? parent(path) : path;
+            final StoredResource resource = resources.get(target);
+            if (resource == null) {
+                sendMissing(exchange, target);
+                return;
+            } else if (resource.binary != metadata || contentType == null
+                    || !mediaType(contentType).equals(SPARQL_UPDATE)) {
+                send(exchange, 415, null, null);
+                return;
+            } else if (preconditionFailed(exchange, resource.etag(true))) {
+                send(exchange, 412, null, null);
+                return;
+            }
+
+            final UpdateRequest update;
+            try {
+                update = UpdateFactory.create(new String(body, UTF_8), uri(target));
+            } catch (final QueryParseException e) {
+                send(exchange, 400, "text/plain", String.valueOf(e.getMessage()).getBytes(UTF_8));
+                return;
+            }
+            final Model updated = ModelFactory.createDefaultModel().add(resource.properties);
+            UpdateAction.execute(update, updated);
+            final StmtIterator it = updated.listStatements();
+            try {
+                while (it.hasNext()) {
+                    final Statement statement = it.next();
+                    if (isServerManaged(statement)) {
+                        send(exchange, 409, "text/plain", ("could not persist triple containing predicate "
+                                + statement.getPredicate().getURI()).getBytes(UTF_8));
+                        return;
+                    }
+                }
+            } finally {
+                it.close();
+            }
+            resource.properties = updated;
+            resource.touch(System.currentTimeMillis(), revision.incrementAndGet());
+            exchange.getResponseHeaders().set("ETag", resource.etag(metadata));
+            send(exchange, 204, null, null);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    private void doDelete(final HttpExchange exchange, final String path) throws IOException {
+        final Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (path.endsWith(TOMBSTONE)) {
+                send(exchange, tombstones.remove(parent(path)) ? 204 : 404, null, null);
+                return;
+            } else if (path.isEmpty() || path.endsWith(METADATA) || path.contains(VERSIONS)) {
+                send(exchange, 405, null, null);
+                return;
+            }
+
+            final StoredResource resource = resources.get(path);
+            if (resource == null) {
+                sendMissing(exchange, path);
+            } else if (preconditionFailed(exchange, resource.etag(false))) {
+                send(exchange, 412, null, null);
+            } else {
+                remove(path);
+                tombstones.add(path);
+                send(exchange, 204, null, null);
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    private void doCopy(final HttpExchange exchange, final String path, final boolean move) throws IOException {
+        final String destination = exchange.getRequestHeaders().getFirst("Destination");
+        if (destination == null || !destination.startsWith(repositoryUrl)) {
+            send(exchange, 502, null, null);
+            return;
+        }
+        final String target = normalize(URLDecoder.decode(destination.substring(repositoryUrl.length()), "UTF-8"));
+        final Lock write = lock.writeLock();
+        write.lock();
+        try {
+            final StoredResource source = resources.get(path);
+            if (source == null || path.isEmpty()) {
+                send(exchange, isGone(path) ? 410 : 409, null, null);
+            } else if (resources.containsKey(target)) {
+                send(exchange, 412, null, null);
+            } else if (isGone(target) || target.startsWith(path + "/") || !ensureParent(target)) {
+                send(exchange, 409, null, null);
+            } else {
+                copyTree(path, target, move);
+                if (move) {
+                    remove(path);
+                    tombstones.add(path);
+                }
+                sendCreated(exchange, target);
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    private void createVersion(final HttpExchange exchange, final String path, final String slug)
+            throws IOException {
+        final StoredResource resource = resources.get(path);
+        if (resource == null) {
+            sendMissing(exchange, path);
+            return;
+        }
+        final String label = slug == null || slug.isEmpty() ? "version" + resource.versions.size() : slug;
+        if (resource.versions.containsKey(label)) {
+            send(exchange, 409, "text/plain", ("version " + label + " already exists").getBytes(UTF_8));
+            return;
+        }
+        resource.versions.put(label, resource.copy(System.currentTimeMillis(), revision.incrementAndGet()));
+        send(exchange, 204, null, null);
+    }
+
+    private void createFromBody(final HttpExchange exchange, final String path, final byte[] body,
+                                final String contentType) throws IOException {
+        final Lang lang = rdfLang(contentType);
+        final boolean external = contentType != null && mediaType(contentType).equals(EXTERNAL_BODY);
+        final boolean binary = external || (body.length > 0 && lang == null);
+        final Model properties = ModelFactory.createDefaultModel();
+        if (lang != null && body.length > 0 && !parse(exchange, path, body, lang, properties)) {
+            return;
+        }
+        final String checksum = binary && !external ? checksum(exchange, body) : null;
+        if (binary && !external && checksum == null) {
+            return;
+        }
+        if (!ensureParent(path)) {
+            send(exchange, 409, "text/plain", "parent of resource is a binary".getBytes(UTF_8));
+            return;
+        }
+
+        final StoredResource resource = create(path, binary);
+        resource.properties = properties;
+        if (external) {
+            resource.contentType = EXTERNAL_BODY;
+            resource.externalUrl = parameter(contentType, "URL");
+        } else if (binary) {
+            storeContent(exchange, resource, body, contentType, checksum);
+        }
+        sendCreated(exchange, path);
+    }
+
+    private void setContent(final HttpExchange exchange, final StoredResource binary, final byte[] body,
+                            final String contentType) throws IOException {
+        if (contentType != null && mediaType(contentType).equals(EXTERNAL_BODY)) {
+            binary.content = null;
+            binary.contentType = EXTERNAL_BODY;
+            binary.externalUrl = parameter(contentType, "URL");
+        } else {
+            final String checksum = checksum(exchange, body);
+            if (checksum == null) {
+                return;
+            }
+            binary.externalUrl = null;
+            storeContent(exchange, binary, body, contentType, checksum);
+        }
+        binary.touch(System.currentTimeMillis(), revision.incrementAndGet());
+        exchange.getResponseHeaders().set("ETag", binary.etag(false));
+        send(exchange, 204, null, null);
+    }
+
+    private static void storeContent(final HttpExchange exchange, final StoredResource binary, final byte[] body,
+                                     final String contentType, final String checksum) {
+        binary.content = body;
+        binary.contentType = contentType == null ? "application/octet-stream" : contentType;
+        binary.digest = checksum;
+        final String disposition = exchange.getRequestHeaders().getFirst("Content-Disposition");
+        if (disposition != null) {
+            binary.filename = parameter(disposition, "filename");
+        }
+    }
+
+    private void replaceProperties(final HttpExchange exchange, final String path, final StoredResource resource,
+                                   final byte[] body, final String contentType) throws IOException {
+        final Model properties = ModelFactory.createDefaultModel();
+        if (parse(exchange, path, body, rdfLang(contentType), properties)) {
+            resource.properties = properties;
+            resource.touch(System.currentTimeMillis(), revision.incrementAndGet());
+            exchange.getResponseHeaders().set("ETag", resource.etag(true));
+            send(exchange, 204, null, null);
+        }
+    }
+
+    /**
+     * Parse user-supplied RDF, ignoring server-managed triples as Fedora does with lenient handling.
+     *
+     * @return false if the RDF could not be parsed and the request has been answered
+    **/
+    private boolean parse(final HttpExchange exchange, final String path, final byte[] body, final Lang lang,
+                          final Model properties) throws IOException {
+        final Model parsed = ModelFactory.createDefaultModel();
+        try {
+            RDFDataMgr.read(parsed, new ByteArrayInputStream(body), uri(path), lang);
+        } catch (final RiotException e) {
+            send(exchange, 400, "text/plain", String.valueOf(e.getMessage()).getBytes(UTF_8));
+            return false;
+        }
+        final StmtIterator it = parsed.listStatements();
+        try {
+            while (it.hasNext()) {
+                final Statement statement = it.next();
+                if (!isServerManaged(statement)) {
+                    properties.add(statement);
+                }
+            }
+        } finally {
+            it.close();
+        }
+        return true;
+    }
+
+    /**
+     * Verify the checksum query parameter, if any, against the content.
+     *
+     * @return the SHA-1 URN of the content, or null if verification failed and the request has been answered
+    **/
+    private static String checksum(final HttpExchange exchange, final byte[] body) throws IOException {
+        final String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (final String param : query.split("&")) {
+                if (param.startsWith("checksum=")) {
+                    final String expected = URLDecoder.decode(param.substring("checksum=".length()), "UTF-8");
+                    final String actual = checksumUrn(expected, body);
+                    if (actual == null) {
+                        send(exchange, 400, "text/plain", ("unsupported checksum " + expected).getBytes(UTF_8));
+                        return null;
+                    } else if (!actual.equalsIgnoreCase(expected)) {
+                        send(exchange, 409, "text/plain", ("checksum mismatch, computed " + actual)
+                                .getBytes(UTF_8));
+                        return null;
+                    }
+                }
+            }
+        }
+        return "urn:sha1:" + hex(digest("SHA-1", body));
+    }
+
+    private static String checksumUrn(final String expected, final byte[] body) {
+        if (expected.startsWith("urn:sha1:")) {
+            return "urn:sha1:" + hex(digest("SHA-1", body));
+        } else if (expected.startsWith("urn:md5:")) {
+            return "urn:md5:" + hex(digest("MD5", body));
+        } else if (expected.startsWith("urn:sha256:")) {
+            return "urn:sha256:" + hex(digest("SHA-256", body));
+        }
+        return null;
+    }
+
+    private StoredResource create(final String path, final boolean binary) {
+        ensureParent(path);
+        StoredResource resource = resources.get(path);
+        if (resource == null) {
+            resource = new StoredResource(binary, System.currentTimeMillis(), revision.incrementAndGet());
+            resources.put(path, resource);
+            tombstones.remove(path);
+            final StoredResource parent = resources.get(parent(path));
+            parent.children.add(name(path));
+            parent.touch(resource.created, resource.revision);
+        }
+        return resource;
+    }
+
+    /**
+     * Create any missing ancestors of a path as containers, as Fedora does.
+     *
+     * @return false if an ancestor is a binary
+    **/
+    private boolean ensureParent(final String path) {
+        if (path.isEmpty()) {
+            return true;
+        }
+        final String parentPath = parent(path);
+        final StoredResource parent = resources.get(parentPath);
+        if (parent != null) {
+            return !parent.binary;
+        } else if (!ensureParent(parentPath)) {
+            return false;
+        }
+        create(parentPath, false);
+        return true;
+    }
+
+    private void copyTree(final String source, final String target, final boolean move) {
+        final StoredResource original = resources.get(source);
+        final long now = System.currentTimeMillis();
+        final StoredResource copy;
+        if (move) {
+            copy = original.copy(original.created, revision.incrementAndGet());
+            copy.versions.putAll(original.versions);
+        } else {
+            copy = original.copy(now, revision.incrementAndGet());
+        }
+        resources.put(target, copy);
+        final StoredResource parent = resources.get(parent(target));
+        parent.children.add(name(target));
+        parent.touch(now, copy.revision);
+        for (final String name : new ArrayList<>(original.children)) {
+            copyTree(child(source, name), child(target, name), move);
+        }
+    }
+
+    private void remove(final String path) {
+        final StoredResource resource = resources.remove(path);
+        if (resource == null) {
+            return;
+        }
+        for (final String name : resource.children) {
+            remove(child(path, name));
+        }
+        final StoredResource parent = resources.get(parent(path));
+        if (parent != null) {
+            parent.children.remove(name(path));
+            parent.touch(System.currentTimeMillis(), revision.incrementAndGet());
+        }
+    }
+
+    private boolean isGone(final String path) {
+        for (String p = path; !p.isEmpty(); p = parent(p)) {
+            if (tombstones.contains(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add the description of a resource to a model, honoring the client's preferences.
+    **/
+    private void describe(final Model model, final String path, final StoredResource resource,
+                          final Preferences preferences) {
+        final Resource subject = model.createResource(uri(path));
+        if (!preferences.omitServerManaged) {
+            addServerManaged(model, subject, path, resource);
+        }
+        model.add(resource.properties);
+        for (final String name : resource.children) {
+            final String childPath = child(path, name);
+            final StoredResource child = resources.get(childPath);
+            final Resource childSubject = model.createResource(uri(childPath));
+            if (preferences.containment) {
+                subject.addProperty(CONTAINS, childSubject);
+            }
+            if (preferences.embed && child != null) {
+                if (!preferences.omitServerManaged) {
+                    addServerManaged(model, childSubject, childPath, child);
+                }
+                model.add(child.properties);
+            }
+        }
+    }
+
+    private void addServerManaged(final Model model, final Resource subject, final String path,
+                                  final StoredResource resource) {
+        if (!path.isEmpty()) {
+            subject.addProperty(HAS_PARENT, model.createResource(uri(parent(path))));
+        }
+        subject.addProperty(RDF.type, model.createResource(REPOSITORY_NAMESPACE + "Resource"));
+        subject.addProperty(HAS_MIXIN_TYPE, "fedora:Resource");
+        subject.addProperty(HAS_MIXIN_TYPE, "mix:lastModified");
+        subject.addProperty(HAS_MIXIN_TYPE, "mix:created");
+        if (resource.binary) {
+            subject.addProperty(RDF.type, model.createResource(REPOSITORY_NAMESPACE + "Binary"));
+            subject.addProperty(RDF.type, model.createResource(LDP_NAMESPACE + "NonRDFSource"));
+            subject.addProperty(HAS_PRIMARY_TYPE, "nt:file");
+            subject.addProperty(HAS_MIXIN_TYPE, "fedora:Binary");
+            final Resource description = model.createResource(uri(path + METADATA));
+            subject.addProperty(DESCRIBED_BY, description);
+            description.addProperty(DESCRIBES, subject);
+            subject.addProperty(HAS_MIME_TYPE, resource.contentType);
+            if (resource.content != null) {
+                subject.addLiteral(HAS_SIZE, (long) resource.content.length);
+            }
+            if (resource.filename != null) {
+                subject.addProperty(HAS_ORIGINAL_NAME, resource.filename);
+            }
+            if (resource.digest != null) {
+                subject.addProperty(HAS_MESSAGE_DIGEST, model.createResource(resource.digest));
+            }
+        } else {
+            subject.addProperty(RDF.type, model.createResource(REPOSITORY_NAMESPACE + "Container"));
+            subject.addProperty(RDF.type, model.createResource(LDP_NAMESPACE + "Container"));
+            subject.addProperty(RDF.type, model.createResource(LDP_NAMESPACE + "RDFSource"));
+            subject.addProperty(HAS_PRIMARY_TYPE, "nt:folder");
+            subject.addProperty(HAS_MIXIN_TYPE, "fedora:Container");
+        }
+        subject.addProperty(CREATED_DATE, date(model, resource.created));
+        subject.addProperty(CREATED_BY, USER);
+        subject.addProperty(LAST_MODIFIED_DATE, date(model, resource.modified));
+        subject.addProperty(LAST_MODIFIED_BY, USER);
+        subject.addLiteral(WRITABLE, true);
+        subject.addProperty(HAS_VERSION_HISTORY, model.createResource(uri(path + VERSIONS)));
+    }
+
+    private void addLinks(final Headers headers, final String path, final StoredResource resource) {
+        headers.add("Link", "<" + LDP_NAMESPACE + "Resource>;rel=\"type\"");
+        if (resource.binary) {
+            headers.add("Link", "<" + LDP_NAMESPACE + "NonRDFSource>;rel=\"type\"");
+            headers.add("Link", "<" + uri(path + METADATA) + ">;rel=\"describedby\"");
+        } else {
+            headers.add("Link", "<" + LDP_NAMESPACE + "BasicContainer>;rel=\"type\"");
+        }
+    }
+
+    private void sendModel(final HttpExchange exchange, final Model model) throws IOException {
+        final Lang lang = negotiate(exchange.getRequestHeaders().getFirst("Accept"), serializations);
+        if (lang == null) {
+            send(exchange, 406, null, null);
+            return;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, model, lang);
+        exchange.getResponseHeaders().set("Vary", "Accept, Prefer");
+        send(exchange, 200, lang.getContentType().getContentType(), out.toByteArray());
+    }
+
+    private void sendMissing(final HttpExchange exchange, final String path) throws IOException {
+        if (isGone(path)) {
+            exchange.getResponseHeaders().set("Link", "<" + uri(path + TOMBSTONE) + ">;rel=\"hasTombstone\"");
+            send(exchange, 410, null, null);
+        } else {
+            send(exchange, 404, null, null);
+        }
+    }
+
+    private void sendCreated(final HttpExchange exchange, final String path) throws IOException {
+        final String location = uri(path);
+        exchange.getResponseHeaders().set("Location", location);
+        final StoredResource resource = resources.get(path);
+        exchange.getResponseHeaders().set("ETag", resource.etag(false));
+        send(exchange, 201, "text/plain", location.getBytes(UTF_8));
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String contentType,
+                             final byte[] body) throws IOException {
+        // the server only keeps the connection open if the request has been read to the end
+        readBody(exchange);
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        if (body == null || body.length == 0 || "HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            exchange.sendResponseHeaders(status, body.length);
+            try (final OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static byte[] readBody(final HttpExchange exchange) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        final InputStream in = exchange.getRequestBody();
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Pick the offered RDF serialization with the highest quality in an Accept header.  Fedora's default is
+     * Turtle; JSON-LD is not offered since its writer is excluded from the build.
+     *
+     * @return the serialization, or null if none is acceptable
+    **/
+    static Lang negotiate(final String accept, final List<Lang> offered) {
+        if (accept == null || accept.trim().isEmpty()) {
+            return offered.get(0);
+        }
+        Lang best = null;
+        double bestQuality = 0;
+        for (final String range : accept.split(",")) {
+            final String type = mediaType(range);
+            final String q = parameter(range, "q");
+            double quality = 1;
+            if (q != null) {
+                try {
+                    quality = Double.parseDouble(q);
+                } catch (final NumberFormatException e) {
+                    quality = 0;
+                }
+            }
+            final Lang lang = type.equals("*/*") || type.equals("text/*") ? offered.get(0) : rdfLang(type);
+            if (lang != null && quality > bestQuality && offered.contains(lang)) {
+                best = lang;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the RDF language of a content type.  Unlike Jena, plain text is not taken to be N-Triples, since
+     * Fedora stores it as a binary.
+    **/
+    private static Lang rdfLang(final String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        final String type = mediaType(contentType);
+        return type.equals("text/plain") ? null : RDFLanguages.contentTypeToLang(type);
+    }
+
+    private static String mediaType(final String contentType) {
+        return ContentType.create(contentType.trim()).getContentType().toLowerCase();
+    }
+
+    private static String parameter(final String header, final String name) {
+        for (final String part : header.split(";")) {
+            final String[] pair = part.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase(name)) {
+                return unquote(pair[1].trim());
+            }
+        }
+        return null;
+    }
+
+    private static String unquote(final String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1) : value;
+    }
+
+    private static boolean isServerManaged(final Statement statement) {
+        if (statement.getPredicate().equals(RDF.type) && statement.getObject().isURIResource()) {
+            final String type = statement.getObject().asResource().getURI();
+            return type.startsWith(REPOSITORY_NAMESPACE) || type.startsWith(LDP_NAMESPACE);
+        }
+        return isManagedPredicate.apply(statement.getPredicate());
+    }
+
+    private static boolean preconditionFailed(final HttpExchange exchange, final String etag) {
+        final String condition = exchange.getRequestHeaders().getFirst("If-Match");
+        return (condition != null && !matches(condition, etag))
+                || matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag);
+    }
+
+    private static boolean matches(final String condition, final String etag) {
+        if (condition == null) {
+            return false;
+        }
+        final String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (final String candidate : condition.split(",")) {
+            final String c = candidate.trim();
+            if (c.equals("*") || (c.startsWith("W/") ? c.substring(2) : c).equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String uri(final String path) {
+        return repositoryUrl + path;
+    }
+
+    private static String normalize(final String path) {
+        String p = path.startsWith("/") || path.isEmpty() ? path : "/" + path;
+        while (p.endsWith("/")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        return p;
+    }
+
+    private static String parent(final String path) {
+        return path.substring(0, Math.max(0, path.lastIndexOf('/')));
+    }
+
+    private static String name(final String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String child(final String path, final String name) {
+        return path + "/" + name;
+    }
+
+    private static Literal date(final Model model, final long time) {
+        return model.createTypedLiteral(DATE_FORMAT.format(Instant.ofEpochMilli(time)), XSDdateTime);
+    }
+
+    private static String httpDate(final long time) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(time).atZone(ZoneOffset.UTC));
+    }
+
+    private static byte[] digest(final String algorithm, final byte[] content) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(content);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Preferences parsed from a Prefer header.  By default containment and server-managed triples are returned
+     * and children are not embedded.
+    **/
+    private static class Preferences {
+        boolean containment = true;
+        boolean embed = false;
+        boolean omitServerManaged = false;
+        String applied = null;
+
+        Preferences(final String header) {
+            if (header == null) {
+                return;
+            }
+            final String value = parameter(header, "return");
+            if ("minimal".equals(value)) {
+                containment = false;
+                applied = "return=minimal";
+                return;
+            } else if (!"representation".equals(value)) {
+                return;
+            }
+            applied = "return=representation";
+            final List<String> include = uris(parameter(header, "include"));
+            final List<String> omit = uris(parameter(header, "omit"));
+            embed = include.contains(EMBED_RESOURCES);
+            containment = !omit.contains(PREFER_CONTAINMENT);
+            omitServerManaged = omit.contains(SERVER_MANAGED);
+        }
+
+        private static List<String> uris(final String value) {
+            final List<String> uris = new ArrayList<>();
+            if (value != null) {
+                for (final String uri : value.trim().split("\\s+")) {
+                    uris.add(uri);
+                }
+            }
+            return uris;
+        }
+    }
+}
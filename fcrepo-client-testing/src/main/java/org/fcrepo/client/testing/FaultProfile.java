@@ -0,0 +1,211 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.testing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and errors injected by a {@link FakeFedoraServer} into every request.  All setters return the updated
+ * object so they can be chained:
+ * <pre>{@code server.setFaultProfile(new FaultProfile().setLatency(5).setJitter(2).setErrorRate(0.01));}</pre>
+ *
+ * Each request is delayed by the fixed latency plus a uniformly distributed jitter, and with the slow-call rate by
+ * the slow latency instead, to model a long tail.  It then fails with the error status at the error rate, or has
+ * its connection closed without a response at the reset rate.  All durations are in milliseconds.
+ *
+ * @author escowles
+**/
+public class FaultProfile {
+
+    private long latency = 0;
+    private long jitter = 0;
+    private double slowRate = 0;
+    private long slowLatency = 0;
+    private double errorRate = 0;
+    private int errorStatus = 503;
+    private int retryAfter = -1;
+    private double resetRate = 0;
+
+    /**
+     * Default constructor, injecting no faults.
+    **/
+    public FaultProfile() {
+    }
+
+    /**
+     * Get the fixed latency added to every request.
+     *
+     * @return latency
+    **/
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Get the maximum random latency added on top of the fixed latency.
+     *
+     * @return jitter
+    **/
+    public long getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Get the fraction of requests (0-1) delayed by the slow latency.
+     *
+     * @return slow-call rate
+    **/
+    public double getSlowRate() {
+        return slowRate;
+    }
+
+    /**
+     * Get the latency of slow requests.
+     *
+     * @return slow latency
+    **/
+    public long getSlowLatency() {
+        return slowLatency;
+    }
+
+    /**
+     * Get the fraction of requests (0-1) failed with the error status.
+     *
+     * @return error rate
+    **/
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * Get the status of failed requests.
+     *
+     * @return error status
+    **/
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    /**
+     * Get the Retry-After delay, in seconds, sent with failed requests; a negative value sends no header.
+     *
+     * @return Retry-After delay
+    **/
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Get the fraction of requests (0-1) whose connection is closed without a response.
+     *
+     * @return reset rate
+    **/
+    public double getResetRate() {
+        return resetRate;
+    }
+
+    /**
+     * Set the fixed latency added to every request.
+     *
+     * @param latency latency
+     * @return The updated object for chaining.
+    **/
+    public FaultProfile setLatency( final long latency ) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Set the maximum random latency added on top of the fixed latency.
+     *
+     * @param jitter jitter
+     * @return The updated object for chaining.
+    **/
+    public FaultProfile setJitter( final long jitter ) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Set the fraction of requests (0-1) delayed by the slow latency instead of the fixed latency and jitter.
+     *
+     * @param slowRate slow-call rate
+     * @param slowLatency slow latency
+     * @return The updated object for chaining.
+    **/
+    public FaultProfile setSlowCalls( final double slowRate, final long slowLatency ) {
+        this.slowRate = slowRate;
+        this.slowLatency = slowLatency;
+        return this;
+    }
+
+    /**
+     * Set the fraction of requests (0-1) failed with the error status.
+     *
+     * @param errorRate error rate
+     * @return The updated object for chaining.
+    **/
+    public FaultProfile setErrorRate( final double errorRate ) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Set the status of failed requests, by default 503 Service Unavailable.
+     *
+     * @param errorStatus error status
+     * @return The updated object for chaining.
+    **/
+    public FaultProfile setErrorStatus( final int errorStatus ) {
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    /**
+     * Set the Retry-After delay, in seconds, sent with failed requests; a negative value sends no header.
+     *
+     * @param retryAfter Retry-After delay
+     * @return The updated object for chaining.
+    **/
+    public FaultProfile setRetryAfter( final int retryAfter ) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Set the fraction of requests (0-1) whose connection is closed without a response.
+     *
+     * @param resetRate reset rate
+     * @return The updated object for chaining.
+    **/
+    public FaultProfile setResetRate( final double resetRate ) {
+        this.resetRate = resetRate;
+        return this;
+    }
+
+    /**
+     * Pick the delay of a request.
+     *
+     * @param random Source of randomness.
+     * @return delay in milliseconds
+    **/
+    long nextDelay( final ThreadLocalRandom random ) {
+        if (slowRate > 0 && random.nextDouble() < slowRate) {
+            return slowLatency;
+        }
+        return jitter > 0 ? latency + random.nextLong(jitter + 1) : latency;
+    }
+}
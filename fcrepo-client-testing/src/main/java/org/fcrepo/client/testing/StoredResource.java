@@ -0,0 +1,98 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.testing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+/**
+ * State of a container or binary held by a {@link FakeFedoraServer}.  Only user-supplied triples are stored;
+ * server-managed triples are generated when the resource is described.  Instances are guarded by the server's
+ * lock.
+ *
+ * @author escowles
+**/
+class StoredResource {
+    final boolean binary;
+    final long created;
+    long modified;
+    long revision;
+    Model properties = ModelFactory.createDefaultModel();
+
+    byte[] content;
+    String contentType;
+    String filename;
+    String externalUrl;
+    String digest;
+
+    /** Names of the children, in order. */
+    final Set<String> children = new TreeSet<>();
+
+    /** Snapshots of the resource, by label. */
+    final Map<String, StoredResource> versions = new LinkedHashMap<>();
+
+    StoredResource(final boolean binary, final long created, final long revision) {
+        this.binary = binary;
+        this.created = created;
+        this.modified = created;
+        this.revision = revision;
+    }
+
+    /**
+     * Record a modification of the resource.
+     *
+     * @param now Time of the modification.
+     * @param newRevision Revision of the repository after the modification.
+    **/
+    void touch(final long now, final long newRevision) {
+        modified = now;
+        revision = newRevision;
+    }
+
+    /**
+     * Copy the resource, without its children or versions.
+     *
+     * @param now Creation time of the copy.
+     * @param newRevision Revision of the copy.
+     * @return the copy
+    **/
+    StoredResource copy(final long now, final long newRevision) {
+        final StoredResource copy = new StoredResource(binary, now, newRevision);
+        copy.properties.add(properties);
+        copy.content = content;
+        copy.contentType = contentType;
+        copy.filename = filename;
+        copy.externalUrl = externalUrl;
+        copy.digest = digest;
+        return copy;
+    }
+
+    /**
+     * Get the ETag of the resource: strong for binary content, weak for RDF descriptions.
+     *
+     * @param description Whether the ETag is for the RDF description of the resource.
+     * @return ETag header value
+    **/
+    String etag(final boolean description) {
+        final String tag = "\"" + Long.toHexString(revision) + "\"";
+        return binary && !description ? tag : "W/" + tag;
+    }
+}
@@ -0,0 +1,373 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client.testing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.fcrepo.kernel.api.RdfLexicon.CONTAINS;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_MIXIN_TYPE;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_SIZE;
+import static org.fcrepo.kernel.api.RdfLexicon.HAS_VERSION_LABEL;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import com.hp.hpl.jena.vocabulary.DC;
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Fake repository test
+ * @author escowles
+ */
+public class FakeFedoraServerTest {
+
+    private static final String EMBED = "return=representation; "
+            + "include=\"http://fedora.info/definitions/v4/repository#EmbedResources\"";
+
+    private FakeFedoraServer server;
+    private CloseableHttpClient client;
+    private String base;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeFedoraServer(0, 4);
+        client = HttpClients.custom().disableAutomaticRetries().build();
+        base = server.getRepositoryUrl();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testCreateContainerWithAncestors() throws IOException {
+        assertEquals(201, status(new HttpPut(base + "/a/b")));
+        assertTrue(server.exists("/a"));
+        assertEquals(409, status(new HttpPut(base + "/a/b")));
+
+        final HttpGet get = new HttpGet(base + "/a");
+        get.setHeader("Prefer", EMBED);
+        final Model model = model(get);
+        final Resource child = model.createResource(base + "/a/b");
+        assertTrue(model.contains(model.createResource(base + "/a"), CONTAINS, child));
+        assertTrue(model.contains(child, HAS_MIXIN_TYPE, "fedora:Container"));
+    }
+
+    @Test
+    public void testPreferOmitContainment() throws IOException {
+        server.createContainer("/a/b");
+        final HttpGet get = new HttpGet(base + "/a");
+        get.setHeader("Prefer", "return=representation; omit=\"http://www.w3.org/ns/ldp#PreferContainment\"");
+        final Model model = model(get);
+        assertFalse(model.contains(null, CONTAINS));
+        assertFalse(model.contains(model.createResource(base + "/a/b"), HAS_MIXIN_TYPE));
+    }
+
+    @Test
+    public void testPostWithSlug() throws IOException {
+        server.createContainer("/a");
+        final HttpPost post = new HttpPost(base + "/a");
+        post.setHeader("Slug", "child");
+        try {
+            final HttpResponse response = client.execute(post);
+            assertEquals(201, response.getStatusLine().getStatusCode());
+            assertEquals(base + "/a/child", response.getFirstHeader("Location").getValue());
+        } finally {
+            post.releaseConnection();
+        }
+        assertTrue(server.exists("/a/child"));
+    }
+
+    @Test
+    public void testBinary() throws IOException {
+        final byte[] content = "foo".getBytes(UTF_8);
+        final HttpPut put = new HttpPut(base + "/a/bin?checksum=urn:sha1:0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33");
+        put.setEntity(new ByteArrayEntity(content));
+        put.setHeader("Content-Type", "text/plain");
+        assertEquals(201, status(put));
+
+        final HttpGet get = new HttpGet(base + "/a/bin");
+        final String etag;
+        try {
+            final HttpResponse response = client.execute(get);
+            assertEquals("text/plain", response.getFirstHeader("Content-Type").getValue());
+            assertArrayEquals(content, EntityUtils.toByteArray(response.getEntity()));
+            etag = response.getFirstHeader("ETag").getValue();
+        } finally {
+            get.releaseConnection();
+        }
+
+        final HttpGet conditional = new HttpGet(base + "/a/bin");
+        conditional.setHeader("If-None-Match", etag);
+        assertEquals(304, status(conditional));
+
+        final Model model = model(new HttpGet(base + "/a/bin/fcr:metadata"));
+        assertTrue(model.containsLiteral(model.createResource(base + "/a/bin"), HAS_SIZE, 3L));
+        assertEquals(404, status(new HttpGet(base + "/a/fcr:metadata")));
+    }
+
+    @Test
+    public void testByteRange() throws IOException {
+        server.createBinary("/bin", "foobar".getBytes(UTF_8), "text/plain");
+        final HttpGet get = new HttpGet(base + "/bin");
+        get.setHeader("Range", "bytes=1-3");
+        try {
+            final HttpResponse response = client.execute(get);
+            assertEquals(206, response.getStatusLine().getStatusCode());
+            assertEquals("bytes 1-3/6", response.getFirstHeader("Content-Range").getValue());
+            assertEquals("oob", EntityUtils.toString(response.getEntity()));
+        } finally {
+            get.releaseConnection();
+        }
+
+        get.setHeader("Range", "bytes=-2");
+        try {
+            assertEquals("ar", EntityUtils.toString(client.execute(get).getEntity()));
+        } finally {
+            get.releaseConnection();
+        }
+
+        get.setHeader("Range", "bytes=6-");
+        assertEquals(416, status(get));
+    }
+
+    @Test
+    public void testFixity() throws IOException {
+        server.createBinary("/bin", "foo".getBytes(UTF_8), "text/plain");
+        final Resource result = ResourceFactory.createResource(base + "/bin#fixity");
+        final Property outcome = ResourceFactory.createProperty("http://www.loc.gov/premis/rdf/v1#hasEventOutcome");
+        Model model = model(new HttpGet(base + "/bin/fcr:fixity"));
+        assertTrue(model.contains(result, outcome, "SUCCESS"));
+        assertTrue(model.containsLiteral(result, HAS_SIZE, 3L));
+
+        server.corruptBinary("/bin", "fob".getBytes(UTF_8));
+        model = model(new HttpGet(base + "/bin/fcr:fixity"));
+        assertTrue(model.contains(result, outcome, "BAD_CHECKSUM"));
+        assertEquals(404, status(new HttpGet(base + "/missing/fcr:fixity")));
+    }
+
+    @Test
+    public void testChecksumMismatch() throws IOException {
+        final HttpPut put = new HttpPut(base + "/bin?checksum=urn:sha1:0000");
+        put.setEntity(new ByteArrayEntity("foo".getBytes(UTF_8)));
+        assertEquals(409, status(put));
+        assertFalse(server.exists("/bin"));
+    }
+
+    @Test
+    public void testConditionalUpdate() throws IOException {
+        server.createBinary("/bin", "foo".getBytes(UTF_8), "text/plain");
+        final HttpPut put = new HttpPut(base + "/bin");
+        put.setEntity(new ByteArrayEntity("bar".getBytes(UTF_8)));
+        put.setHeader("If-Match", "\"0\"");
+        assertEquals(412, status(put));
+
+        put.setHeader("If-Match", "*");
+        assertEquals(204, status(put));
+    }
+
+    @Test
+    public void testConditionalCreate() throws IOException {
+        final HttpPut put = new HttpPut(base + "/obj");
+        put.setHeader("If-None-Match", "*");
+        assertEquals(201, status(put));
+        assertEquals(412, status(put));
+    }
+
+    @Test
+    public void testDeleteLeavesTombstone() throws IOException {
+        server.createContainer("/a/b");
+        assertEquals(204, status(new HttpDelete(base + "/a")));
+        assertEquals(410, status(new HttpGet(base + "/a")));
+        assertEquals(410, status(new HttpGet(base + "/a/b")));
+        assertEquals(410, status(new HttpPut(base + "/a/b")));
+        assertTrue(server.isDeleted("/a"));
+
+        assertEquals(204, status(new HttpDelete(base + "/a/fcr:tombstone")));
+        assertEquals(404, status(new HttpGet(base + "/a")));
+        assertEquals(201, status(new HttpPut(base + "/a")));
+    }
+
+    @Test
+    public void testSparqlUpdate() throws IOException {
+        server.createContainer("/a");
+        assertEquals(204, status(patch("/a", "INSERT DATA { <> <" + DC.title + "> \"title\" }")));
+        final Model model = model(new HttpGet(base + "/a"));
+        assertTrue(model.contains(model.createResource(base + "/a"), DC.title, "title"));
+
+        assertEquals(409, status(patch("/a", "INSERT DATA { <> <" + HAS_MIXIN_TYPE + "> \"foo\" }")));
+        assertEquals(400, status(patch("/a", "INSERT nonsense")));
+    }
+
+    @Test
+    public void testCopyAndMove() throws IOException {
+        server.createContainer("/a/b");
+        assertEquals(201, status(copy("COPY", "/a", "/c")));
+        assertTrue(server.exists("/c/b"));
+        assertEquals(412, status(copy("COPY", "/a", "/c")));
+        assertEquals(409, status(copy("COPY", "/missing", "/d")));
+        assertEquals(502, status(copy("COPY", "/a", null)));
+
+        assertEquals(201, status(copy("MOVE", "/a", "/d")));
+        assertTrue(server.exists("/d/b"));
+        assertEquals(410, status(new HttpGet(base + "/a/b")));
+    }
+
+    @Test
+    public void testVersions() throws IOException {
+        server.createContainer("/a");
+        final HttpPost post = new HttpPost(base + "/a/fcr:versions");
+        post.setHeader("Slug", "v1");
+        assertEquals(204, status(post));
+        assertEquals(409, status(post));
+
+        final Model model = model(new HttpGet(base + "/a/fcr:versions"));
+        assertTrue(model.contains(model.createResource(base + "/a/fcr:versions/v1"), HAS_VERSION_LABEL, "v1"));
+        assertEquals(200, status(new HttpGet(base + "/a/fcr:versions/v1")));
+    }
+
+    @Test
+    public void testContentNegotiation() throws IOException {
+        server.createContainer("/a");
+        final HttpGet get = new HttpGet(base + "/a");
+        get.setHeader("Accept", "application/rdf+xml;q=0.5, application/n-triples");
+        try {
+            final HttpResponse response = client.execute(get);
+            assertEquals("application/n-triples", response.getFirstHeader("Content-Type").getValue());
+        } finally {
+            get.releaseConnection();
+        }
+
+        get.setHeader("Accept", "image/png");
+        assertEquals(406, status(get));
+        assertEquals(FakeFedoraServer.negotiate(null, server.getSerializations()), Lang.TURTLE);
+
+        server.setSerializations(Lang.RDFTHRIFT, Lang.TURTLE);
+        get.setHeader("Accept", "application/rdf+thrift, text/turtle;q=0.9");
+        try {
+            final HttpResponse response = client.execute(get);
+            assertEquals("application/rdf+thrift", response.getFirstHeader("Content-Type").getValue());
+        } finally {
+            get.releaseConnection();
+        }
+        get.setHeader("Accept", "application/n-triples");
+        assertEquals(406, status(get));
+    }
+
+    @Test
+    public void testInjectedErrors() throws IOException {
+        server.setFaultProfile(new FaultProfile().setErrorRate(1.0).setRetryAfter(2));
+        final HttpGet get = new HttpGet(base + "/");
+        try {
+            final HttpResponse response = client.execute(get);
+            assertEquals(503, response.getStatusLine().getStatusCode());
+            assertEquals("2", response.getFirstHeader("Retry-After").getValue());
+        } finally {
+            get.releaseConnection();
+        }
+        assertEquals(1, server.getInjectedFaultCount());
+    }
+
+    @Test
+    public void testInjectedLatency() throws IOException {
+        server.setFaultProfile(new FaultProfile().setLatency(50).setJitter(10));
+        final long start = System.currentTimeMillis();
+        assertEquals(200, status(new HttpGet(base + "/")));
+        assertTrue(System.currentTimeMillis() - start >= 50);
+    }
+
+    @Test
+    public void testInjectedReset() throws IOException {
+        server.setFaultProfile(new FaultProfile().setResetRate(1.0));
+        try {
+            status(new HttpGet(base + "/"));
+            fail("connection should have been reset");
+        } catch (final NoHttpResponseException e) {
+            // expected
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private int status(final HttpRequestBase request) throws IOException {
+        try {
+            return client.execute(request).getStatusLine().getStatusCode();
+        } finally {
+            request.releaseConnection();
+        }
+    }
+
+    private Model model(final HttpGet get) throws IOException {
+        get.setHeader("Accept", "application/n-triples");
+        try {
+            final HttpResponse response = client.execute(get);
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            final Model model = ModelFactory.createDefaultModel();
+            RDFDataMgr.read(model, new ByteArrayInputStream(EntityUtils.toByteArray(response.getEntity())),
+                    Lang.NTRIPLES);
+            return model;
+        } finally {
+            get.releaseConnection();
+        }
+    }
+
+    private HttpPatch patch(final String path, final String update) {
+        final HttpPatch patch = new HttpPatch(base + path);
+        patch.setHeader("Content-Type", "application/sparql-update");
+        patch.setEntity(new ByteArrayEntity(update.getBytes(UTF_8)));
+        return patch;
+    }
+
+    private HttpRequestBase copy(final String method, final String source, final String destination) {
+        final HttpRequestBase request = new HttpRequestBase() {
+            @Override
+            public String getMethod() {
+                return method;
+            }
+        };
+        request.setURI(URI.create(base + source));
+        request.setHeader("Destination", destination == null ? "http://example.org/elsewhere"
+                : base + destination);
+        return request;
+    }
+}
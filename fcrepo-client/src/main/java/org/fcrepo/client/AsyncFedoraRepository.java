@@ -0,0 +1,116 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking companion to {@link FedoraRepository}.  Each operation returns immediately with a
+ * CompletableFuture that is completed when the repository responds, or completed exceptionally with a
+ * {@link FedoraException} (or one of its subclasses) when the request fails.
+ * @author escowles
+**/
+public interface AsyncFedoraRepository extends Closeable {
+
+    /**
+     * Get the base URL for the repository.
+    **/
+    public String getRepositoryUrl();
+
+    /**
+     * Check whether a path is an existing resource.
+     * @param path The resource path.
+    **/
+    public CompletableFuture<Boolean> exists( String path );
+
+    /**
+     * Get an existing Datastream.
+     * @param path The Datastream path.
+    **/
+    public CompletableFuture<FedoraDatastream> getDatastream( String path );
+
+    /**
+     * Get an existing Object.
+     * @param path The Object path.
+    **/
+    public CompletableFuture<FedoraObject> getObject( String path );
+
+    /**
+     * Create a new Datastream.
+     * @param path The path of the new datastream.
+     * @param content Content of the new datastream.
+    **/
+    public CompletableFuture<FedoraDatastream> createDatastream( String path, FedoraContent content );
+
+    /**
+     * Create a new Object.
+     * @param path The Object path.
+    **/
+    public CompletableFuture<FedoraObject> createObject( String path );
+
+    /**
+     * Create a new Object with a repository-supplied path that is within the container
+     * at the provided containerPath.
+     * @param containerPath the path to a container in which this resource will be created.  An
+     *                      empty String or null will create a new resource at the root level.
+    **/
+    public CompletableFuture<FedoraObject> createResource( String containerPath );
+
+    /**
+     * Get an existing Datastream if it exists, otherwise create a new Datastream.
+     * @param path The Datastream path.
+    **/
+    public CompletableFuture<FedoraDatastream> findOrCreateDatastream( String path );
+
+    /**
+     * Get an existing Object if it exists, otherwise create a new Object.
+     * @param path The Object path.
+    **/
+    public CompletableFuture<FedoraObject> findOrCreateObject( String path );
+
+    /**
+     * Update the properties of a Resource using SPARQL Update.
+     * @param path The Resource path.
+     * @param sparqlUpdate SPARQL Update command.
+    **/
+    public CompletableFuture<Void> updateProperties( String path, String sparqlUpdate );
+
+    /**
+     * Copy a Resource to a new path.
+     * @param path The Resource path.
+     * @param destination The path of the new copy.
+    **/
+    public CompletableFuture<Void> copy( String path, String destination );
+
+    /**
+     * Move a Resource to a new path.
+     * @param path The Resource path.
+     * @param destination The new path of the Resource.
+    **/
+    public CompletableFuture<Void> move( String path, String destination );
+
+    /**
+     * Remove a Resource.
+     * @param path The Resource path.
+    **/
+    public CompletableFuture<Void> delete( String path );
+
+    /**
+     * Check whether this repository is writable.
+    **/
+    public boolean isWritable();
+}
@@ -17,6 +17,11 @@ package org.fcrepo.client;
 
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Container for holding properties of datastream content.  All setters return the updated object so they can be
@@ -29,9 +34,12 @@ import java.net.URI;
 public class FedoraContent {
 
     private InputStream content;
+    private Path file;
     private String contentType;
     private String filename;
     private URI checksum;
+    private List<String> digestAlgorithms = Collections.emptyList();
+    private Map<String, URI> digests = Collections.emptyMap();
 
     /**
      * Default constructor.
@@ -48,6 +56,15 @@ public class FedoraContent {
         return content;
     }
 
+    /**
+     * Get the file the content is sent from.
+     *
+     * @return the file, or null if the content is a stream
+    **/
+    public Path getFile() {
+        return file;
+    }
+
     /**
      * Get the content type (MIME type) of the content.
      *
@@ -76,6 +93,25 @@ public class FedoraContent {
         return checksum;
     }
 
+    /**
+     * Get the names of the digest algorithms computed while the content is sent.
+     *
+     * @return algorithm names, empty if no digest is computed
+    **/
+    public List<String> getDigestAlgorithms() {
+        return digestAlgorithms;
+    }
+
+    /**
+     * Get the digests computed while the content was sent, as URIs (e.g.,
+     * "{@code urn:sha256:...}").
+     *
+     * @return digest URIs by algorithm name, empty until the content has been sent
+    **/
+    public Map<String, URI> getDigests() {
+        return digests;
+    }
+
     /**
      * Set the content stream.
      *
@@ -84,6 +120,20 @@ public class FedoraContent {
     **/
     public FedoraContent setContent( final InputStream content ) {
         this.content = content;
+        this.file = null;
+        return this;
+    }
+
+    /**
+     * Set the content to be sent from a file.  Unlike a stream, a file is sent with its length and without
+     * copying it through the client, and can be sent again if the request is retried.
+     *
+     * @param file the file containing the content
+     * @return The updated object for chaining.
+    **/
+    public FedoraContent setFile( final Path file ) {
+        this.file = file;
+        this.content = null;
         return this;
     }
 
@@ -121,4 +171,38 @@ public class FedoraContent {
         return this;
     }
 
+    /**
+     * Compute digests of the content while it is sent, instead of reading it beforehand to set its checksum.
+     * SHA-1 is always computed and compared with the digest computed by the repository once the content is
+     * stored; a mismatch, or a repository reporting no SHA-1 digest, fails the request with a
+     * {@link FixityException}.  Other algorithms (e.g., "SHA-256" or "MD5") are only computed, and can be read
+     * with {@link #getDigests}.
+     *
+     * @param algorithms names of additional digest algorithms
+     * @return The updated object for chaining.
+    **/
+    public FedoraContent setDigestAlgorithms( final String... algorithms ) {
+        final List<String> names = new ArrayList<>();
+        names.add( "SHA-1" );
+        for ( final String algorithm : algorithms ) {
+            if ( !names.contains( algorithm ) ) {
+                names.add( algorithm );
+            }
+        }
+        this.digestAlgorithms = Collections.unmodifiableList( names );
+        return this;
+    }
+
+    /**
+     * Set the digests computed while the content was sent.  This is done by the client once the content has
+     * been sent.
+     *
+     * @param digests digest URIs by algorithm name
+     * @return The updated object for chaining.
+    **/
+    public FedoraContent setDigests( final Map<String, URI> digests ) {
+        this.digests = digests;
+        return this;
+    }
+
 }
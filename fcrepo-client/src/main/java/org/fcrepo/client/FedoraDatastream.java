@@ -17,6 +17,8 @@ package org.fcrepo.client;
 
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
 
 /**
  * A Fedora Datastream, a Resource that can contain content.
@@ -26,15 +28,48 @@ import java.net.URI;
 public interface FedoraDatastream extends FedoraResource {
 
     /**
-     * Check the size and checksum of the datastream content.
+     * Check the size and checksum of the datastream content, as computed by the repository.
+     * @return The result of the check.
+     * @throws FixityException if the content does not match its size or checksum.
     **/
-    public void checkFixity() throws FedoraException;
+    public FixityResult checkFixity() throws FedoraException;
+
+    /**
+     * Check the size and checksum of the datastream content by downloading it and computing its checksum while
+     * it is read, without holding it in memory.
+     * @return The result of the check.
+     * @throws FixityException if the content does not match its size or checksum.
+    **/
+    public FixityResult verifyContent() throws FedoraException;
 
     /**
      * Get the datastream content as an InputStream.
     **/
     public InputStream getContent() throws FedoraException;
 
+    /**
+     * Get part of the datastream content as an InputStream, with a range request.  The stream ends early if the
+     * content is shorter, and is empty if the offset is at or past its end.
+     * @param offset The offset of the first byte.
+     * @param length The maximum number of bytes, or a negative number to read to the end.
+    **/
+    public InputStream getContent( long offset, long length ) throws FedoraException;
+
+    /**
+     * Open a read-only seekable channel over the datastream content.  Content is read in blocks with range
+     * requests, and recently read blocks are cached by the channel, so it should be closed when done.
+     * @return The channel.
+    **/
+    public SeekableByteChannel openContentChannel();
+
+    /**
+     * Download the datastream content into a file, replacing it if it exists.  Large content may be downloaded
+     * in parallel ranges.  If the download fails, the file is left incomplete.
+     * @param file The file.
+     * @return The number of bytes downloaded.
+    **/
+    public long downloadTo( Path file ) throws FedoraException;
+
     /**
      * Get the checksum of the datastream content.
     **/
@@ -16,6 +16,7 @@
 package org.fcrepo.client;
 
 import java.util.Collection;
+import java.util.concurrent.Executor;
 
 /**
  * A Fedora Object, a Resource which can contain Datastreams and/or other Objects.
@@ -25,11 +26,32 @@ import java.util.Collection;
 public interface FedoraObject extends FedoraResource {
 
     /**
-     * Get the Object and Datastream nodes that are children of the current Object.
+     * Get the Object and Datastream nodes that are children of the current Object.  The children are built from
+     * the properties of this Object without further requests, and load their own properties when first read.
      * @param mixin If not null, limit to results that have this mixin.
     **/
     public Collection<FedoraResource> getChildren( String mixin ) throws FedoraException;
 
+    /**
+     * Get the Object and Datastream nodes that are children of the current Object, loading the properties of
+     * every child on the common fork-join pool before returning.
+     * @param mixin If not null, limit to results that have this mixin.
+     * @param parallelism Maximum number of children loaded concurrently.
+     * @throws FedoraException if the properties of a child cannot be loaded.
+    **/
+    public Collection<FedoraResource> getChildren( String mixin, int parallelism ) throws FedoraException;
+
+    /**
+     * Get the Object and Datastream nodes that are children of the current Object, loading the properties of
+     * every child on the given executor before returning.
+     * @param mixin If not null, limit to results that have this mixin.
+     * @param parallelism Maximum number of children loaded concurrently.
+     * @param executor Executor running the loads, such as a pool shared by the application.
+     * @throws FedoraException if the properties of a child cannot be loaded.
+    **/
+    public Collection<FedoraResource> getChildren( String mixin, int parallelism, Executor executor )
+            throws FedoraException;
+
     /**
      * Create a new resource with a repository-supplied path contained within
      * the resource exposed by this FedoraObject instance.
@@ -45,12 +45,26 @@ public interface FedoraRepository {
     **/
     public FedoraDatastream getDatastream( String path ) throws FedoraException;
 
+    /**
+     * Get an existing Datastream, loading its properties now or when first read.
+     * @param path The Datastream path.
+     * @param mode When to load the properties.
+    **/
+    public FedoraDatastream getDatastream( String path, LoadMode mode ) throws FedoraException;
+
     /**
      * Get an existing Object.
      * @param path The Object path.
     **/
     public FedoraObject getObject( String path ) throws FedoraException;
 
+    /**
+     * Get an existing Object, loading its properties now or when first read.
+     * @param path The Object path.
+     * @param mode When to load the properties.
+    **/
+    public FedoraObject getObject( String path, LoadMode mode ) throws FedoraException;
+
     /**
      * Create a new Datastream.
      * @param path The path of the new datastream.
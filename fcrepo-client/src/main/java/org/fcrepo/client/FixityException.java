@@ -22,11 +22,14 @@ package org.fcrepo.client;
 **/
 public class FixityException extends FedoraException {
 
+    private final transient FixityResult result;
+
     /**
      * Default constructor.
     **/
     public FixityException() {
         super();
+        this.result = null;
     }
 
     /**
@@ -35,5 +38,24 @@ public class FixityException extends FedoraException {
     **/
     public FixityException( final String message ) {
         super( message );
+        this.result = null;
+    }
+
+    /**
+     * Constructor with reason and the result of the failed check.
+     * @param message Details of the fixity exception.
+     * @param result Result of the fixity check.
+    **/
+    public FixityException( final String message, final FixityResult result ) {
+        super( message );
+        this.result = result;
+    }
+
+    /**
+     * Get the result of the failed check.
+     * @return the result, or null if the check did not complete
+    **/
+    public FixityResult getResult() {
+        return result;
     }
 }
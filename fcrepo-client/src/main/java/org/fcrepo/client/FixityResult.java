@@ -0,0 +1,96 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Result of checking the size and checksum of datastream content.
+ *
+ * @author escowles
+**/
+public class FixityResult {
+
+    /** Outcome of content matching its size and checksum. */
+    public static final String SUCCESS = "SUCCESS";
+
+    /** Outcome of content not matching its checksum. */
+    public static final String BAD_CHECKSUM = "BAD_CHECKSUM";
+
+    /** Outcome of content not matching its size. */
+    public static final String BAD_SIZE = "BAD_SIZE";
+
+    private final Set<String> outcomes;
+    private final URI digest;
+    private final Long size;
+
+    /**
+     * Constructor.
+     * @param outcomes The outcomes of the check (e.g., {@link #SUCCESS}).
+     * @param digest The checksum computed from the content, or null if unknown.
+     * @param size The size computed from the content, or null if unknown.
+    **/
+    public FixityResult( final Set<String> outcomes, final URI digest, final Long size ) {
+        this.outcomes = Collections.unmodifiableSet( new LinkedHashSet<>( outcomes ) );
+        this.digest = digest;
+        this.size = size;
+    }
+
+    /**
+     * Get the outcomes of the check.
+     *
+     * @return outcomes, such as {@link #SUCCESS}, {@link #BAD_CHECKSUM} or {@link #BAD_SIZE}
+    **/
+    public Set<String> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Check whether the content matches its size and checksum.
+     *
+     * @return true if {@link #SUCCESS} is the only outcome
+    **/
+    public boolean isSuccess() {
+        return outcomes.size() == 1 && outcomes.contains( SUCCESS );
+    }
+
+    /**
+     * Get the checksum computed from the content as a URI (e.g.,
+     * "{@code urn:sha1:290fa4c6a6161c0941fcaa915e2f96aecc85cd9f}").
+     *
+     * @return checksum, or null if unknown
+    **/
+    public URI getComputedChecksum() {
+        return digest;
+    }
+
+    /**
+     * Get the size computed from the content in bytes.
+     *
+     * @return size, or null if unknown
+    **/
+    public Long getComputedSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return outcomes + " (checksum " + digest + ", size " + size + ")";
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2015 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.client;
+
+/**
+ * When the properties of a resource returned by a repository are loaded.
+ * @author escowles
+**/
+public enum LoadMode {
+
+    /**
+     * Load the properties before returning the resource, so a missing resource is reported immediately.
+    **/
+    EAGER,
+
+    /**
+     * Return a handle without any request, and load the properties when one is first read.  Operations which
+     * only need the path, such as delete, move and copy, never load them.  A missing resource is reported by
+     * the first operation that reaches the repository.
+    **/
+    LAZY
+}
@@ -16,11 +16,14 @@
 package org.fcrepo.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import org.junit.Test;
 
@@ -65,4 +68,18 @@ public class FedoraContentTest {
         assertEquals( filename, content.getFilename() );
         assertEquals( checksum, content.getChecksum() );
     }
+
+    @Test
+    public void testFedoraContentFile() {
+        final Path file = Paths.get("foo.txt");
+        final InputStream in = new ByteArrayInputStream("foo".getBytes());
+
+        final FedoraContent content = new FedoraContent().setContent(in).setFile(file);
+        assertEquals( file, content.getFile() );
+        assertNull( content.getContent() );
+
+        content.setContent(in);
+        assertEquals( in, content.getContent() );
+        assertNull( content.getFile() );
+    }
 }